@@ -1,7 +1,171 @@
+import nes.finance.cli.BatchRunner;
 import nes.finance.cli.CLIApplication;
+import nes.finance.cli.ClusterConsole;
+import nes.finance.cli.FollowerConsole;
+import nes.finance.cli.ReportPrinter;
+import nes.finance.cli.ReportingConsole;
+import nes.finance.cluster.ClusterNode;
+import nes.finance.cluster.ClusterRouter;
+import nes.finance.cluster.ReplicationFollower;
+import nes.finance.cluster.ReplicationPrimary;
+import nes.finance.load.LoadConfig;
+import nes.finance.load.LoadGenerator;
+import nes.finance.load.LoadReport;
+import nes.finance.logging.AsyncAppender;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.logging.StreamAppender;
+import nes.finance.service.AuthService;
+import nes.finance.service.DataService;
+import nes.finance.service.ReconciliationReport;
+import nes.finance.service.ReconciliationService;
+import nes.finance.service.ReportingService;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Scanner;
 
 public class Main {
+    private static final int LOG_BUFFER_SIZE = 1024;
+
     public static void main(String[] args) {
+        // Режим отчетов только для чтения: java -jar app.jar --reporting [каталог данных]
+        if (args.length > 0 && args[0].equals("--reporting")) {
+            String dataDir = args.length > 1 ? args[1] : DataService.DEFAULT_DATA_DIR;
+            LoggerFactory.setAppender(new AsyncAppender(new StreamAppender(System.out, true),
+                    LOG_BUFFER_SIZE, AsyncAppender.OverflowPolicy.DROP));
+            try {
+                new ReportingConsole(new ReportingService(dataDir), System.in, System.out).run();
+            } finally {
+                LoggerFactory.shutdown();
+            }
+            return;
+        }
+
+        // Сверка кошельков: java -jar app.jar --reconcile [каталог данных] [--repair]
+        if (args.length > 0 && args[0].equals("--reconcile")) {
+            boolean repair = Arrays.asList(args).contains("--repair");
+            String dataDir = args.length > 1 && !args[1].startsWith("--") ? args[1] : DataService.DEFAULT_DATA_DIR;
+            LoggerFactory.setAppender(new StreamAppender(System.out, true));
+            ReconciliationReport report = new ReconciliationService(new DataService(dataDir)).reconcileAll(repair);
+            new ReportPrinter(System.out).printReconciliation(report, Integer.MAX_VALUE);
+            LoggerFactory.shutdown();
+            boolean resolved = report.getRepairedCount() == report.getDiscrepancies().size();
+            System.exit(report.getFailedCount() == 0 && resolved ? 0 : 1);
+            return;
+        }
+
+        // Узел кластера: java -jar app.jar --node <порт> [каталог данных]
+        if (args.length > 1 && args[0].equals("--node")) {
+            String dataDir = args.length > 2 ? args[2] : DataService.DEFAULT_DATA_DIR;
+            LoggerFactory.setAppender(new AsyncAppender(new StreamAppender(System.out, true),
+                    LOG_BUFFER_SIZE, AsyncAppender.OverflowPolicy.DROP));
+            try (ClusterNode node = new ClusterNode(dataDir, Integer.parseInt(args[1]))) {
+                node.start();
+                System.out.println("Узел " + node.getAddress() + " запущен, Enter - остановка");
+                new Scanner(System.in).hasNextLine();
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Ошибка запуска узла: " + e.getMessage());
+            } finally {
+                LoggerFactory.shutdown();
+            }
+            return;
+        }
+
+        // Реплика: java -jar app.jar --follow host:port [каталог данных]
+        // После promote каталог реплики открывается в обычном режиме
+        if (args.length > 1 && args[0].equals("--follow")) {
+            String dataDir = args.length > 2 ? args[2] : DataService.DEFAULT_DATA_DIR;
+            LoggerFactory.setAppender(new AsyncAppender(new StreamAppender(System.out, true),
+                    LOG_BUFFER_SIZE, AsyncAppender.OverflowPolicy.DROP));
+            try {
+                ReplicationFollower follower = new ReplicationFollower(dataDir, args[1]);
+                if (new FollowerConsole(follower, System.in, System.out).run()) {
+                    new CLIApplication(new AuthService(new DataService(dataDir)), System.in, System.out, true).run();
+                }
+            } finally {
+                LoggerFactory.shutdown();
+            }
+            return;
+        }
+
+        // Ведущий репликации: java -jar app.jar --primary <порт> [каталог данных] [--semi-sync <мс>]
+        if (args.length > 1 && args[0].equals("--primary")) {
+            String dataDir = args.length > 2 && !args[2].startsWith("--") ? args[2] : DataService.DEFAULT_DATA_DIR;
+            int semiSync = Arrays.asList(args).indexOf("--semi-sync");
+            LoggerFactory.setAppender(new AsyncAppender(new StreamAppender(System.out, true),
+                    LOG_BUFFER_SIZE, AsyncAppender.OverflowPolicy.DROP));
+            DataService dataService = new DataService(dataDir);
+            try (ReplicationPrimary primary = new ReplicationPrimary(dataService, Integer.parseInt(args[1]))) {
+                if (semiSync >= 0 && semiSync + 1 < args.length) {
+                    primary.setSyncTimeoutMillis(Long.parseLong(args[semiSync + 1]));
+                }
+                primary.start();
+                new CLIApplication(new AuthService(dataService), System.in, System.out, true).run();
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Ошибка запуска ведущего репликации: " + e.getMessage());
+            } finally {
+                LoggerFactory.shutdown();
+            }
+            return;
+        }
+
+        // Нагрузочный тест: java -jar app.jar --load [--users N] [--duration S] [--mix income=30,...] [--nodes ...]
+        if (args.length > 0 && args[0].equals("--load")) {
+            LoadConfig config;
+            try {
+                config = LoadConfig.fromArguments(args);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ошибка: " + e.getMessage());
+                System.err.println("Использование: --load [--users N] [--duration S] [--warmup S] [--think MS] [--sample S]"
+                        + " [--mix income=30,expense=45,report=15,period=7,export=3] [--data DIR] [--report FILE]"
+                        + " [--nodes host:port,...]");
+                System.exit(BatchRunner.EXIT_USAGE_ERROR);
+                return;
+            }
+            LoggerFactory.setAppender(new AsyncAppender(new StreamAppender(System.out, true),
+                    LOG_BUFFER_SIZE, AsyncAppender.OverflowPolicy.DROP));
+            try {
+                LoadReport report = new LoadGenerator(config).run();
+                report.printSummary(System.out);
+                report.writeJson(config.getReportPath());
+                System.out.println("Отчет сохранен: " + config.getReportPath());
+            } catch (IOException e) {
+                System.err.println("Ошибка нагрузочного теста: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                LoggerFactory.shutdown();
+            }
+            return;
+        }
+
+        // Консоль кластера: java -jar app.jar --cluster host:port[,host:port...]
+        if (args.length > 1 && args[0].equals("--cluster")) {
+            ClusterRouter router = new ClusterRouter(Arrays.asList(args[1].split(",")));
+            new ClusterConsole(router, System.in, System.out).run();
+            LoggerFactory.shutdown();
+            return;
+        }
+
+        // Пакетный режим: java -jar app.jar --batch <file|-> [--verbose] [--stop-on-error] [--checkpoint N]
+        if (args.length > 0) {
+            BatchRunner runner;
+            try {
+                runner = BatchRunner.fromArguments(args);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ошибка: " + e.getMessage());
+                System.err.println("Использование: --batch <file|-> [--verbose] [--stop-on-error] [--checkpoint N]");
+                System.exit(BatchRunner.EXIT_USAGE_ERROR);
+                return;
+            }
+            System.exit(runner.run());
+            return;
+        }
+
+        // Сообщения сервисов выводятся в консоль фоновым потоком, не задерживая команды
+        LoggerFactory.setAppender(new AsyncAppender(new StreamAppender(System.out, true),
+                LOG_BUFFER_SIZE, AsyncAppender.OverflowPolicy.DROP));
+
         try {
             CLIApplication app = new CLIApplication();
 
@@ -18,6 +182,8 @@ public class Main {
             System.out.println("  Проверьте, что все файлы скомпилированы правильно");
             System.out.println("  Убедитесь, что есть права на запись в директорию data/");
             System.out.println("  Попробуйте удалить поврежденные файлы в директории data/");
+        } finally {
+            LoggerFactory.shutdown();
         }
     }
-}
\ No newline at end of file
+}
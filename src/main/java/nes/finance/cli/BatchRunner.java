@@ -0,0 +1,215 @@
+package nes.finance.cli;
+
+import nes.finance.logging.LoggerFactory;
+import nes.finance.logging.StreamAppender;
+import nes.finance.service.AuthService;
+import nes.finance.service.DataService;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Неинтерактивное выполнение команд из файла или стандартного ввода.
+ *
+ * Вывод команд собирается в памяти и по умолчанию отбрасывается, на консоль
+ * попадают только ошибки с номерами строк. Автосохранение отключено: данные
+ * сохраняются в контрольных точках и в конце выполнения.
+ */
+public class BatchRunner {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_COMMAND_ERRORS = 1;
+    public static final int EXIT_USAGE_ERROR = 2;
+    public static final int EXIT_IO_ERROR = 3;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private final String source;
+    private final boolean verbose;
+    private final boolean stopOnError;
+    private final int checkpointInterval;
+    private final String dataDir;
+
+    private int commandCount;
+    private int errorCount;
+
+    public BatchRunner(String source, boolean verbose, boolean stopOnError, int checkpointInterval) {
+        this(source, verbose, stopOnError, checkpointInterval, DataService.DEFAULT_DATA_DIR);
+    }
+
+    public BatchRunner(String source, boolean verbose, boolean stopOnError, int checkpointInterval, String dataDir) {
+        this.source = source;
+        this.verbose = verbose;
+        this.stopOnError = stopOnError;
+        this.checkpointInterval = checkpointInterval;
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * Разбор аргументов командной строки:
+     * --batch &lt;file|-&gt; [--verbose] [--stop-on-error] [--checkpoint N]
+     */
+    public static BatchRunner fromArguments(String[] args) {
+        String source = null;
+        boolean verbose = false;
+        boolean stopOnError = false;
+        int checkpointInterval = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch":
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("не указан файл команд для --batch");
+                    }
+                    source = args[++i];
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                case "--stop-on-error":
+                    stopOnError = true;
+                    break;
+                case "--checkpoint":
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("не указан интервал для --checkpoint");
+                    }
+                    try {
+                        checkpointInterval = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("интервал --checkpoint должен быть числом");
+                    }
+                    if (checkpointInterval < 0) {
+                        throw new IllegalArgumentException("интервал --checkpoint не может быть отрицательным");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("неизвестный аргумент: " + args[i]);
+            }
+        }
+
+        if (source == null) {
+            throw new IllegalArgumentException("не указан источник команд (--batch <file|->)");
+        }
+
+        return new BatchRunner(source, verbose, stopOnError, checkpointInterval);
+    }
+
+    /**
+     * Выполнение с выводом в стандартные потоки процесса. Возвращает код завершения
+     */
+    public int run() {
+        PrintStream out = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(FileDescriptor.out), OUTPUT_BUFFER_SIZE), false, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(FileDescriptor.err), OUTPUT_BUFFER_SIZE), false, StandardCharsets.UTF_8);
+
+        try (Reader reader = "-".equals(source)
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8)) {
+            return run(new BufferedReader(reader, OUTPUT_BUFFER_SIZE), out, err);
+        } catch (IOException e) {
+            err.println("Ошибка чтения файла команд: " + e.getMessage());
+            return EXIT_IO_ERROR;
+        } finally {
+            out.flush();
+            err.flush();
+        }
+    }
+
+    /**
+     * Выполнение команд из reader. Вывод команд пишется в out только в режиме verbose,
+     * ошибки с номерами строк пишутся в err
+     */
+    public int run(BufferedReader script, PrintStream out, PrintStream err) throws IOException {
+        // Вывод каждой команды собирается в памяти: он нужен для текста ошибки
+        ByteArrayOutputStream commandOutput = new ByteArrayOutputStream();
+        PrintStream capture = new PrintStream(commandOutput, false, StandardCharsets.UTF_8);
+
+        // Предупреждения сервисов пишутся синхронно в тот же буфер: они объясняют причину ошибки
+        LoggerFactory.setAppender(new StreamAppender(capture, true));
+        try {
+            CLIApplication app = new CLIApplication(new AuthService(new DataService(dataDir)),
+                    new ByteArrayInputStream(new byte[0]), capture, false);
+            app.getFinancialService().setAutoSaveEnabled(false);
+            flushCommandOutput(commandOutput, capture, out);
+
+            int lineNumber = 0;
+            int mutationsSinceCheckpoint = 0;
+            String line;
+
+            while (app.isRunning() && (line = script.readLine()) != null) {
+                lineNumber++;
+                String command = line.trim();
+                if (command.isEmpty() || command.startsWith("#")) {
+                    continue;
+                }
+
+                commandCount++;
+                boolean success = app.executeCommand(command);
+                capture.flush();
+
+                if (!success) {
+                    errorCount++;
+                    err.printf("строка %d: %s: %s%n", lineNumber, command, firstLine(commandOutput));
+                }
+                flushCommandOutput(commandOutput, capture, out);
+
+                if (success && checkpointInterval > 0 && CLIApplication.isMutatingCommand(command)
+                        && ++mutationsSinceCheckpoint >= checkpointInterval) {
+                    app.getFinancialService().saveData();
+                    flushCommandOutput(commandOutput, capture, out);
+                    mutationsSinceCheckpoint = 0;
+                }
+
+                if (!success && stopOnError) {
+                    break;
+                }
+            }
+
+            // Отложенное сохранение и выход из аккаунта
+            app.shutdown();
+            flushCommandOutput(commandOutput, capture, out);
+        } finally {
+            LoggerFactory.shutdown();
+        }
+
+        if (verbose) {
+            out.printf("Выполнено команд: %d, ошибок: %d%n", commandCount, errorCount);
+        }
+        return errorCount == 0 ? EXIT_OK : EXIT_COMMAND_ERRORS;
+    }
+
+    private void flushCommandOutput(ByteArrayOutputStream commandOutput, PrintStream capture, PrintStream out) {
+        capture.flush();
+        if (verbose && commandOutput.size() > 0) {
+            out.write(commandOutput.toByteArray(), 0, commandOutput.size());
+        }
+        commandOutput.reset();
+    }
+
+    private String firstLine(ByteArrayOutputStream commandOutput) {
+        String text = new String(commandOutput.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (text.isEmpty()) {
+            return "команда завершилась ошибкой";
+        }
+        int newline = text.indexOf('\n');
+        return newline >= 0 ? text.substring(0, newline).trim() : text;
+    }
+
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+}
@@ -1,27 +1,92 @@
 package nes.finance.cli;
 
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.Alert;
+import nes.finance.model.AlertType;
+import nes.finance.model.TransactionPage;
+import nes.finance.model.TransactionQuery;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import nes.finance.report.CategoryDistribution;
+import nes.finance.report.FinancialReport;
+import nes.finance.report.PeriodReport;
+import nes.finance.service.AdminReportService;
+import nes.finance.service.AlertSweepScheduler;
 import nes.finance.service.AuthService;
 import nes.finance.service.FinancialService;
 import nes.finance.service.ExportService;
+import nes.finance.service.ImportResult;
+import nes.finance.service.ReconciliationReport;
+import nes.finance.service.ReconciliationService;
+import nes.finance.monitoring.FlightRecorderService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
 public class CLIApplication {
     private AuthService authService;
     private FinancialService financialService;
     private ExportService exportService;
+    private AdminReportService adminReportService;
+    private ReconciliationService reconciliationService;
+    private AlertSweepScheduler alertSweepScheduler;
+    private FlightRecorderService flightRecorder;
+    private ReportPrinter printer;
     private Scanner scanner;
+    private PrintStream out;
+    private boolean interactive;
+    // Последний поиск для вывода следующих страниц
+    private TransactionQuery lastSearch;
+    private String lastSearchCursor;
     private boolean isRunning;
 
+    private static final long ALERT_SWEEP_PERIOD_MINUTES = 5;
+    private static final int SEARCH_PAGE_SIZE = 20;
+    private static final int RECONCILIATION_USERS_SHOWN = 20;
+    private static final int TOP_SPENDING_SHOWN = 10;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter PROFILE_FILE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
 
     public CLIApplication() {
-        this.authService = new AuthService();
+        this(System.in, System.out, true);
+    }
+
+    /**
+     * Создание приложения с заданными потоками ввода-вывода.
+     * В неинтерактивном режиме подтверждения не запрашиваются и считаются полученными.
+     */
+    public CLIApplication(InputStream in, PrintStream out, boolean interactive) {
+        this(new AuthService(), in, out, interactive);
+    }
+
+    /**
+     * Создание приложения поверх существующего сеанса authService
+     */
+    public CLIApplication(AuthService authService, InputStream in, PrintStream out, boolean interactive) {
+        this.authService = authService;
         this.financialService = new FinancialService(authService);
         this.exportService = new ExportService();
-        this.scanner = new Scanner(System.in);
+        this.adminReportService = new AdminReportService(authService.getDataService());
+        this.reconciliationService = new ReconciliationService(authService);
+        this.alertSweepScheduler = new AlertSweepScheduler(authService);
+        this.flightRecorder = new FlightRecorderService();
+        this.printer = new ReportPrinter(out);
+        this.scanner = interactive ? new Scanner(in) : null;
+        this.out = out;
+        this.interactive = interactive;
         this.isRunning = true;
     }
 
@@ -29,6 +94,9 @@ public class CLIApplication {
         printWelcomeMessage();
         printMainHelp();
 
+        // Оповещения остальных пользователей проверяются в фоне, пока приложение запущено
+        alertSweepScheduler.start(ALERT_SWEEP_PERIOD_MINUTES, TimeUnit.MINUTES);
+
         while (isRunning) {
             showPrompt();
             String input = scanner.nextLine().trim();
@@ -37,244 +105,400 @@ public class CLIApplication {
                 continue;
             }
 
-            processCommand(input);
+            executeCommand(input);
         }
 
         scanner.close();
-        System.out.println("До свидания!");
+        alertSweepScheduler.stop();
+        LoggerFactory.flush();
+        out.println("До свидания!");
     }
 
     private void printWelcomeMessage() {
-        System.out.println("=".repeat(60));
-        System.out.println("        СИСТЕМА УПРАВЛЕНИЯ ЛИЧНЫМИ ФИНАНСАМИ");
-        System.out.println("=".repeat(60));
-        System.out.println("Введите 'help' для списка команд или 'help [команда]' для справки");
-        System.out.println();
+        out.println("=".repeat(60));
+        out.println("        СИСТЕМА УПРАВЛЕНИЯ ЛИЧНЫМИ ФИНАНСАМИ");
+        out.println("=".repeat(60));
+        out.println("Введите 'help' для списка команд или 'help [команда]' для справки");
+        out.println();
     }
 
     private void printMainHelp() {
-        System.out.println("ОСНОВНЫЕ КОМАНДЫ:");
-        System.out.println("  account    - Управление аккаунтом (регистрация, вход, выход)");
-        System.out.println("  money      - Работа с финансами (доходы, расходы)");
-        System.out.println("  budget     - Управление бюджетами");
-        System.out.println("  report     - Отчеты и статистика");
-        System.out.println("  category   - Управление категориями");
-        System.out.println("  export     - Экспорт данных");
-        System.out.println("  alert      - Оповещения и настройки");
-        System.out.println("  system     - Системные команды");
-        System.out.println();
-        System.out.println("Введите 'help [группа]' для подробной справки по группе команд");
+        out.println("ОСНОВНЫЕ КОМАНДЫ:");
+        out.println("  account    - Управление аккаунтом (регистрация, вход, выход)");
+        out.println("  money      - Работа с финансами (доходы, расходы)");
+        out.println("  budget     - Управление бюджетами");
+        out.println("  report     - Отчеты и статистика");
+        out.println("  category   - Управление категориями");
+        out.println("  export     - Экспорт данных");
+        out.println("  alert      - Оповещения и настройки");
+        out.println("  system     - Системные команды");
+        out.println("  admin      - Сводные отчеты по всем пользователям (администратор)");
+        out.println();
+        out.println("Введите 'help [группа]' для подробной справки по группе команд");
     }
 
     private void showPrompt() {
-        if (financialService.isAuthenticated()) {
+        if (financialService.isAuthenticated() && !financialService.isWalletReady()) {
+            out.printf("%s [загрузка данных...] > ", authService.getCurrentLogin());
+        } else if (financialService.isAuthenticated()) {
             String username = financialService.getCurrentUser().getLogin();
             double balance = financialService.getCurrentUser().getWallet().getBalance();
             int alerts = financialService.getCurrentUser().getWallet().getUnreadAlertCount();
 
             String alertIndicator = alerts > 0 ? String.format(" [%d alerts]", alerts) : "";
-            System.out.printf("%s [Balance: %.2f]%s > ", username, balance, alertIndicator);
+            out.printf("%s [Balance: %.2f]%s > ", username, balance, alertIndicator);
         } else {
-            System.out.print("finance > ");
+            out.print("finance > ");
         }
     }
 
-    private void processCommand(String input) {
-        String[] parts = input.split("\\s+");
+    /**
+     * Выполнение одной команды. Возвращает false, если команда завершилась ошибкой
+     */
+    public boolean executeCommand(String input) {
+        String[] parts = input.trim().split("\\s+");
         String command = parts[0].toLowerCase();
 
+        // Пока кошелек загружается, команды, которым он не нужен (справка, выход и т.п.),
+        // выполняются без ожидания; остальные ждут его, чтобы показать вызванные ими оповещения
+        User user = financialService.isWalletReady() || needsWallet(command)
+                ? financialService.getCurrentUser() : null;
+        int alertsBefore = user != null ? user.getWallet().getAlerts().size() : 0;
+        try {
+            return dispatch(command, parts);
+        } finally {
+            // Сообщения сервисов выводятся до результата следующей команды
+            LoggerFactory.flush();
+            if (user != null && user == financialService.getCurrentUser()) {
+                printCriticalAlerts(user.getWallet().getAlerts(), alertsBefore);
+            }
+        }
+    }
+
+    private boolean dispatch(String command, String[] parts) {
         try {
             switch (command) {
                 case "help":
-                    handleHelp(parts);
-                    break;
+                    return handleHelp(parts);
                 case "login":
-                    handleLogin(parts);
-                    break;
+                    return handleLogin(parts);
                 case "register":
                 case "reg":
-                    handleRegister(parts);
-                    break;
+                    return handleRegister(parts);
                 case "logout":
-                    handleLogout();
-                    break;
+                    return handleLogout();
                 case "exit":
                 case "quit":
-                    handleExit();
-                    break;
+                    return handleExit();
 
                 // Команды работы с финансами
                 case "add":
-                    handleAdd(parts);
-                    break;
+                    return handleAdd(parts);
                 case "income":
-                    handleIncome(parts);
-                    break;
+                    return handleIncome(parts);
                 case "expense":
                 case "spend":
-                    handleExpense(parts);
-                    break;
+                    return handleExpense(parts);
 
                 // Команды работы с бюджетами
                 case "budget":
-                    handleBudget(parts);
-                    break;
+                    return handleBudget(parts);
                 case "budgets":
-                    handleBudgets();
-                    break;
+                    return handleBudgets();
 
                 // Команды отчетов
                 case "report":
                 case "stats":
-                    handleReport(parts);
-                    break;
+                    return handleReport(parts);
                 case "summary":
-                    handleSummary();
-                    break;
+                    return handleSummary();
                 case "period":
-                    handlePeriod(parts);
-                    break;
+                    return handlePeriod(parts);
+                case "balance-at":
+                    return handleBalanceAt(parts);
+                case "distribution":
+                case "dist":
+                    return handleDistribution(parts);
+                case "forecast":
+                    return handleForecast();
+                case "search":
+                case "find":
+                    return handleSearch(parts);
 
                 // Команды категорий
                 case "categories":
                 case "cats":
-                    handleCategories();
-                    break;
+                    return handleCategories(parts);
                 case "rename":
-                    handleRename(parts);
-                    break;
+                    return handleRename(parts);
+                case "tag":
+                    return handleTag(parts, true);
+                case "untag":
+                    return handleTag(parts, false);
+                case "tags":
+                    return handleTags();
                 case "merge":
-                    handleMerge(parts);
-                    break;
+                    return handleMerge(parts);
 
                 // Команды экспорта
                 case "export":
-                    handleExport(parts);
-                    break;
+                    return handleExport(parts);
                 case "import":
-                    handleImport(parts);
-                    break;
+                    return handleImport(parts);
 
                 // Команды оповещений
                 case "alerts":
-                    handleAlerts();
-                    break;
+                    return handleAlerts();
                 case "check":
-                    handleCheckAlerts();
-                    break;
+                    return handleCheckAlerts();
 
                 // Системные команды
                 case "save":
-                    handleSave();
-                    break;
+                    return handleSave();
                 case "backup":
-                    handleBackup();
-                    break;
+                    return handleBackup();
                 case "clear":
-                    handleClear();
-                    break;
+                    return handleClear();
+                case "profile":
+                    return handleProfile(parts);
+
+                // Административные команды
+                case "admin":
+                    return handleAdmin(parts);
 
                 default:
-                    System.out.println("Неизвестная команда: " + command);
-                    System.out.println("Введите 'help' для списка доступных команд");
+                    out.println("Неизвестная команда: " + command);
+                    out.println("Введите 'help' для списка доступных команд");
+                    return false;
             }
         } catch (Exception e) {
-            System.out.println("Ошибка выполнения команды: " + e.getMessage());
-            System.out.println("Использование: " + getCommandUsage(command));
+            out.println("Ошибка выполнения команды: " + e.getMessage());
+            out.println("Использование: " + getCommandUsage(command));
+            return false;
+        }
+    }
+
+    /**
+     * Немедленный вывод критических оповещений, созданных во время выполнения команды
+     */
+    private void printCriticalAlerts(List<Alert> alerts, int from) {
+        for (int i = from; i < alerts.size(); i++) {
+            Alert alert = alerts.get(i);
+            if (alert.getType() == AlertType.BUDGET_EXCEEDED || alert.getType() == AlertType.OVERSPENDING) {
+                printer.printCriticalAlert(alert);
+            }
+        }
+    }
+
+    /**
+     * Проверка, читает или изменяет ли команда кошелек вошедшего пользователя
+     */
+    private static boolean needsWallet(String command) {
+        switch (command) {
+            case "add":
+            case "income":
+            case "expense":
+            case "spend":
+            case "budget":
+            case "budgets":
+            case "report":
+            case "stats":
+            case "summary":
+            case "period":
+            case "balance-at":
+            case "distribution":
+            case "dist":
+            case "forecast":
+            case "search":
+            case "find":
+            case "categories":
+            case "cats":
+            case "rename":
+            case "tag":
+            case "untag":
+            case "tags":
+            case "merge":
+            case "export":
+            case "import":
+            case "alerts":
+            case "check":
+            case "save":
+            case "backup":
+            case "clear":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Проверка, изменяет ли команда данные пользователя
+     */
+    public static boolean isMutatingCommand(String input) {
+        String command = input.trim().split("\\s+")[0].toLowerCase();
+        switch (command) {
+            case "add":
+            case "income":
+            case "expense":
+            case "spend":
+            case "budget":
+            case "rename":
+            case "merge":
+            case "import":
+            case "tag":
+            case "untag":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public FinancialService getFinancialService() {
+        return financialService;
+    }
+
+    /**
+     * Запрос подтверждения у пользователя. В неинтерактивном режиме считается полученным
+     */
+    private boolean confirm(String question) {
+        if (!interactive) {
+            return true;
         }
+
+        out.print(question + " (yes/no): ");
+        out.flush();
+        String confirmation = scanner.nextLine().trim().toLowerCase();
+        return confirmation.equals("yes") || confirmation.equals("y");
     }
 
-    private void handleHelp(String[] parts) {
+    private boolean handleHelp(String[] parts) {
         if (parts.length == 1) {
             printMainHelp();
-        } else {
-            String topic = parts[1].toLowerCase();
-            printDetailedHelp(topic);
+            return true;
         }
+
+        String topic = parts[1].toLowerCase();
+        return printDetailedHelp(topic);
     }
 
-    private void printDetailedHelp(String topic) {
-        System.out.println();
-        System.out.println("СПРАВКА: " + topic.toUpperCase());
-        System.out.println("-".repeat(60));
+    private boolean printDetailedHelp(String topic) {
+        out.println();
+        out.println("СПРАВКА: " + topic.toUpperCase());
+        out.println("-".repeat(60));
 
         switch (topic) {
             case "account":
-                System.out.println("Команды управления аккаунтом:");
-                System.out.println("  login <username> <password>     - Вход в систему");
-                System.out.println("  register <username> <password>  - Регистрация нового пользователя");
-                System.out.println("  logout                          - Выход из системы");
-                System.out.println("  exit                            - Выход из приложения");
+                out.println("Команды управления аккаунтом:");
+                out.println("  login <username> <password>     - Вход в систему");
+                out.println("  register <username> <password>  - Регистрация нового пользователя");
+                out.println("  logout                          - Выход из системы");
+                out.println("  exit                            - Выход из приложения");
                 break;
 
             case "money":
-                System.out.println("Команды работы с финансами:");
-                System.out.println("  income <amount> <category>      - Добавить доход");
-                System.out.println("  expense <amount> <category>     - Добавить расход");
-                System.out.println("  add income <amount> <category>  - Альтернативный синтаксис");
-                System.out.println("  add expense <amount> <category> - Альтернативный синтаксис");
-                System.out.println("Пример: income 5000 Зарплата");
-                System.out.println("Пример: expense 1500 Продукты");
+                out.println("Команды работы с финансами:");
+                out.println("  income <amount> <category>      - Добавить доход");
+                out.println("  expense <amount> <category>     - Добавить расход");
+                out.println("  expense <amount> <category> #trip #tax - Расход с метками");
+                out.println("  add income <amount> <category>  - Альтернативный синтаксис");
+                out.println("  add expense <amount> <category> - Альтернативный синтаксис");
+                out.println("Пример: income 5000 Зарплата");
+                out.println("Пример: expense 1500 Продукты");
                 break;
 
             case "budget":
-                System.out.println("Команды управления бюджетами:");
-                System.out.println("  budget set <category> <limit>   - Установить бюджет");
-                System.out.println("  budget edit <category> <limit>  - Изменить бюджет");
-                System.out.println("  budget remove <category>        - Удалить бюджет");
-                System.out.println("  budgets                         - Показать все бюджеты");
-                System.out.println("Пример: budget set Продукты 10000");
+                out.println("Команды управления бюджетами:");
+                out.println("  budget set <category> <limit>   - Установить бюджет");
+                out.println("  budget edit <category> <limit>  - Изменить бюджет");
+                out.println("  budget remove <category>        - Удалить бюджет");
+                out.println("  budgets                         - Показать все бюджеты");
+                out.println("Пример: budget set Продукты 10000");
                 break;
 
             case "report":
-                System.out.println("Команды отчетов и статистики:");
-                System.out.println("  report full                     - Полный отчет");
-                System.out.println("  report today                    - Отчет за сегодня");
-                System.out.println("  report week                     - Отчет за неделю");
-                System.out.println("  report month                    - Отчет за месяц");
-                System.out.println("  period <start> <end>            - Отчет за период");
-                System.out.println("  summary                         - Краткая сводка");
-                System.out.println("Формат даты: YYYY-MM-DD");
-                System.out.println("Пример: period 2024-01-01 2024-01-31");
+                out.println("Команды отчетов и статистики:");
+                out.println("  report full                     - Полный отчет");
+                out.println("  report today                    - Отчет за сегодня");
+                out.println("  report week                     - Отчет за неделю");
+                out.println("  report month                    - Отчет за месяц");
+                out.println("  period <start> <end>            - Отчет за период");
+                out.println("  period <start> <end> <filter>   - Отчет за период по меткам (&, |, !, скобки)");
+                out.println("  balance-at <date>               - Остаток на конец дня");
+                out.println("  balance-at <start> <end>        - Остатки на границах периода и оборот за период");
+                out.println("  summary                         - Краткая сводка");
+                out.println("  dist [category]                 - Медиана, p90 и p99 сумм по категориям");
+                out.println("  forecast                        - Прогноз расходов по бюджетам на конец месяца");
+                out.println("  search [income|expense] [cat=<path>] [min=<n>] [max=<n>] [from=<date>] [to=<date>]");
+                out.println("                                  - Поиск операций");
+                out.println("  search next                     - Следующая страница результатов поиска");
+                out.println("Формат даты: YYYY-MM-DD");
+                out.println("Пример: period 2024-01-01 2024-01-31");
+                out.println("Пример: search expense cat=Еда min=5000 max=20000 from=2024-01-01 to=2024-03-31");
                 break;
 
             case "category":
-                System.out.println("Команды управления категориями:");
-                System.out.println("  categories                      - Список всех категорий");
-                System.out.println("  rename <old> <new>              - Переименовать категорию");
-                System.out.println("  merge <cat1> <cat2> ... <new>   - Объединить категории");
-                System.out.println("Пример: rename Еда Продукты");
-                System.out.println("Пример: merge Кафе Ресторан Развлечения Еда_вне_дома");
+                out.println("Команды управления категориями:");
+                out.println("  categories                      - Список всех категорий");
+                out.println("  categories <path> [depth]       - Дерево категорий с итогами вложенных");
+                out.println("  rename <old> <new>              - Переименовать категорию");
+                out.println("  merge <cat1> <cat2> ... <new>   - Объединить категории");
+                out.println("  tags                            - Метки и количество операций с ними");
+                out.println("  tag <number> <tag> [tag ...]    - Отметить операцию (номер из поиска)");
+                out.println("  untag <number> <tag>            - Снять метку с операции");
+                out.println("Вложенные категории задаются путем через '/': Еда/Кафе");
+                out.println("Бюджет родительской категории учитывает расходы всех вложенных");
+                out.println("Пример: categories Еда 1");
+                out.println("Пример: rename Еда Продукты");
+                out.println("Пример: merge Кафе Ресторан Развлечения Еда_вне_дома");
                 break;
 
             case "export":
-                System.out.println("Команды экспорта данных:");
-                System.out.println("  export csv                      - Экспорт транзакций в CSV");
-                System.out.println("  export budgets                  - Экспорт бюджетов в CSV");
-                System.out.println("  export json                     - Экспорт всех данных в JSON");
-                System.out.println("  export report                   - Экспорт отчета в текстовый файл");
-                System.out.println("  import csv <file>               - Импорт транзакций из CSV");
+                out.println("Команды экспорта данных:");
+                out.println("  export csv                      - Экспорт транзакций в CSV");
+                out.println("  export csv <start> <end>        - Экспорт транзакций за период с остатком на начало");
+                out.println("  export budgets                  - Экспорт бюджетов в CSV");
+                out.println("  export json                     - Экспорт всех данных в JSON");
+                out.println("  export report                   - Экспорт отчета в текстовый файл");
+                out.println("  import csv <file>               - Импорт транзакций из CSV");
                 break;
 
             case "alert":
-                System.out.println("Команды оповещений:");
-                System.out.println("  alerts                          - Показать все оповещения");
-                System.out.println("  check                           - Проверить все условия для оповещений");
-                System.out.println("  clear alerts                    - Очистить все оповещения");
+                out.println("Команды оповещений:");
+                out.println("  alerts                          - Показать все оповещения");
+                out.println("  check                           - Проверить все условия для оповещений");
+                out.println("  clear alerts                    - Очистить все оповещения");
                 break;
 
             case "system":
-                System.out.println("Системные команды:");
-                System.out.println("  save                            - Сохранить данные");
-                System.out.println("  backup                          - Создать резервную копию");
-                System.out.println("  clear                           - Очистить экран");
+                out.println("Системные команды:");
+                out.println("  save                            - Сохранить данные");
+                out.println("  backup                          - Создать резервную копию");
+                out.println("  clear                           - Очистить экран");
+                out.println("  profile start [file]            - Начать запись JFR в файл");
+                out.println("  profile stop                    - Остановить запись JFR");
+                out.println("  profile status                  - Состояние записи JFR");
+                break;
+
+            case "admin":
+                out.println("Административные команды:");
+                out.println("  admin report                    - Сводный отчет по всем сохраненным пользователям");
+                out.println("  admin sweep                     - Проверка оповещений по кошелькам всех пользователей");
+                out.println("  admin top [n]                   - Категории и пользователи с наибольшими расходами");
+                out.println("  admin reconcile [repair]        - Сверка баланса и итогов категорий с операциями");
                 break;
 
             default:
-                System.out.println("Раздел справки не найден: " + topic);
-                System.out.println("Доступные разделы: account, money, budget, report, category, export, alert, system");
+                out.println("Раздел справки не найден: " + topic);
+                out.println("Доступные разделы: account, money, budget, report, category, export, alert, system, admin");
+                out.println();
+                return false;
         }
-        System.out.println();
+        out.println();
+        return true;
     }
 
     private String getCommandUsage(String command) {
@@ -284,112 +508,144 @@ public class CLIApplication {
             case "income": return "income <amount> <category>";
             case "expense": return "expense <amount> <category>";
             case "budget": return "budget set|edit|remove <category> [limit]";
-            case "period": return "period <start_date> <end_date>";
+            case "period": return "period <start_date> <end_date> [tag_filter]";
+            case "balance-at": return "balance-at <date> [end_date]";
+            case "tag": return "tag <number> <tag> [tag ...]";
+            case "untag": return "untag <number> <tag>";
+            case "dist": return "dist [category]";
+            case "search": return "search [income|expense] [cat=<path>] [min=<n>] [max=<n>] [from=<date>] [to=<date>] | search next";
             case "rename": return "rename <old_category> <new_category>";
             case "merge": return "merge <cat1> <cat2> ... <new_category>";
-            case "export": return "export csv|budgets|json|report";
+            case "export": return "export csv [start end]|budgets|json|report";
             case "import": return "import csv <filename>";
+            case "profile": return "profile start [file]|stop|status";
+            case "admin": return "admin report|sweep|top [n]|reconcile [repair]";
             default: return command;
         }
     }
 
     // Реализация конкретных команд
-    private void handleLogin(String[] parts) {
+    private boolean handleLogin(String[] parts) {
         if (parts.length != 3) {
-            System.out.println("Использование: login <username> <password>");
-            return;
+            out.println("Использование: login <username> <password>");
+            return false;
         }
 
-        if (authService.login(parts[1], parts[2])) {
-            financialService.checkAllAlerts();
+        // Кошелек загружается и проверяется в фоне: приглашение появляется сразу
+        if (authService.login(parts[1], parts[2], financialService::prepareWallet)) {
+            out.println("Успешный вход! Добро пожаловать, " + parts[1]);
+            return true;
         }
+        out.println("Ошибка: неверный логин или пароль");
+        return false;
     }
 
-    private void handleRegister(String[] parts) {
+    private boolean handleRegister(String[] parts) {
         if (parts.length != 3) {
-            System.out.println("Использование: register <username> <password>");
-            return;
+            out.println("Использование: register <username> <password>");
+            return false;
         }
 
-        authService.register(parts[1], parts[2]);
+        if (authService.register(parts[1], parts[2])) {
+            out.println("Пользователь " + parts[1] + " успешно зарегистрирован");
+            return true;
+        }
+        out.println("Ошибка: пользователь с таким логином уже существует");
+        return false;
     }
 
-    private void handleLogout() {
+    private boolean handleLogout() {
         if (authService.logout()) {
-            System.out.println("Вы вышли из системы");
-        } else {
-            System.out.println("Вы не авторизованы");
+            out.println("Вы вышли из системы");
+            return true;
         }
+
+        out.println("Вы не авторизованы");
+        return false;
     }
 
-    private void handleAdd(String[] parts) {
+    private boolean handleAdd(String[] parts) {
         if (parts.length < 4) {
-            System.out.println("Использование: add <income|expense> <amount> <category>");
-            return;
+            out.println("Использование: add <income|expense> <amount> <category>");
+            return false;
         }
 
         String type = parts[1];
         try {
             double amount = Double.parseDouble(parts[2]);
             String category = parts[3];
+            Set<String> tags = parseTags(parts, 4);
 
             if (type.equalsIgnoreCase("income")) {
-                financialService.addIncome(amount, category);
+                return financialService.addIncome(amount, category, tags);
             } else if (type.equalsIgnoreCase("expense")) {
-                financialService.addExpense(amount, category);
-            } else {
-                System.out.println("Неизвестный тип операции: " + type);
-                System.out.println("Используйте: income или expense");
+                return financialService.addExpense(amount, category, tags);
             }
+
+            out.println("Неизвестный тип операции: " + type);
+            out.println("Используйте: income или expense");
+            return false;
         } catch (NumberFormatException e) {
-            System.out.println("Ошибка: сумма должна быть числом");
+            out.println("Ошибка: сумма должна быть числом");
+            return false;
         }
     }
 
-    private void handleIncome(String[] parts) {
+    private boolean handleIncome(String[] parts) {
         if (parts.length < 3) {
-            System.out.println("Использование: income <amount> <category>");
-            return;
+            out.println("Использование: income <amount> <category>");
+            return false;
         }
 
         try {
             double amount = Double.parseDouble(parts[1]);
-            StringBuilder categoryBuilder = new StringBuilder();
-            for (int i = 2; i < parts.length; i++) {
-                categoryBuilder.append(parts[i]);
-                if (i < parts.length - 1) categoryBuilder.append(" ");
-            }
-
-            financialService.addIncome(amount, categoryBuilder.toString());
+            return financialService.addIncome(amount, joinCategory(parts, 2), parseTags(parts, 2));
         } catch (NumberFormatException e) {
-            System.out.println("Ошибка: сумма должна быть числом");
+            out.println("Ошибка: сумма должна быть числом");
+            return false;
         }
     }
 
-    private void handleExpense(String[] parts) {
+    private boolean handleExpense(String[] parts) {
         if (parts.length < 3) {
-            System.out.println("Использование: expense <amount> <category>");
-            return;
+            out.println("Использование: expense <amount> <category>");
+            return false;
         }
 
         try {
             double amount = Double.parseDouble(parts[1]);
-            StringBuilder categoryBuilder = new StringBuilder();
-            for (int i = 2; i < parts.length; i++) {
-                categoryBuilder.append(parts[i]);
-                if (i < parts.length - 1) categoryBuilder.append(" ");
-            }
-
-            financialService.addExpense(amount, categoryBuilder.toString());
+            return financialService.addExpense(amount, joinCategory(parts, 2), parseTags(parts, 2));
         } catch (NumberFormatException e) {
-            System.out.println("Ошибка: сумма должна быть числом");
+            out.println("Ошибка: сумма должна быть числом");
+            return false;
+        }
+    }
+
+    private String joinCategory(String[] parts, int from) {
+        StringBuilder categoryBuilder = new StringBuilder();
+        for (int i = from; i < parts.length; i++) {
+            // Слова с '#' - метки операции, а не часть категории
+            if (parts[i].startsWith("#")) continue;
+            if (categoryBuilder.length() > 0) categoryBuilder.append(" ");
+            categoryBuilder.append(parts[i]);
+        }
+        return categoryBuilder.toString();
+    }
+
+    private Set<String> parseTags(String[] parts, int from) {
+        Set<String> tags = new TreeSet<>();
+        for (int i = from; i < parts.length; i++) {
+            if (parts[i].startsWith("#") && parts[i].length() > 1) {
+                tags.add(parts[i].substring(1));
+            }
         }
+        return tags;
     }
 
-    private void handleBudget(String[] parts) {
+    private boolean handleBudget(String[] parts) {
         if (parts.length < 3) {
-            System.out.println("Использование: budget <set|edit|remove> <category> [limit]");
-            return;
+            out.println("Использование: budget <set|edit|remove> <category> [limit]");
+            return false;
         }
 
         String action = parts[1].toLowerCase();
@@ -398,63 +654,166 @@ public class CLIApplication {
         switch (action) {
             case "set":
                 if (parts.length != 4) {
-                    System.out.println("Использование: budget set <category> <limit>");
-                    return;
+                    out.println("Использование: budget set <category> <limit>");
+                    return false;
                 }
                 try {
                     double limit = Double.parseDouble(parts[3]);
-                    financialService.setBudget(category, limit);
+                    if (!financialService.setBudget(category, limit)) {
+                        return false;
+                    }
+                    out.printf("Бюджет для категории '%s' установлен: %.2f%n", category, limit);
+                    return true;
                 } catch (NumberFormatException e) {
-                    System.out.println("Ошибка: лимит должен быть числом");
+                    out.println("Ошибка: лимит должен быть числом");
+                    return false;
                 }
-                break;
 
             case "edit":
                 if (parts.length != 4) {
-                    System.out.println("Использование: budget edit <category> <new_limit>");
-                    return;
+                    out.println("Использование: budget edit <category> <new_limit>");
+                    return false;
                 }
                 try {
                     double newLimit = Double.parseDouble(parts[3]);
-                    financialService.editBudget(category, newLimit);
+                    double spent = financialService.getBudgetSpending(category);
+                    if (financialService.getBudget(category) != null && newLimit < spent
+                            && !confirm(String.format("Новый лимит (%.2f) меньше уже потраченной суммы (%.2f). Продолжить?",
+                                    newLimit, spent))) {
+                        out.println("Редактирование отменено");
+                        return false;
+                    }
+                    Double oldLimit = financialService.getBudget(category);
+                    if (!financialService.editBudget(category, newLimit)) {
+                        return false;
+                    }
+                    out.printf("Бюджет для категории '%s' изменен: %.2f -> %.2f%n", category, oldLimit, newLimit);
+                    return true;
                 } catch (NumberFormatException e) {
-                    System.out.println("Ошибка: новый лимит должен быть числом");
+                    out.println("Ошибка: новый лимит должен быть числом");
+                    return false;
                 }
-                break;
 
             case "remove":
-                financialService.removeBudget(category);
-                break;
+                Double removedLimit = financialService.getBudget(category);
+                if (!financialService.removeBudget(category)) {
+                    return false;
+                }
+                out.printf("Бюджет для категории '%s' удален (лимит: %.2f)%n", category, removedLimit);
+                return true;
 
             default:
-                System.out.println("Неизвестное действие: " + action);
-                System.out.println("Используйте: set, edit или remove");
+                out.println("Неизвестное действие: " + action);
+                out.println("Используйте: set, edit или remove");
+                return false;
         }
     }
 
-    private void handleBudgets() {
-        financialService.showBudgetStatus();
+    /**
+     * Проверка авторизации перед командами, работающими с данными пользователя
+     */
+    private boolean requireAuthentication() {
+        if (financialService.isAuthenticated()) {
+            return true;
+        }
+        out.println("Ошибка: пользователь не авторизован");
+        return false;
     }
 
-    private void handleReport(String[] parts) {
-        if (parts.length == 1) {
-            financialService.showFullStatistics();
-            return;
+    /**
+     * Проверка прав администратора перед командами над данными всех пользователей
+     */
+    private boolean requireAdmin() {
+        if (authService.isAdmin()) {
+            return true;
         }
+        out.println("Ошибка: команда доступна только администратору");
+        return false;
+    }
 
-        String period = parts[1].toLowerCase();
-        financialService.quickReport(period);
+    // Загружены ли в памяти пользователи, кроме вошедшего (например, сеансы узла кластера)
+    private boolean hasOtherResidentUsers() {
+        String current = authService.getCurrentLogin();
+        for (String login : authService.getUsers().keySet()) {
+            if (!login.equals(current)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private void handleSummary() {
-        financialService.showUserInfo();
+    private boolean handleBudgets() {
+        if (!requireAuthentication()) {
+            return false;
+        }
+        printer.printBudgetStatus(financialService.getBudgetStatuses());
+        return true;
     }
 
-    private void handlePeriod(String[] parts) {
-        if (parts.length != 3) {
-            System.out.println("Использование: period <start_date> <end_date>");
-            System.out.println("Формат даты: YYYY-MM-DD");
-            return;
+    private boolean handleReport(String[] parts) {
+        if (!requireAuthentication()) {
+            return false;
+        }
+
+        if (parts.length == 1 || parts[1].equalsIgnoreCase("full")) {
+            FinancialReport report = financialService.getFullStatistics();
+            printer.printFullStatistics(report);
+            return true;
+        }
+
+        PeriodReport report = financialService.quickReport(parts[1].toLowerCase());
+        if (report == null) {
+            return false;
+        }
+        printer.printPeriodReport(report);
+        return true;
+    }
+
+    private boolean handleSummary() {
+        if (!requireAuthentication()) {
+            return false;
+        }
+        printer.printSummary(financialService.getFinancialReport(), financialService.getRecentTransactions(3));
+        return true;
+    }
+
+    private boolean handleBalanceAt(String[] parts) {
+        if (parts.length < 2) {
+            out.println("Использование: " + getCommandUsage("balance-at"));
+            out.println("Формат даты: YYYY-MM-DD");
+            return false;
+        }
+
+        try {
+            LocalDate date = LocalDate.parse(parts[1], DATE_FORMATTER);
+            LocalDate endDate = parts.length > 2 ? LocalDate.parse(parts[2], DATE_FORMATTER) : null;
+            if (endDate != null && date.isAfter(endDate)) {
+                out.println("Ошибка: начальная дата не может быть позже конечной");
+                return false;
+            }
+            if (!requireAuthentication()) {
+                return false;
+            }
+            if (endDate == null) {
+                out.printf("Остаток на конец %s: %.2f%n", date, financialService.getBalanceAt(date));
+                return true;
+            }
+            out.printf("Остаток на начало %s: %.2f%n", date, financialService.getBalanceAt(date.minusDays(1)));
+            out.printf("Оборот за период: %+.2f%n", financialService.getNetFlow(date, endDate));
+            out.printf("Остаток на конец %s: %.2f%n", endDate, financialService.getBalanceAt(endDate));
+            return true;
+        } catch (DateTimeParseException e) {
+            out.println("Ошибка: неверный формат даты");
+            out.println("Используйте формат: YYYY-MM-DD");
+            return false;
+        }
+    }
+
+    private boolean handlePeriod(String[] parts) {
+        if (parts.length < 3) {
+            out.println("Использование: period <start_date> <end_date> [tag_filter]");
+            out.println("Формат даты: YYYY-MM-DD");
+            return false;
         }
 
         try {
@@ -462,53 +821,248 @@ public class CLIApplication {
             LocalDate endDate = LocalDate.parse(parts[2], DATE_FORMATTER);
 
             if (startDate.isAfter(endDate)) {
-                System.out.println("Ошибка: начальная дата не может быть позже конечной");
-                return;
+                out.println("Ошибка: начальная дата не может быть позже конечной");
+                return false;
+            }
+
+            if (!requireAuthentication()) {
+                return false;
+            }
+            if (parts.length == 3) {
+                printer.printPeriodReport(financialService.calculateByPeriod(startDate, endDate));
+                return true;
             }
 
-            financialService.calculateByPeriod(startDate, endDate);
+            String tagFilter = String.join(" ", Arrays.copyOfRange(parts, 3, parts.length));
+            PeriodReport report = financialService.calculateByPeriod(startDate, endDate, tagFilter);
+            if (report == null) {
+                out.println("Ошибка: некорректное условие по меткам: " + tagFilter);
+                out.println("Пример: trip & !reimbursable");
+                return false;
+            }
+            out.println("Условие по меткам: " + tagFilter);
+            printer.printPeriodReport(report);
+            return true;
         } catch (DateTimeParseException e) {
-            System.out.println("Ошибка: неверный формат даты");
-            System.out.println("Используйте формат: YYYY-MM-DD");
+            out.println("Ошибка: неверный формат даты");
+            out.println("Используйте формат: YYYY-MM-DD");
+            return false;
+        }
+    }
+
+    private boolean handleSearch(String[] parts) {
+        if (!requireAuthentication()) {
+            return false;
+        }
+
+        TransactionQuery query;
+        String cursor = null;
+        if (parts.length == 2 && parts[1].equalsIgnoreCase("next")) {
+            if (lastSearch == null || lastSearchCursor == null) {
+                out.println("Больше результатов нет");
+                return false;
+            }
+            query = lastSearch;
+            cursor = lastSearchCursor;
+        } else {
+            query = parseSearchQuery(parts);
+            if (query == null) {
+                return false;
+            }
+        }
+
+        TransactionPage page = financialService.searchTransactions(query, cursor, SEARCH_PAGE_SIZE);
+        if (page == null) {
+            out.println("Ошибка поиска. Повторите поиск с начала");
+            lastSearch = null;
+            return false;
         }
+        lastSearch = query;
+        lastSearchCursor = page.getNextCursor();
+        printer.printSearchPage(page);
+        return true;
     }
 
-    private void handleCategories() {
-        financialService.listAllCategories();
+    private TransactionQuery parseSearchQuery(String[] parts) {
+        TransactionType type = null;
+        String category = null;
+        Double min = null;
+        Double max = null;
+        LocalDate from = null;
+        LocalDate to = null;
+        try {
+            for (int i = 1; i < parts.length; i++) {
+                String part = parts[i];
+                int eq = part.indexOf('=');
+                String key = eq < 0 ? part.toLowerCase() : part.substring(0, eq).toLowerCase();
+                String value = eq < 0 ? null : part.substring(eq + 1);
+                if (value == null && (key.equals("income") || key.equals("expense"))) {
+                    type = TransactionType.valueOf(key.toUpperCase());
+                } else if (value == null) {
+                    out.println("Неизвестное условие поиска: " + part);
+                    out.println("Использование: " + getCommandUsage("search"));
+                    return null;
+                } else if (key.equals("cat") || key.equals("category")) {
+                    category = value;
+                } else if (key.equals("min")) {
+                    min = Double.parseDouble(value);
+                } else if (key.equals("max")) {
+                    max = Double.parseDouble(value);
+                } else if (key.equals("from")) {
+                    from = LocalDate.parse(value, DATE_FORMATTER);
+                } else if (key.equals("to")) {
+                    to = LocalDate.parse(value, DATE_FORMATTER);
+                } else {
+                    out.println("Неизвестное условие поиска: " + part);
+                    out.println("Использование: " + getCommandUsage("search"));
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            out.println("Ошибка: сумма должна быть числом");
+            return null;
+        } catch (DateTimeParseException e) {
+            out.println("Ошибка: неверный формат даты. Используйте формат: YYYY-MM-DD");
+            return null;
+        }
+
+        TransactionQuery query = new TransactionQuery(type, category, min, max, from, to);
+        if (!query.isValid()) {
+            out.println("Ошибка: нижняя граница суммы или даты больше верхней");
+            return null;
+        }
+        return query;
+    }
+
+    private boolean handleDistribution(String[] parts) {
+        if (!requireAuthentication()) {
+            return false;
+        }
+
+        if (parts.length == 1) {
+            printer.printDistributions(financialService.getCategoryDistributions());
+            return true;
+        }
+
+        CategoryDistribution distribution = financialService.getCategoryDistribution(joinCategory(parts, 1));
+        if (distribution == null) {
+            return false;
+        }
+        printer.printDistributions(Collections.singletonList(distribution));
+        return true;
+    }
+
+    private boolean handleForecast() {
+        if (!requireAuthentication()) {
+            return false;
+        }
+        printer.printForecasts(financialService.getBudgetForecasts());
+        return true;
+    }
+
+    private boolean handleCategories(String[] parts) {
+        if (!requireAuthentication()) {
+            return false;
+        }
+        if (parts.length == 1) {
+            printer.printCategories(financialService.listAllCategories());
+            return true;
+        }
+        if (parts.length > 3) {
+            out.println("Использование: categories [category] [depth]");
+            return false;
+        }
+
+        int depth = -1;
+        if (parts.length == 3) {
+            try {
+                depth = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                out.println("Ошибка: глубина должна быть целым числом");
+                return false;
+            }
+        }
+        printer.printCategoryTree(financialService.listCategoryTree(parts[1], depth));
+        return true;
+    }
+
+    private boolean handleTag(String[] parts, boolean add) {
+        String usage = add ? "tag <number> <tag> [tag ...]" : "untag <number> <tag>";
+        if (parts.length < 3 || (!add && parts.length != 3)) {
+            out.println("Использование: " + usage);
+            return false;
+        }
+        if (!requireAuthentication()) {
+            return false;
+        }
+
+        int index;
+        try {
+            index = Integer.parseInt(parts[1]) - 1;
+        } catch (NumberFormatException e) {
+            out.println("Ошибка: номер операции должен быть целым числом");
+            return false;
+        }
+
+        boolean changed = false;
+        for (int i = 2; i < parts.length; i++) {
+            changed |= add ? financialService.tagTransaction(index, parts[i])
+                    : financialService.untagTransaction(index, parts[i]);
+        }
+        if (changed) {
+            out.println(add ? "Метки добавлены" : "Метка снята");
+        }
+        return changed;
+    }
+
+    private boolean handleTags() {
+        if (!requireAuthentication()) {
+            return false;
+        }
+        printer.printTagCounts(financialService.getTagCounts());
+        return true;
     }
 
-    private void handleRename(String[] parts) {
+    private boolean handleRename(String[] parts) {
         if (parts.length != 3) {
-            System.out.println("Использование: rename <old_category> <new_category>");
-            return;
+            out.println("Использование: rename <old_category> <new_category>");
+            return false;
         }
 
-        financialService.renameCategory(parts[1], parts[2]);
+        if (!financialService.renameCategory(parts[1], parts[2])) {
+            return false;
+        }
+        out.printf("Категория переименована: '%s' -> '%s'%n", parts[1], parts[2]);
+        return true;
     }
 
-    private void handleMerge(String[] parts) {
+    private boolean handleMerge(String[] parts) {
         if (parts.length < 4) {
-            System.out.println("Использование: merge <cat1> <cat2> ... <new_category>");
-            System.out.println("Минимум 2 категории для объединения");
-            return;
+            out.println("Использование: merge <cat1> <cat2> ... <new_category>");
+            out.println("Минимум 2 категории для объединения");
+            return false;
         }
 
         String[] categoriesToMerge = new String[parts.length - 2];
         System.arraycopy(parts, 1, categoriesToMerge, 0, categoriesToMerge.length);
         String newCategory = parts[parts.length - 1];
 
-        financialService.mergeCategories(categoriesToMerge, newCategory);
+        if (!financialService.mergeCategories(categoriesToMerge, newCategory)) {
+            return false;
+        }
+        out.printf("Категории объединены в '%s'%n", newCategory);
+        return true;
     }
 
-    private void handleExport(String[] parts) {
+    private boolean handleExport(String[] parts) {
         if (!financialService.isAuthenticated()) {
-            System.out.println("Ошибка: необходимо авторизоваться");
-            return;
+            out.println("Ошибка: необходимо авторизоваться");
+            return false;
         }
 
         if (parts.length < 2) {
-            System.out.println("Использование: export <csv|budgets|json|report>");
-            return;
+            out.println("Использование: export <csv [start end]|budgets|json|report>");
+            return false;
         }
 
         String type = parts[1].toLowerCase();
@@ -517,87 +1071,265 @@ public class CLIApplication {
                 LocalDate.now().toString(),
                 type.equals("json") ? "json" : "csv");
 
+        boolean exported;
         switch (type) {
             case "csv":
-                exportService.exportTransactionsToCSV(financialService.getCurrentUser(), filename);
+                if (parts.length < 4) {
+                    exported = exportService.exportTransactionsToCSV(financialService.getCurrentUser(), filename);
+                    break;
+                }
+                LocalDate from;
+                LocalDate to;
+                try {
+                    from = LocalDate.parse(parts[2], DATE_FORMATTER);
+                    to = LocalDate.parse(parts[3], DATE_FORMATTER);
+                } catch (DateTimeParseException e) {
+                    out.println("Ошибка: неверный формат даты");
+                    out.println("Используйте формат: YYYY-MM-DD");
+                    return false;
+                }
+                exported = exportService.exportTransactionsToCSV(financialService.getCurrentUser(), filename, from, to);
                 break;
             case "budgets":
-                exportService.exportBudgetsToCSV(financialService.getCurrentUser(), filename);
+                exported = exportService.exportBudgetsToCSV(financialService.getCurrentUser(), filename);
                 break;
             case "json":
-                exportService.exportToJSON(financialService.getCurrentUser(), filename);
+                exported = exportService.exportToJSON(financialService.getCurrentUser(), filename);
                 break;
             case "report":
-                String reportFile = String.format("report_%s_%s.txt",
+                filename = String.format("report_%s_%s.txt",
                         financialService.getCurrentUser().getLogin(),
                         LocalDate.now().toString());
-                exportService.exportReportToText(financialService.getCurrentUser(), reportFile);
+                exported = exportService.exportReportToText(financialService.getCurrentUser(), filename);
                 break;
             default:
-                System.out.println("Неизвестный тип экспорта: " + type);
-                System.out.println("Доступные типы: csv, budgets, json, report");
+                out.println("Неизвестный тип экспорта: " + type);
+                out.println("Доступные типы: csv, budgets, json, report");
+                return false;
+        }
+
+        if (exported) {
+            out.println("Данные экспортированы в файл: " + filename);
         }
+        return exported;
     }
 
-    private void handleImport(String[] parts) {
+    private boolean handleImport(String[] parts) {
         if (!financialService.isAuthenticated()) {
-            System.out.println("Ошибка: необходимо авторизоваться");
-            return;
+            out.println("Ошибка: необходимо авторизоваться");
+            return false;
         }
 
         if (parts.length < 3) {
-            System.out.println("Использование: import csv <filename>");
-            return;
+            out.println("Использование: import csv <filename>");
+            return false;
         }
 
         String type = parts[1].toLowerCase();
         String filename = parts[2];
 
-        if (type.equals("csv")) {
-            System.out.print("Вы уверены, что хотите импортировать транзакции из " + filename + "? (yes/no): ");
-            String confirmation = scanner.nextLine().trim().toLowerCase();
+        if (!type.equals("csv")) {
+            out.println("Поддерживается только импорт из CSV файлов");
+            return false;
+        }
 
-            if (confirmation.equals("yes") || confirmation.equals("y")) {
-                exportService.importTransactionsFromCSV(financialService.getCurrentUser(), filename);
-            } else {
-                System.out.println("Импорт отменен");
-            }
-        } else {
-            System.out.println("Поддерживается только импорт из CSV файлов");
+        if (!confirm("Вы уверены, что хотите импортировать транзакции из " + filename + "?")) {
+            out.println("Импорт отменен");
+            return false;
         }
+
+        ImportResult result = exportService.importTransactionsFromCSV(financialService.getCurrentUser(), filename);
+        out.printf("Импорт завершен. Успешно: %d, Пропущено: %d%n",
+                result.getImportedCount(), result.getSkippedCount());
+        return result.isSuccess();
     }
 
-    private void handleAlerts() {
-        financialService.showAlerts();
+    private boolean handleAlerts() {
+        if (!requireAuthentication()) {
+            return false;
+        }
+        printer.printAlerts(financialService.getAlerts());
+        // Помечаем все как прочитанные после показа
+        financialService.markAllAlertsAsRead();
+        return true;
     }
 
-    private void handleCheckAlerts() {
+    private boolean handleCheckAlerts() {
+        if (!requireAuthentication()) {
+            return false;
+        }
         financialService.checkAllAlerts();
-        System.out.println("Проверка оповещений завершена");
+        out.println("Проверка оповещений завершена");
+        return true;
     }
 
-    private void handleSave() {
-        financialService.saveData();
+    private boolean handleSave() {
+        if (!requireAuthentication()) {
+            return false;
+        }
+        if (financialService.saveData()) {
+            out.println("Данные успешно сохранены");
+            return true;
+        }
+        out.println("Ошибка при сохранении данных");
+        return false;
     }
 
-    private void handleBackup() {
-        financialService.createBackup();
+    private boolean handleBackup() {
+        if (!requireAuthentication()) {
+            return false;
+        }
+        if (financialService.createBackup()) {
+            out.println("Резервная копия создана");
+            return true;
+        }
+        out.println("Ошибка при создании резервной копии");
+        return false;
     }
 
-    private void handleClear() {
-        System.out.print("\033[H\033[2J");
-        System.out.flush();
+    private boolean handleClear() {
+        out.print("\033[H\033[2J");
+        out.flush();
+        return true;
     }
 
-    private void handleExit() {
+    private boolean handleProfile(String[] parts) {
+        if (parts.length < 2) {
+            out.println("Использование: profile start [file]|stop|status");
+            return false;
+        }
+
+        switch (parts[1].toLowerCase()) {
+            case "start":
+                Path file = parts.length > 2
+                        ? Paths.get(parts[2])
+                        : Paths.get(String.format("profile_%s.jfr", LocalDateTime.now().format(PROFILE_FILE_FORMATTER)));
+                try {
+                    if (flightRecorder.start(file)) {
+                        out.println("Запись JFR начата: " + file);
+                        return true;
+                    }
+                    out.println("Запись JFR уже ведется: " + flightRecorder.getDestination());
+                    return false;
+                } catch (IOException | IllegalStateException e) {
+                    out.println("Не удалось начать запись JFR: " + e.getMessage());
+                    return false;
+                }
+
+            case "stop":
+                Path recorded = flightRecorder.stop();
+                if (recorded != null) {
+                    out.println("Запись JFR сохранена в файл: " + recorded);
+                    return true;
+                }
+                out.println("Запись JFR не ведется");
+                return false;
+
+            case "status":
+                if (flightRecorder.isRecording()) {
+                    out.println("Идет запись JFR в файл: " + flightRecorder.getDestination());
+                } else {
+                    out.println("Запись JFR не ведется");
+                }
+                return true;
+
+            default:
+                out.println("Неизвестное действие: " + parts[1]);
+                out.println("Используйте: start, stop или status");
+                return false;
+        }
+    }
+
+    private boolean handleAdmin(String[] parts) {
+        if (parts.length >= 2 && parts[1].equalsIgnoreCase("sweep")) {
+            if (!requireAdmin()) {
+                return false;
+            }
+            printer.printSweepResult(alertSweepScheduler.sweepNow());
+            return true;
+        }
+        if (parts.length >= 2 && parts[1].equalsIgnoreCase("top")) {
+            if (!requireAdmin()) {
+                return false;
+            }
+            int limit = TOP_SPENDING_SHOWN;
+            if (parts.length >= 3) {
+                try {
+                    limit = Integer.parseInt(parts[2]);
+                } catch (NumberFormatException e) {
+                    out.println("Ошибка: количество должно быть целым числом");
+                    return false;
+                }
+                if (limit <= 0) {
+                    out.println("Ошибка: количество должно быть положительным");
+                    return false;
+                }
+            }
+            // Несохраненные расходы текущего пользователя учитываются при сохранении
+            if (financialService.isAuthenticated()) {
+                financialService.saveData();
+            }
+            printer.printTopSpending(authService.getDataService().getTopSpending().getReport(limit));
+            return true;
+        }
+        if (parts.length >= 2 && parts[1].equalsIgnoreCase("reconcile")) {
+            if (!requireAdmin()) {
+                return false;
+            }
+            boolean repair = parts.length >= 3 && parts[2].equalsIgnoreCase("repair");
+            if (repair && hasOtherResidentUsers()) {
+                out.println("Ошибка: исправление недоступно, пока загружены другие пользователи.");
+                out.println("Используйте отдельный запуск: --reconcile [каталог] --repair");
+                return false;
+            }
+            ReconciliationReport report = reconciliationService.reconcileAll(repair);
+            printer.printReconciliation(report, RECONCILIATION_USERS_SHOWN);
+            return report.getFailedCount() == 0;
+        }
+        if (parts.length < 2 || !parts[1].equalsIgnoreCase("report")) {
+            out.println("Использование: admin report|sweep|top [n]|reconcile [repair]");
+            return false;
+        }
+        if (!requireAdmin()) {
+            return false;
+        }
+
+        // Отчет строится по файлам: несохраненные изменения текущего пользователя записываем заранее
+        if (financialService.isAuthenticated()) {
+            financialService.saveData();
+        }
+        printer.printAggregateReport(adminReportService.generateReport());
+        return true;
+    }
+
+    private boolean handleExit() {
+        shutdown();
+        out.println("Выход из приложения...");
+        return true;
+    }
+
+    /**
+     * Завершение работы: остановка записи JFR, сохранение данных и выход из аккаунта
+     */
+    public void shutdown() {
+        alertSweepScheduler.stop();
+
+        // Останавливаем запись профилирования, чтобы файл был записан полностью
+        if (flightRecorder.isRecording()) {
+            Path recorded = flightRecorder.stop();
+            out.println("Запись JFR сохранена в файл: " + recorded);
+        }
+
         // Сохраняем данные перед выходом
         if (financialService.isAuthenticated()) {
-            System.out.println("Сохранение данных...");
+            out.println("Сохранение данных...");
             financialService.saveData();
             authService.logout();
         }
+        authService.getDataService().getTopSpending().flush();
+        financialService.getChangeFeed().close();
 
-        System.out.println("Выход из приложения...");
+        LoggerFactory.flush();
         isRunning = false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package nes.finance.cli;
+
+import nes.finance.cluster.ClusterRouter;
+import nes.finance.cluster.CommandResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+/**
+ * Консоль кластера (--cluster host:port,...): обычные команды CLI выполняются
+ * на узле-владельце пользователя, команды "cluster ..." управляют составом кластера
+ */
+public class ClusterConsole {
+    private final ClusterRouter router;
+    private final Scanner scanner;
+    private final PrintStream out;
+
+    public ClusterConsole(ClusterRouter router, InputStream in, PrintStream out) {
+        this.router = router;
+        this.scanner = new Scanner(in);
+        this.out = out;
+    }
+
+    /**
+     * Чтение команд до exit или конца ввода
+     */
+    public void run() {
+        out.println("Кластер: " + String.join(", ", router.getNodes()));
+        out.println("Команды CLI выполняются на узле пользователя; 'cluster help' - управление кластером");
+        try (ClusterRouter.Session session = router.openSession()) {
+            while (true) {
+                String node = session.getNode();
+                out.print(node != null ? "\n[" + node + "]> " : "\n> ");
+                if (!scanner.hasNextLine()) {
+                    return;
+                }
+                String input = scanner.nextLine().trim();
+                if (input.isEmpty()) {
+                    continue;
+                }
+                if (input.toLowerCase().startsWith("cluster")) {
+                    handleCluster(input.split("\\s+"));
+                    continue;
+                }
+                CommandResult result = session.execute(input);
+                out.print(result.getOutput());
+                if (input.equalsIgnoreCase("exit") || input.equalsIgnoreCase("quit")) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            out.println("Ошибка связи с узлом кластера: " + e.getMessage());
+        }
+    }
+
+    private void handleCluster(String[] parts) {
+        String action = parts.length > 1 ? parts[1].toLowerCase() : "help";
+        try {
+            switch (action) {
+                case "nodes":
+                    out.println("Узлы: " + String.join(", ", router.getNodes()));
+                    break;
+                case "owner":
+                    if (parts.length < 3) {
+                        out.println("Использование: cluster owner <login>");
+                        break;
+                    }
+                    out.println(parts[2] + " -> " + router.ownerOf(parts[2]));
+                    break;
+                case "add":
+                    if (parts.length < 3) {
+                        out.println("Использование: cluster add <host:port>");
+                        break;
+                    }
+                    out.println("Узел добавлен, перенесено пользователей: " + router.addNode(parts[2]));
+                    break;
+                case "rebalance":
+                    out.println("Перенесено пользователей: " + router.rebalance());
+                    break;
+                default:
+                    out.println("Команды кластера:");
+                    out.println("  cluster nodes            - узлы кластера");
+                    out.println("  cluster owner <login>    - узел пользователя");
+                    out.println("  cluster add <host:port>  - добавление узла с переносом пользователей");
+                    out.println("  cluster rebalance        - перенос пользователей, пропущенных ранее");
+            }
+        } catch (IOException e) {
+            out.println("Ошибка связи с узлом кластера: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package nes.finance.cli;
+
+import nes.finance.cluster.ReplicationFollower;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+/**
+ * Консоль реплики (--follow host:port [каталог]): состояние репликации и повышение
+ * реплики до ведущего
+ */
+public class FollowerConsole {
+    private final ReplicationFollower follower;
+    private final Scanner scanner;
+    private final PrintStream out;
+
+    public FollowerConsole(ReplicationFollower follower, InputStream in, PrintStream out) {
+        this.follower = follower;
+        this.scanner = new Scanner(in);
+        this.out = out;
+    }
+
+    /**
+     * Чтение команд до exit, promote или конца ввода.
+     * Возвращает true, если реплика повышена и каталог можно открыть для работы
+     */
+    public boolean run() {
+        follower.start();
+        out.println("Реплика ведущего " + follower.getPrimaryAddress() + ", каталог: "
+                + follower.getDataService().getDataDir());
+        out.println("Команды: status, promote, exit");
+        try {
+            while (true) {
+                out.print("\nfollower> ");
+                if (!scanner.hasNextLine()) {
+                    return false;
+                }
+                String input = scanner.nextLine().trim().toLowerCase();
+                switch (input) {
+                    case "":
+                        break;
+                    case "status":
+                        printStatus();
+                        break;
+                    case "promote":
+                        long offset = follower.promote();
+                        out.println("Реплика повышена до ведущего, применено записей до смещения " + offset);
+                        return true;
+                    case "exit":
+                    case "quit":
+                        return false;
+                    default:
+                        out.println("Команды: status - состояние репликации, promote - повышение до ведущего, exit - выход");
+                }
+            }
+        } finally {
+            follower.close();
+        }
+    }
+
+    private void printStatus() {
+        out.println("Соединение с ведущим: " + (follower.isConnected() ? "есть" : "нет"));
+        out.println("Применено смещение: " + follower.getAppliedOffset()
+                + " из " + follower.getPrimaryOffset() + " (отставание " + follower.getLag() + ")");
+        out.println("Задержка последней записи: " + follower.getLastDelayMillis() + " мс");
+        out.println("Применено записей: " + follower.getAppliedCount() + ", снимков: " + follower.getSnapshotCount());
+    }
+}
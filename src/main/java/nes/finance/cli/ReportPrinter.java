@@ -0,0 +1,509 @@
+package nes.finance.cli;
+
+import nes.finance.model.Alert;
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionPage;
+import nes.finance.model.TransactionType;
+import nes.finance.report.AggregateReport;
+import nes.finance.report.BudgetForecast;
+import nes.finance.report.BudgetStatus;
+import nes.finance.report.CategoryDistribution;
+import nes.finance.report.CategoryStats;
+import nes.finance.report.CategoryTreeStats;
+import nes.finance.report.FinancialReport;
+import nes.finance.report.PeriodReport;
+import nes.finance.report.TopSpendingReport;
+import nes.finance.service.AlertSweepResult;
+import nes.finance.service.Discrepancy;
+import nes.finance.service.ReconciliationReport;
+import nes.finance.stats.SpaceSaving;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Вывод отчетов, построенных сервисами, в консоль
+ */
+public class ReportPrinter {
+    private final PrintStream out;
+
+    public ReportPrinter(PrintStream out) {
+        this.out = out;
+    }
+
+    public void printPeriodReport(PeriodReport report) {
+        if (report.isEmpty()) {
+            out.printf("За период с %s по %s нет операций%n", report.getStartDate(), report.getEndDate());
+            return;
+        }
+
+        out.printf("Отчет за период: %s - %s%n", report.getStartDate(), report.getEndDate());
+        out.printf("Количество операций: %d%n", report.getTransactionCount());
+        out.printf("Общий доход: %,.2f%n", report.getTotalIncome());
+        out.printf("Общий расход: %,.2f%n", report.getTotalExpense());
+        out.printf("Баланс за период: %,.2f%n", report.getNet());
+
+        // Детали по категориям
+        out.println("\nДетализация по категориям:");
+
+        if (!report.getIncomeByCategory().isEmpty()) {
+            out.println("Доходы:");
+            report.getIncomeByCategory().forEach((category, amount) ->
+                    out.printf("  %s: %,.2f%n", category, amount));
+        }
+
+        if (!report.getExpenseByCategory().isEmpty()) {
+            out.println("\nРасходы:");
+            report.getExpenseByCategory().forEach((category, amount) ->
+                    out.printf("  %s: %,.2f%n", category, amount));
+        }
+    }
+
+    /**
+     * Подсчет по нескольким категориям с учетом выбранного типа операций
+     */
+    public void printMultipleCategories(List<CategoryStats> stats, boolean incomesOnly, boolean expensesOnly) {
+        boolean includeIncome = (!incomesOnly && !expensesOnly) || incomesOnly;
+        boolean includeExpense = (!incomesOnly && !expensesOnly) || expensesOnly;
+
+        out.println("Подсчет по выбранным категориям:");
+        out.println("--------------------------------");
+
+        double totalIncome = 0;
+        double totalExpense = 0;
+        List<String> notFoundCategories = new ArrayList<>();
+
+        for (CategoryStats category : stats) {
+            if (!category.hasOperations()) {
+                notFoundCategories.add(category.getCategory());
+                continue;
+            }
+            if (includeIncome) {
+                out.printf("  %s: доходы %,.2f%n", category.getCategory(), category.getIncome());
+                totalIncome += category.getIncome();
+            }
+            if (includeExpense) {
+                out.printf("  %s: расходы %,.2f%n", category.getCategory(), category.getExpense());
+                totalExpense += category.getExpense();
+            }
+        }
+
+        // Уведомления о ненайденных категориях
+        if (!notFoundCategories.isEmpty()) {
+            out.println("\nКатегории без операций:");
+            for (String category : notFoundCategories) {
+                out.println("  - " + category);
+            }
+        }
+
+        if (notFoundCategories.size() == stats.size()) {
+            out.println("По указанным категориям не найдено операций");
+            return;
+        }
+
+        out.println("\nИтоги по найденным категориям:");
+        if (includeIncome) {
+            out.printf("  Общий доход: %,.2f%n", totalIncome);
+        }
+        if (includeExpense) {
+            out.printf("  Общий расход: %,.2f%n", totalExpense);
+        }
+        if (includeIncome && includeExpense) {
+            out.printf("  Чистый результат: %,.2f%n", totalIncome - totalExpense);
+        }
+    }
+
+    public void printSelectedCategories(List<CategoryStats> stats) {
+        out.println("Подсчет по выбранным категориям:");
+
+        double totalIncome = 0;
+        double totalExpense = 0;
+        boolean hasValidCategories = false;
+
+        for (CategoryStats category : stats) {
+            if (category.hasOperations()) {
+                hasValidCategories = true;
+                totalIncome += category.getIncome();
+                totalExpense += category.getExpense();
+                out.printf("  %s: доходы %,.1f, расходы %,.1f%n",
+                        category.getCategory(), category.getIncome(), category.getExpense());
+            } else {
+                out.printf("  Категория '%s' не найдена или нет операций%n", category.getCategory());
+            }
+        }
+
+        if (hasValidCategories) {
+            out.printf("Итого по выбранным категориям: доходы %,.1f, расходы %,.1f%n",
+                    totalIncome, totalExpense);
+        }
+    }
+
+    public void printCategories(List<CategoryStats> categories) {
+        if (categories.isEmpty()) {
+            out.println("Категории не найдены");
+            return;
+        }
+
+        out.println("Список всех категорий:");
+        out.println("----------------------");
+
+        for (CategoryStats category : categories) {
+            out.printf("%s:%n", category.getCategory());
+            if (category.getIncome() > 0) {
+                out.printf("  Доходы: %,.2f%n", category.getIncome());
+            }
+            if (category.getExpense() > 0) {
+                out.printf("  Расходы: %,.2f%n", category.getExpense());
+            }
+            if (category.getBudget() != null) {
+                out.printf("  Бюджет: %,.2f (осталось: %,.2f)%n",
+                        category.getBudget(), category.getRemainingBudget());
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Дерево категорий: итоги каждого узла включают вложенные категории
+     */
+    public void printCategoryTree(List<CategoryTreeStats> nodes) {
+        if (nodes.isEmpty()) {
+            out.println("Категории не найдены");
+            return;
+        }
+
+        int baseDepth = nodes.get(0).getDepth();
+        for (CategoryTreeStats node : nodes) {
+            String indent = "  ".repeat(node.getDepth() - baseDepth);
+            out.printf("%s%s: операций %d, доходы %,.2f, расходы %,.2f%n", indent,
+                    node.getDepth() == baseDepth ? node.getPath() : node.getName(),
+                    node.getCount(), node.getIncome(), node.getExpense());
+            if (node.getBudget() != null) {
+                out.printf("%s  Бюджет: %,.2f (осталось: %,.2f)%n", indent,
+                        node.getBudget(), node.getRemainingBudget());
+            }
+        }
+    }
+
+    /**
+     * Распределение сумм операций по категориям (значения процентилей приближенные)
+     */
+    public void printDistributions(List<CategoryDistribution> distributions) {
+        if (distributions.isEmpty()) {
+            out.println("Операций нет");
+            return;
+        }
+
+        out.println("Распределение сумм по категориям:");
+        out.printf("  %-20s %8s %12s %12s %12s %12s%n", "Категория", "Операций", "Медиана", "p90", "p99", "Максимум");
+        for (CategoryDistribution d : distributions) {
+            out.printf("  %-20s %8d %,12.2f %,12.2f %,12.2f %,12.2f%n",
+                    d.getCategory(), d.getCount(), d.getMedian(), d.getP90(), d.getP99(), d.getMax());
+        }
+    }
+
+    /**
+     * Краткая сводка с последними транзакциями
+     */
+    public void printSummary(FinancialReport report, List<Transaction> recentTransactions) {
+        out.printf("Пользователь: %s%n", report.getLogin());
+        out.printf("Баланс: %,.2f%n", report.getBalance());
+        out.printf("Общий доход: %,.2f%n", report.getTotalIncome());
+        out.printf("Общий расход: %,.2f%n", report.getTotalExpense());
+        out.printf("Кол-во транзакций: %d%n", report.getTransactionCount());
+        out.printf("Кол-во бюджетов: %d%n", report.getBudgets().size());
+        out.printf("Непрочитанных оповещений: %d%n", report.getUnreadAlertCount());
+
+        printUnreadAlertCount(report.getUnreadAlertCount());
+        printRecentTransactions(recentTransactions);
+    }
+
+    public void printFullStatistics(FinancialReport report) {
+        out.println("=== ФИНАНСОВАЯ СТАТИСТИКА ===");
+
+        out.printf("Общий доход: %,.1f%n", report.getTotalIncome());
+        out.printf("Общие расходы: %,.1f%n", report.getTotalExpense());
+        out.printf("Текущий баланс: %,.1f%n", report.getBalance());
+        out.println();
+        printCategoryTotals("Доходы по категориям", report.getIncomeByCategory());
+        out.println();
+        printCategoryTotals("Расходы по категориям", report.getExpenseByCategory());
+        out.println();
+        printDetailedBudgets(report.getBudgets());
+
+        printUnreadAlertCount(report.getUnreadAlertCount());
+    }
+
+    private void printCategoryTotals(String title, Map<String, Double> totals) {
+        if (totals.isEmpty()) {
+            out.println(title + ": нет данных");
+            return;
+        }
+
+        out.println(title + ":");
+        totals.forEach((category, amount) -> out.printf("  - %s: %,.1f%n", category, amount));
+    }
+
+    private void printDetailedBudgets(List<BudgetStatus> budgets) {
+        if (budgets.isEmpty()) {
+            out.println("Бюджеты по категориям: не установлены");
+            return;
+        }
+
+        out.println("Бюджет по категориям:");
+        for (BudgetStatus budget : budgets) {
+            out.printf("  - %s: %,.1f, Оставшийся бюджет: %,.1f%n",
+                    budget.getCategory(), budget.getLimit(), budget.getRemaining());
+        }
+    }
+
+    public void printBudgetStatus(List<BudgetStatus> budgets) {
+        if (budgets.isEmpty()) {
+            out.println("Бюджеты не установлены");
+            return;
+        }
+
+        out.println("Статус бюджетов:");
+        for (BudgetStatus budget : budgets) {
+            String status = budget.getRemaining() >= 0 ? "✅" : "⚠️";
+            out.printf("  %s %s: Лимит %,.2f, Расходы %,.2f, Осталось %,.2f%n",
+                    status, budget.getCategory(), budget.getLimit(), budget.getSpent(), budget.getRemaining());
+        }
+    }
+
+    /**
+     * Прогноз расходов по бюджетам на конец месяца
+     */
+    public void printForecasts(List<BudgetForecast> forecasts) {
+        if (forecasts.isEmpty()) {
+            out.println("Бюджеты не установлены");
+            return;
+        }
+
+        out.println("Прогноз расходов на конец месяца:");
+        for (BudgetForecast f : forecasts) {
+            String status = f.isProjectedToExceed() ? "⚠️" : "✅";
+            out.printf("  %s %s: Лимит %,.2f, Потрачено %,.2f, В день %,.2f, Прогноз %,.2f",
+                    status, f.getCategory(), f.getLimit(), f.getSpent(), f.getDailyRate(), f.getProjected());
+            int days = f.getDaysUntilExhausted();
+            if (days == 0) {
+                out.print(" (лимит исчерпан)");
+            } else if (days > 0 && days <= f.getDaysRemaining()) {
+                out.printf(" (лимит будет исчерпан через %d дн.)", days);
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Сводный отчет по всем пользователям
+     */
+    public void printAggregateReport(AggregateReport report) {
+        out.println("=== СВОДНЫЙ ОТЧЕТ ПО ПОЛЬЗОВАТЕЛЯМ ===");
+        out.printf("Пользователей: %d%n", report.getUserCount());
+        if (report.getFailedCount() > 0) {
+            out.printf("Не удалось загрузить: %d%n", report.getFailedCount());
+        }
+        out.printf("Транзакций: %d%n", report.getTransactionCount());
+        out.printf("Общий баланс: %,.2f%n", report.getTotalBalance());
+        out.printf("Общий доход: %,.2f%n", report.getTotalIncome());
+        out.printf("Общий расход: %,.2f%n", report.getTotalExpense());
+        out.println();
+        printCategoryTotals("Доходы по категориям", report.getIncomeByCategory());
+        out.println();
+        printCategoryTotals("Расходы по категориям", report.getExpenseByCategory());
+
+        if (report.getBalanceDistribution() != null) {
+            CategoryDistribution balances = report.getBalanceDistribution();
+            out.printf("%nБаланс пользователя: медиана %,.2f, p90 %,.2f, p99 %,.2f%n",
+                    balances.getMedian(), balances.getP90(), balances.getP99());
+        }
+        if (!report.getDistributions().isEmpty()) {
+            out.println();
+            printDistributions(report.getDistributions());
+        }
+        out.printf("%nОтчет построен за %d мс%n", report.getElapsedMillis());
+    }
+
+    /**
+     * Результат сверки кошельков; расхождения выводятся не больше чем для maxUsers пользователей
+     */
+    /**
+     * Лидеры расходов с гарантированной нижней оценкой каждой суммы
+     */
+    public void printTopSpending(TopSpendingReport report) {
+        out.println("=== ЛИДЕРЫ РАСХОДОВ ===");
+        out.printf("Учтено расходов: %,.2f%n", report.getTotalCents() / 100.0);
+        if (report.getTotalCents() == 0) {
+            out.println("Расходы еще не учтены: они поступают при сохранении пользователей");
+            return;
+        }
+        out.printf("Точность: оценка завышена не более чем на %,.2f (счетчиков: %d)%n",
+                report.getMaxErrorCents() / 100.0, report.getCapacity());
+        printTopEntries("Категории", report.getCategories());
+        printTopEntries("Пользователи", report.getSpenders());
+    }
+
+    private void printTopEntries(String title, List<SpaceSaving.Entry> entries) {
+        out.println();
+        out.println(title + ":");
+        int rank = 1;
+        for (SpaceSaving.Entry entry : entries) {
+            if (entry.getError() == 0) {
+                out.printf("  %2d. %-25s %,15.2f%n", rank++, entry.getKey(), entry.getCount() / 100.0);
+            } else {
+                out.printf("  %2d. %-25s %,15.2f (не менее %,.2f)%n", rank++, entry.getKey(),
+                        entry.getCount() / 100.0, entry.getGuaranteed() / 100.0);
+            }
+        }
+    }
+
+    public void printReconciliation(ReconciliationReport report, int maxUsers) {
+        out.println("=== СВЕРКА КОШЕЛЬКОВ ===");
+        out.printf("Проверено пользователей: %d, операций: %d%n", report.getCheckedCount(), report.getRowCount());
+        if (report.getFailedCount() > 0) {
+            out.printf("Не удалось загрузить: %d%n", report.getFailedCount());
+        }
+        if (report.getSkippedCount() > 0) {
+            out.printf("Пропущено (пользователь вошел): %d%n", report.getSkippedCount());
+        }
+        out.printf("Пользователей с расхождениями: %d (расхождений: %d)%n",
+                report.getDiscrepancies().size(), report.getDiscrepancyCount());
+        if (report.getRepairedCount() > 0) {
+            out.printf("Исправлено пользователей: %d%n", report.getRepairedCount());
+        }
+        int shown = 0;
+        for (Map.Entry<String, List<Discrepancy>> entry : report.getDiscrepancies().entrySet()) {
+            if (shown++ == maxUsers) {
+                out.printf("... и еще %d пользователей%n", report.getDiscrepancies().size() - maxUsers);
+                break;
+            }
+            out.println(entry.getKey() + ":");
+            for (Discrepancy discrepancy : entry.getValue()) {
+                out.println("  " + discrepancy);
+            }
+        }
+        out.printf("Сверка заняла %d мс%n", report.getElapsedMillis());
+    }
+
+    public void printSweepResult(AlertSweepResult result) {
+        out.println("=== ПРОВЕРКА ОПОВЕЩЕНИЙ ПО ПОЛЬЗОВАТЕЛЯМ ===");
+        out.printf("Проход: %s%n", result.isFullSweep() ? "полный" : "только измененные кошельки");
+        out.printf("Проверено кошельков: %d%n", result.getCheckedCount());
+        if (result.getUnchangedCount() > 0) {
+            out.printf("Пропущено без изменений: %d%n", result.getUnchangedCount());
+        }
+        if (result.getTimedOutCount() > 0) {
+            out.printf("Прервано по времени: %d%n", result.getTimedOutCount());
+        }
+        if (result.getFailedCount() > 0) {
+            out.printf("Ошибок: %d%n", result.getFailedCount());
+        }
+        out.printf("Новых оповещений: %d (сохранено кошельков: %d)%n",
+                result.getAlertsRaised(), result.getSavedCount());
+        out.printf("Проверка заняла %d мс%n", result.getElapsedMillis());
+    }
+
+    public void printRecentTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            out.println("Транзакций нет");
+            return;
+        }
+
+        out.println("Последние транзакции:");
+        for (Transaction t : transactions) {
+            String typeSymbol = t.getType() == TransactionType.INCOME ? "+" : "-";
+            out.printf("  %s %,.2f (%s) - %s%s%n",
+                    typeSymbol, t.getAmount(), t.getCategory(), t.getDate().toLocalDate(), formatTags(t));
+        }
+    }
+
+    public void printTagCounts(Map<String, Integer> tags) {
+        if (tags.isEmpty()) {
+            out.println("Меток нет");
+            return;
+        }
+
+        out.println("Метки операций:");
+        tags.forEach((tag, count) -> out.printf("  #%s: %d%n", tag, count));
+    }
+
+    /**
+     * Страница результатов поиска с номерами операций в списке
+     */
+    public void printSearchPage(TransactionPage page) {
+        if (page.getTransactions().isEmpty()) {
+            out.println("Операции не найдены");
+            return;
+        }
+
+        out.printf("Найдено операций на странице: %d (способ поиска: %s)%n",
+                page.getTransactions().size(), page.getPlan());
+        for (int i = 0; i < page.getTransactions().size(); i++) {
+            Transaction t = page.getTransactions().get(i);
+            String typeSymbol = t.getType() == TransactionType.INCOME ? "+" : "-";
+            out.printf("  #%d %s %,.2f (%s) - %s%s%n", page.getPositions().get(i) + 1,
+                    typeSymbol, t.getAmount(), t.getCategory(), t.getDate().toLocalDate(), formatTags(t));
+        }
+        if (page.hasMore()) {
+            out.println("Следующая страница: search next");
+        }
+    }
+
+    private static String formatTags(Transaction t) {
+        StringBuilder tags = new StringBuilder();
+        for (String tag : t.getTags()) {
+            tags.append(" #").append(tag);
+        }
+        return tags.toString();
+    }
+
+    /**
+     * Список оповещений: сначала непрочитанные, затем все с отметкой о прочтении
+     */
+    public void printAlerts(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            out.println("Оповещений нет");
+            return;
+        }
+
+        out.println("=== ОПОВЕЩЕНИЯ ===");
+
+        // Показываем непрочитанные оповещения
+        List<Alert> unreadAlerts = new ArrayList<>();
+        for (Alert alert : alerts) {
+            if (!alert.isRead()) {
+                unreadAlerts.add(alert);
+            }
+        }
+        if (!unreadAlerts.isEmpty()) {
+            out.println("Новые оповещения:");
+            for (int i = 0; i < unreadAlerts.size(); i++) {
+                out.printf("%d. %s%n", i + 1, unreadAlerts.get(i).getMessage());
+            }
+        }
+
+        // Показываем все оповещения
+        out.println("\nВсе оповещения:");
+        for (int i = 0; i < alerts.size(); i++) {
+            Alert alert = alerts.get(i);
+            String status = alert.isRead() ? "📭" : "📬";
+            out.printf("%d. %s %s - %s%n", i + 1, status, alert.getMessage(), alert.getTimestamp());
+        }
+    }
+
+    public void printUnreadAlertCount(int unreadCount) {
+        if (unreadCount > 0) {
+            out.printf("📬 У вас %d непрочитанных оповещений. Введите 'alerts' для просмотра.%n", unreadCount);
+        }
+    }
+
+    /**
+     * Немедленный вывод критического оповещения
+     */
+    public void printCriticalAlert(Alert alert) {
+        out.printf("🚨 ОПОВЕЩЕНИЕ: %s%n", alert.getMessage());
+    }
+}
@@ -0,0 +1,147 @@
+package nes.finance.cli;
+
+import nes.finance.report.FinancialReport;
+import nes.finance.report.PeriodReport;
+import nes.finance.service.ReportingService;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Scanner;
+
+/**
+ * Консоль режима отчетов (--reporting [каталог]): отчеты и экспорт по любому
+ * пользователю из каталога данных без входа в систему и без изменения данных
+ */
+public class ReportingConsole {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final ReportingService reportingService;
+    private final Scanner scanner;
+    private final PrintStream out;
+    private final ReportPrinter printer;
+
+    public ReportingConsole(ReportingService reportingService, InputStream in, PrintStream out) {
+        this.reportingService = reportingService;
+        this.scanner = new Scanner(in);
+        this.out = out;
+        this.printer = new ReportPrinter(out);
+    }
+
+    /**
+     * Чтение команд до exit или конца ввода
+     */
+    public void run() {
+        if (!reportingService.start()) {
+            out.println("Не удалось запустить режим отчетов для каталога " + reportingService.getDirectory());
+            return;
+        }
+        out.println("Режим отчетов (только чтение), каталог: " + reportingService.getDirectory());
+        out.println("Введите 'help' для списка команд");
+        try {
+            while (true) {
+                out.print("\nreporting> ");
+                if (!scanner.hasNextLine()) {
+                    return;
+                }
+                String input = scanner.nextLine().trim();
+                if (input.equalsIgnoreCase("exit") || input.equalsIgnoreCase("quit")) {
+                    return;
+                }
+                if (!input.isEmpty()) {
+                    execute(input);
+                }
+            }
+        } finally {
+            reportingService.close();
+        }
+    }
+
+    /**
+     * Выполнение одной команды. Возвращает false при ошибке
+     */
+    public boolean execute(String input) {
+        String[] parts = input.split("\\s+");
+        switch (parts[0].toLowerCase()) {
+            case "help":
+                printHelp();
+                return true;
+            case "users":
+                out.println("Пользователи: " + String.join(", ", reportingService.getUsers()));
+                return true;
+            case "report":
+                return handleReport(parts);
+            case "period":
+                return handlePeriod(parts);
+            case "export":
+                return handleExport(parts);
+            default:
+                out.println("Неизвестная команда: " + parts[0]);
+                return false;
+        }
+    }
+
+    private boolean handleReport(String[] parts) {
+        if (parts.length < 2) {
+            out.println("Использование: report <login>");
+            return false;
+        }
+        FinancialReport report = reportingService.getReport(parts[1]);
+        if (report == null) {
+            out.println("Пользователь не найден: " + parts[1]);
+            return false;
+        }
+        printer.printFullStatistics(report);
+        return true;
+    }
+
+    private boolean handlePeriod(String[] parts) {
+        if (parts.length < 4) {
+            out.println("Использование: period <login> <start_date> <end_date>");
+            return false;
+        }
+        try {
+            PeriodReport report = reportingService.getPeriodReport(parts[1],
+                    LocalDate.parse(parts[2], DATE_FORMATTER), LocalDate.parse(parts[3], DATE_FORMATTER));
+            if (report == null) {
+                out.println("Пользователь не найден: " + parts[1]);
+                return false;
+            }
+            printer.printPeriodReport(report);
+            return true;
+        } catch (DateTimeParseException e) {
+            out.println("Неверный формат даты. Используйте YYYY-MM-DD");
+            return false;
+        }
+    }
+
+    private boolean handleExport(String[] parts) {
+        if (parts.length < 3) {
+            out.println("Использование: export <login> csv|budgets|json|report [file]");
+            return false;
+        }
+        String login = parts[1];
+        String type = parts[2].toLowerCase();
+        String filename = parts.length > 3 ? parts[3]
+                : String.format("%s_%s_%s.%s", type, login, LocalDate.now(), type.equals("json") ? "json"
+                        : type.equals("report") ? "txt" : "csv");
+        if (!reportingService.export(login, type, filename)) {
+            out.println("Экспорт не выполнен");
+            return false;
+        }
+        out.println("Данные экспортированы в файл: " + filename);
+        return true;
+    }
+
+    private void printHelp() {
+        out.println("Команды режима отчетов:");
+        out.println("  users                                   - пользователи в каталоге данных");
+        out.println("  report <login>                          - полная статистика пользователя");
+        out.println("  period <login> <start> <end>            - доходы и расходы за период");
+        out.println("  export <login> csv|budgets|json|report [file] - экспорт данных пользователя");
+        out.println("  exit                                    - выход");
+        out.println("Данные перечитываются автоматически при изменении файлов пользователей");
+    }
+}
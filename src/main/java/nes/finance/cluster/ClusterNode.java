@@ -0,0 +1,255 @@
+package nes.finance.cluster;
+
+import nes.finance.cli.CLIApplication;
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.User;
+import nes.finance.service.AuthService;
+import nes.finance.service.DataService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Узел кластера: обслуживает пользователей своей части кольца из собственного
+ * каталога данных.
+ *
+ * Слушает localhost; каждое соединение - отдельный сеанс CLI со своим входом.
+ * Сеансы узла используют общий набор загруженных пользователей, команды одного
+ * пользователя выполняются по очереди. Для переноса пользователей при изменении
+ * состава кластера узел отдает, принимает и удаляет файлы пользователей; пользователь,
+ * вошедший в каком-либо сеансе, не переносится.
+ */
+public class ClusterNode implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ClusterNode.class);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final DataService dataService;
+    private final Map<String, User> users;
+    private final ServerSocket server;
+    private final Map<Socket, AuthService> sessions = new ConcurrentHashMap<>();
+    private final Set<Thread> sessionThreads = ConcurrentHashMap.newKeySet();
+    private Thread acceptor;
+    private volatile boolean running;
+
+    /**
+     * Узел с каталогом данных dataDir на порту port (0 - свободный порт)
+     */
+    public ClusterNode(String dataDir, int port) throws IOException {
+        this.dataService = new DataService(dataDir);
+        this.users = new ConcurrentHashMap<>();
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        acceptor = new Thread(this::acceptLoop, "cluster-node-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Узел кластера %s, каталог %s, пользователей: %d", getAddress(), dataService.getDataDir(),
+                dataService.getAllSavedUsers().size());
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                Thread session = new Thread(() -> serve(socket), "cluster-session-" + socket.getPort());
+                session.setDaemon(true);
+                sessionThreads.add(session);
+                session.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Ошибка приема соединения: %s", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        AuthService session = new AuthService(dataService, users);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream output = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        CLIApplication app = new CLIApplication(session, new ByteArrayInputStream(new byte[0]), output, false);
+        sessions.put(socket, session);
+
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            while (app.isRunning()) {
+                byte operation;
+                try {
+                    operation = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                handle(operation, in, out, app, session, buffer);
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // Соединение закрыто другой стороной или при остановке узла
+        } catch (IOException e) {
+            log.warn("Ошибка сеанса узла %s: %s", getAddress(), e.getMessage());
+        } finally {
+            sessions.remove(socket);
+            // Выход сохраняет данные пользователя сеанса
+            session.logout();
+            sessionThreads.remove(Thread.currentThread());
+        }
+    }
+
+    private void handle(byte operation, DataInputStream in, DataOutputStream out, CLIApplication app,
+                        AuthService session, ByteArrayOutputStream buffer) throws IOException {
+        switch (operation) {
+            case ClusterProtocol.COMMAND: {
+                String command = in.readUTF();
+                boolean success = execute(app, session, command);
+                out.writeBoolean(success);
+                ClusterProtocol.writeText(out, buffer.toString(StandardCharsets.UTF_8));
+                buffer.reset();
+                break;
+            }
+            case ClusterProtocol.LIST_USERS: {
+                List<String> logins = listUsers();
+                out.writeInt(logins.size());
+                for (String login : logins) {
+                    out.writeUTF(login);
+                }
+                break;
+            }
+            case ClusterProtocol.FETCH_USER:
+                ClusterProtocol.writeBytes(out, fetchUser(in.readUTF()));
+                break;
+            case ClusterProtocol.STORE_USER: {
+                String login = in.readUTF();
+                out.writeBoolean(storeUser(login, ClusterProtocol.readBytes(in)));
+                break;
+            }
+            case ClusterProtocol.DROP_USER:
+                out.writeBoolean(dropUser(in.readUTF()));
+                break;
+            default:
+                throw new IOException("Неизвестная операция: " + operation);
+        }
+    }
+
+    // Команды одного пользователя из разных сеансов не выполняются одновременно
+    private static boolean execute(CLIApplication app, AuthService session, String command) {
+        User user = session.getCurrentUser();
+        if (user == null) {
+            return app.executeCommand(command);
+        }
+        synchronized (user) {
+            return app.executeCommand(command);
+        }
+    }
+
+    private List<String> listUsers() {
+        List<String> logins = new ArrayList<>();
+        for (String name : dataService.getAllSavedUsers()) {
+            String login = DataService.loginFromFileName(name + DataService.FILE_EXTENSION);
+            if (login != null) {
+                logins.add(login);
+            }
+        }
+        return logins;
+    }
+
+    private boolean isLoggedIn(String login) {
+        for (AuthService session : sessions.values()) {
+            if (login.equals(session.getCurrentLogin())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] fetchUser(String login) {
+        if (isLoggedIn(login)) {
+            log.warn("Пользователь %s работает в сеансе и не может быть перенесен", login);
+            return null;
+        }
+        return dataService.readRawUserData(login);
+    }
+
+    private boolean storeUser(String login, byte[] data) {
+        if (data == null || isLoggedIn(login)) {
+            return false;
+        }
+        // Загруженная ранее копия устарела: пользователь будет прочитан из нового файла
+        users.remove(login);
+        return dataService.writeRawUserData(login, data);
+    }
+
+    private boolean dropUser(String login) {
+        if (isLoggedIn(login)) {
+            return false;
+        }
+        users.remove(login);
+        return dataService.deleteUserData(login);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Адрес узла "host:port", он же имя узла на кольце
+     */
+    public String getAddress() {
+        return server.getInetAddress().getHostAddress() + ":" + getPort();
+    }
+
+    public boolean isRunning() { return running; }
+
+    /**
+     * Остановка узла: новые соединения не принимаются, открытые сеансы закрываются
+     * с сохранением данных
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException e) {
+            log.warn("Ошибка при остановке узла: %s", e.getMessage());
+        }
+        for (Socket socket : sessions.keySet()) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Сеанс завершится сам
+            }
+        }
+        // Дожидаемся сохранения данных закрытых сеансов
+        for (Thread session : sessionThreads) {
+            try {
+                session.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        dataService.getTopSpending().flush();
+    }
+}
@@ -0,0 +1,76 @@
+package nes.finance.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Протокол между маршрутизатором и узлом кластера поверх TCP на localhost.
+ *
+ * Запрос - код операции (байт) и аргументы; ответ - признак успеха и данные.
+ * Строки команд передаются в UTF (writeUTF), вывод команд и файлы пользователей -
+ * длиной и байтами; длина -1 означает отсутствие данных.
+ * Тот же формат используется потоком репликации ведущий - реплика.
+ */
+final class ClusterProtocol {
+    // Команда CLI в сеансе соединения: строка -> успех, вывод
+    static final byte COMMAND = 1;
+    // Логины пользователей узла -> количество, логины
+    static final byte LIST_USERS = 2;
+    // Файл пользователя -> данные или -1
+    static final byte FETCH_USER = 3;
+    // Запись файла пользователя: логин, данные -> успех
+    static final byte STORE_USER = 4;
+    // Удаление пользователя с узла: логин -> успех
+    static final byte DROP_USER = 5;
+
+    // Репликация. Реплика: REPLICATE, идентификатор журнала, последнее примененное смещение;
+    // далее ведущий шлет SNAPSHOT, ENTRIES и HEARTBEAT, реплика - ACK
+    static final byte REPLICATE = 10;
+    // Снимок каталога: журнал, смещение, количество, (логин, данные)*
+    static final byte SNAPSHOT = 11;
+    // Записи журнала: последнее смещение ведущего, количество, (смещение, время, логин, данные или -1)*
+    static final byte ENTRIES = 12;
+    // Нет новых записей: последнее смещение ведущего
+    static final byte HEARTBEAT = 13;
+    // Подтверждение реплики: примененное смещение
+    static final byte ACK = 14;
+
+    // Предел размера сообщения: защита от поврежденной длины
+    static final int MAX_MESSAGE_BYTES = 256 * 1024 * 1024;
+
+    private ClusterProtocol() {
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] data) throws IOException {
+        if (data == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_MESSAGE_BYTES) {
+            throw new IOException("Слишком большое сообщение: " + length + " байт");
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    static void writeText(DataOutputStream out, String text) throws IOException {
+        writeBytes(out, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readText(DataInputStream in) throws IOException {
+        byte[] data = readBytes(in);
+        return data == null ? null : new String(data, StandardCharsets.UTF_8);
+    }
+}
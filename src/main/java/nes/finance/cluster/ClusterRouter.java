@@ -0,0 +1,147 @@
+package nes.finance.cluster;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Маршрутизатор кластера: направляет сеанс пользователя на узел, которому принадлежит
+ * его логин по кольцу согласованного хеширования.
+ *
+ * Сам данных не хранит. Команды до входа выполняются на любом узле; команды
+ * login и register переключают сеанс на узел-владелец логина. При добавлении узла
+ * файлы пользователей, сменивших владельца, переносятся на новые узлы.
+ */
+public class ClusterRouter {
+    private static final Logger log = LoggerFactory.getLogger(ClusterRouter.class);
+
+    private final HashRing ring = new HashRing();
+
+    public ClusterRouter(Collection<String> nodes) {
+        for (String node : nodes) {
+            ring.addNode(node);
+        }
+    }
+
+    public Set<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    public String ownerOf(String login) {
+        return ring.ownerOf(login);
+    }
+
+    /**
+     * Добавление узла "host:port" и перенос на него пользователей, которые теперь ему
+     * принадлежат. Возвращает количество перенесенных пользователей
+     */
+    public int addNode(String node) throws IOException {
+        if (!ring.addNode(node)) {
+            return 0;
+        }
+        return rebalance();
+    }
+
+    /**
+     * Перенос каждого пользователя на узел-владелец. Пользователи, работающие
+     * в сеансе, пропускаются и переносятся при следующей перебалансировке
+     */
+    public int rebalance() throws IOException {
+        Map<String, NodeClient> clients = new HashMap<>();
+        int moved = 0;
+        try {
+            for (String node : ring.getNodes()) {
+                clients.put(node, new NodeClient(node));
+            }
+            for (Map.Entry<String, NodeClient> entry : clients.entrySet()) {
+                NodeClient source = entry.getValue();
+                List<String> logins = source.listUsers();
+                for (String login : logins) {
+                    String owner = ring.ownerOf(login);
+                    if (owner.equals(entry.getKey())) {
+                        continue;
+                    }
+                    if (move(login, source, clients.get(owner))) {
+                        moved++;
+                    }
+                }
+            }
+        } finally {
+            for (NodeClient client : clients.values()) {
+                client.close();
+            }
+        }
+        log.info("Перебалансировка кластера: перенесено пользователей: %d", moved);
+        return moved;
+    }
+
+    // Копия записывается на новый узел до удаления со старого: сбой не теряет данные
+    private static boolean move(String login, NodeClient source, NodeClient target) throws IOException {
+        byte[] data = source.fetchUser(login);
+        if (data == null) {
+            log.warn("Пользователь %s не перенесен с узла %s: работает в сеансе", login, source.getAddress());
+            return false;
+        }
+        if (!target.storeUser(login, data)) {
+            log.warn("Пользователь %s не записан на узел %s", login, target.getAddress());
+            return false;
+        }
+        return source.dropUser(login);
+    }
+
+    public Session openSession() {
+        return new Session();
+    }
+
+    /**
+     * Сеанс пользователя через маршрутизатор: соединение с текущим узлом сеанса
+     */
+    public class Session implements AutoCloseable {
+        private NodeClient client;
+
+        /**
+         * Выполнение команды CLI на узле сеанса
+         */
+        public CommandResult execute(String command) throws IOException {
+            String[] parts = command.trim().split("\\s+");
+            String name = parts[0].toLowerCase();
+            boolean entersAccount = name.equals("login") || name.equals("register") || name.equals("reg");
+            if (entersAccount && parts.length > 1) {
+                connect(ring.ownerOf(parts[1]));
+            } else if (client == null) {
+                connect(ring.getNodes().iterator().next());
+            }
+            return client.execute(command);
+        }
+
+        /**
+         * Адрес текущего узла сеанса или null
+         */
+        public String getNode() {
+            return client != null ? client.getAddress() : null;
+        }
+
+        // Переход на другой узел закрывает прежний сеанс; узел при этом сохраняет данные
+        private void connect(String node) throws IOException {
+            if (client != null && client.getAddress().equals(node)) {
+                return;
+            }
+            close();
+            client = new NodeClient(node);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (client != null) {
+                client.close();
+                client = null;
+            }
+        }
+    }
+}
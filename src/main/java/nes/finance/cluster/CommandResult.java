@@ -0,0 +1,21 @@
+package nes.finance.cluster;
+
+/**
+ * Результат команды, выполненной на узле кластера: успех, вывод и адрес узла
+ */
+public class CommandResult {
+    private final boolean success;
+    private final String output;
+    private final String node;
+
+    public CommandResult(boolean success, String output, String node) {
+        this.success = success;
+        this.output = output;
+        this.node = node;
+    }
+
+    // Getters
+    public boolean isSuccess() { return success; }
+    public String getOutput() { return output; }
+    public String getNode() { return node; }
+}
@@ -0,0 +1,71 @@
+package nes.finance.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Кольцо согласованного хеширования логинов по узлам.
+ *
+ * Каждый узел занимает на кольце VIRTUAL_NODES точек; логин принадлежит узлу
+ * первой точки не меньше хеша логина. При добавлении узла к нему переходит примерно
+ * 1/N логинов, остальные остаются на своих узлах.
+ */
+public class HashRing {
+    public static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> nodes = new TreeSet<>();
+
+    public synchronized boolean addNode(String node) {
+        if (!nodes.add(node)) {
+            return false;
+        }
+        for (int i = 0; i < VIRTUAL_NODES; i++) {
+            ring.put(hash(node + "#" + i), node);
+        }
+        return true;
+    }
+
+    public synchronized boolean removeNode(String node) {
+        if (!nodes.remove(node)) {
+            return false;
+        }
+        ring.values().removeIf(node::equals);
+        return true;
+    }
+
+    /**
+     * Узел, которому принадлежит логин, или null, если узлов нет
+     */
+    public synchronized String ownerOf(String login) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        SortedMap<Long, String> tail = ring.tailMap(hash(login));
+        return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+    }
+
+    public synchronized Set<String> getNodes() {
+        return Collections.unmodifiableSet(new TreeSet<>(nodes));
+    }
+
+    // Первые 8 байт MD5: равномерно и одинаково во всех процессах
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << 8) | (digest[i] & 0xFF);
+            }
+            return value;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 недоступен", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package nes.finance.cluster;
+
+/**
+ * Запись журнала репликации: новое содержимое файла пользователя или его удаление.
+ * Запись хранит файл целиком, поэтому повторное применение безопасно
+ */
+public class JournalEntry {
+    private final long offset;
+    private final long timestamp;
+    private final String login;
+    private final byte[] data;
+
+    /**
+     * data == null - удаление пользователя
+     */
+    public JournalEntry(long offset, long timestamp, String login, byte[] data) {
+        this.offset = offset;
+        this.timestamp = timestamp;
+        this.login = login;
+        this.data = data;
+    }
+
+    // Getters
+    public long getOffset() { return offset; }
+    public long getTimestamp() { return timestamp; }
+    public String getLogin() { return login; }
+    public byte[] getData() { return data; }
+    public boolean isDelete() { return data == null; }
+
+    long sizeBytes() {
+        return (data != null ? data.length : 0) + login.length() * 2L + 48;
+    }
+}
@@ -0,0 +1,95 @@
+package nes.finance.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Соединение с узлом кластера. Одно соединение - один сеанс CLI на узле;
+ * закрытие соединения завершает сеанс с сохранением данных
+ */
+public class NodeClient implements AutoCloseable {
+    private final String address;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Подключение к узлу по адресу "host:port"
+     */
+    public NodeClient(String address) throws IOException {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Адрес узла должен иметь вид host:port: " + address);
+        }
+        int port;
+        try {
+            port = Integer.parseInt(address.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный порт узла: " + address);
+        }
+        this.address = address;
+        this.socket = new Socket(address.substring(0, colon), port);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    public String getAddress() { return address; }
+
+    /**
+     * Выполнение команды CLI в сеансе узла
+     */
+    public CommandResult execute(String command) throws IOException {
+        out.writeByte(ClusterProtocol.COMMAND);
+        out.writeUTF(command);
+        out.flush();
+        boolean success = in.readBoolean();
+        return new CommandResult(success, ClusterProtocol.readText(in), address);
+    }
+
+    public List<String> listUsers() throws IOException {
+        out.writeByte(ClusterProtocol.LIST_USERS);
+        out.flush();
+        int count = in.readInt();
+        List<String> logins = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            logins.add(in.readUTF());
+        }
+        return logins;
+    }
+
+    /**
+     * Файл пользователя или null, если его нет или пользователь сейчас работает на узле
+     */
+    public byte[] fetchUser(String login) throws IOException {
+        out.writeByte(ClusterProtocol.FETCH_USER);
+        out.writeUTF(login);
+        out.flush();
+        return ClusterProtocol.readBytes(in);
+    }
+
+    public boolean storeUser(String login, byte[] data) throws IOException {
+        out.writeByte(ClusterProtocol.STORE_USER);
+        out.writeUTF(login);
+        ClusterProtocol.writeBytes(out, data);
+        out.flush();
+        return in.readBoolean();
+    }
+
+    public boolean dropUser(String login) throws IOException {
+        out.writeByte(ClusterProtocol.DROP_USER);
+        out.writeUTF(login);
+        out.flush();
+        return in.readBoolean();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,268 @@
+package nes.finance.cluster;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.service.DataService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Реплика горячего резерва: применяет журнал ведущего к собственному каталогу данных.
+ *
+ * Позиция (идентификатор журнала и смещение) хранится в файле replication.pos каталога
+ * и записывается после применения каждой пачки, поэтому после разрыва или перезапуска
+ * реплика продолжает с того же смещения. Повторное применение записей безопасно:
+ * каждая запись содержит файл пользователя целиком.
+ * После promote() репликация прекращается, и каталог можно открыть как обычный
+ */
+public class ReplicationFollower implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+    public static final String POSITION_FILE = "replication.pos";
+    private static final long RECONNECT_MILLIS = 500;
+    // Нет даже пульса за это время - ведущий считается недоступным
+    private static final int READ_TIMEOUT_MILLIS = (int) (ReplicationPrimary.HEARTBEAT_MILLIS * 5);
+
+    private final DataService dataService;
+    private final String primaryAddress;
+    private final Path positionFile;
+    private volatile String journalId = "";
+    private volatile long appliedOffset;
+    private volatile long primaryOffset;
+    private volatile long lastDelayMillis;
+    private volatile long appliedCount;
+    private volatile int snapshotCount;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile Socket socket;
+    private Thread worker;
+
+    /**
+     * Реплика каталога dataDir для ведущего "host:port"
+     */
+    public ReplicationFollower(String dataDir, String primaryAddress) {
+        this.dataService = new DataService(dataDir);
+        this.primaryAddress = primaryAddress;
+        this.positionFile = Paths.get(dataDir, POSITION_FILE);
+        loadPosition();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::replicateLoop, "replication-follower");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void replicateLoop() {
+        while (running) {
+            try {
+                replicate();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Связь с ведущим %s потеряна: %s", primaryAddress, e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void replicate() throws IOException {
+        int colon = primaryAddress.lastIndexOf(':');
+        Socket s = new Socket();
+        socket = s;
+        try {
+            s.connect(new InetSocketAddress(primaryAddress.substring(0, colon),
+                    Integer.parseInt(primaryAddress.substring(colon + 1))), READ_TIMEOUT_MILLIS);
+            s.setSoTimeout(READ_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            out.writeByte(ClusterProtocol.REPLICATE);
+            out.writeUTF(journalId);
+            out.writeLong(appliedOffset);
+            out.flush();
+            connected = true;
+            log.info("Реплика подключена к %s со смещения %d", primaryAddress, appliedOffset);
+
+            while (running) {
+                byte message = in.readByte();
+                switch (message) {
+                    case ClusterProtocol.SNAPSHOT:
+                        applySnapshot(in);
+                        break;
+                    case ClusterProtocol.ENTRIES:
+                        applyEntries(in);
+                        break;
+                    case ClusterProtocol.HEARTBEAT:
+                        primaryOffset = in.readLong();
+                        continue;
+                    default:
+                        throw new IOException("Неизвестное сообщение ведущего: " + message);
+                }
+                out.writeByte(ClusterProtocol.ACK);
+                out.writeLong(appliedOffset);
+                out.flush();
+            }
+        } finally {
+            s.close();
+        }
+    }
+
+    // Снимок заменяет каталог целиком: пользователи, которых нет у ведущего, удаляются
+    private void applySnapshot(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        long offset = in.readLong();
+        int count = in.readInt();
+        Set<String> logins = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            String login = in.readUTF();
+            write(login, ClusterProtocol.readBytes(in));
+            logins.add(login);
+        }
+        for (String name : dataService.getAllSavedUsers()) {
+            String login = DataService.loginFromFileName(name + DataService.FILE_EXTENSION);
+            if (login != null && !logins.contains(login)) {
+                dataService.deleteUserData(login);
+            }
+        }
+        journalId = id;
+        appliedOffset = offset;
+        primaryOffset = Math.max(primaryOffset, offset);
+        snapshotCount++;
+        savePosition();
+        log.info("Применен снимок ведущего: пользователей %d, смещение %d", count, offset);
+    }
+
+    private void applyEntries(DataInputStream in) throws IOException {
+        primaryOffset = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long offset = in.readLong();
+            long timestamp = in.readLong();
+            String login = in.readUTF();
+            byte[] data = ClusterProtocol.readBytes(in);
+            if (data == null) {
+                dataService.deleteUserData(login);
+            } else {
+                write(login, data);
+            }
+            appliedOffset = offset;
+            appliedCount++;
+            lastDelayMillis = Math.max(0, System.currentTimeMillis() - timestamp);
+        }
+        savePosition();
+    }
+
+    private void write(String login, byte[] data) throws IOException {
+        if (!dataService.writeRawUserData(login, data)) {
+            // Без подтверждения: после переподключения запись придет снова
+            throw new IOException("Не удалось записать файл пользователя " + login);
+        }
+    }
+
+    private void loadPosition() {
+        if (!Files.exists(positionFile)) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(positionFile, StandardCharsets.UTF_8);
+            if (lines.size() >= 2) {
+                journalId = lines.get(0).trim();
+                appliedOffset = Long.parseLong(lines.get(1).trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Позиция реплики не прочитана, будет запрошен снимок: %s", e.getMessage());
+            journalId = "";
+            appliedOffset = 0;
+        }
+    }
+
+    private void savePosition() throws IOException {
+        Files.createDirectories(positionFile.getParent());
+        Path temp = Paths.get(positionFile + ".tmp");
+        Files.write(temp, (journalId + "\n" + appliedOffset + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temp, positionFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, positionFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Перевод реплики в самостоятельный режим: репликация останавливается,
+     * примененные данные остаются в каталоге. Возвращает последнее примененное смещение
+     */
+    public long promote() {
+        close();
+        log.info("Реплика %s повышена до ведущего, смещение %d из %d",
+                dataService.getDataDir(), appliedOffset, primaryOffset);
+        return appliedOffset;
+    }
+
+    public DataService getDataService() { return dataService; }
+    public String getPrimaryAddress() { return primaryAddress; }
+    public String getJournalId() { return journalId; }
+    public long getAppliedOffset() { return appliedOffset; }
+    public long getPrimaryOffset() { return primaryOffset; }
+    public long getLastDelayMillis() { return lastDelayMillis; }
+    public long getAppliedCount() { return appliedCount; }
+    public int getSnapshotCount() { return snapshotCount; }
+    public boolean isConnected() { return connected; }
+    public boolean isRunning() { return running; }
+
+    /**
+     * Отставание от ведущего в записях журнала по последним полученным сведениям
+     */
+    public long getLag() {
+        return Math.max(0, primaryOffset - appliedOffset);
+    }
+
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = worker;
+            worker = null;
+        }
+        try {
+            Socket s = socket;
+            if (s != null) {
+                s.close();
+            }
+        } catch (IOException ignored) {
+            // Поток репликации завершится сам
+        }
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(READ_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
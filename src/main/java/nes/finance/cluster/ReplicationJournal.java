@@ -0,0 +1,119 @@
+package nes.finance.cluster;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Журнал изменений ведущего узла в памяти: записи с последовательными смещениями
+ * начиная с 1.
+ *
+ * Хранит последние записи в пределах maxBytes; реплика, отставшая дальше начала
+ * журнала, получает снимок каталога. Идентификатор журнала меняется при каждом
+ * запуске ведущего, поэтому смещения прежнего запуска не принимаются
+ */
+public class ReplicationJournal {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final String id = UUID.randomUUID().toString();
+    private final long maxBytes;
+    private final ArrayDeque<JournalEntry> entries = new ArrayDeque<>();
+    private long headOffset;
+    private long bytes;
+    private long ackedOffset;
+
+    public ReplicationJournal() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public ReplicationJournal(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public String getId() { return id; }
+
+    /**
+     * Добавление записи (data == null - удаление), возвращает ее смещение
+     */
+    public synchronized long append(String login, byte[] data) {
+        JournalEntry entry = new JournalEntry(headOffset + 1, System.currentTimeMillis(), login, data);
+        entries.addLast(entry);
+        headOffset = entry.getOffset();
+        bytes += entry.sizeBytes();
+        // Последняя запись остается всегда, даже если она больше предела
+        while (bytes > maxBytes && entries.size() > 1) {
+            bytes -= entries.removeFirst().sizeBytes();
+        }
+        notifyAll();
+        return headOffset;
+    }
+
+    /**
+     * Записи после смещения after (не больше limit). Если новых записей нет, ждет
+     * до waitMillis и возвращает пустой список. null - записи после after уже
+     * вытеснены из журнала и нужен снимок
+     */
+    public synchronized List<JournalEntry> readAfter(long after, int limit, long waitMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (headOffset <= after) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return Collections.emptyList();
+            }
+            wait(remaining);
+        }
+        if (after < getFirstOffset() - 1) {
+            return null;
+        }
+        List<JournalEntry> result = new ArrayList<>(Math.min(limit, (int) (headOffset - after)));
+        for (JournalEntry entry : entries) {
+            if (entry.getOffset() > after) {
+                result.add(entry);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Подтверждение применения записей репликой до offset включительно
+     */
+    public synchronized void acknowledge(long offset) {
+        if (offset > ackedOffset) {
+            ackedOffset = offset;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Ожидание подтверждения смещения offset; false - время ожидания истекло
+     */
+    public synchronized boolean awaitAck(long offset, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (ackedOffset < offset) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Смещение первой записи в журнале (headOffset + 1, если журнал пуст)
+     */
+    public synchronized long getFirstOffset() {
+        return entries.isEmpty() ? headOffset + 1 : entries.peekFirst().getOffset();
+    }
+
+    public synchronized long getHeadOffset() { return headOffset; }
+    public synchronized long getAckedOffset() { return ackedOffset; }
+    public synchronized long getBytes() { return bytes; }
+    public synchronized int size() { return entries.size(); }
+}
@@ -0,0 +1,248 @@
+package nes.finance.cluster;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.service.DataService;
+import nes.finance.service.PersistenceListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ведущий узел репликации: записывает каждое сохранение и удаление файла пользователя
+ * в журнал и передает журнал реплике по TCP на localhost.
+ *
+ * Реплика сообщает последнее примененное смещение; если записи после него уже вытеснены
+ * или журнал от другого запуска, она получает снимок каталога. В полусинхронном режиме
+ * сохранение ждет подтверждения реплики не дольше syncTimeoutMillis, после чего
+ * продолжается без него (реплика догонит из журнала)
+ */
+public class ReplicationPrimary implements PersistenceListener, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationPrimary.class);
+    static final long HEARTBEAT_MILLIS = 1000;
+    private static final int BATCH_SIZE = 256;
+
+    private final DataService dataService;
+    private final ReplicationJournal journal;
+    private final ServerSocket server;
+    private volatile long syncTimeoutMillis;
+    private volatile Socket follower;
+    private volatile long lastAckMillis;
+    private volatile boolean lagging;
+    private volatile boolean running;
+    private Thread acceptor;
+
+    public ReplicationPrimary(DataService dataService, int port) throws IOException {
+        this(dataService, port, new ReplicationJournal());
+    }
+
+    public ReplicationPrimary(DataService dataService, int port, ReplicationJournal journal) throws IOException {
+        this.dataService = dataService;
+        this.journal = journal;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Полусинхронный режим: сохранение ждет подтверждения реплики до timeoutMillis
+     * (0 - асинхронный режим)
+     */
+    public void setSyncTimeoutMillis(long timeoutMillis) {
+        this.syncTimeoutMillis = timeoutMillis;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dataService.setPersistenceListener(this);
+        acceptor = new Thread(this::acceptLoop, "replication-primary-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Ведущий репликации %s, каталог %s", getAddress(), dataService.getDataDir());
+    }
+
+    @Override
+    public void userSaved(String login, byte[] data) {
+        awaitFollower(journal.append(login, data));
+    }
+
+    @Override
+    public void userDeleted(String login) {
+        awaitFollower(journal.append(login, null));
+    }
+
+    private void awaitFollower(long offset) {
+        long timeout = syncTimeoutMillis;
+        if (timeout <= 0 || follower == null) {
+            return;
+        }
+        try {
+            boolean acked = journal.awaitAck(offset, timeout);
+            if (!acked && !lagging) {
+                log.warn("Реплика не подтвердила запись %d за %d мс, сохранение без ожидания", offset, timeout);
+            }
+            lagging = !acked;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                // Одна реплика: новое подключение заменяет прежнее
+                Socket previous = follower;
+                if (previous != null) {
+                    previous.close();
+                }
+                follower = socket;
+                Thread sender = new Thread(() -> serve(socket), "replication-sender");
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Ошибка приема реплики: %s", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            if (in.readByte() != ClusterProtocol.REPLICATE) {
+                throw new IOException("Ожидался запрос репликации");
+            }
+            String journalId = in.readUTF();
+            long position = in.readLong();
+            log.info("Реплика %s подключена со смещения %d", s.getRemoteSocketAddress(), position);
+
+            Thread reader = new Thread(() -> readAcks(in), "replication-acks");
+            reader.setDaemon(true);
+            reader.start();
+
+            if (!journalId.equals(journal.getId()) || position > journal.getHeadOffset()) {
+                position = sendSnapshot(out);
+            }
+            while (running && !s.isClosed()) {
+                List<JournalEntry> batch = journal.readAfter(position, BATCH_SIZE, HEARTBEAT_MILLIS);
+                if (batch == null) {
+                    position = sendSnapshot(out);
+                } else if (batch.isEmpty()) {
+                    out.writeByte(ClusterProtocol.HEARTBEAT);
+                    out.writeLong(journal.getHeadOffset());
+                } else {
+                    sendEntries(out, batch);
+                    position = batch.get(batch.size() - 1).getOffset();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (running) {
+                log.warn("Реплика отключена: %s", e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (follower == socket) {
+                follower = null;
+            }
+        }
+    }
+
+    private void readAcks(DataInputStream in) {
+        try {
+            while (true) {
+                if (in.readByte() != ClusterProtocol.ACK) {
+                    throw new IOException("Ожидалось подтверждение реплики");
+                }
+                journal.acknowledge(in.readLong());
+                lastAckMillis = System.currentTimeMillis();
+            }
+        } catch (IOException e) {
+            // Соединение закрыто: поток отправки завершится сам
+        }
+    }
+
+    // Смещение снимка берется до чтения файлов: записи после него могут повториться, но не потеряться
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        long offset = journal.getHeadOffset();
+        List<String> logins = new ArrayList<>();
+        List<byte[]> files = new ArrayList<>();
+        for (String name : dataService.getAllSavedUsers()) {
+            String login = DataService.loginFromFileName(name + DataService.FILE_EXTENSION);
+            byte[] data = login != null ? dataService.readRawUserData(login) : null;
+            if (data != null) {
+                logins.add(login);
+                files.add(data);
+            }
+        }
+        out.writeByte(ClusterProtocol.SNAPSHOT);
+        out.writeUTF(journal.getId());
+        out.writeLong(offset);
+        out.writeInt(logins.size());
+        for (int i = 0; i < logins.size(); i++) {
+            out.writeUTF(logins.get(i));
+            ClusterProtocol.writeBytes(out, files.get(i));
+        }
+        log.info("Реплике отправлен снимок: пользователей %d, смещение %d", logins.size(), offset);
+        return offset;
+    }
+
+    private void sendEntries(DataOutputStream out, List<JournalEntry> batch) throws IOException {
+        out.writeByte(ClusterProtocol.ENTRIES);
+        out.writeLong(journal.getHeadOffset());
+        out.writeInt(batch.size());
+        for (JournalEntry entry : batch) {
+            out.writeLong(entry.getOffset());
+            out.writeLong(entry.getTimestamp());
+            out.writeUTF(entry.getLogin());
+            ClusterProtocol.writeBytes(out, entry.getData());
+        }
+    }
+
+    public ReplicationJournal getJournal() { return journal; }
+    public boolean isFollowerConnected() { return follower != null; }
+    public long getLastAckMillis() { return lastAckMillis; }
+
+    /**
+     * Отставание реплики в записях журнала
+     */
+    public long getLag() {
+        return journal.getHeadOffset() - journal.getAckedOffset();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public String getAddress() {
+        return server.getInetAddress().getHostAddress() + ":" + getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        dataService.setPersistenceListener(null);
+        try {
+            server.close();
+            Socket current = follower;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException e) {
+            log.warn("Ошибка при остановке ведущего репликации: %s", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package nes.finance.feed;
+
+import nes.finance.model.Alert;
+import nes.finance.model.AlertReason;
+import nes.finance.model.AlertType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Создано оповещение. Событие хранит копию полей: оповещение в кошельке
+ * изменяется (прочтение) без синхронизации с подписчиками
+ */
+public class AlertRaised extends ChangeEvent {
+    private final AlertType type;
+    private final AlertReason reason;
+    private final String category;
+    private final double[] values;
+    private final String message;
+    private final LocalDateTime timestamp;
+
+    public AlertRaised(String login, Alert alert) {
+        super(login);
+        this.type = alert.getType();
+        this.reason = alert.getReason();
+        this.category = alert.getCategory();
+        this.values = alert.getValues().clone();
+        this.message = alert.getMessage();
+        this.timestamp = alert.getTimestamp();
+    }
+
+    // Getters
+    public AlertType getType() { return type; }
+    public AlertReason getReason() { return reason; }
+    public String getCategory() { return category; }
+    public double[] getValues() { return values.clone(); }
+    public String getMessage() { return message; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return String.format("AlertRaised{login='%s', reason=%s, category=%s}",
+                getLogin(), reason, category);
+    }
+}
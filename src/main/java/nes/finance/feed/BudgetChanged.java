@@ -0,0 +1,29 @@
+package nes.finance.feed;
+
+/**
+ * Изменен лимит бюджета категории. null в oldLimit - бюджет установлен впервые,
+ * null в newLimit - бюджет удален
+ */
+public class BudgetChanged extends ChangeEvent {
+    private final String category;
+    private final Double oldLimit;
+    private final Double newLimit;
+
+    public BudgetChanged(String login, String category, Double oldLimit, Double newLimit) {
+        super(login);
+        this.category = category;
+        this.oldLimit = oldLimit;
+        this.newLimit = newLimit;
+    }
+
+    // Getters
+    public String getCategory() { return category; }
+    public Double getOldLimit() { return oldLimit; }
+    public Double getNewLimit() { return newLimit; }
+
+    @Override
+    public String toString() {
+        return String.format("BudgetChanged{login='%s', category='%s', %s -> %s}",
+                getLogin(), category, oldLimit, newLimit);
+    }
+}
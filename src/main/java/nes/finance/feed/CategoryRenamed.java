@@ -0,0 +1,29 @@
+package nes.finance.feed;
+
+/**
+ * Категория переименована вместе с операциями и бюджетом.
+ * Объединение категорий публикуется как переименование каждой из них
+ */
+public class CategoryRenamed extends ChangeEvent {
+    private final String oldCategory;
+    private final String newCategory;
+    private final int transactionCount;
+
+    public CategoryRenamed(String login, String oldCategory, String newCategory, int transactionCount) {
+        super(login);
+        this.oldCategory = oldCategory;
+        this.newCategory = newCategory;
+        this.transactionCount = transactionCount;
+    }
+
+    // Getters
+    public String getOldCategory() { return oldCategory; }
+    public String getNewCategory() { return newCategory; }
+    public int getTransactionCount() { return transactionCount; }
+
+    @Override
+    public String toString() {
+        return String.format("CategoryRenamed{login='%s', '%s' -> '%s', transactions=%d}",
+                getLogin(), oldCategory, newCategory, transactionCount);
+    }
+}
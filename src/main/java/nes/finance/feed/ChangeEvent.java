@@ -0,0 +1,30 @@
+package nes.finance.feed;
+
+import java.time.LocalDateTime;
+
+/**
+ * Изменение данных пользователя, публикуемое через ChangeFeed.
+ *
+ * Номер события присваивается лентой при публикации и растет на единицу;
+ * пропуск номеров означает, что часть событий была отброшена при переполнении
+ * буфера, и получателю следует перечитать данные пользователя целиком
+ */
+public abstract class ChangeEvent {
+    private final String login;
+    private final LocalDateTime timestamp;
+    private long sequence;
+
+    ChangeEvent(String login) {
+        this.login = login;
+        this.timestamp = LocalDateTime.now();
+    }
+
+    // Getters
+    public String getLogin() { return login; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public long getSequence() { return sequence; }
+
+    void assignSequence(long sequence) {
+        this.sequence = sequence;
+    }
+}
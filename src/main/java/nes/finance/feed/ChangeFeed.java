@@ -0,0 +1,371 @@
+package nes.finance.feed;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лента изменений данных пользователей (java.util.concurrent.Flow).
+ *
+ * publish не блокирует вызывающий поток: событие помещается во входную очередь
+ * ограниченного размера, при ее переполнении отбрасывается и учитывается в
+ * getDroppedCount. Фоновый поток раскладывает события по буферам подписчиков,
+ * каждый подписчик получает их в своем потоке доставки не больше запрошенного
+ * (request). При заполнении буфера подписчика действует его политика: отбросить
+ * самое старое или новое событие, либо ждать (BLOCK). Ожидание задерживает
+ * раскладку для всех подписчиков, но не публикацию. Пока подписчиков нет,
+ * публикация ничего не делает
+ */
+public class ChangeFeed implements Flow.Publisher<ChangeEvent>, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST,
+        BLOCK
+    }
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+    public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    private final int queueSize;
+    private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<ChangeEvent> queue = new ArrayDeque<>();
+    private long sequence;
+    private long dropped;
+    private boolean closed;
+
+    // Потоки создаются при первой подписке
+    private Thread dispatcher;
+    private ExecutorService delivery;
+
+    public ChangeFeed() {
+        this(DEFAULT_QUEUE_SIZE);
+    }
+
+    public ChangeFeed(int queueSize) {
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("Размер очереди должен быть положительным");
+        }
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Подписка с буфером DEFAULT_BUFFER_SIZE и отбрасыванием самых старых событий
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeEvent> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER_SIZE, OverflowPolicy.DROP_OLDEST);
+    }
+
+    public void subscribe(Flow.Subscriber<? super ChangeEvent> subscriber, int bufferSize, OverflowPolicy policy) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        Objects.requireNonNull(policy, "policy");
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным");
+        }
+
+        ExecutorService executor;
+        lock.lock();
+        try {
+            if (!closed) {
+                startThreads();
+            }
+            executor = delivery;
+        } finally {
+            lock.unlock();
+        }
+
+        FeedSubscription subscription = new FeedSubscription(subscriber, bufferSize, policy, executor);
+        subscriber.onSubscribe(subscription);
+
+        lock.lock();
+        try {
+            if (closed) {
+                subscription.complete();
+            } else {
+                subscriptions.add(subscription);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Публикация события. Возвращает false, если событие отброшено
+     * (нет подписчиков, очередь заполнена или лента закрыта)
+     */
+    public boolean publish(ChangeEvent event) {
+        if (subscriptions.isEmpty()) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            // Номер расходуется и на отброшенное событие: подписчик увидит пропуск
+            event.assignSequence(++sequence);
+            if (queue.size() == queueSize) {
+                dropped++;
+                return false;
+            }
+            queue.add(event);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Закрытие ленты: подписчики получат уже опубликованные события и onComplete
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    private void startThreads() {
+        if (dispatcher != null) {
+            return;
+        }
+        delivery = Executors.newCachedThreadPool(daemonThreads("finance-change-feed"));
+        dispatcher = new Thread(this::dispatchLoop, "finance-change-feed-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    private void dispatchLoop() {
+        List<ChangeEvent> batch = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (queue.isEmpty()) {
+                    break;
+                }
+                batch.addAll(queue);
+                queue.clear();
+            } finally {
+                lock.unlock();
+            }
+
+            for (ChangeEvent event : batch) {
+                for (FeedSubscription subscription : subscriptions) {
+                    subscription.offer(event);
+                }
+            }
+            batch.clear();
+        }
+
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger number = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Подписка: буфер событий, запрошенное количество и последовательная доставка.
+     * Вызовы подписчика не пересекаются благодаря счетчику запусков доставки (pending)
+     */
+    private class FeedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ChangeEvent> subscriber;
+        private final int bufferSize;
+        private final OverflowPolicy policy;
+        private final ExecutorService executor;
+
+        private final ReentrantLock bufferLock = new ReentrantLock();
+        private final Condition notFull = bufferLock.newCondition();
+        private final ArrayDeque<ChangeEvent> buffer = new ArrayDeque<>();
+        private long demand;
+        private boolean completed;
+        private boolean cancelled;
+        private Throwable error;
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        FeedSubscription(Flow.Subscriber<? super ChangeEvent> subscriber, int bufferSize,
+                         OverflowPolicy policy, ExecutorService executor) {
+            this.subscriber = subscriber;
+            this.bufferSize = bufferSize;
+            this.policy = policy;
+            this.executor = executor;
+        }
+
+        void offer(ChangeEvent event) {
+            bufferLock.lock();
+            try {
+                while (buffer.size() == bufferSize && !cancelled) {
+                    if (policy == OverflowPolicy.DROP_NEWEST) {
+                        return;
+                    }
+                    if (policy == OverflowPolicy.DROP_OLDEST) {
+                        buffer.poll();
+                        break;
+                    }
+                    notFull.awaitUninterruptibly();
+                }
+                if (cancelled) {
+                    return;
+                }
+                buffer.add(event);
+            } finally {
+                bufferLock.unlock();
+            }
+            schedule();
+        }
+
+        void complete() {
+            bufferLock.lock();
+            try {
+                completed = true;
+            } finally {
+                bufferLock.unlock();
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            bufferLock.lock();
+            try {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Запрошено неположительное число событий: " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            } finally {
+                bufferLock.unlock();
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            bufferLock.lock();
+            try {
+                cancelled = true;
+                buffer.clear();
+                notFull.signalAll();
+            } finally {
+                bufferLock.unlock();
+            }
+            subscriptions.remove(this);
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+            if (executor == null) {
+                // Лента закрыта до подписки: сигналы доставляются в вызывающем потоке
+                drain();
+            } else {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                while (true) {
+                    ChangeEvent next = null;
+                    Throwable failure = null;
+                    boolean finished = false;
+                    bufferLock.lock();
+                    try {
+                        if (cancelled) {
+                            return;
+                        }
+                        if (error != null) {
+                            failure = error;
+                            cancelled = true;
+                        } else if (demand > 0 && !buffer.isEmpty()) {
+                            next = buffer.poll();
+                            if (demand != Long.MAX_VALUE) {
+                                demand--;
+                            }
+                            notFull.signal();
+                        } else if (completed && buffer.isEmpty()) {
+                            finished = true;
+                            cancelled = true;
+                        }
+                    } finally {
+                        bufferLock.unlock();
+                    }
+
+                    if (failure != null) {
+                        subscriptions.remove(this);
+                        subscriber.onError(failure);
+                        return;
+                    }
+                    if (finished) {
+                        subscriptions.remove(this);
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        // Ошибка получателя отменяет только его подписку
+                        log.warn("Подписчик ленты изменений отключен из-за ошибки: %s", e.getMessage());
+                        cancel();
+                        return;
+                    }
+                }
+                missed = pending.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package nes.finance.feed;
+
+import nes.finance.model.Transaction;
+
+/**
+ * Добавлена операция; balance - баланс кошелька после нее
+ */
+public class TransactionAdded extends ChangeEvent {
+    private final Transaction transaction;
+    private final double balance;
+
+    public TransactionAdded(String login, Transaction transaction, double balance) {
+        super(login);
+        this.transaction = transaction;
+        this.balance = balance;
+    }
+
+    // Getters
+    public Transaction getTransaction() { return transaction; }
+    public double getBalance() { return balance; }
+
+    @Override
+    public String toString() {
+        return String.format("TransactionAdded{login='%s', %s, balance=%.2f}", getLogin(), transaction, balance);
+    }
+}
@@ -0,0 +1,65 @@
+package nes.finance.load;
+
+import nes.finance.cluster.ClusterRouter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Нагрузка на узлы кластера командами CLI через маршрутизатор
+ */
+public class ClusterTarget implements LoadTarget {
+    private final ClusterRouter router;
+
+    public ClusterTarget(List<String> nodes) {
+        this.router = new ClusterRouter(nodes);
+    }
+
+    @Override
+    public Session open(String login) throws IOException {
+        ClusterRouter.Session session = router.openSession();
+        session.execute("register " + login + " " + LocalTarget.PASSWORD);
+        if (!session.execute("login " + login + " " + LocalTarget.PASSWORD).isSuccess()) {
+            session.close();
+            throw new IOException("Вход виртуального пользователя " + login + " не выполнен");
+        }
+        session.execute("income " + LocalTarget.OPENING_DEPOSIT + " " + LocalTarget.INCOME_CATEGORIES[0]);
+        return new Session() {
+            @Override
+            public boolean execute(Operation operation, Random random) throws IOException {
+                return session.execute(command(operation, random)).isSuccess();
+            }
+
+            @Override
+            public void close() throws IOException {
+                session.execute("logout");
+                session.close();
+            }
+        };
+    }
+
+    private static String command(Operation operation, Random random) {
+        switch (operation) {
+            case INCOME:
+                return "income " + (1000 + random.nextInt(4000)) + " "
+                        + LocalTarget.INCOME_CATEGORIES[random.nextInt(LocalTarget.INCOME_CATEGORIES.length)];
+            case EXPENSE:
+                return "expense " + (1 + random.nextInt(300)) + " "
+                        + LocalTarget.EXPENSE_CATEGORIES[random.nextInt(LocalTarget.EXPENSE_CATEGORIES.length)];
+            case PERIOD:
+                LocalDate today = LocalDate.now();
+                return "period " + today.minusDays(30) + " " + today;
+            case REPORT:
+                return "report";
+            default:
+                throw new IllegalArgumentException("Операция недоступна на узлах кластера: " + operation.getKey());
+        }
+    }
+
+    @Override
+    public void close() {
+        // Соединения принадлежат сеансам
+    }
+}
@@ -0,0 +1,161 @@
+package nes.finance.load;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного теста: число виртуальных пользователей, длительность,
+ * доли операций и пауза между операциями одного пользователя (закрытая модель нагрузки)
+ */
+public class LoadConfig {
+    private int users = 50;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 5;
+    private long thinkMillis = 100;
+    private int sampleSeconds = 5;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    private String dataDir;
+    private String reportPath = "load-report.json";
+    private List<String> nodes = Collections.emptyList();
+
+    public LoadConfig() {
+        mix.put(Operation.INCOME, 30);
+        mix.put(Operation.EXPENSE, 45);
+        mix.put(Operation.REPORT, 15);
+        mix.put(Operation.PERIOD, 7);
+        mix.put(Operation.EXPORT, 3);
+    }
+
+    /**
+     * Разбор аргументов командной строки:
+     * --load [--users N] [--duration S] [--warmup S] [--think MS] [--sample S]
+     * [--mix income=30,expense=45,...] [--data DIR] [--report FILE] [--nodes host:port,...]
+     */
+    public static LoadConfig fromArguments(String[] args) {
+        LoadConfig config = new LoadConfig();
+        boolean mixGiven = false;
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (name.equals("--load")) {
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("не указано значение для " + name);
+            }
+            String value = args[++i];
+            switch (name) {
+                case "--users":
+                    config.setUsers(parsePositive(name, value));
+                    break;
+                case "--duration":
+                    config.setDurationSeconds(parsePositive(name, value));
+                    break;
+                case "--warmup":
+                    config.setWarmupSeconds(parseNonNegative(name, value));
+                    break;
+                case "--think":
+                    config.setThinkMillis(parseNonNegative(name, value));
+                    break;
+                case "--sample":
+                    config.setSampleSeconds(parsePositive(name, value));
+                    break;
+                case "--mix":
+                    config.setMix(value);
+                    mixGiven = true;
+                    break;
+                case "--data":
+                    config.setDataDir(value);
+                    break;
+                case "--report":
+                    config.setReportPath(value);
+                    break;
+                case "--nodes":
+                    config.setNodes(Arrays.asList(value.split(",")));
+                    break;
+                default:
+                    throw new IllegalArgumentException("неизвестный аргумент: " + name);
+            }
+        }
+        if (!mixGiven && !config.nodes.isEmpty()) {
+            config.mix.remove(Operation.EXPORT);
+        }
+        config.validate();
+        return config;
+    }
+
+    private static int parsePositive(String name, String value) {
+        int parsed = parseNonNegative(name, value);
+        if (parsed == 0) {
+            throw new IllegalArgumentException("значение " + name + " должно быть больше нуля");
+        }
+        return parsed;
+    }
+
+    private static int parseNonNegative(String name, String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("значение " + name + " не может быть отрицательным");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("значение " + name + " должно быть числом");
+        }
+    }
+
+    /**
+     * Доли операций в виде "income=30,expense=45"; неуказанные операции не выполняются
+     */
+    public void setMix(String spec) {
+        Map<Operation, Integer> parsed = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("доля операции должна иметь вид имя=вес: " + part);
+            }
+            parsed.put(Operation.fromKey(pair[0].trim()), parseNonNegative("--mix", pair[1].trim()));
+        }
+        mix.clear();
+        mix.putAll(parsed);
+    }
+
+    /**
+     * Проверка согласованности параметров
+     */
+    public void validate() {
+        int total = 0;
+        for (int weight : mix.values()) {
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("в --mix должна быть хотя бы одна операция с ненулевой долей");
+        }
+        // CLI узла пишет файлы экспорта в свой рабочий каталог
+        if (!nodes.isEmpty() && mix.getOrDefault(Operation.EXPORT, 0) > 0) {
+            throw new IllegalArgumentException("экспорт недоступен при нагрузке на узлы кластера, уберите export из --mix");
+        }
+    }
+
+    // Getters and setters
+    public int getUsers() { return users; }
+    public void setUsers(int users) { this.users = users; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(int durationSeconds) { this.durationSeconds = durationSeconds; }
+    public int getWarmupSeconds() { return warmupSeconds; }
+    public void setWarmupSeconds(int warmupSeconds) { this.warmupSeconds = warmupSeconds; }
+    public long getThinkMillis() { return thinkMillis; }
+    public void setThinkMillis(long thinkMillis) { this.thinkMillis = thinkMillis; }
+    public int getSampleSeconds() { return sampleSeconds; }
+    public void setSampleSeconds(int sampleSeconds) { this.sampleSeconds = sampleSeconds; }
+    public Map<Operation, Integer> getMix() { return Collections.unmodifiableMap(mix); }
+    public String getDataDir() { return dataDir; }
+    public void setDataDir(String dataDir) { this.dataDir = dataDir; }
+    public String getReportPath() { return reportPath; }
+    public void setReportPath(String reportPath) { this.reportPath = reportPath; }
+    public List<String> getNodes() { return nodes; }
+    public void setNodes(List<String> nodes) { this.nodes = new ArrayList<>(nodes); }
+}
@@ -0,0 +1,293 @@
+package nes.finance.load;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.stats.KllSketch;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор нагрузки по закрытой модели: каждый виртуальный пользователь в своем потоке
+ * выполняет операцию, ждет ответа и делает паузу перед следующей.
+ *
+ * Операции выполняются с начала прогона, но задержки учитываются только после разогрева.
+ * Задержки каждого потока копятся в KLL-скетчах и объединяются в конце, поэтому
+ * измерение не добавляет общей блокировки между пользователями
+ */
+public class LoadGenerator {
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final long STOP_TIMEOUT_MILLIS = 30_000;
+
+    private final LoadConfig config;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final AtomicLong measuredOperations = new AtomicLong();
+    private final AtomicInteger failedUsers = new AtomicInteger();
+
+    public LoadGenerator(LoadConfig config) {
+        config.validate();
+        this.config = config;
+        List<Operation> chosen = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Operation, Integer> entry : config.getMix().entrySet()) {
+            if (entry.getValue() > 0) {
+                total += entry.getValue();
+                chosen.add(entry.getKey());
+                weights.add(total);
+            }
+        }
+        this.operations = chosen.toArray(new Operation[0]);
+        this.cumulativeWeights = new int[weights.size()];
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            cumulativeWeights[i] = weights.get(i);
+        }
+    }
+
+    /**
+     * Прогон на узлах кластера из конфигурации или на сервисах в этом процессе
+     */
+    public LoadReport run() throws IOException, InterruptedException {
+        if (!config.getNodes().isEmpty()) {
+            try (LoadTarget target = new ClusterTarget(config.getNodes())) {
+                return run(target, "cluster " + String.join(",", config.getNodes()));
+            }
+        }
+        String dataDir = config.getDataDir() != null
+                ? config.getDataDir()
+                : Files.createTempDirectory("finance-load").toString();
+        try (LoadTarget target = new LocalTarget(dataDir)) {
+            return run(target, "local " + dataDir);
+        }
+    }
+
+    public LoadReport run(LoadTarget target, String targetName) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long measureStart = startNanos + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        CountDownLatch ready = new CountDownLatch(config.getUsers());
+        List<VirtualUser> users = new ArrayList<>();
+
+        log.info("Нагрузка на %s: пользователей %d, разогрев %d с, измерение %d с",
+                targetName, config.getUsers(), config.getWarmupSeconds(), config.getDurationSeconds());
+        for (int i = 0; i < config.getUsers(); i++) {
+            VirtualUser user = new VirtualUser(target, "load_" + i, measureStart, end, ready);
+            users.add(user);
+            user.thread.start();
+        }
+        ready.await();
+
+        // Пики пулов кучи и счетчики GC отсчитываются от начала измерения
+        sleepUntil(measureStart);
+        for (MemoryPoolMXBean pool : heapPools()) {
+            pool.resetPeakUsage();
+        }
+        Map<String, long[]> gcBefore = collectorTotals();
+        List<LoadReport.Sample> samples = new ArrayList<>();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> samples.add(sample(measureStart, gcBefore)),
+                config.getSampleSeconds(), config.getSampleSeconds(), TimeUnit.SECONDS);
+
+        for (VirtualUser user : users) {
+            user.thread.join(Math.max(0, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())) + STOP_TIMEOUT_MILLIS);
+        }
+        sampler.shutdownNow();
+        sampler.awaitTermination(1, TimeUnit.SECONDS);
+        double measuredSeconds = Math.min(System.nanoTime(), end) > measureStart
+                ? (Math.min(System.nanoTime(), end) - measureStart) / 1e9 : 0;
+
+        long heapPeak = 0;
+        long heapMax = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            heapPeak += pool.getPeakUsage().getUsed();
+            heapMax += Math.max(0, pool.getUsage().getMax());
+        }
+        Map<String, long[]> gcDelta = collectorTotals();
+        for (Map.Entry<String, long[]> entry : gcDelta.entrySet()) {
+            long[] before = gcBefore.getOrDefault(entry.getKey(), new long[2]);
+            entry.getValue()[0] -= before[0];
+            entry.getValue()[1] -= before[1];
+        }
+
+        LoadReport report = new LoadReport(config, targetName, measuredSeconds, merge(users), failedUsers.get(),
+                heapMax, heapPeak, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+                gcDelta, samples);
+        log.info("Нагрузка завершена: операций %d, %.1f оп/с", report.getTotalOperations(), report.getThroughput());
+        return report;
+    }
+
+    private List<OperationStats> merge(List<VirtualUser> users) {
+        List<OperationStats> result = new ArrayList<>();
+        for (Operation operation : operations) {
+            KllSketch latencies = new KllSketch();
+            long count = 0;
+            long errors = 0;
+            double totalMillis = 0;
+            for (VirtualUser user : users) {
+                Recorder recorder = user.recorders.get(operation);
+                latencies.merge(recorder.latencies);
+                count += recorder.count;
+                errors += recorder.errors;
+                totalMillis += recorder.totalMillis;
+            }
+            result.add(new OperationStats(operation, count, errors, totalMillis, latencies));
+        }
+        return result;
+    }
+
+    private LoadReport.Sample sample(long measureStart, Map<String, long[]> gcBefore) {
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (Map.Entry<String, long[]> entry : collectorTotals().entrySet()) {
+            long[] before = gcBefore.getOrDefault(entry.getKey(), new long[2]);
+            gcCount += entry.getValue()[0] - before[0];
+            gcMillis += entry.getValue()[1] - before[1];
+        }
+        return new LoadReport.Sample((System.nanoTime() - measureStart) / 1e9, measuredOperations.get(),
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), gcCount, gcMillis);
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    private static Map<String, long[]> collectorTotals() {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals.put(collector.getName(), new long[]{
+                    Math.max(0, collector.getCollectionCount()), Math.max(0, collector.getCollectionTime())});
+        }
+        return totals;
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedException {
+        long remaining = nanos - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private Operation choose(Random random) {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    // Задержки операции одного потока
+    private static class Recorder {
+        final KllSketch latencies = new KllSketch();
+        long count;
+        long errors;
+        double totalMillis;
+    }
+
+    private class VirtualUser implements Runnable {
+        final Thread thread;
+        final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+        private final LoadTarget target;
+        private final String login;
+        private final long measureStart;
+        private final long end;
+        private final CountDownLatch ready;
+
+        VirtualUser(LoadTarget target, String login, long measureStart, long end, CountDownLatch ready) {
+            this.target = target;
+            this.login = login;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.ready = ready;
+            for (Operation operation : operations) {
+                recorders.put(operation, new Recorder());
+            }
+            this.thread = new Thread(this, login);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Random random = new Random(login.hashCode());
+            LoadTarget.Session session;
+            try {
+                session = target.open(login);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Виртуальный пользователь %s не начал работу: %s", login, e.getMessage());
+                failedUsers.incrementAndGet();
+                return;
+            } finally {
+                ready.countDown();
+            }
+
+            try (LoadTarget.Session s = session) {
+                while (System.nanoTime() < end) {
+                    Operation operation = choose(random);
+                    long started = System.nanoTime();
+                    boolean success;
+                    try {
+                        success = s.execute(operation, random);
+                    } catch (RuntimeException e) {
+                        success = false;
+                    }
+                    long finished = System.nanoTime();
+                    if (started >= measureStart && finished <= end) {
+                        Recorder recorder = recorders.get(operation);
+                        double millis = (finished - started) / 1e6;
+                        recorder.latencies.update(millis);
+                        recorder.count++;
+                        recorder.totalMillis += millis;
+                        if (!success) {
+                            recorder.errors++;
+                        }
+                        measuredOperations.incrementAndGet();
+                    }
+                    think(random);
+                }
+            } catch (IOException e) {
+                log.warn("Виртуальный пользователь %s прервал работу: %s", login, e.getMessage());
+                failedUsers.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Пауза 0.5-1.5 от заданной, чтобы пользователи не шли в ногу
+        private void think(Random random) throws InterruptedException {
+            long think = config.getThinkMillis();
+            if (think > 0) {
+                long pause = think / 2 + (long) (random.nextDouble() * think);
+                long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+                Thread.sleep(Math.max(0, Math.min(pause, remaining)));
+            }
+        }
+    }
+}
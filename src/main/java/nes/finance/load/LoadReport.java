@@ -0,0 +1,215 @@
+package nes.finance.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Результат нагрузочного теста: пропускная способность, перцентили задержек по операциям,
+ * поведение кучи и сборщиков мусора, ряд замеров по времени. Сохраняется в JSON
+ * для сравнения прогонов между версиями
+ */
+public class LoadReport {
+    private final LoadConfig config;
+    private final String target;
+    private final double measuredSeconds;
+    private final List<OperationStats> operations;
+    private final int failedUsers;
+    private final long heapMaxBytes;
+    private final long heapPeakBytes;
+    private final long heapFinalBytes;
+    private final Map<String, long[]> collectors;
+    private final List<Sample> samples;
+
+    public LoadReport(LoadConfig config, String target, double measuredSeconds, List<OperationStats> operations,
+                      int failedUsers, long heapMaxBytes, long heapPeakBytes, long heapFinalBytes,
+                      Map<String, long[]> collectors, List<Sample> samples) {
+        this.config = config;
+        this.target = target;
+        this.measuredSeconds = measuredSeconds;
+        this.operations = Collections.unmodifiableList(new ArrayList<>(operations));
+        this.failedUsers = failedUsers;
+        this.heapMaxBytes = heapMaxBytes;
+        this.heapPeakBytes = heapPeakBytes;
+        this.heapFinalBytes = heapFinalBytes;
+        this.collectors = Collections.unmodifiableMap(new LinkedHashMap<>(collectors));
+        this.samples = Collections.unmodifiableList(new ArrayList<>(samples));
+    }
+
+    public long getTotalOperations() {
+        long total = 0;
+        for (OperationStats stats : operations) {
+            total += stats.getCount();
+        }
+        return total;
+    }
+
+    public long getTotalErrors() {
+        long total = 0;
+        for (OperationStats stats : operations) {
+            total += stats.getErrors();
+        }
+        return total;
+    }
+
+    /**
+     * Операций в секунду за время измерения
+     */
+    public double getThroughput() {
+        return measuredSeconds > 0 ? getTotalOperations() / measuredSeconds : 0;
+    }
+
+    public OperationStats getOperation(Operation operation) {
+        for (OperationStats stats : operations) {
+            if (stats.getOperation() == operation) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    // Getters
+    public LoadConfig getConfig() { return config; }
+    public String getTarget() { return target; }
+    public double getMeasuredSeconds() { return measuredSeconds; }
+    public List<OperationStats> getOperations() { return operations; }
+    public int getFailedUsers() { return failedUsers; }
+    public long getHeapMaxBytes() { return heapMaxBytes; }
+    public long getHeapPeakBytes() { return heapPeakBytes; }
+    public long getHeapFinalBytes() { return heapFinalBytes; }
+    /** Сборщик мусора -> {количество сборок, время в мс} за прогон */
+    public Map<String, long[]> getCollectors() { return collectors; }
+    public List<Sample> getSamples() { return samples; }
+
+    /**
+     * Отчет в JSON; числа всегда с точкой независимо от локали
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"target\": \"").append(target).append("\",\n");
+        json.append("  \"config\": {\n");
+        json.append(format("    \"users\": %d,%n", config.getUsers()));
+        json.append(format("    \"duration_seconds\": %d,%n", config.getDurationSeconds()));
+        json.append(format("    \"warmup_seconds\": %d,%n", config.getWarmupSeconds()));
+        json.append(format("    \"think_millis\": %d,%n", config.getThinkMillis()));
+        json.append("    \"mix\": {");
+        int index = 0;
+        for (Map.Entry<Operation, Integer> entry : config.getMix().entrySet()) {
+            json.append(index++ > 0 ? ", " : "").append(format("\"%s\": %d", entry.getKey().getKey(), entry.getValue()));
+        }
+        json.append("}\n  },\n");
+        json.append(format("  \"measured_seconds\": %.3f,%n", measuredSeconds));
+        json.append(format("  \"total_operations\": %d,%n", getTotalOperations()));
+        json.append(format("  \"total_errors\": %d,%n", getTotalErrors()));
+        json.append(format("  \"failed_users\": %d,%n", failedUsers));
+        json.append(format("  \"throughput_ops_per_second\": %.2f,%n", getThroughput()));
+
+        json.append("  \"operations\": {\n");
+        for (int i = 0; i < operations.size(); i++) {
+            OperationStats stats = operations.get(i);
+            json.append(format("    \"%s\": {\"count\": %d, \"errors\": %d, \"mean_ms\": %.3f, "
+                            + "\"p50_ms\": %.3f, \"p90_ms\": %.3f, \"p99_ms\": %.3f, \"p999_ms\": %.3f, \"max_ms\": %.3f}",
+                    stats.getOperation().getKey(), stats.getCount(), stats.getErrors(), stats.getMeanMillis(),
+                    stats.percentile(0.5), stats.percentile(0.9), stats.percentile(0.99), stats.percentile(0.999),
+                    stats.getMaxMillis()));
+            json.append(i < operations.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  },\n");
+
+        json.append("  \"heap\": {");
+        json.append(format("\"max_bytes\": %d, \"peak_used_bytes\": %d, \"final_used_bytes\": %d",
+                heapMaxBytes, heapPeakBytes, heapFinalBytes));
+        json.append("},\n");
+
+        json.append("  \"gc\": {");
+        index = 0;
+        for (Map.Entry<String, long[]> entry : collectors.entrySet()) {
+            json.append(index++ > 0 ? ", " : "").append(format("\"%s\": {\"count\": %d, \"time_ms\": %d}",
+                    entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        json.append("},\n");
+
+        json.append("  \"samples\": [\n");
+        for (int i = 0; i < samples.size(); i++) {
+            Sample sample = samples.get(i);
+            json.append(format("    {\"elapsed_seconds\": %.1f, \"operations\": %d, \"heap_used_bytes\": %d, "
+                            + "\"gc_count\": %d, \"gc_time_ms\": %d}",
+                    sample.getElapsedSeconds(), sample.getOperations(), sample.getHeapUsedBytes(),
+                    sample.getGcCount(), sample.getGcMillis()));
+            json.append(i < samples.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    public void writeJson(String path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    /**
+     * Краткая сводка для консоли
+     */
+    public void printSummary(PrintStream out) {
+        out.println(format("Нагрузка: %s, пользователей %d, измерение %.1f с",
+                target, config.getUsers(), measuredSeconds));
+        out.println(format("Операций: %d, ошибок: %d, пропускная способность: %.1f оп/с",
+                getTotalOperations(), getTotalErrors(), getThroughput()));
+        if (failedUsers > 0) {
+            out.println("Пользователей, прервавших работу из-за ошибок: " + failedUsers);
+        }
+        out.println(format("%-8s %9s %7s %9s %9s %9s %9s", "операция", "кол-во", "ошибки", "p50 мс", "p90 мс", "p99 мс", "max мс"));
+        for (OperationStats stats : operations) {
+            out.println(format("%-8s %9d %7d %9.2f %9.2f %9.2f %9.2f", stats.getOperation().getKey(),
+                    stats.getCount(), stats.getErrors(), stats.percentile(0.5), stats.percentile(0.9),
+                    stats.percentile(0.99), stats.getMaxMillis()));
+        }
+        out.println(format("Куча: пик %.1f МБ, в конце %.1f МБ из %.1f МБ",
+                heapPeakBytes / 1048576.0, heapFinalBytes / 1048576.0, heapMaxBytes / 1048576.0));
+        for (Map.Entry<String, long[]> entry : collectors.entrySet()) {
+            out.println(format("GC %s: сборок %d, %d мс", entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+    }
+
+    private static String format(String pattern, Object... args) {
+        return String.format(Locale.ROOT, pattern, args);
+    }
+
+    /**
+     * Замер во время прогона: выполненные операции, занятая куча и сборки мусора с начала
+     */
+    public static class Sample {
+        private final double elapsedSeconds;
+        private final long operations;
+        private final long heapUsedBytes;
+        private final long gcCount;
+        private final long gcMillis;
+
+        public Sample(double elapsedSeconds, long operations, long heapUsedBytes, long gcCount, long gcMillis) {
+            this.elapsedSeconds = elapsedSeconds;
+            this.operations = operations;
+            this.heapUsedBytes = heapUsedBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        // Getters
+        public double getElapsedSeconds() { return elapsedSeconds; }
+        public long getOperations() { return operations; }
+        public long getHeapUsedBytes() { return heapUsedBytes; }
+        public long getGcCount() { return gcCount; }
+        public long getGcMillis() { return gcMillis; }
+    }
+}
@@ -0,0 +1,32 @@
+package nes.finance.load;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Система под нагрузкой: сервисы в этом процессе или узлы кластера
+ */
+public interface LoadTarget extends AutoCloseable {
+
+    /**
+     * Сеанс нового виртуального пользователя (регистрация и вход)
+     */
+    Session open(String login) throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Сеанс одного виртуального пользователя; используется одним потоком
+     */
+    interface Session extends AutoCloseable {
+
+        /**
+         * Выполнение операции; false - операция завершилась ошибкой
+         */
+        boolean execute(Operation operation, Random random) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+}
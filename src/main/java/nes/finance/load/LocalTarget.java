@@ -0,0 +1,94 @@
+package nes.finance.load;
+
+import nes.finance.model.User;
+import nes.finance.service.AuthService;
+import nes.finance.service.DataService;
+import nes.finance.service.ExportService;
+import nes.finance.service.FinancialService;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Нагрузка на AuthService, FinancialService и ExportService в этом процессе:
+ * у каждого виртуального пользователя свой сеанс над общим каталогом данных
+ */
+public class LocalTarget implements LoadTarget {
+    static final String[] INCOME_CATEGORIES = {"Salary", "Bonus", "Freelance"};
+    static final String[] EXPENSE_CATEGORIES = {"Food", "Transport", "Rent", "Fun", "Health"};
+    static final String PASSWORD = "load";
+    // Начальный доход: расходы новых пользователей не отклоняются из-за пустого счета
+    static final int OPENING_DEPOSIT = 10_000;
+
+    private final DataService dataService;
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final ExportService exportService = new ExportService();
+    private final File exportDir;
+
+    public LocalTarget(String dataDir) {
+        this.dataService = new DataService(dataDir);
+        this.exportDir = new File(dataDir, "exports");
+    }
+
+    @Override
+    public Session open(String login) throws IOException {
+        if (!exportDir.isDirectory() && !exportDir.mkdirs()) {
+            throw new IOException("Не удалось создать каталог экспорта " + exportDir);
+        }
+        AuthService authService = new AuthService(dataService, users);
+        authService.register(login, PASSWORD);
+        if (!authService.login(login, PASSWORD)) {
+            throw new IOException("Вход виртуального пользователя " + login + " не выполнен");
+        }
+        LocalSession session = new LocalSession(authService, new File(exportDir, login + ".json").getPath());
+        session.financialService.addIncome(OPENING_DEPOSIT, INCOME_CATEGORIES[0]);
+        return session;
+    }
+
+    @Override
+    public void close() {
+        // Данные сеансов сохраняются при их закрытии
+    }
+
+    private class LocalSession implements Session {
+        private final AuthService authService;
+        private final FinancialService financialService;
+        private final String exportPath;
+
+        LocalSession(AuthService authService, String exportPath) {
+            this.authService = authService;
+            this.financialService = new FinancialService(authService);
+            this.exportPath = exportPath;
+        }
+
+        @Override
+        public boolean execute(Operation operation, Random random) {
+            switch (operation) {
+                case INCOME:
+                    return financialService.addIncome(1000 + random.nextInt(4000),
+                            INCOME_CATEGORIES[random.nextInt(INCOME_CATEGORIES.length)]);
+                case EXPENSE:
+                    return financialService.addExpense(1 + random.nextInt(300),
+                            EXPENSE_CATEGORIES[random.nextInt(EXPENSE_CATEGORIES.length)]);
+                case REPORT:
+                    return financialService.getFinancialReport() != null;
+                case PERIOD:
+                    LocalDate today = LocalDate.now();
+                    return financialService.calculateByPeriod(today.minusDays(30), today) != null;
+                case EXPORT:
+                    return exportService.exportToJSON(authService.getCurrentUser(), exportPath);
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public void close() {
+            authService.logout();
+        }
+    }
+}
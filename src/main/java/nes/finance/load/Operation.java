@@ -0,0 +1,32 @@
+package nes.finance.load;
+
+/**
+ * Операции виртуального пользователя нагрузочного теста
+ */
+public enum Operation {
+    INCOME("income"),
+    EXPENSE("expense"),
+    REPORT("report"),
+    PERIOD("period"),
+    EXPORT("export");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Имя операции в параметре --mix и в отчете
+     */
+    public String getKey() { return key; }
+
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("неизвестная операция: " + key);
+    }
+}
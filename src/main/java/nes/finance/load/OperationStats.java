@@ -0,0 +1,40 @@
+package nes.finance.load;
+
+import nes.finance.stats.KllSketch;
+
+/**
+ * Итоги одной операции за время измерения: количество, ошибки и перцентили
+ * задержки в миллисекундах по KLL-скетчу
+ */
+public class OperationStats {
+    private final Operation operation;
+    private final long count;
+    private final long errors;
+    private final double meanMillis;
+    private final KllSketch latencies;
+
+    public OperationStats(Operation operation, long count, long errors, double totalMillis, KllSketch latencies) {
+        this.operation = operation;
+        this.count = count;
+        this.errors = errors;
+        this.meanMillis = count > 0 ? totalMillis / count : 0;
+        this.latencies = latencies;
+    }
+
+    /**
+     * Задержка для квантиля q (0..1) в миллисекундах, 0 без измерений
+     */
+    public double percentile(double q) {
+        return latencies.isEmpty() ? 0 : latencies.quantile(q);
+    }
+
+    public double getMaxMillis() {
+        return latencies.isEmpty() ? 0 : latencies.getMax();
+    }
+
+    // Getters
+    public Operation getOperation() { return operation; }
+    public long getCount() { return count; }
+    public long getErrors() { return errors; }
+    public double getMeanMillis() { return meanMillis; }
+}
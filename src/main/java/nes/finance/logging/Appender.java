@@ -0,0 +1,15 @@
+package nes.finance.logging;
+
+/**
+ * Получатель записей журнала
+ */
+public interface Appender {
+    void append(LogRecord record);
+
+    default void flush() {
+    }
+
+    default void close() {
+        flush();
+    }
+}
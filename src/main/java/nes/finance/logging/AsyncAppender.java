@@ -0,0 +1,186 @@
+package nes.finance.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Асинхронный вывод журнала через кольцевой буфер фиксированного размера.
+ *
+ * Вызывающий поток только помещает запись в буфер; форматирование и вывод
+ * выполняет фоновый поток. При переполнении буфера запись отбрасывается
+ * (политика DROP) или вызывающий поток ждет освобождения места (политика BLOCK).
+ */
+public class AsyncAppender implements Appender {
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    private static final long FLUSH_TIMEOUT_MS = 5000;
+
+    private final Appender delegate;
+    private final OverflowPolicy policy;
+    private final LogRecord[] ring;
+    private final int mask;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    private long head;      // Следующая запись для чтения
+    private long tail;      // Следующая позиция для записи
+    private long written;   // Сколько записей уже передано получателю
+    private long dropped;
+    private boolean closed;
+
+    private final Thread worker;
+
+    public AsyncAppender(Appender delegate, int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.delegate = delegate;
+        this.policy = policy;
+        this.ring = new LogRecord[size];
+        this.mask = size - 1;
+
+        this.worker = new Thread(this::drainLoop, "finance-log-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void append(LogRecord record) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            while (tail - head == ring.length) {
+                if (policy == OverflowPolicy.DROP) {
+                    dropped++;
+                    return;
+                }
+                notFull.awaitUninterruptibly();
+                if (closed) {
+                    return;
+                }
+            }
+            ring[(int) (tail & mask)] = record;
+            tail++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainLoop() {
+        LogRecord[] batch = new LogRecord[ring.length];
+
+        while (true) {
+            int count;
+            lock.lock();
+            try {
+                while (head == tail && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (head == tail) {
+                    drained.signalAll();
+                    return;
+                }
+
+                count = (int) (tail - head);
+                for (int i = 0; i < count; i++) {
+                    int index = (int) ((head + i) & mask);
+                    batch[i] = ring[index];
+                    ring[index] = null;
+                }
+                head += count;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            for (int i = 0; i < count; i++) {
+                try {
+                    delegate.append(batch[i]);
+                } catch (RuntimeException e) {
+                    // Ошибка вывода журнала не должна останавливать фоновый поток
+                }
+                batch[i] = null;
+            }
+
+            lock.lock();
+            try {
+                written += count;
+                if (head == tail) {
+                    delegate.flush();
+                    drained.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ожидание вывода всех записей, поставленных в буфер до вызова
+     */
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            long target = tail;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MS);
+            while (written < target && worker.isAlive()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    drained.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            worker.join(FLUSH_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
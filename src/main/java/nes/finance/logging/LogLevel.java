@@ -0,0 +1,27 @@
+package nes.finance.logging;
+
+/**
+ * Уровни журналирования в порядке возрастания важности
+ */
+public enum LogLevel {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    /**
+     * Разбор уровня из строки без учета регистра. При ошибке возвращается defaultLevel
+     */
+    public static LogLevel parse(String value, LogLevel defaultLevel) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultLevel;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+}
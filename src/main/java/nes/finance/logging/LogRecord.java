@@ -0,0 +1,51 @@
+package nes.finance.logging;
+
+import java.util.IllegalFormatException;
+
+/**
+ * Запись журнала. Сообщение форматируется лениво, в потоке, который его выводит
+ */
+public final class LogRecord {
+    private final LogLevel level;
+    private final String loggerName;
+    private final long timestamp;
+    private final String threadName;
+    private final String pattern;
+    private final Object[] args;
+    private final Throwable thrown;
+
+    public LogRecord(LogLevel level, String loggerName, String pattern, Object[] args, Throwable thrown) {
+        this.level = level;
+        this.loggerName = loggerName;
+        this.timestamp = System.currentTimeMillis();
+        this.threadName = Thread.currentThread().getName();
+        this.pattern = pattern;
+        this.args = args;
+        this.thrown = thrown;
+    }
+
+    // Getters
+    public LogLevel getLevel() { return level; }
+    public String getLoggerName() { return loggerName; }
+    public long getTimestamp() { return timestamp; }
+    public String getThreadName() { return threadName; }
+    public Throwable getThrown() { return thrown; }
+
+    /**
+     * Текст сообщения: шаблон в формате String.format с подставленными аргументами
+     */
+    public String getMessage() {
+        if (args == null || args.length == 0) {
+            return pattern;
+        }
+        try {
+            return String.format(pattern, args);
+        } catch (IllegalFormatException e) {
+            StringBuilder message = new StringBuilder(pattern);
+            for (Object arg : args) {
+                message.append(' ').append(arg);
+            }
+            return message.toString();
+        }
+    }
+}
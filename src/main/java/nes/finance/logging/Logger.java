@@ -0,0 +1,63 @@
+package nes.finance.logging;
+
+/**
+ * Именованный журнал. Проверка уровня выполняется до создания записи,
+ * поэтому отключенные сообщения не форматируются и не выводятся.
+ * Массив аргументов и упаковка чисел создаются до вызова: в частых путях
+ * вызов debug оборачивается в проверку isDebugEnabled.
+ */
+public final class Logger {
+    private final String name;
+
+    Logger(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return LoggerFactory.isEnabled(level);
+    }
+
+    public boolean isDebugEnabled() {
+        return LoggerFactory.isEnabled(LogLevel.DEBUG);
+    }
+
+    public void trace(String pattern, Object... args) {
+        if (LoggerFactory.isEnabled(LogLevel.TRACE)) {
+            LoggerFactory.dispatch(new LogRecord(LogLevel.TRACE, name, pattern, args, null));
+        }
+    }
+
+    public void debug(String pattern, Object... args) {
+        if (LoggerFactory.isEnabled(LogLevel.DEBUG)) {
+            LoggerFactory.dispatch(new LogRecord(LogLevel.DEBUG, name, pattern, args, null));
+        }
+    }
+
+    public void info(String pattern, Object... args) {
+        if (LoggerFactory.isEnabled(LogLevel.INFO)) {
+            LoggerFactory.dispatch(new LogRecord(LogLevel.INFO, name, pattern, args, null));
+        }
+    }
+
+    public void warn(String pattern, Object... args) {
+        if (LoggerFactory.isEnabled(LogLevel.WARN)) {
+            LoggerFactory.dispatch(new LogRecord(LogLevel.WARN, name, pattern, args, null));
+        }
+    }
+
+    public void error(String pattern, Object... args) {
+        if (LoggerFactory.isEnabled(LogLevel.ERROR)) {
+            LoggerFactory.dispatch(new LogRecord(LogLevel.ERROR, name, pattern, args, null));
+        }
+    }
+
+    public void error(String message, Throwable thrown) {
+        if (LoggerFactory.isEnabled(LogLevel.ERROR)) {
+            LoggerFactory.dispatch(new LogRecord(LogLevel.ERROR, name, message, null, thrown));
+        }
+    }
+}
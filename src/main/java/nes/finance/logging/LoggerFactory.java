@@ -0,0 +1,86 @@
+package nes.finance.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Глобальная настройка журналирования: общий уровень и получатель записей.
+ *
+ * Уровень по умолчанию задается свойством finance.log.level (WARN, если не задано).
+ * Получатель по умолчанию - асинхронный вывод в System.err.
+ */
+public final class LoggerFactory {
+    public static final String LEVEL_PROPERTY = "finance.log.level";
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static volatile LogLevel level = LogLevel.parse(System.getProperty(LEVEL_PROPERTY), LogLevel.WARN);
+    private static volatile Appender appender;
+
+    private LoggerFactory() {
+    }
+
+    public static Logger getLogger(Class<?> type) {
+        return getLogger(type.getSimpleName());
+    }
+
+    public static Logger getLogger(String name) {
+        return loggers.computeIfAbsent(name, Logger::new);
+    }
+
+    public static LogLevel getLevel() {
+        return level;
+    }
+
+    public static void setLevel(LogLevel newLevel) {
+        level = newLevel;
+    }
+
+    static boolean isEnabled(LogLevel messageLevel) {
+        return messageLevel.compareTo(level) >= 0 && level != LogLevel.OFF;
+    }
+
+    /**
+     * Замена получателя записей. Предыдущий получатель дописывает буфер и закрывается
+     */
+    public static synchronized void setAppender(Appender newAppender) {
+        Appender previous = appender;
+        appender = newAppender;
+        if (previous != null && previous != newAppender) {
+            previous.close();
+        }
+    }
+
+    static void dispatch(LogRecord record) {
+        Appender target = appender;
+        if (target == null) {
+            target = defaultAppender();
+        }
+        target.append(record);
+    }
+
+    private static synchronized Appender defaultAppender() {
+        if (appender == null) {
+            appender = new AsyncAppender(new StreamAppender(System.err, false),
+                    DEFAULT_BUFFER_SIZE, AsyncAppender.OverflowPolicy.DROP);
+        }
+        return appender;
+    }
+
+    /**
+     * Ожидание вывода всех накопленных записей
+     */
+    public static void flush() {
+        Appender target = appender;
+        if (target != null) {
+            target.flush();
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (appender != null) {
+            appender.close();
+            appender = null;
+        }
+    }
+}
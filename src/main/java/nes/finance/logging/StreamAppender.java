@@ -0,0 +1,49 @@
+package nes.finance.logging;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Синхронный вывод записей журнала в поток.
+ * В режиме messageOnly выводится только текст сообщения (для консоли пользователя).
+ */
+public class StreamAppender implements Appender {
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final PrintStream out;
+    private final boolean messageOnly;
+
+    public StreamAppender(PrintStream out, boolean messageOnly) {
+        this.out = out;
+        this.messageOnly = messageOnly;
+    }
+
+    @Override
+    public synchronized void append(LogRecord record) {
+        Throwable thrown = record.getThrown();
+
+        if (messageOnly) {
+            out.print(record.getMessage());
+            if (thrown != null) {
+                out.print(": " + thrown.getMessage());
+            }
+            out.println();
+            return;
+        }
+
+        out.printf("%s %-5s [%s] %s - %s%n",
+                TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(record.getTimestamp())),
+                record.getLevel(), record.getThreadName(), record.getLoggerName(), record.getMessage());
+        if (thrown != null) {
+            thrown.printStackTrace(out);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        out.flush();
+    }
+}
@@ -2,41 +2,101 @@ package nes.finance.model;
 
 import java.time.LocalDateTime;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
 
+/**
+ * Оповещение в компактном виде: причина, категория и числовые параметры.
+ * Текст собирается по шаблону причины только при показе (getMessage)
+ */
 public class Alert implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
+    private static final double[] NO_VALUES = new double[0];
 
-    private AlertType type;
-    private String message;
-    private LocalDateTime timestamp;
+    private final AlertType type;
+    private final AlertReason reason;
+    // Ссылка на строку категории кошелька, без копирования
+    private final String category;
+    private final double[] values;
+    // Текст задается только для причины CUSTOM
+    private final String message;
+    private final long timestampMicros;
     private boolean isRead;
 
+    /**
+     * Оповещение по шаблону причины
+     */
+    public Alert(AlertReason reason, String category, double... values) {
+        this(reason.getType(), reason, category, values, null,
+                TransactionList.toMicros(LocalDateTime.now()), false);
+    }
+
     public Alert(AlertType type, String message) {
-        this.type = type;
-        this.message = message;
-        this.timestamp = LocalDateTime.now();
-        this.isRead = false;
+        this(type, message, LocalDateTime.now(), false);
     }
 
     // Конструктор для загрузки из файла
     public Alert(AlertType type, String message, LocalDateTime timestamp, boolean isRead) {
+        this(type, AlertReason.CUSTOM, null, NO_VALUES, message, TransactionList.toMicros(timestamp), isRead);
+    }
+
+    // Конструктор для загрузки компактной формы
+    public Alert(AlertType type, AlertReason reason, String category, double[] values, String message,
+                 long timestampMicros, boolean isRead) {
         this.type = type;
+        this.reason = reason;
+        this.category = category;
+        this.values = values.length == 0 ? NO_VALUES : values;
         this.message = message;
-        this.timestamp = timestamp;
+        this.timestampMicros = timestampMicros;
         this.isRead = isRead;
     }
 
     // Getters
     public AlertType getType() { return type; }
-    public String getMessage() { return message; }
-    public LocalDateTime getTimestamp() { return timestamp; }
+    public AlertReason getReason() { return reason; }
+    public String getCategory() { return category; }
+    public LocalDateTime getTimestamp() { return TransactionList.fromMicros(timestampMicros); }
+    public long getTimestampMicros() { return timestampMicros; }
     public boolean isRead() { return isRead; }
 
+    /**
+     * Параметры шаблона (не изменять)
+     */
+    public double[] getValues() { return values; }
+
+    /**
+     * Текст произвольного оповещения; у оповещений по шаблону - null
+     */
+    public String getCustomMessage() { return message; }
+
     public void markAsRead() { this.isRead = true; }
 
+    /**
+     * Текст оповещения; собирается при каждом вызове
+     */
+    public String getMessage() {
+        return reason == AlertReason.CUSTOM ? message : reason.render(category, values);
+    }
+
+    /**
+     * Совпадение ключа повторов: причина и категория
+     */
+    public boolean hasKey(AlertReason reason, String category) {
+        return this.reason == reason && Objects.equals(this.category, category);
+    }
+
+    /**
+     * Повторяет ли оповещение other по содержанию (без учета времени и прочтения)
+     */
+    public boolean repeats(Alert other) {
+        return type == other.type && reason == other.reason && Objects.equals(category, other.category)
+                && Arrays.equals(values, other.values) && Objects.equals(message, other.message);
+    }
+
     @Override
     public String toString() {
         String status = isRead ? "[ПРОЧИТАНО]" : "[НОВОЕ]";
-        return String.format("%s %s: %s (%s)", status, type, message, timestamp);
+        return String.format("%s %s: %s (%s)", status, type, getMessage(), getTimestamp());
     }
-}
\ No newline at end of file
+}
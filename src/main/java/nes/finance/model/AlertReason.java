@@ -0,0 +1,74 @@
+package nes.finance.model;
+
+/**
+ * Причина оповещения: тип и шаблон сообщения.
+ *
+ * Оповещение хранит только причину, категорию и числовые параметры; текст
+ * собирается по шаблону при показе. В шаблоне с категорией она идет первым
+ * аргументом, затем параметры. Номера причин записываются в файл пользователя,
+ * поэтому новые причины добавляются только в конец.
+ */
+public enum AlertReason {
+    BUDGET_WARNING(AlertType.BUDGET_WARNING, true,
+            "Категория '%s': использовано %.1f%% бюджета. Осталось: %.2f"),
+    BUDGET_USAGE(AlertType.BUDGET_WARNING, true,
+            "Категория '%s': использовано %.0f%% бюджета. Осталось: %.2f"),
+    BUDGET_CRITICAL(AlertType.BUDGET_EXCEEDED, true,
+            "КРИТИЧЕСКИЙ УРОВЕНЬ! Категория '%s': использовано %.1f%% бюджета. Осталось всего: %.2f"),
+    BUDGET_OVER_LIMIT(AlertType.BUDGET_EXCEEDED, true,
+            "ПРЕВЫШЕН БЮДЖЕТ! Категория '%s': превышение на %.2f. Лимит: %.2f, Факт: %.2f"),
+    BUDGET_EXCEEDED(AlertType.BUDGET_EXCEEDED, true,
+            "Превышен бюджет для категории '%s'! Лимит: %.2f, Факт: %.2f (превышение: %.2f)"),
+    BUDGET_FORECAST(AlertType.BUDGET_FORECAST, true,
+            "Прогноз: бюджет категории '%s' будет превышен до конца месяца. "
+                    + "Лимит: %.2f, ожидается: %.2f (расход в день: %.2f)"),
+    LOW_BALANCE(AlertType.LOW_BALANCE, false,
+            "Низкий баланс: %.2f. Рекомендуется пополнить счет."),
+    CRITICAL_BALANCE(AlertType.LOW_BALANCE, false,
+            "КРИТИЧЕСКИ НИЗКИЙ БАЛАНС: %.2f. Срочно пополните счет!"),
+    ZERO_BALANCE(AlertType.LOW_BALANCE, false,
+            "Баланс равен нулю. Рассмотрите возможность пополнения счета."),
+    INSUFFICIENT_FUNDS(AlertType.LOW_BALANCE, false,
+            "Недостаточно средств для операции. Баланс: %.2f, Требуется: %.2f"),
+    EXPENSE_RATIO(AlertType.OVERSPENDING, false,
+            "ВНИМАНИЕ: расходы составляют %.1f%% от доходов (%.2f из %.2f)."),
+    OVERSPENDING_CRITICAL(AlertType.OVERSPENDING, false,
+            "КРИТИЧЕСКИЙ ПЕРЕРАСХОД! Расходы превысили доходы на %.2f."),
+    DEFICIT(AlertType.OVERSPENDING, false,
+            "Расходы превысили доходы! Дефицит: %.2f. Доходы: %.2f, Расходы: %.2f"),
+    NO_INCOME(AlertType.BUDGET_WARNING, false,
+            "У вас еще нет зарегистрированных доходов. Добавьте доходы для полноценного учета."),
+    LARGE_TRANSACTION(AlertType.BUDGET_WARNING, true,
+            "Необычно крупная операция: %2$.2f в категории '%1$s'. Проверьте корректность."),
+    // Произвольный текст: оповещения из файлов старого формата и внешние сообщения
+    CUSTOM(null, false, "%s");
+
+    private final AlertType type;
+    private final boolean withCategory;
+    private final String pattern;
+
+    AlertReason(AlertType type, boolean withCategory, String pattern) {
+        this.type = type;
+        this.withCategory = withCategory;
+        this.pattern = pattern;
+    }
+
+    // Getters
+    public AlertType getType() { return type; }
+    public boolean hasCategory() { return withCategory; }
+
+    /**
+     * Текст оповещения по категории и параметрам
+     */
+    String render(String category, double[] values) {
+        int offset = withCategory ? 1 : 0;
+        Object[] args = new Object[values.length + offset];
+        if (withCategory) {
+            args[0] = category;
+        }
+        for (int i = 0; i < values.length; i++) {
+            args[i + offset] = values[i];
+        }
+        return String.format(pattern, args);
+    }
+}
@@ -6,5 +6,6 @@ public enum AlertType implements Serializable {
     BUDGET_EXCEEDED,
     OVERSPENDING,
     LOW_BALANCE,
-    BUDGET_WARNING
+    BUDGET_WARNING,
+    BUDGET_FORECAST
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package nes.finance.model;
+
+import java.time.LocalDate;
+
+/**
+ * Префиксные суммы движения средств по дням (дерево Фенвика).
+ *
+ * Ячейка дня хранит сумму доходов минус расходы за этот день в копейках. Остаток
+ * на конец дня и оборот за период считаются за O(log D), где D - число дней
+ * в диапазоне индекса; добавление операции, в том числе задним числом, тоже
+ * стоит O(log D). Диапазон дней расширяется вдвое при выходе даты за его границы.
+ */
+public class BalanceIndex {
+    private static final int MIN_CAPACITY = 64;
+
+    // Эпохальный день ячейки 0
+    private long firstDay;
+    // Движение по дням и дерево Фенвика над ним (нумерация дерева с 1)
+    private long[] values = new long[0];
+    private long[] tree = new long[1];
+
+    /**
+     * Учет операции дня
+     */
+    public void add(LocalDate date, TransactionType type, double amount) {
+        long cents = TransactionList.toCents(amount);
+        addCents(date.toEpochDay(), type == TransactionType.INCOME ? cents : -cents);
+    }
+
+    void addCents(long epochDay, long cents) {
+        ensureRange(epochDay, epochDay);
+        int position = (int) (epochDay - firstDay);
+        values[position] += cents;
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += cents;
+        }
+    }
+
+    /**
+     * Остаток по операциям на конец дня date
+     */
+    public double getBalanceAt(LocalDate date) {
+        return TransactionList.fromCents(balanceCentsAt(date.toEpochDay()));
+    }
+
+    /**
+     * Доходы минус расходы за дни from..to включительно
+     */
+    public double getNetFlow(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return 0;
+        }
+        long cents = balanceCentsAt(to.toEpochDay()) - balanceCentsAt(from.toEpochDay() - 1);
+        return TransactionList.fromCents(cents);
+    }
+
+    long balanceCentsAt(long epochDay) {
+        if (values.length == 0 || epochDay < firstDay) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = (int) Math.min(epochDay - firstDay + 1, values.length); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Расширение диапазона до дней from..to. Массовая загрузка сначала задает
+     * весь диапазон, затем заполняет ячейки через accumulate и строит дерево один раз
+     */
+    void ensureRange(long fromDay, long toDay) {
+        if (values.length > 0 && fromDay >= firstDay && toDay < firstDay + values.length) {
+            return;
+        }
+        long low = values.length == 0 ? fromDay : Math.min(fromDay, firstDay);
+        long high = values.length == 0 ? toDay : Math.max(toDay, firstDay + values.length - 1);
+        long capacity = Math.max(MIN_CAPACITY, Math.max(2L * values.length, high - low + 1));
+        if (capacity > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("Слишком большой диапазон дат: " + (high - low + 1) + " дн.");
+        }
+        // Запас на рост в сторону выхода за границу: операции задним числом расширяют
+        // диапазон назад, новые - вперед
+        long newFirst = values.length > 0 && fromDay < firstDay ? high - capacity + 1 : low;
+        long[] grown = new long[(int) capacity];
+        if (values.length > 0) {
+            System.arraycopy(values, 0, grown, (int) (firstDay - newFirst), values.length);
+        }
+        firstDay = newFirst;
+        values = grown;
+        rebuild();
+    }
+
+    void accumulate(long epochDay, long cents) {
+        values[(int) (epochDay - firstDay)] += cents;
+    }
+
+    // Построение дерева по ячейкам за O(D)
+    void rebuild() {
+        tree = new long[values.length + 1];
+        System.arraycopy(values, 0, tree, 1, values.length);
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
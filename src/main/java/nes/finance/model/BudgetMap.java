@@ -0,0 +1,122 @@
+package nes.finance.model;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Бюджеты кошелька. Обычная карта, которая сообщает кошельку о каждом изменении,
+ * чтобы версия кошелька менялась и при правке бюджетов через getBudgets()
+ */
+final class BudgetMap extends AbstractMap<String, Double> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final HashMap<String, Double> limits = new HashMap<>();
+    private final Wallet owner;
+
+    BudgetMap(Wallet owner) {
+        this.owner = owner;
+    }
+
+    @Override
+    public Double get(Object key) {
+        return limits.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return limits.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return limits.size();
+    }
+
+    @Override
+    public Double put(String key, Double value) {
+        Objects.requireNonNull(value, "Лимит бюджета не может быть null");
+        Double previous = limits.put(key, value);
+        if (!value.equals(previous)) {
+            owner.onBudgetsChanged();
+        }
+        return previous;
+    }
+
+    @Override
+    public Double remove(Object key) {
+        if (!limits.containsKey(key)) {
+            return null;
+        }
+        owner.onBudgetsChanged();
+        return limits.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        if (!limits.isEmpty()) {
+            limits.clear();
+            owner.onBudgetsChanged();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Double>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Double>>() {
+            @Override
+            public Iterator<Map.Entry<String, Double>> iterator() {
+                Iterator<Map.Entry<String, Double>> entries = limits.entrySet().iterator();
+                return new Iterator<Map.Entry<String, Double>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Double> next() {
+                        return new Entry(entries.next());
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                        owner.onBudgetsChanged();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return limits.size();
+            }
+        };
+    }
+
+    // Запись карты, изменение значения которой тоже меняет версию кошелька
+    private final class Entry extends AbstractMap.SimpleEntry<String, Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final Map.Entry<String, Double> target;
+
+        Entry(Map.Entry<String, Double> target) {
+            super(target);
+            this.target = target;
+        }
+
+        @Override
+        public Double setValue(Double value) {
+            Objects.requireNonNull(value, "Лимит бюджета не может быть null");
+            super.setValue(value);
+            Double previous = target.setValue(value);
+            if (!value.equals(previous)) {
+                owner.onBudgetsChanged();
+            }
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package nes.finance.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Дерево категорий по путям вида "food/restaurants".
+ *
+ * Каждый узел хранит итоги своего поддерева: доходы, расходы, количество операций
+ * и сумму бюджетов, установленных в поддереве. При добавлении операции обновляются
+ * только узлы ее пути, поэтому итоги любого поддерева доступны без просмотра операций.
+ * Суммы хранятся в копейках, как и в TransactionList.
+ */
+public class CategoryTree {
+    public static final String SEPARATOR = "/";
+
+    private final Node root = new Node(null, "", "");
+    // Бюджеты, уже учтенные в узлах дерева
+    private final Map<String, Double> appliedBudgets = new HashMap<>();
+
+    public Node getRoot() { return root; }
+
+    /**
+     * Учет операции во всех узлах пути категории
+     */
+    public void add(String category, TransactionType type, double amount) {
+        long cents = TransactionList.toCents(amount);
+        if (type == TransactionType.INCOME) {
+            addCents(category, cents, 0, 1, 0);
+        } else {
+            addCents(category, 0, cents, 0, 1);
+        }
+    }
+
+    void addCents(String category, long incomeCents, long expenseCents, int incomeRows, int expenseRows) {
+        Node node = root;
+        apply(node, incomeCents, expenseCents, incomeRows, expenseRows);
+        for (String part : split(category)) {
+            node = node.child(part);
+            apply(node, incomeCents, expenseCents, incomeRows, expenseRows);
+        }
+        node.ownCount += incomeRows + expenseRows;
+    }
+
+    private static void apply(Node node, long incomeCents, long expenseCents, int incomeRows, int expenseRows) {
+        node.incomeCents += incomeCents;
+        node.expenseCents += expenseCents;
+        node.count += incomeRows + expenseRows;
+    }
+
+    /**
+     * Сверка бюджетов дерева с картой бюджетов кошелька. Бюджетов немного,
+     * поэтому сверка выполняется за O(числа бюджетов) и учитывает любые изменения карты
+     */
+    void syncBudgets(Map<String, Double> budgets) {
+        if (appliedBudgets.equals(budgets)) {
+            return;
+        }
+        for (String category : new ArrayList<>(appliedBudgets.keySet())) {
+            if (!budgets.containsKey(category)) {
+                setBudget(category, null);
+            }
+        }
+        for (Map.Entry<String, Double> entry : budgets.entrySet()) {
+            if (!entry.getValue().equals(appliedBudgets.get(entry.getKey()))) {
+                setBudget(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // Бюджет узла категории; null - удаление бюджета
+    private void setBudget(String category, Double limit) {
+        Double previous = limit == null ? appliedBudgets.remove(category) : appliedBudgets.put(category, limit);
+        double delta = (limit == null ? 0 : limit) - (previous == null ? 0 : previous);
+
+        Node node = root;
+        node.budgetTotal += delta;
+        for (String part : split(category)) {
+            node = node.child(part);
+            node.budgetTotal += delta;
+        }
+        node.budget = limit;
+        prune(node);
+    }
+
+    // Удаление узлов без операций и бюджетов, оставшихся после удаления бюджета
+    private static void prune(Node node) {
+        while (node.parent != null && node.count == 0 && node.budget == null && node.children.isEmpty()) {
+            node.parent.children.remove(node.name);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Узел категории или null, если в поддереве нет ни операций, ни бюджетов.
+     * Пустой путь соответствует корню
+     */
+    public Node find(String category) {
+        Node node = root;
+        for (String part : split(category)) {
+            node = node.children.get(part);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    public double getIncome(String category) {
+        Node node = find(category);
+        return node != null ? node.getIncome() : 0;
+    }
+
+    public double getExpense(String category) {
+        Node node = find(category);
+        return node != null ? node.getExpense() : 0;
+    }
+
+    /**
+     * Узлы поддерева category в прямом порядке (дочерние по названию) не глубже
+     * maxDepth уровней от него; maxDepth < 0 - без ограничения. Сам узел category
+     * включается, корень - нет
+     */
+    public List<Node> walk(String category, int maxDepth) {
+        Node start = find(category);
+        List<Node> result = new ArrayList<>();
+        if (start == null) {
+            return result;
+        }
+        int limit = maxDepth < 0 ? Integer.MAX_VALUE : start.depth + maxDepth;
+        if (start == root) {
+            for (Node child : start.children.values()) {
+                collect(child, limit, result);
+            }
+        } else {
+            collect(start, limit, result);
+        }
+        return result;
+    }
+
+    private static void collect(Node node, int limit, List<Node> result) {
+        result.add(node);
+        if (node.depth < limit) {
+            for (Node child : node.children.values()) {
+                collect(child, limit, result);
+            }
+        }
+    }
+
+    /**
+     * Части пути категории без пустых частей и пробелов по краям
+     */
+    public static List<String> split(String category) {
+        List<String> parts = new ArrayList<>();
+        if (category == null) {
+            return parts;
+        }
+        for (String part : category.split(SEPARATOR)) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                parts.add(trimmed);
+            }
+        }
+        return parts;
+    }
+
+    public static String normalize(String category) {
+        return String.join(SEPARATOR, split(category));
+    }
+
+    /**
+     * Узел дерева категорий с итогами поддерева
+     */
+    public static class Node {
+        private final Node parent;
+        private final String name;
+        private final String path;
+        private final int depth;
+        private final TreeMap<String, Node> children = new TreeMap<>();
+
+        private long incomeCents;
+        private long expenseCents;
+        private int count;
+        private int ownCount;
+        private Double budget;
+        private double budgetTotal;
+
+        private Node(Node parent, String name, String path) {
+            this.parent = parent;
+            this.name = name;
+            this.path = path;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        private Node child(String part) {
+            return children.computeIfAbsent(part,
+                    p -> new Node(this, p, path.isEmpty() ? p : path + SEPARATOR + p));
+        }
+
+        // Getters
+        public String getName() { return name; }
+        public String getPath() { return path; }
+        public int getDepth() { return depth; }
+        public Collection<Node> getChildren() { return Collections.unmodifiableCollection(children.values()); }
+        public double getIncome() { return TransactionList.fromCents(incomeCents); }
+        public double getExpense() { return TransactionList.fromCents(expenseCents); }
+        public int getCount() { return count; }
+        public int getOwnCount() { return ownCount; }
+        public Double getBudget() { return budget; }
+        public double getBudgetTotal() { return budgetTotal; }
+
+        public boolean isLeaf() {
+            return children.isEmpty();
+        }
+    }
+}
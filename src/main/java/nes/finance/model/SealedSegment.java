@@ -0,0 +1,226 @@
+package nes.finance.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Неизменяемый сегмент старых транзакций вне кучи.
+ *
+ * Строки сжаты в прямой ByteBuffer: разность времени с предыдущей строкой, сумма
+ * и номер категории записываются переменной длиной (varint, zigzag), тип - байтом.
+ * Рядом в куче хранятся только итоги сегмента по категориям и границы по времени,
+ * поэтому отчеты за периоды, целиком покрывающие сегмент, не распаковывают его.
+ */
+final class SealedSegment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private transient ByteBuffer data;
+    private final int rowCount;
+    private final long minTime;
+    private final long maxTime;
+
+    // Итоги по номерам категорий, встречающимся в сегменте
+    private final int[] summaryIds;
+    private final long[] incomeCents;
+    private final long[] expenseCents;
+    private final int[] incomeRows;
+    private final int[] expenseRows;
+
+    private SealedSegment(ByteBuffer data, int rowCount, long minTime, long maxTime,
+                          int[] summaryIds, long[] incomeCents, long[] expenseCents,
+                          int[] incomeRows, int[] expenseRows) {
+        this.data = data;
+        this.rowCount = rowCount;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.summaryIds = summaryIds;
+        this.incomeCents = incomeCents;
+        this.expenseCents = expenseCents;
+        this.incomeRows = incomeRows;
+        this.expenseRows = expenseRows;
+    }
+
+    /**
+     * Упаковка строк [from, to) параллельных массивов
+     */
+    static SealedSegment encode(long[] timestamps, long[] amounts, int[] categoryIds, byte[] types,
+                                int from, int to, byte incomeCode) {
+        ByteSink sink = new ByteSink((to - from) * 12);
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        long previous = 0;
+
+        int maxId = -1;
+        for (int i = from; i < to; i++) {
+            maxId = Math.max(maxId, categoryIds[i]);
+        }
+        long[] income = new long[maxId + 1];
+        long[] expense = new long[maxId + 1];
+        int[] counts = new int[maxId + 1];
+        int[] incomeCounts = new int[maxId + 1];
+
+        for (int i = from; i < to; i++) {
+            long time = timestamps[i];
+            sink.writeVarLong(zigzag(time - previous));
+            sink.writeVarLong(zigzag(amounts[i]));
+            sink.writeVarLong(categoryIds[i]);
+            sink.writeByte(types[i]);
+            previous = time;
+
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            int id = categoryIds[i];
+            counts[id]++;
+            if (types[i] == incomeCode) {
+                income[id] += amounts[i];
+                incomeCounts[id]++;
+            } else {
+                expense[id] += amounts[i];
+            }
+        }
+
+        int distinct = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                distinct++;
+            }
+        }
+        int[] summaryIds = new int[distinct];
+        long[] incomeCents = new long[distinct];
+        long[] expenseCents = new long[distinct];
+        int[] incomeRows = new int[distinct];
+        int[] expenseRows = new int[distinct];
+        int n = 0;
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                summaryIds[n] = id;
+                incomeCents[n] = income[id];
+                expenseCents[n] = expense[id];
+                incomeRows[n] = incomeCounts[id];
+                expenseRows[n] = counts[id] - incomeCounts[id];
+                n++;
+            }
+        }
+
+        return new SealedSegment(sink.toDirectBuffer(), to - from, minTime, maxTime,
+                summaryIds, incomeCents, expenseCents, incomeRows, expenseRows);
+    }
+
+    /**
+     * Распаковка всех строк сегмента в массивы начиная с позиции offset
+     */
+    void decodeInto(long[] timestamps, long[] amounts, int[] categoryIds, byte[] types, int offset) {
+        // Копия буфера: собственная позиция чтения, содержимое общее
+        ByteBuffer in = data.duplicate();
+        in.rewind();
+        long time = 0;
+        for (int i = 0; i < rowCount; i++) {
+            time += unzigzag(readVarLong(in));
+            timestamps[offset + i] = time;
+            amounts[offset + i] = unzigzag(readVarLong(in));
+            categoryIds[offset + i] = (int) readVarLong(in);
+            types[offset + i] = in.get();
+        }
+    }
+
+    int getRowCount() { return rowCount; }
+    long getMinTime() { return minTime; }
+    long getMaxTime() { return maxTime; }
+    int getEncodedBytes() { return data.capacity(); }
+
+    int getSummarySize() { return summaryIds.length; }
+    int getSummaryId(int i) { return summaryIds[i]; }
+    long getIncomeCents(int i) { return incomeCents[i]; }
+    long getExpenseCents(int i) { return expenseCents[i]; }
+    int getIncomeRows(int i) { return incomeRows[i]; }
+    int getExpenseRows(int i) { return expenseRows[i]; }
+
+    /**
+     * Все строки сегмента лежат в интервале [lower, upper)
+     */
+    boolean isWithin(long lower, long upper) {
+        return minTime >= lower && maxTime < upper;
+    }
+
+    boolean overlaps(long lower, long upper) {
+        return maxTime >= lower && minTime < upper;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // Прямой буфер не сериализуется: записываем его содержимое
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        byte[] bytes = new byte[data.capacity()];
+        ByteBuffer copy = data.duplicate();
+        copy.rewind();
+        copy.get(bytes);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        data = ByteBuffer.allocateDirect(bytes.length);
+        data.put(bytes);
+        data.flip();
+    }
+
+    /**
+     * Временный буфер упаковки в куче; после упаковки копируется вне кучи
+     */
+    private static class ByteSink {
+        private byte[] bytes;
+        private int length;
+
+        ByteSink(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void writeByte(int value) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        ByteBuffer toDirectBuffer() {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+            buffer.put(bytes, 0, length);
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package nes.finance.model;
+
+import nes.finance.stats.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Условие по меткам операций: метки, объединенные через AND (&amp;), OR (|) и NOT (!),
+ * со скобками. AND связывает сильнее OR. Пример: "trip &amp; !reimbursable | tax".
+ *
+ * Вычисляется операциями над множествами позиций операций с каждой меткой,
+ * без просмотра самих операций.
+ */
+public class TagFilter {
+    private final String expression;
+    private final Node root;
+
+    private TagFilter(String expression, Node root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * Разбор условия. Некорректное условие вызывает IllegalArgumentException
+     */
+    public static TagFilter parse(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("Пустое условие по меткам");
+        }
+        Parser parser = new Parser(tokenize(expression));
+        Node root = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            throw new IllegalArgumentException("Лишний элемент условия: " + parser.tokens.get(parser.position));
+        }
+        return new TagFilter(expression.trim(), root);
+    }
+
+    /**
+     * Позиции операций, удовлетворяющих условию. tagged возвращает позиции операций
+     * с меткой (не изменяется), size - количество операций
+     */
+    public RoaringBitmap evaluate(Function<String, RoaringBitmap> tagged, int size) {
+        return root.evaluate(tagged, size);
+    }
+
+    public String getExpression() { return expression; }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // Нормализация метки: без '#' в начале, в нижнем регистре
+    public static String normalizeTag(String tag) {
+        String trimmed = tag.trim();
+        if (trimmed.startsWith("#")) {
+            trimmed = trimmed.substring(1);
+        }
+        return trimmed.toLowerCase();
+    }
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (char c : expression.toCharArray()) {
+            if (c == '&' || c == '|' || c == '!' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+                if (word.length() > 0) {
+                    tokens.add(keyword(word.toString()));
+                    word.setLength(0);
+                }
+                if (!Character.isWhitespace(c)) {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                word.append(c);
+            }
+        }
+        if (word.length() > 0) {
+            tokens.add(keyword(word.toString()));
+        }
+        return tokens;
+    }
+
+    // Слова AND, OR, NOT равнозначны символам
+    private static String keyword(String word) {
+        switch (word.toUpperCase()) {
+            case "AND": return "&";
+            case "OR": return "|";
+            case "NOT": return "!";
+            default: return word;
+        }
+    }
+
+    private static class Parser {
+        final List<String> tokens;
+        int position;
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        Node parseOr() {
+            Node left = parseAnd();
+            while (accept("|")) {
+                Node right = parseAnd();
+                Node l = left;
+                left = (tagged, size) -> RoaringBitmap.or(l.evaluate(tagged, size), right.evaluate(tagged, size));
+            }
+            return left;
+        }
+
+        Node parseAnd() {
+            Node left = parseNot();
+            while (accept("&")) {
+                Node right = parseNot();
+                Node l = left;
+                left = (tagged, size) -> RoaringBitmap.and(l.evaluate(tagged, size), right.evaluate(tagged, size));
+            }
+            return left;
+        }
+
+        Node parseNot() {
+            if (accept("!")) {
+                Node operand = parseNot();
+                return (tagged, size) -> RoaringBitmap.andNot(RoaringBitmap.range(0, size),
+                        operand.evaluate(tagged, size));
+            }
+            if (accept("(")) {
+                Node inner = parseOr();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Не закрыта скобка в условии по меткам");
+                }
+                return inner;
+            }
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("Условие по меткам оборвано");
+            }
+            String token = tokens.get(position);
+            if (token.length() == 1 && "&|)".contains(token)) {
+                throw new IllegalArgumentException("Ожидалась метка вместо '" + token + "'");
+            }
+            position++;
+            String tag = normalizeTag(token);
+            return (tagged, size) -> tagged.apply(tag).copy();
+        }
+
+        boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private interface Node {
+        RoaringBitmap evaluate(Function<String, RoaringBitmap> tagged, int size);
+    }
+}
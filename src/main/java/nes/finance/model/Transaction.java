@@ -2,6 +2,9 @@ package nes.finance.model;
 
 import java.time.LocalDateTime;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class Transaction implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -10,20 +13,42 @@ public class Transaction implements Serializable {
     private double amount;
     private String category;
     private LocalDateTime date;
+    private Set<String> tags;
 
     public Transaction(TransactionType type, double amount, String category) {
         this.type = type;
         this.amount = amount;
         this.category = category;
         this.date = LocalDateTime.now();
+        this.tags = Collections.emptySet();
     }
 
     // Конструктор для загрузки из файла
     public Transaction(TransactionType type, double amount, String category, LocalDateTime date) {
+        this(type, amount, category, date, Collections.emptySet());
+    }
+
+    // Операция с метками (trip, reimbursable и т.п.)
+    public Transaction(TransactionType type, double amount, String category, LocalDateTime date, Set<String> tags) {
         this.type = type;
         this.amount = amount;
         this.category = category;
         this.date = date;
+        Set<String> normalized = new TreeSet<>();
+        for (String tag : tags) {
+            String name = TagFilter.normalizeTag(tag);
+            if (!name.isEmpty()) {
+                normalized.add(name);
+            }
+        }
+        this.tags = normalized.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(normalized);
+    }
+
+    /**
+     * Сумма, округленная до копеек, - в таком виде она хранится в истории операций
+     */
+    public static double roundToCents(double amount) {
+        return TransactionList.fromCents(TransactionList.toCents(amount));
     }
 
     // Getters
@@ -31,10 +56,11 @@ public class Transaction implements Serializable {
     public double getAmount() { return amount; }
     public String getCategory() { return category; }
     public LocalDateTime getDate() { return date; }
+    public Set<String> getTags() { return tags; }
 
     @Override
     public String toString() {
-        return String.format("Transaction{type=%s, amount=%.2f, category='%s', date=%s}",
-                type, amount, category, date);
+        return String.format("Transaction{type=%s, amount=%.2f, category='%s', date=%s, tags=%s}",
+                type, amount, category, date, tags);
     }
 }
\ No newline at end of file
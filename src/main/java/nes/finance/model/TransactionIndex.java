@@ -0,0 +1,233 @@
+package nes.finance.model;
+
+import java.util.Arrays;
+
+/**
+ * Вторичные индексы списка операций для поиска: номера строк, упорядоченные по сумме
+ * и по времени, и списки строк каждой категории в порядке списка.
+ *
+ * Индекс покрывает строки [0, size) на момент построения. Строки, добавленные в конец
+ * позже, проверяются перебором, пока их не станет слишком много; любое другое изменение
+ * списка делает индекс недействительным. Занимает 28 байт на строку.
+ */
+final class TransactionIndex {
+    static final String SCAN = "перебор";
+    static final String BY_AMOUNT = "индекс сумм";
+    static final String BY_DATE = "индекс дат";
+    static final String BY_CATEGORY = "списки категорий";
+
+    private final int size;
+    private final long[] sortedCents;
+    private final int[] rowsByAmount;
+    private final long[] sortedTimes;
+    private final int[] rowsByTime;
+    // Строки категории по основному номеру словаря, по возрастанию
+    private final int[][] postings;
+
+    private TransactionIndex(int size, long[] sortedCents, int[] rowsByAmount, long[] sortedTimes,
+                             int[] rowsByTime, int[][] postings) {
+        this.size = size;
+        this.sortedCents = sortedCents;
+        this.rowsByAmount = rowsByAmount;
+        this.sortedTimes = sortedTimes;
+        this.rowsByTime = rowsByTime;
+        this.postings = postings;
+    }
+
+    /**
+     * Построение по всем строкам списка за один последовательный проход
+     */
+    static TransactionIndex build(TransactionList list) {
+        int n = list.size();
+        long[] cents = new long[n];
+        long[] times = new long[n];
+        int[] categories = new int[n];
+        int[] counts = new int[list.dictionarySize()];
+        for (int row = 0; row < n; row++) {
+            cents[row] = list.centsAt(row);
+            times[row] = list.timeAt(row);
+            categories[row] = list.categoryAt(row);
+            counts[categories[row]]++;
+        }
+
+        int[] rowsByAmount = identity(n);
+        sortRows(rowsByAmount, cents);
+        int[] rowsByTime = identity(n);
+        sortRows(rowsByTime, times);
+        long[] sortedCents = new long[n];
+        long[] sortedTimes = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortedCents[i] = cents[rowsByAmount[i]];
+            sortedTimes[i] = times[rowsByTime[i]];
+        }
+
+        int[][] postings = new int[counts.length][];
+        for (int id = 0; id < counts.length; id++) {
+            postings[id] = new int[counts[id]];
+            counts[id] = 0;
+        }
+        for (int row = 0; row < n; row++) {
+            int id = categories[row];
+            postings[id][counts[id]++] = row;
+        }
+        return new TransactionIndex(n, sortedCents, rowsByAmount, sortedTimes, rowsByTime, postings);
+    }
+
+    int size() { return size; }
+
+    /**
+     * Выбор самого избирательного индекса. Количество строк по каждому индексу известно
+     * точно (двоичный поиск по границам, длины списков), остальные условия проверяются
+     * по строкам-кандидатам. categories == null - категория не задана
+     */
+    Plan plan(long minCents, long maxCents, long lower, long upper, boolean[] categories) {
+        int amountFrom = 0;
+        int amountTo = size;
+        boolean byAmount = minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE;
+        if (byAmount) {
+            amountFrom = lowerBound(sortedCents, minCents);
+            amountTo = Math.max(amountFrom, maxCents == Long.MAX_VALUE ? size : lowerBound(sortedCents, maxCents + 1));
+        }
+
+        int dateFrom = 0;
+        int dateTo = size;
+        boolean byDate = lower != Long.MIN_VALUE || upper != Long.MAX_VALUE;
+        if (byDate) {
+            dateFrom = lowerBound(sortedTimes, lower);
+            dateTo = Math.max(dateFrom, lowerBound(sortedTimes, upper));
+        }
+
+        int categoryRows = size;
+        if (categories != null) {
+            categoryRows = 0;
+            for (int id = 0; id < postings.length && id < categories.length; id++) {
+                if (categories[id]) {
+                    categoryRows += postings[id].length;
+                }
+            }
+        }
+
+        // Кандидаты собираются только по выбранному индексу
+        int best = Math.min(amountTo - amountFrom, Math.min(dateTo - dateFrom, categoryRows));
+        if (categories != null && categoryRows == best) {
+            return new Plan(BY_CATEGORY, categoryRows, categoryRows(categories, categoryRows));
+        }
+        if (byAmount && amountTo - amountFrom == best) {
+            return new Plan(BY_AMOUNT, best, sortedSlice(rowsByAmount, amountFrom, amountTo));
+        }
+        if (byDate && dateTo - dateFrom == best) {
+            return new Plan(BY_DATE, best, sortedSlice(rowsByTime, dateFrom, dateTo));
+        }
+        return new Plan(SCAN, size, null);
+    }
+
+    private int[] categoryRows(boolean[] categories, int total) {
+        int[] single = null;
+        int lists = 0;
+        for (int id = 0; id < postings.length && id < categories.length; id++) {
+            if (categories[id] && postings[id].length > 0) {
+                single = postings[id];
+                lists++;
+            }
+        }
+        if (lists <= 1) {
+            return single != null ? single : new int[0];
+        }
+
+        int[] rows = new int[total];
+        int offset = 0;
+        for (int id = 0; id < postings.length && id < categories.length; id++) {
+            if (categories[id]) {
+                System.arraycopy(postings[id], 0, rows, offset, postings[id].length);
+                offset += postings[id].length;
+            }
+        }
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    private static int[] sortedSlice(int[] ordered, int from, int to) {
+        int[] rows = Arrays.copyOfRange(ordered, from, to);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    private static int[] identity(int n) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    // Первая позиция со значением не меньше key
+    private static int lowerBound(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Устойчивая сортировка номеров строк по ключам слиянием снизу вверх.
+     * Уже упорядоченные пары участков копируются без сравнений: время операций
+     * обычно почти отсортировано
+     */
+    static void sortRows(int[] rows, long[] keys) {
+        int n = rows.length;
+        int[] src = rows;
+        int[] dst = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int low = 0; low < n; low += 2 * width) {
+                int mid = Math.min(low + width, n);
+                int high = Math.min(low + 2 * width, n);
+                merge(src, dst, low, mid, high, keys);
+            }
+            int[] swap = src;
+            src = dst;
+            dst = swap;
+        }
+        if (src != rows) {
+            System.arraycopy(src, 0, rows, 0, n);
+        }
+    }
+
+    private static void merge(int[] src, int[] dst, int low, int mid, int high, long[] keys) {
+        if (mid >= high || keys[src[mid - 1]] <= keys[src[mid]]) {
+            System.arraycopy(src, low, dst, low, high - low);
+            return;
+        }
+        int left = low;
+        int right = mid;
+        for (int i = low; i < high; i++) {
+            if (right >= high || (left < mid && keys[src[left]] <= keys[src[right]])) {
+                dst[i] = src[left++];
+            } else {
+                dst[i] = src[right++];
+            }
+        }
+    }
+
+    /**
+     * Выбранный способ поиска и строки-кандидаты по возрастанию номера;
+     * rows == null означает перебор всех строк индекса
+     */
+    static final class Plan {
+        final String name;
+        final int estimate;
+        final int[] rows;
+
+        Plan(String name, int estimate, int[] rows) {
+            this.name = name;
+            this.estimate = estimate;
+            this.rows = rows;
+        }
+    }
+}
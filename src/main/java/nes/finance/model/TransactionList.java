@@ -0,0 +1,1018 @@
+package nes.finance.model;
+
+import nes.finance.stats.RoaringBitmap;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Список транзакций кошелька в виде параллельных примитивных массивов.
+ *
+ * Транзакция занимает 21 байт: время (микросекунды от эпохи, без часового пояса),
+ * сумма в копейках, номер категории в словаре кошелька и тип. Объект Transaction
+ * создается только при обращении к элементу. Итоги по категориям и периодам считаются
+ * последовательным проходом по массивам, у больших списков - параллельно по участкам. Сообщает кошельку о каждом изменении,
+ * чтобы производные структуры (статистика по категориям) обновлялись при вставке.
+ *
+ * Хранение двухуровневое: начало списка со старыми операциями запечатывается в
+ * неизменяемые сжатые сегменты вне кучи (SealedSegment), последние операции остаются
+ * в изменяемых массивах. Изменение запечатанной строки возвращает историю в массивы.
+ */
+class TransactionList extends AbstractList<Transaction> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 3L;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long MICROS_PER_DAY = 86_400L * MICROS_PER_SECOND;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final byte INCOME_CODE = (byte) TransactionType.INCOME.ordinal();
+
+    // Не больше строк в одном сегменте; сегменты также разделяются по месяцам
+    static final int SEGMENT_ROWS = 4096;
+    // При таком размере оперативной части старые строки запечатываются автоматически
+    static final int AUTO_SEAL_ROWS = 2 * SEGMENT_ROWS;
+    // Сколько строк, добавленных после построения индекса поиска, проверяется перебором
+    static final int INDEX_TAIL_ROWS = 4096;
+    // Размер участка оперативной части для параллельного подсчета итогов
+    static final int HOT_CHUNK_ROWS = 4 * SEGMENT_ROWS;
+    // С такого размера списка итоги считаются параллельно; задается свойством finance.parallel.threshold
+    static final int DEFAULT_PARALLEL_THRESHOLD = 200_000;
+    private static volatile int parallelThreshold =
+            Integer.getInteger("finance.parallel.threshold", DEFAULT_PARALLEL_THRESHOLD);
+
+    private final Wallet owner;
+
+    // Оперативная часть: последние операции
+    private long[] timestamps = new long[0];
+    private long[] amounts = new long[0];
+    private int[] categoryIds = new int[0];
+    private byte[] types = new byte[0];
+    private int hotSize;
+
+    // Запечатанная история, предшествующая оперативной части
+    private final List<SealedSegment> segments = new ArrayList<>();
+    private int[] segmentStarts = new int[0];
+    private int sealedSize;
+    private transient DecodedSegment lastDecoded;
+    // Кошелек для однократного чтения: строки не запечатываются автоматически
+    private transient boolean sealingDeferred;
+
+    // Словарь категорий: номер -> название; номера объединенных категорий указывают на основной
+    private final ArrayList<String> categoryNames = new ArrayList<>();
+    private final HashMap<String, Integer> categoryIndex = new HashMap<>();
+    private int[] canonical = new int[0];
+
+    // Позиции операций с каждой меткой
+    private final TreeMap<String, RoaringBitmap> tagPositions = new TreeMap<>();
+
+    // Индексы поиска строятся при первом запросе; поколение номеров строк меняется,
+    // когда строки сдвигаются или изменяются (но не при добавлении в конец)
+    private transient TransactionIndex index;
+    private transient long generation;
+    private transient TransactionQuery lastQuery;
+    private transient TransactionIndex.Plan lastPlan;
+
+    static int getParallelThreshold() { return parallelThreshold; }
+
+    static void setParallelThreshold(int threshold) {
+        parallelThreshold = Math.max(1, threshold);
+    }
+
+    TransactionList(Wallet owner) {
+        this.owner = owner;
+    }
+
+    @Override
+    public Transaction get(int index) {
+        checkIndex(index, size());
+        if (index >= sealedSize) {
+            int i = index - sealedSize;
+            return view(index, types[i], amounts[i], categoryIds[i], timestamps[i]);
+        }
+
+        int segment = findSegment(index);
+        DecodedSegment decoded = decoded(segment);
+        int i = index - segmentStarts[segment];
+        return view(index, decoded.types[i], decoded.amounts[i], decoded.categoryIds[i], decoded.timestamps[i]);
+    }
+
+    @Override
+    public int size() {
+        return sealedSize + hotSize;
+    }
+
+    @Override
+    public void add(int index, Transaction transaction) {
+        checkIndex(index, size() + 1);
+        // Время проверяется до сдвига массивов: недопустимая дата не портит список
+        long time = toMicros(transaction.getDate());
+        if (index < size()) {
+            invalidateRows();
+        }
+        if (index < sealedSize) {
+            unsealAll();
+        }
+        int i = index - sealedSize;
+        ensureCapacity(hotSize + 1);
+        if (i < hotSize) {
+            int moved = hotSize - i;
+            System.arraycopy(timestamps, i, timestamps, i + 1, moved);
+            System.arraycopy(amounts, i, amounts, i + 1, moved);
+            System.arraycopy(categoryIds, i, categoryIds, i + 1, moved);
+            System.arraycopy(types, i, types, i + 1, moved);
+        }
+        write(i, transaction, time);
+        hotSize++;
+        modCount++;
+        if (index < size() - 1) {
+            shiftTags(index, 1);
+        }
+        addTags(index, transaction.getTags());
+        owner.onTransactionAdded(transaction);
+
+        if (hotSize >= AUTO_SEAL_ROWS && !sealingDeferred) {
+            seal(defaultCutoff());
+        }
+    }
+
+    @Override
+    public Transaction set(int index, Transaction transaction) {
+        Transaction previous = get(index);
+        long time = toMicros(transaction.getDate());
+        if (index < sealedSize) {
+            unsealAll();
+        }
+        write(index - sealedSize, transaction, time);
+        removeTags(index);
+        addTags(index, transaction.getTags());
+        invalidateRows();
+        owner.onTransactionsChanged();
+        return previous;
+    }
+
+    @Override
+    public Transaction remove(int index) {
+        Transaction removed = get(index);
+        if (index < sealedSize) {
+            unsealAll();
+        }
+        int i = index - sealedSize;
+        int moved = hotSize - i - 1;
+        if (moved > 0) {
+            System.arraycopy(timestamps, i + 1, timestamps, i, moved);
+            System.arraycopy(amounts, i + 1, amounts, i, moved);
+            System.arraycopy(categoryIds, i + 1, categoryIds, i, moved);
+            System.arraycopy(types, i + 1, types, i, moved);
+        }
+        hotSize--;
+        modCount++;
+        removeTags(index);
+        shiftTags(index + 1, -1);
+        invalidateRows();
+        owner.onTransactionsChanged();
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        hotSize = 0;
+        segments.clear();
+        segmentStarts = new int[0];
+        sealedSize = 0;
+        lastDecoded = null;
+        categoryNames.clear();
+        categoryIndex.clear();
+        canonical = new int[0];
+        tagPositions.clear();
+        modCount++;
+        invalidateRows();
+        owner.onTransactionsChanged();
+    }
+
+    /**
+     * Запечатывание начала оперативной части со строками раньше cutoff.
+     * Порядок списка не меняется. Возвращает количество запечатанных строк
+     */
+    int seal(LocalDate cutoff) {
+        long limit = toMicros(cutoff.atStartOfDay());
+        int prefix = 0;
+        while (prefix < hotSize && timestamps[prefix] < limit) {
+            prefix++;
+        }
+        if (prefix == 0) {
+            return 0;
+        }
+
+        int from = 0;
+        while (from < prefix) {
+            int to = from + 1;
+            long month = monthOf(timestamps[from]);
+            while (to < prefix && to - from < SEGMENT_ROWS && monthOf(timestamps[to]) == month) {
+                to++;
+            }
+            segments.add(SealedSegment.encode(timestamps, amounts, categoryIds, types, from, to, INCOME_CODE));
+            from = to;
+        }
+
+        int moved = hotSize - prefix;
+        System.arraycopy(timestamps, prefix, timestamps, 0, moved);
+        System.arraycopy(amounts, prefix, amounts, 0, moved);
+        System.arraycopy(categoryIds, prefix, categoryIds, 0, moved);
+        System.arraycopy(types, prefix, types, 0, moved);
+        hotSize = moved;
+        sealedSize += prefix;
+        rebuildSegmentStarts();
+        shrinkHot();
+        return prefix;
+    }
+
+    void deferSealing() { sealingDeferred = true; }
+    boolean isSealingDeferred() { return sealingDeferred; }
+
+    int getSealedSize() { return sealedSize; }
+    int getSegmentCount() { return segments.size(); }
+
+    long getOffHeapBytes() {
+        long bytes = 0;
+        for (SealedSegment segment : segments) {
+            bytes += segment.getEncodedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Сумма операций типа type по категории (null - по всем категориям).
+     * Запечатанные сегменты учитываются по итогам без распаковки
+     */
+    double sum(TransactionType type, String category) {
+        int target = -1;
+        if (category != null) {
+            Integer id = categoryIndex.get(category);
+            if (id == null) {
+                return 0;
+            }
+            target = canonical[id];
+        }
+
+        Accumulator acc = aggregate(Long.MIN_VALUE, Long.MAX_VALUE);
+        long[] cents = type == TransactionType.INCOME ? acc.incomeCents : acc.expenseCents;
+        if (target >= 0) {
+            return fromCents(cents[target]);
+        }
+        long total = 0;
+        for (long value : cents) {
+            total += value;
+        }
+        return fromCents(total);
+    }
+
+    /**
+     * Итоги за период [from, to] включительно; null означает отсутствие границы.
+     * Сегменты целиком внутри периода учитываются по итогам, пересекающие границу
+     * распаковываются, остальные пропускаются
+     */
+    TransactionTotals totals(LocalDate from, LocalDate to) {
+        long lower = from == null ? Long.MIN_VALUE : toMicros(from.atStartOfDay());
+        long upper = to == null ? Long.MAX_VALUE : toMicros(to.plusDays(1).atStartOfDay());
+        return toTotals(aggregate(lower, upper));
+    }
+
+    /**
+     * Итоги по каждой категории для строк со временем в [lower, upper).
+     *
+     * Большие списки считаются параллельно в общем пуле fork-join: каждая задача
+     * накапливает свои массивы копеек по сегменту или участку оперативной части,
+     * затем массивы складываются. Суммы целочисленные, поэтому результат не зависит
+     * от разбиения и числа потоков
+     */
+    private Accumulator aggregate(long lower, long upper) {
+        if (size() >= parallelThreshold) {
+            int units = segments.size() + (hotSize + HOT_CHUNK_ROWS - 1) / HOT_CHUNK_ROWS;
+            return ForkJoinPool.commonPool().invoke(new AggregateTask(lower, upper, 0, units));
+        }
+        Accumulator acc = new Accumulator(categoryNames.size());
+        for (int segment = 0; segment < segments.size(); segment++) {
+            SealedSegment sealed = segments.get(segment);
+            if (sealed.isWithin(lower, upper)) {
+                accumulateSummary(acc, sealed);
+            } else if (sealed.overlaps(lower, upper)) {
+                DecodedSegment decoded = decoded(segment);
+                accumulate(acc, decoded.timestamps, decoded.amounts, decoded.categoryIds, decoded.types,
+                        0, decoded.timestamps.length, lower, upper);
+            }
+        }
+        accumulate(acc, timestamps, amounts, categoryIds, types, 0, hotSize, lower, upper);
+        return acc;
+    }
+
+    /**
+     * Итоги за период [from, to] только по операциям на позициях rows
+     * (например, выбранным условием по меткам). Позиции обходятся по возрастанию,
+     * поэтому каждый запечатанный сегмент распаковывается не более одного раза
+     */
+    TransactionTotals totals(LocalDate from, LocalDate to, RoaringBitmap rows) {
+        long lower = from == null ? Long.MIN_VALUE : toMicros(from.atStartOfDay());
+        long upper = to == null ? Long.MAX_VALUE : toMicros(to.plusDays(1).atStartOfDay());
+        Accumulator acc = new Accumulator(categoryNames.size());
+        int size = size();
+        rows.forEach(row -> {
+            if (row >= size) {
+                return;
+            }
+            long time = timeAt(row);
+            if (time < lower || time >= upper) {
+                return;
+            }
+            acc.count++;
+            int id = categoryAt(row);
+            if (typeAt(row) == INCOME_CODE) {
+                acc.incomeCents[id] += centsAt(row);
+                acc.incomeRows[id]++;
+            } else {
+                acc.expenseCents[id] += centsAt(row);
+                acc.expenseRows[id]++;
+            }
+        });
+        return toTotals(acc);
+    }
+
+    private TransactionTotals toTotals(Accumulator acc) {
+        Map<String, Double> incomeByCategory = new HashMap<>();
+        Map<String, Double> expenseByCategory = new HashMap<>();
+        long totalIncome = 0;
+        long totalExpense = 0;
+        for (int id = 0; id < acc.incomeCents.length; id++) {
+            if (acc.incomeRows[id] > 0) {
+                incomeByCategory.put(categoryNames.get(id), fromCents(acc.incomeCents[id]));
+                totalIncome += acc.incomeCents[id];
+            }
+            if (acc.expenseRows[id] > 0) {
+                expenseByCategory.put(categoryNames.get(id), fromCents(acc.expenseCents[id]));
+                totalExpense += acc.expenseCents[id];
+            }
+        }
+        return new TransactionTotals(acc.count, fromCents(totalIncome), fromCents(totalExpense),
+                incomeByCategory, expenseByCategory);
+    }
+
+    private void accumulate(Accumulator acc, long[] times, long[] cents, int[] ids, byte[] codes,
+                            int from, int to, long lower, long upper) {
+        for (int i = from; i < to; i++) {
+            long time = times[i];
+            if (time < lower || time >= upper) {
+                continue;
+            }
+            acc.count++;
+            int id = canonical[ids[i]];
+            if (codes[i] == INCOME_CODE) {
+                acc.incomeCents[id] += cents[i];
+                acc.incomeRows[id]++;
+            } else {
+                acc.expenseCents[id] += cents[i];
+                acc.expenseRows[id]++;
+            }
+        }
+    }
+
+    // Сегмент целиком в периоде учитывается по итогам без распаковки
+    private void accumulateSummary(Accumulator acc, SealedSegment sealed) {
+        acc.count += sealed.getRowCount();
+        for (int s = 0; s < sealed.getSummarySize(); s++) {
+            int id = canonical[sealed.getSummaryId(s)];
+            acc.incomeCents[id] += sealed.getIncomeCents(s);
+            acc.expenseCents[id] += sealed.getExpenseCents(s);
+            acc.incomeRows[id] += sealed.getIncomeRows(s);
+            acc.expenseRows[id] += sealed.getExpenseRows(s);
+        }
+    }
+
+    /**
+     * Количество операций категории
+     */
+    int count(String category) {
+        Integer found = categoryIndex.get(category);
+        if (found == null) {
+            return 0;
+        }
+        int target = canonical[found];
+        Accumulator acc = aggregate(Long.MIN_VALUE, Long.MAX_VALUE);
+        return acc.incomeRows[target] + acc.expenseRows[target];
+    }
+
+    /**
+     * Категории, встречающиеся в операциях, в порядке номеров словаря
+     */
+    Set<String> categories() {
+        Accumulator acc = aggregate(Long.MIN_VALUE, Long.MAX_VALUE);
+        Set<String> result = new LinkedHashSet<>();
+        for (int id = 0; id < categoryNames.size(); id++) {
+            if (acc.incomeRows[id] + acc.expenseRows[id] > 0) {
+                result.add(categoryNames.get(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Заполнение дерева категорий итогами по каждой категории. Запечатанные
+     * сегменты учитываются по итогам без распаковки
+     */
+    void fillTree(CategoryTree tree) {
+        Accumulator acc = aggregate(Long.MIN_VALUE, Long.MAX_VALUE);
+        for (int id = 0; id < categoryNames.size(); id++) {
+            if (acc.incomeRows[id] + acc.expenseRows[id] > 0) {
+                tree.addCents(categoryNames.get(id), acc.incomeCents[id], acc.expenseCents[id],
+                        acc.incomeRows[id], acc.expenseRows[id]);
+            }
+        }
+    }
+
+    /**
+     * Заполнение индекса остатков по дням: диапазон дней задается первым проходом,
+     * дерево строится один раз после второго
+     */
+    void fillBalanceIndex(BalanceIndex balanceIndex) {
+        int count = size();
+        if (count == 0) {
+            return;
+        }
+        long minDay = Long.MAX_VALUE;
+        long maxDay = Long.MIN_VALUE;
+        for (int row = 0; row < count; row++) {
+            long day = dayOf(timeAt(row));
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+        balanceIndex.ensureRange(minDay, maxDay);
+        byte income = (byte) TransactionType.INCOME.ordinal();
+        for (int row = 0; row < count; row++) {
+            long cents = centsAt(row);
+            balanceIndex.accumulate(dayOf(timeAt(row)), typeAt(row) == income ? cents : -cents);
+        }
+        balanceIndex.rebuild();
+    }
+
+    static long dayOf(long micros) {
+        return Math.floorDiv(micros, MICROS_PER_SECOND * 86_400);
+    }
+
+    /**
+     * Поиск операций по условиям query в порядке списка, не более limit на страницу.
+     * cursor - курсор предыдущей страницы или null для первой. Курсор перестает
+     * действовать после изменения или удаления операций (добавление в конец допустимо)
+     */
+    TransactionPage search(TransactionQuery query, String cursor, int limit) {
+        int after = parseCursor(cursor);
+        TransactionIndex current = index();
+
+        long minCents = query.getMinAmount() == null ? Long.MIN_VALUE : toCents(query.getMinAmount());
+        long maxCents = query.getMaxAmount() == null ? Long.MAX_VALUE : toCents(query.getMaxAmount());
+        long lower = query.getFrom() == null ? Long.MIN_VALUE : toMicros(query.getFrom().atStartOfDay());
+        long upper = query.getTo() == null ? Long.MAX_VALUE : toMicros(query.getTo().plusDays(1).atStartOfDay());
+        boolean[] categories = query.getCategory() == null ? null : matchingCategories(query.getCategory());
+        byte typeCode = query.getType() == null ? -1 : (byte) query.getType().ordinal();
+
+        // Следующие страницы того же запроса используют уже выбранных кандидатов
+        TransactionIndex.Plan plan = lastPlan;
+        if (plan == null || !query.equals(lastQuery)) {
+            plan = current.plan(minCents, maxCents, lower, upper, categories);
+            lastQuery = query;
+            lastPlan = plan;
+        }
+
+        List<Transaction> found = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        boolean more = false;
+        RowFilter filter = new RowFilter(typeCode, minCents, maxCents, lower, upper, categories);
+
+        if (plan.rows != null) {
+            int start = Arrays.binarySearch(plan.rows, after + 1);
+            for (int k = start >= 0 ? start : -start - 1; k < plan.rows.length && !more; k++) {
+                more = collect(plan.rows[k], filter, limit, found, positions);
+            }
+        } else {
+            for (int row = after + 1; row < current.size() && !more; row++) {
+                more = collect(row, filter, limit, found, positions);
+            }
+        }
+        // Строки, добавленные после построения индекса, проверяются перебором
+        for (int row = Math.max(after + 1, current.size()); row < size() && !more; row++) {
+            more = collect(row, filter, limit, found, positions);
+        }
+
+        String next = more ? generation + ":" + positions.get(positions.size() - 1) : null;
+        return new TransactionPage(found, positions, next, plan.name);
+    }
+
+    // Добавление подходящей строки; true - страница уже заполнена и есть еще результаты
+    private boolean collect(int row, RowFilter filter, int limit, List<Transaction> found, List<Integer> positions) {
+        if (!filter.matches(this, row)) {
+            return false;
+        }
+        if (found.size() == limit) {
+            return true;
+        }
+        found.add(get(row));
+        positions.add(row);
+        return false;
+    }
+
+    private int parseCursor(String cursor) {
+        if (cursor == null) {
+            return -1;
+        }
+        int separator = cursor.indexOf(':');
+        try {
+            if (separator <= 0) {
+                throw new NumberFormatException(cursor);
+            }
+            if (Long.parseLong(cursor.substring(0, separator)) == generation) {
+                return Integer.parseInt(cursor.substring(separator + 1));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+        throw new IllegalArgumentException("Курсор устарел: операции были изменены");
+    }
+
+    // Индекс перестраивается, когда непроиндексированных строк в конце становится много
+    private TransactionIndex index() {
+        int tail = index == null ? Integer.MAX_VALUE : size() - index.size();
+        if (tail > Math.max(INDEX_TAIL_ROWS, size() / 8)) {
+            index = TransactionIndex.build(this);
+            lastPlan = null;
+        }
+        return index;
+    }
+
+    // Основные номера категорий, совпадающих с путем или вложенных в него
+    private boolean[] matchingCategories(String category) {
+        String path = CategoryTree.normalize(category);
+        boolean[] matches = new boolean[categoryNames.size()];
+        for (int id = 0; id < categoryNames.size(); id++) {
+            String name = categoryNames.get(id);
+            if (name != null && canonical[id] == id) {
+                String normalized = CategoryTree.normalize(name);
+                matches[id] = normalized.equals(path) || normalized.startsWith(path + CategoryTree.SEPARATOR);
+            }
+        }
+        return matches;
+    }
+
+    private void invalidateRows() {
+        index = null;
+        lastPlan = null;
+        generation++;
+    }
+
+    int dictionarySize() { return categoryNames.size(); }
+
+    long timeAt(int row) {
+        if (row >= sealedSize) {
+            return timestamps[row - sealedSize];
+        }
+        int segment = findSegment(row);
+        return decoded(segment).timestamps[row - segmentStarts[segment]];
+    }
+
+    long centsAt(int row) {
+        if (row >= sealedSize) {
+            return amounts[row - sealedSize];
+        }
+        int segment = findSegment(row);
+        return decoded(segment).amounts[row - segmentStarts[segment]];
+    }
+
+    // Основной номер категории строки
+    int categoryAt(int row) {
+        if (row >= sealedSize) {
+            return canonical[categoryIds[row - sealedSize]];
+        }
+        int segment = findSegment(row);
+        return canonical[decoded(segment).categoryIds[row - segmentStarts[segment]]];
+    }
+
+    byte typeAt(int row) {
+        if (row >= sealedSize) {
+            return types[row - sealedSize];
+        }
+        int segment = findSegment(row);
+        return decoded(segment).types[row - segmentStarts[segment]];
+    }
+
+    /**
+     * Метки, которыми отмечена хотя бы одна операция
+     */
+    Set<String> tags() {
+        return Collections.unmodifiableSet(tagPositions.keySet());
+    }
+
+    /**
+     * Позиции операций с меткой; результат нельзя изменять
+     */
+    RoaringBitmap tagged(String tag) {
+        RoaringBitmap positions = tagPositions.get(TagFilter.normalizeTag(tag));
+        return positions != null ? positions : new RoaringBitmap();
+    }
+
+    Map<String, RoaringBitmap> tagPositions() {
+        return Collections.unmodifiableMap(tagPositions);
+    }
+
+    /**
+     * Добавление метки операции. Возвращает false, если метка уже была
+     */
+    boolean tag(int index, String tag) {
+        checkIndex(index, size());
+        String name = TagFilter.normalizeTag(tag);
+        if (name.isEmpty() || tagged(name).contains(index)) {
+            return false;
+        }
+        tagPositions.computeIfAbsent(name, t -> new RoaringBitmap()).add(index);
+        return true;
+    }
+
+    /**
+     * Снятие метки с операции. Возвращает false, если метки не было
+     */
+    boolean untag(int index, String tag) {
+        checkIndex(index, size());
+        String name = TagFilter.normalizeTag(tag);
+        RoaringBitmap positions = tagPositions.get(name);
+        if (positions == null || !positions.contains(index)) {
+            return false;
+        }
+        positions.remove(index);
+        if (positions.isEmpty()) {
+            tagPositions.remove(name);
+        }
+        return true;
+    }
+
+    /**
+     * Восстановление сохраненных позиций меток; позиции за концом списка отбрасываются
+     */
+    void restoreTags(Map<String, RoaringBitmap> restored) {
+        tagPositions.clear();
+        RoaringBitmap valid = RoaringBitmap.range(0, size());
+        for (Map.Entry<String, RoaringBitmap> entry : restored.entrySet()) {
+            RoaringBitmap positions = RoaringBitmap.and(entry.getValue(), valid);
+            String name = TagFilter.normalizeTag(entry.getKey());
+            if (!positions.isEmpty() && !name.isEmpty()) {
+                tagPositions.merge(name, positions, RoaringBitmap::or);
+            }
+        }
+    }
+
+    private Set<String> tagsAt(int row) {
+        if (tagPositions.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> tags = new TreeSet<>();
+        for (Map.Entry<String, RoaringBitmap> entry : tagPositions.entrySet()) {
+            if (entry.getValue().contains(row)) {
+                tags.add(entry.getKey());
+            }
+        }
+        return tags;
+    }
+
+    private void addTags(int row, Set<String> tags) {
+        for (String tag : tags) {
+            tagPositions.computeIfAbsent(tag, t -> new RoaringBitmap()).add(row);
+        }
+    }
+
+    private void removeTags(int row) {
+        tagPositions.values().forEach(positions -> positions.remove(row));
+        tagPositions.values().removeIf(RoaringBitmap::isEmpty);
+    }
+
+    // Сдвиг позиций меток при вставке или удалении операции в середине списка
+    private void shiftTags(int from, int delta) {
+        tagPositions.replaceAll((tag, positions) -> positions.shift(from, delta));
+    }
+
+    /**
+     * Переименование категории. Меняется только словарь, запечатанные сегменты
+     * не переписываются. Возвращает число операций категории
+     */
+    int renameCategory(String oldCategory, String newCategory) {
+        int renamed = count(oldCategory);
+        Integer removed = categoryIndex.remove(oldCategory);
+        if (removed == null) {
+            return 0;
+        }
+        int oldId = removed;
+
+        Integer existing = categoryIndex.get(newCategory);
+        if (existing == null) {
+            categoryNames.set(oldId, newCategory);
+            categoryIndex.put(newCategory, oldId);
+        } else {
+            // Все номера, указывавшие на старую категорию, теперь указывают на новую
+            int targetId = existing;
+            for (int id = 0; id < categoryNames.size(); id++) {
+                if (canonical[id] == oldId) {
+                    canonical[id] = targetId;
+                }
+            }
+            categoryNames.set(oldId, null);
+        }
+        if (renamed > 0) {
+            modCount++;
+        }
+        // Списки категорий индекса построены по основным номерам словаря
+        invalidateRows();
+        return renamed;
+    }
+
+    private Transaction view(int row, byte type, long cents, int categoryId, long time) {
+        return new Transaction(TYPES[type], fromCents(cents), categoryNames.get(canonical[categoryId]),
+                fromMicros(time), tagsAt(row));
+    }
+
+    private void write(int index, Transaction transaction, long time) {
+        timestamps[index] = time;
+        amounts[index] = toCents(transaction.getAmount());
+        categoryIds[index] = categoryId(transaction.getCategory());
+        types[index] = (byte) transaction.getType().ordinal();
+    }
+
+    private int categoryId(String category) {
+        Integer id = categoryIndex.get(category);
+        if (id == null) {
+            id = categoryNames.size();
+            categoryNames.add(category);
+            categoryIndex.put(category, id);
+            if (canonical.length <= id) {
+                canonical = Arrays.copyOf(canonical, Math.max(INITIAL_CAPACITY, canonical.length * 2));
+            }
+            canonical[id] = id;
+        }
+        return id;
+    }
+
+    private int findSegment(int index) {
+        int found = Arrays.binarySearch(segmentStarts, index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    // Последний распакованный сегмент кэшируется: последовательный обход распаковывает каждый сегмент один раз
+    private DecodedSegment decoded(int segment) {
+        DecodedSegment cached = lastDecoded;
+        if (cached != null && cached.segment == segment) {
+            return cached;
+        }
+        SealedSegment sealed = segments.get(segment);
+        DecodedSegment decoded = new DecodedSegment(segment, sealed.getRowCount());
+        sealed.decodeInto(decoded.timestamps, decoded.amounts, decoded.categoryIds, decoded.types, 0);
+        lastDecoded = decoded;
+        return decoded;
+    }
+
+    // Возврат всей истории в оперативную часть перед изменением запечатанной строки
+    private void unsealAll() {
+        int total = sealedSize + hotSize;
+        int capacity = Math.max(INITIAL_CAPACITY, total + 1);
+        long[] newTimestamps = new long[capacity];
+        long[] newAmounts = new long[capacity];
+        int[] newCategoryIds = new int[capacity];
+        byte[] newTypes = new byte[capacity];
+
+        int offset = 0;
+        for (SealedSegment segment : segments) {
+            segment.decodeInto(newTimestamps, newAmounts, newCategoryIds, newTypes, offset);
+            offset += segment.getRowCount();
+        }
+        System.arraycopy(timestamps, 0, newTimestamps, offset, hotSize);
+        System.arraycopy(amounts, 0, newAmounts, offset, hotSize);
+        System.arraycopy(categoryIds, 0, newCategoryIds, offset, hotSize);
+        System.arraycopy(types, 0, newTypes, offset, hotSize);
+
+        timestamps = newTimestamps;
+        amounts = newAmounts;
+        categoryIds = newCategoryIds;
+        types = newTypes;
+        hotSize = total;
+        segments.clear();
+        segmentStarts = new int[0];
+        sealedSize = 0;
+        lastDecoded = null;
+    }
+
+    private void rebuildSegmentStarts() {
+        segmentStarts = new int[segments.size()];
+        int start = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            segmentStarts[i] = start;
+            start += segments.get(i).getRowCount();
+        }
+        lastDecoded = null;
+    }
+
+    // Рост в полтора раза: амортизированно O(1) на вставку
+    private void ensureCapacity(int required) {
+        if (required <= timestamps.length) {
+            return;
+        }
+        resizeHot(Math.max(INITIAL_CAPACITY, Math.max(required, timestamps.length + (timestamps.length >> 1))));
+    }
+
+    // После запечатывания оперативная часть не удерживает память под историю
+    private void shrinkHot() {
+        if (timestamps.length > INITIAL_CAPACITY && hotSize < timestamps.length / 4) {
+            resizeHot(Math.max(INITIAL_CAPACITY, hotSize * 2));
+        }
+    }
+
+    private void resizeHot(int capacity) {
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        types = Arrays.copyOf(types, capacity);
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Индекс: " + index + ", размер: " + (bound));
+        }
+    }
+
+    /**
+     * Граница оперативной части по умолчанию: начало предыдущего месяца
+     */
+    static LocalDate defaultCutoff() {
+        return LocalDate.now().minusMonths(1).withDayOfMonth(1);
+    }
+
+    private static long monthOf(long micros) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(micros, MICROS_PER_DAY));
+        return date.getYear() * 12L + date.getMonthValue();
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    static long toMicros(LocalDateTime date) {
+        long seconds = date.toEpochSecond(ZoneOffset.UTC);
+        return Math.addExact(Math.multiplyExact(seconds, MICROS_PER_SECOND), date.getNano() / 1000);
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        long seconds = Math.floorDiv(micros, MICROS_PER_SECOND);
+        int nanos = (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000;
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    // Проверка условий поиска по строке; сначала самые дешевые
+    private static class RowFilter {
+        final byte typeCode;
+        final long minCents;
+        final long maxCents;
+        final long lower;
+        final long upper;
+        final boolean[] categories;
+
+        RowFilter(byte typeCode, long minCents, long maxCents, long lower, long upper, boolean[] categories) {
+            this.typeCode = typeCode;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.lower = lower;
+            this.upper = upper;
+            this.categories = categories;
+        }
+
+        boolean matches(TransactionList list, int row) {
+            if (typeCode >= 0 && list.typeAt(row) != typeCode) {
+                return false;
+            }
+            long cents = list.centsAt(row);
+            if (cents < minCents || cents > maxCents) {
+                return false;
+            }
+            long time = list.timeAt(row);
+            if (time < lower || time >= upper) {
+                return false;
+            }
+            return categories == null || categories[list.categoryAt(row)];
+        }
+    }
+
+    private static class Accumulator {
+        final long[] incomeCents;
+        final long[] expenseCents;
+        final int[] incomeRows;
+        final int[] expenseRows;
+        int count;
+
+        Accumulator(int categories) {
+            incomeCents = new long[categories];
+            expenseCents = new long[categories];
+            incomeRows = new int[categories];
+            expenseRows = new int[categories];
+        }
+
+        void merge(Accumulator other) {
+            for (int id = 0; id < incomeCents.length; id++) {
+                incomeCents[id] += other.incomeCents[id];
+                expenseCents[id] += other.expenseCents[id];
+                incomeRows[id] += other.incomeRows[id];
+                expenseRows[id] += other.expenseRows[id];
+            }
+            count += other.count;
+        }
+    }
+
+    /**
+     * Параллельный подсчет итогов по участкам [from, to): сначала запечатанные сегменты,
+     * затем участки оперативной части по HOT_CHUNK_ROWS строк. Участки делятся пополам,
+     * пока не останется один; сегменты распаковываются без общего кэша
+     */
+    private final class AggregateTask extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final long lower;
+        private final long upper;
+        private final int from;
+        private final int to;
+
+        AggregateTask(long lower, long upper, int from, int to) {
+            this.lower = lower;
+            this.upper = upper;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                AggregateTask left = new AggregateTask(lower, upper, from, mid);
+                left.fork();
+                Accumulator right = new AggregateTask(lower, upper, mid, to).compute();
+                Accumulator result = left.join();
+                result.merge(right);
+                return result;
+            }
+
+            Accumulator acc = new Accumulator(categoryNames.size());
+            if (from >= to) {
+                return acc;
+            }
+            if (from < segments.size()) {
+                SealedSegment sealed = segments.get(from);
+                if (sealed.isWithin(lower, upper)) {
+                    accumulateSummary(acc, sealed);
+                } else if (sealed.overlaps(lower, upper)) {
+                    DecodedSegment decoded = new DecodedSegment(from, sealed.getRowCount());
+                    sealed.decodeInto(decoded.timestamps, decoded.amounts, decoded.categoryIds, decoded.types, 0);
+                    accumulate(acc, decoded.timestamps, decoded.amounts, decoded.categoryIds, decoded.types,
+                            0, decoded.timestamps.length, lower, upper);
+                }
+            } else {
+                int start = (from - segments.size()) * HOT_CHUNK_ROWS;
+                accumulate(acc, timestamps, amounts, categoryIds, types,
+                        start, Math.min(hotSize, start + HOT_CHUNK_ROWS), lower, upper);
+            }
+            return acc;
+        }
+    }
+
+    private static class DecodedSegment {
+        final int segment;
+        final long[] timestamps;
+        final long[] amounts;
+        final int[] categoryIds;
+        final byte[] types;
+
+        DecodedSegment(int segment, int rows) {
+            this.segment = segment;
+            this.timestamps = new long[rows];
+            this.amounts = new long[rows];
+            this.categoryIds = new int[rows];
+            this.types = new byte[rows];
+        }
+    }
+}
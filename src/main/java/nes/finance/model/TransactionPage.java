@@ -0,0 +1,32 @@
+package nes.finance.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Страница результатов поиска операций в порядке списка операций.
+ * Курсор следующей страницы равен null, если результатов больше нет
+ */
+public class TransactionPage {
+    private final List<Transaction> transactions;
+    private final List<Integer> positions;
+    private final String nextCursor;
+    private final String plan;
+
+    public TransactionPage(List<Transaction> transactions, List<Integer> positions, String nextCursor, String plan) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.positions = Collections.unmodifiableList(positions);
+        this.nextCursor = nextCursor;
+        this.plan = plan;
+    }
+
+    // Getters
+    public List<Transaction> getTransactions() { return transactions; }
+    public List<Integer> getPositions() { return positions; }
+    public String getNextCursor() { return nextCursor; }
+    public String getPlan() { return plan; }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,64 @@
+package nes.finance.model;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Условия поиска операций. Любое условие может быть null - тогда оно не проверяется.
+ * Категория задается путем и включает вложенные категории, границы суммы и дат включительные
+ */
+public class TransactionQuery {
+    private final TransactionType type;
+    private final String category;
+    private final Double minAmount;
+    private final Double maxAmount;
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public TransactionQuery(TransactionType type, String category, Double minAmount, Double maxAmount,
+                            LocalDate from, LocalDate to) {
+        this.type = type;
+        this.category = category;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.from = from;
+        this.to = to;
+    }
+
+    // Getters
+    public TransactionType getType() { return type; }
+    public String getCategory() { return category; }
+    public Double getMinAmount() { return minAmount; }
+    public Double getMaxAmount() { return maxAmount; }
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+
+    /**
+     * Условия не противоречат друг другу
+     */
+    public boolean isValid() {
+        return (minAmount == null || maxAmount == null || minAmount <= maxAmount)
+                && (from == null || to == null || !from.isAfter(to));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TransactionQuery)) return false;
+        TransactionQuery that = (TransactionQuery) o;
+        return type == that.type && Objects.equals(category, that.category)
+                && Objects.equals(minAmount, that.minAmount) && Objects.equals(maxAmount, that.maxAmount)
+                && Objects.equals(from, that.from) && Objects.equals(to, that.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, category, minAmount, maxAmount, from, to);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransactionQuery{type=%s, category='%s', amount=[%s, %s], date=[%s, %s]}",
+                type, category, minAmount, maxAmount, from, to);
+    }
+}
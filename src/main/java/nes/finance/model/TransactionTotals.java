@@ -0,0 +1,40 @@
+package nes.finance.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Итоги операций кошелька за период: количество, суммы доходов и расходов,
+ * в том числе по категориям
+ */
+public class TransactionTotals {
+    private final int count;
+    private final double totalIncome;
+    private final double totalExpense;
+    private final Map<String, Double> incomeByCategory;
+    private final Map<String, Double> expenseByCategory;
+
+    public TransactionTotals(int count, double totalIncome, double totalExpense,
+                             Map<String, Double> incomeByCategory, Map<String, Double> expenseByCategory) {
+        this.count = count;
+        this.totalIncome = totalIncome;
+        this.totalExpense = totalExpense;
+        this.incomeByCategory = Collections.unmodifiableMap(incomeByCategory);
+        this.expenseByCategory = Collections.unmodifiableMap(expenseByCategory);
+    }
+
+    // Getters
+    public int getCount() { return count; }
+    public double getTotalIncome() { return totalIncome; }
+    public double getTotalExpense() { return totalExpense; }
+    public Map<String, Double> getIncomeByCategory() { return incomeByCategory; }
+    public Map<String, Double> getExpenseByCategory() { return expenseByCategory; }
+
+    public double getIncome(String category) {
+        return incomeByCategory.getOrDefault(category, 0.0);
+    }
+
+    public double getExpense(String category) {
+        return expenseByCategory.getOrDefault(category, 0.0);
+    }
+}
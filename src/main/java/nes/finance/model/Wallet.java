@@ -1,24 +1,61 @@
 package nes.finance.model;
 
+import nes.finance.stats.BurnRateTracker;
+import nes.finance.stats.KllSketch;
+import nes.finance.stats.RoaringBitmap;
+
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Wallet implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Общая последовательность версий: версии разных кошельков (в том числе загруженных
+    // заново) не совпадают, поэтому кэш отчетов не спутает старые данные с новыми
+    private static final AtomicLong VERSIONS = new AtomicLong();
 
     private double balance;
-    private List<Transaction> transactions;
+    private TransactionList transactions;
     private Map<String, Double> budgets;
     private List<Alert> alerts;
 
+    // Распределение сумм операций по категориям, обновляется при добавлении транзакции
+    private Map<String, KllSketch> categorySketches;
+    // Сглаженная дневная скорость расходов по категориям для прогноза бюджетов
+    private BurnRateTracker burnRates;
+    private boolean derivedStale;
+    private boolean bulkLoading;
+    private boolean sketchesRestored;
+    private boolean burnRatesRestored;
+    // Счетчик изменений транзакций: по нему фоновая проверка находит измененные кошельки
+    private transient volatile long changeCount;
+    // Версия данных, видимых в отчетах: операций, бюджетов, баланса и оповещений
+    private transient volatile long version;
+    // Версия только операций: меняется при добавлении, изменении, удалении и метках
+    private transient volatile long transactionVersion;
+    // Дерево категорий с итогами поддеревьев; null - построить заново при обращении
+    private transient CategoryTree categoryTree;
+    // Остатки по дням; строится при первом запросе остатка на дату
+    private transient BalanceIndex balanceIndex;
+    // Операции до этой позиции уже переданы после сохранения (см. takeUncommittedTransactions)
+    private transient int committedRows;
+
     public Wallet() {
         this.balance = 0.0;
-        this.transactions = new ArrayList<>();
-        this.budgets = new HashMap<>();
+        this.transactions = new TransactionList(this);
+        this.budgets = new BudgetMap(this);
         this.alerts = new ArrayList<>();
+        this.categorySketches = new HashMap<>();
+        this.burnRates = new BurnRateTracker();
+        this.version = VERSIONS.incrementAndGet();
+        this.transactionVersion = version;
     }
 
     // Getters
@@ -27,11 +64,369 @@ public class Wallet implements Serializable {
     public Map<String, Double> getBudgets() { return budgets; }
     public List<Alert> getAlerts() { return alerts; }
 
-    public void setBalance(double balance) { this.balance = balance; }
+    public long getChangeCount() { return changeCount; }
+    public long getVersion() { return version; }
+    public long getTransactionVersion() { return transactionVersion; }
+
+    public void setBalance(double balance) {
+        if (Double.compare(this.balance, balance) != 0) {
+            this.balance = balance;
+            version = VERSIONS.incrementAndGet();
+        }
+    }
+
+    // Методы для статистики по категориям
+
+    /**
+     * Итоги по всем операциям кошелька
+     */
+    public TransactionTotals getTotals() {
+        return transactions.totals(null, null);
+    }
+
+    /**
+     * Итоги по операциям за период [from, to] включительно
+     */
+    public TransactionTotals getTotals(LocalDate from, LocalDate to) {
+        return transactions.totals(from, to);
+    }
+
+    /**
+     * Итоги за период [from, to] по операциям, удовлетворяющим условию по меткам.
+     * Границы периода могут быть null
+     */
+    public TransactionTotals getTotals(LocalDate from, LocalDate to, TagFilter filter) {
+        RoaringBitmap rows = filter.evaluate(transactions::tagged, transactions.size());
+        return transactions.totals(from, to, rows);
+    }
+
+    /**
+     * Позиции операций, удовлетворяющих условию по меткам
+     */
+    public RoaringBitmap selectByTags(TagFilter filter) {
+        return filter.evaluate(transactions::tagged, transactions.size());
+    }
+
+    /**
+     * Метки операций и количество операций с каждой меткой
+     */
+    public Map<String, Integer> getTagCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        transactions.tagPositions().forEach((tag, positions) -> counts.put(tag, positions.getCardinality()));
+        return counts;
+    }
+
+    /**
+     * Позиции операций по меткам для сохранения; изменять нельзя
+     */
+    public Map<String, RoaringBitmap> getTagPositions() {
+        return transactions.tagPositions();
+    }
+
+    /**
+     * Восстановление сохраненных позиций меток при загрузке
+     */
+    public void restoreTagPositions(Map<String, RoaringBitmap> positions) {
+        transactions.restoreTags(positions);
+    }
+
+    /**
+     * Добавление метки операции на позиции index. false - метка уже есть
+     */
+    public boolean addTag(int index, String tag) {
+        boolean added = transactions.tag(index, tag);
+        if (added) {
+            markTransactionsChanged();
+        }
+        return added;
+    }
+
+    /**
+     * Снятие метки с операции на позиции index. false - метки не было
+     */
+    public boolean removeTag(int index, String tag) {
+        boolean removed = transactions.untag(index, tag);
+        if (removed) {
+            markTransactionsChanged();
+        }
+        return removed;
+    }
+
+    /**
+     * Сумма операций типа type по категории; category = null - по всем категориям
+     */
+    public double sumAmounts(TransactionType type, String category) {
+        return transactions.sum(type, category);
+    }
+
+    /**
+     * Перенос операций раньше cutoff из начала списка в сжатые сегменты вне кучи.
+     * Обычно выполняется автоматически; возвращает количество запечатанных операций
+     */
+    public int sealHistory(LocalDate cutoff) {
+        return transactions.seal(cutoff);
+    }
+
+    /**
+     * Кошелек читается один раз (сводный отчет, сверка, фоновая проверка): история не
+     * запечатывается автоматически. Память сегментов вне кучи освобождается только
+     * сборкой мусора, и ее выделение для каждого кошелька каталога копится быстрее
+     */
+    public void deferSealing() {
+        transactions.deferSealing();
+    }
+
+    public int getSealedTransactionCount() { return transactions.getSealedSize(); }
+    public int getSealedSegmentCount() { return transactions.getSegmentCount(); }
+    public long getOffHeapBytes() { return transactions.getOffHeapBytes(); }
+
+    /**
+     * Количество операций категории
+     */
+    public int countTransactions(String category) {
+        return transactions.count(category);
+    }
+
+    /**
+     * Страница операций, подходящих под условия query, по вторичным индексам.
+     * cursor - курсор предыдущей страницы или null; устаревший курсор вызывает
+     * IllegalArgumentException
+     */
+    public TransactionPage search(TransactionQuery query, String cursor, int limit) {
+        return transactions.search(query, cursor, limit);
+    }
+
+    /**
+     * Категории, встречающиеся в операциях
+     */
+    public Set<String> getTransactionCategories() {
+        return transactions.categories();
+    }
+
+
+    /**
+     * Дерево категорий по путям "родитель/потомок" с итогами и бюджетами поддеревьев.
+     * Строится по итогам категорий и затем обновляется при добавлении операций
+     */
+    public CategoryTree getCategoryTree() {
+        if (categoryTree == null) {
+            categoryTree = new CategoryTree();
+            transactions.fillTree(categoryTree);
+        }
+        categoryTree.syncBudgets(budgets);
+        return categoryTree;
+    }
+
+    /**
+     * Расходы категории вместе со всеми вложенными категориями
+     */
+    public double getSubtreeExpense(String category) {
+        return getCategoryTree().getExpense(category);
+    }
+
+    /**
+     * Остаток по операциям на конец дня date: доходы минус расходы всех операций
+     * не позже этого дня, включая внесенные задним числом
+     */
+    public double getBalanceAt(LocalDate date) {
+        return getBalanceIndex().getBalanceAt(date);
+    }
+
+    /**
+     * Доходы минус расходы за дни from..to включительно
+     */
+    public double getNetFlow(LocalDate from, LocalDate to) {
+        return getBalanceIndex().getNetFlow(from, to);
+    }
+
+    private BalanceIndex getBalanceIndex() {
+        if (balanceIndex == null) {
+            balanceIndex = new BalanceIndex();
+            transactions.fillBalanceIndex(balanceIndex);
+        }
+        return balanceIndex;
+    }
+
+    /**
+     * Скетч распределения сумм операций категории или null, если операций нет
+     */
+    public KllSketch getCategorySketch(String category) {
+        ensureSketches();
+        return categorySketches.get(category);
+    }
+
+    public Map<String, KllSketch> getCategorySketches() {
+        ensureSketches();
+        return Collections.unmodifiableMap(categorySketches);
+    }
+
+    /**
+     * Скорость расходов по категориям (учитываются только расходы)
+     */
+    public BurnRateTracker getBurnRates() {
+        ensureSketches();
+        return burnRates;
+    }
+
+    /**
+     * Переименование категории во всех транзакциях. Статистика старой категории
+     * объединяется со статистикой новой. Возвращает количество измененных транзакций
+     */
+    public int renameCategory(String oldCategory, String newCategory) {
+        int renamed = transactions.renameCategory(oldCategory, newCategory);
+        if (renamed > 0) {
+            markTransactionsChanged();
+            categoryTree = null;
+        }
+
+        burnRates.rename(oldCategory, newCategory);
+        KllSketch moved = categorySketches.remove(oldCategory);
+        if (moved != null) {
+            KllSketch target = categorySketches.get(newCategory);
+            if (target == null) {
+                categorySketches.put(newCategory, moved);
+            } else {
+                target.merge(moved);
+            }
+        }
+        return renamed;
+    }
+
+    /**
+     * Операции, добавленные после загрузки или прошлого вызова, в порядке добавления.
+     * Каждая операция возвращается один раз
+     */
+    public List<Transaction> takeUncommittedTransactions() {
+        int size = transactions.size();
+        List<Transaction> added = new ArrayList<>(transactions.subList(Math.min(committedRows, size), size));
+        committedRows = size;
+        return added;
+    }
+
+    /**
+     * Пересборка хранилища операций по самим строкам: итоги запечатанных сегментов,
+     * словарь категорий, индексы и статистика строятся заново, порядок и метки сохраняются
+     */
+    public void rebuildTransactions() {
+        List<Transaction> rows = new ArrayList<>(transactions);
+        Map<String, RoaringBitmap> tags = new HashMap<>(transactions.tagPositions());
+        beginBulkLoad();
+        transactions.clear();
+        transactions.addAll(rows);
+        transactions.restoreTags(tags);
+        endBulkLoad();
+    }
+
+    /**
+     * Сброс статистики категорий (скетчи сумм, скорость расходов): она будет
+     * пересчитана по операциям при следующем обращении
+     */
+    public void rebuildStatistics() {
+        categorySketches.clear();
+        burnRates.clear();
+        derivedStale = !transactions.isEmpty();
+    }
+
+    /**
+     * Начало массовой загрузки: производные структуры не обновляются до endBulkLoad
+     */
+    public void beginBulkLoad() {
+        bulkLoading = true;
+        categoryTree = null;
+        balanceIndex = null;
+        sketchesRestored = false;
+        burnRatesRestored = false;
+    }
+
+    /**
+     * Завершение массовой загрузки. Если статистика не была восстановлена из файла,
+     * она будет пересчитана по транзакциям при первом обращении
+     */
+    public void endBulkLoad() {
+        bulkLoading = false;
+        committedRows = transactions.size();
+        // Загруженная история старше прошлого месяца сразу уходит в запечатанные сегменты
+        if (!transactions.isSealingDeferred()) {
+            transactions.seal(TransactionList.defaultCutoff());
+        }
+        if (!sketchesRestored || !burnRatesRestored) {
+            derivedStale = true;
+        }
+    }
+
+    /**
+     * Восстановление сохраненной статистики категорий при загрузке
+     */
+    public void restoreCategorySketches(Map<String, KllSketch> sketches) {
+        categorySketches.clear();
+        categorySketches.putAll(sketches);
+        sketchesRestored = true;
+    }
+
+    public void restoreBurnRates(BurnRateTracker tracker) {
+        burnRates = tracker;
+        burnRatesRestored = true;
+    }
+
+    void onTransactionAdded(Transaction transaction) {
+        markTransactionsChanged();
+        if (categoryTree != null) {
+            categoryTree.add(transaction.getCategory(), transaction.getType(), transaction.getAmount());
+        }
+        if (balanceIndex != null) {
+            balanceIndex.add(transaction.getDate().toLocalDate(), transaction.getType(), transaction.getAmount());
+        }
+        if (bulkLoading || derivedStale) {
+            return;
+        }
+        record(transaction);
+    }
+
+    // Удаление из статистики невозможно: она пересчитывается при следующем обращении
+    void onTransactionsChanged() {
+        markTransactionsChanged();
+        categoryTree = null;
+        balanceIndex = null;
+        committedRows = Math.min(committedRows, transactions.size());
+        categorySketches.clear();
+        burnRates.clear();
+        derivedStale = !transactions.isEmpty();
+    }
+
+    void onBudgetsChanged() {
+        version = VERSIONS.incrementAndGet();
+    }
+
+    private void markTransactionsChanged() {
+        changeCount++;
+        transactionVersion = VERSIONS.incrementAndGet();
+        version = transactionVersion;
+    }
+
+    private void record(Transaction transaction) {
+        categorySketches.computeIfAbsent(transaction.getCategory(), c -> new KllSketch())
+                .update(transaction.getAmount());
+        if (transaction.getType() == TransactionType.EXPENSE) {
+            burnRates.record(transaction.getCategory(), transaction.getDate().toLocalDate(), transaction.getAmount());
+        }
+    }
+
+    private void ensureSketches() {
+        if (!derivedStale) {
+            return;
+        }
+        categorySketches.clear();
+        burnRates.clear();
+        for (Transaction t : transactions) {
+            record(t);
+        }
+        derivedStale = false;
+    }
 
     // Методы для работы с оповещениями
     public void addAlert(Alert alert) {
         this.alerts.add(alert);
+        version = VERSIONS.incrementAndGet();
     }
 
     public List<Alert> getUnreadAlerts() {
@@ -48,6 +443,12 @@ public class Wallet implements Serializable {
         for (Alert alert : alerts) {
             alert.markAsRead();
         }
+        version = VERSIONS.incrementAndGet();
+    }
+
+    public void clearAlerts() {
+        alerts.clear();
+        version = VERSIONS.incrementAndGet();
     }
 
     public int getUnreadAlertCount() {
@@ -0,0 +1,30 @@
+package nes.finance.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: полная проверка условий для оповещений
+ */
+@Name("nes.finance.AlertScan")
+@Label("Alert Scan")
+@Category({"Finance", "Alerts"})
+@Description("Проверка всех условий для оповещений пользователя")
+@StackTrace(false)
+public class AlertScanEvent extends jdk.jfr.Event {
+    @Label("User")
+    private String user;
+
+    @Label("Transaction Count")
+    private int transactionCount;
+
+    @Label("Alerts Raised")
+    private int alertsRaised;
+
+    public void setUser(String user) { this.user = user; }
+    public void setTransactionCount(int transactionCount) { this.transactionCount = transactionCount; }
+    public void setAlertsRaised(int alertsRaised) { this.alertsRaised = alertsRaised; }
+}
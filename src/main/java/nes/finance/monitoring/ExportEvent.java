@@ -0,0 +1,47 @@
+package nes.finance.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: экспорт или импорт данных
+ */
+@Name("nes.finance.Export")
+@Label("Export")
+@Category({"Finance", "Export"})
+@Description("Экспорт данных пользователя в файл или импорт из файла")
+@StackTrace(false)
+public class ExportEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    private String operation;
+
+    @Label("User")
+    private String user;
+
+    @Label("File")
+    private String file;
+
+    @Label("Transaction Count")
+    private int transactionCount;
+
+    @Label("Bytes")
+    @DataAmount(DataAmount.BYTES)
+    private long bytes;
+
+    @Label("Success")
+    private boolean success;
+
+    public ExportEvent(String operation) {
+        this.operation = operation;
+    }
+
+    public void setUser(String user) { this.user = user; }
+    public void setFile(String file) { this.file = file; }
+    public void setTransactionCount(int transactionCount) { this.transactionCount = transactionCount; }
+    public void setBytes(long bytes) { this.bytes = bytes; }
+    public void setSuccess(boolean success) { this.success = success; }
+}
@@ -0,0 +1,69 @@
+package nes.finance.monitoring;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Управление записью Java Flight Recorder из приложения.
+ * Пока запись не запущена, события приложения не фиксируются и почти ничего не стоят.
+ */
+public class FlightRecorderService {
+    private Recording recording;
+    private Path destination;
+
+    /**
+     * Запуск записи в указанный файл
+     */
+    public synchronized boolean start(Path file) throws IOException {
+        if (recording != null) {
+            return false;
+        }
+
+        Recording newRecording;
+        try {
+            newRecording = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            newRecording = new Recording();
+        }
+
+        newRecording.setName("finance-manager");
+        newRecording.enable(PersistenceEvent.class);
+        newRecording.enable(AlertScanEvent.class);
+        newRecording.enable(ReportEvent.class);
+        newRecording.enable(ExportEvent.class);
+        newRecording.setDestination(file);
+        newRecording.start();
+
+        recording = newRecording;
+        destination = file;
+        return true;
+    }
+
+    /**
+     * Остановка записи. Возвращает путь к файлу записи или null, если запись не велась
+     */
+    public synchronized Path stop() {
+        if (recording == null) {
+            return null;
+        }
+
+        Path file = destination;
+        recording.stop();
+        recording.close();
+        recording = null;
+        destination = null;
+        return file;
+    }
+
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    public synchronized Path getDestination() {
+        return destination;
+    }
+}
@@ -0,0 +1,43 @@
+package nes.finance.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: сохранение или загрузка файла пользователя
+ */
+@Name("nes.finance.Persistence")
+@Label("Persistence")
+@Category({"Finance", "Persistence"})
+@Description("Сериализация данных пользователя в файл и обратно")
+@StackTrace(false)
+public class PersistenceEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    private String operation;
+
+    @Label("User")
+    private String user;
+
+    @Label("Transaction Count")
+    private int transactionCount;
+
+    @Label("Bytes")
+    @DataAmount(DataAmount.BYTES)
+    private long bytes;
+
+    @Label("Success")
+    private boolean success;
+
+    public PersistenceEvent(String operation) {
+        this.operation = operation;
+    }
+
+    public void setUser(String user) { this.user = user; }
+    public void setTransactionCount(int transactionCount) { this.transactionCount = transactionCount; }
+    public void setBytes(long bytes) { this.bytes = bytes; }
+    public void setSuccess(boolean success) { this.success = success; }
+}
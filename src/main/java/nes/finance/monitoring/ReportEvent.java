@@ -0,0 +1,33 @@
+package nes.finance.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: построение и вывод отчета
+ */
+@Name("nes.finance.Report")
+@Label("Report")
+@Category({"Finance", "Reports"})
+@Description("Построение отчета по данным текущего пользователя")
+@StackTrace(false)
+public class ReportEvent extends jdk.jfr.Event {
+    @Label("Report")
+    private String report;
+
+    @Label("User")
+    private String user;
+
+    @Label("Transaction Count")
+    private int transactionCount;
+
+    public ReportEvent(String report) {
+        this.report = report;
+    }
+
+    public void setUser(String user) { this.user = user; }
+    public void setTransactionCount(int transactionCount) { this.transactionCount = transactionCount; }
+}
@@ -0,0 +1,53 @@
+package nes.finance.report;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сводный отчет по всем (или выбранным) пользователям: общие итоги,
+ * итоги по категориям и распределения сумм операций
+ */
+public class AggregateReport {
+    private final int userCount;
+    private final int failedCount;
+    private final long transactionCount;
+    private final double totalBalance;
+    private final double totalIncome;
+    private final double totalExpense;
+    private final Map<String, Double> incomeByCategory;
+    private final Map<String, Double> expenseByCategory;
+    private final List<CategoryDistribution> distributions;
+    private final CategoryDistribution balanceDistribution;
+    private final long elapsedMillis;
+
+    public AggregateReport(int userCount, int failedCount, long transactionCount,
+                           double totalBalance, double totalIncome, double totalExpense,
+                           Map<String, Double> incomeByCategory, Map<String, Double> expenseByCategory,
+                           List<CategoryDistribution> distributions, CategoryDistribution balanceDistribution,
+                           long elapsedMillis) {
+        this.userCount = userCount;
+        this.failedCount = failedCount;
+        this.transactionCount = transactionCount;
+        this.totalBalance = totalBalance;
+        this.totalIncome = totalIncome;
+        this.totalExpense = totalExpense;
+        this.incomeByCategory = incomeByCategory;
+        this.expenseByCategory = expenseByCategory;
+        this.distributions = distributions;
+        this.balanceDistribution = balanceDistribution;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // Getters
+    public int getUserCount() { return userCount; }
+    public int getFailedCount() { return failedCount; }
+    public long getTransactionCount() { return transactionCount; }
+    public double getTotalBalance() { return totalBalance; }
+    public double getTotalIncome() { return totalIncome; }
+    public double getTotalExpense() { return totalExpense; }
+    public Map<String, Double> getIncomeByCategory() { return incomeByCategory; }
+    public Map<String, Double> getExpenseByCategory() { return expenseByCategory; }
+    public List<CategoryDistribution> getDistributions() { return distributions; }
+    public CategoryDistribution getBalanceDistribution() { return balanceDistribution; }
+    public long getElapsedMillis() { return elapsedMillis; }
+}
@@ -0,0 +1,52 @@
+package nes.finance.report;
+
+/**
+ * Прогноз расходов категории на конец месяца при текущей сглаженной скорости расходов
+ */
+public class BudgetForecast {
+    private final String category;
+    private final double limit;
+    private final double spent;
+    private final double dailyRate;
+    private final int daysRemaining;
+
+    public BudgetForecast(String category, double limit, double spent, double dailyRate, int daysRemaining) {
+        this.category = category;
+        this.limit = limit;
+        this.spent = spent;
+        this.dailyRate = dailyRate;
+        this.daysRemaining = daysRemaining;
+    }
+
+    // Getters
+    public String getCategory() { return category; }
+    public double getLimit() { return limit; }
+    public double getSpent() { return spent; }
+    public double getDailyRate() { return dailyRate; }
+    public int getDaysRemaining() { return daysRemaining; }
+
+    public double getProjected() {
+        return spent + dailyRate * daysRemaining;
+    }
+
+    public double getProjectedOverrun() {
+        return getProjected() - limit;
+    }
+
+    public boolean isProjectedToExceed() {
+        return getProjected() > limit;
+    }
+
+    /**
+     * Через сколько дней при текущей скорости будет исчерпан лимит; -1, если не будет
+     */
+    public int getDaysUntilExhausted() {
+        if (spent >= limit) {
+            return 0;
+        }
+        if (dailyRate <= 0) {
+            return -1;
+        }
+        return (int) Math.ceil((limit - spent) / dailyRate);
+    }
+}
@@ -0,0 +1,33 @@
+package nes.finance.report;
+
+/**
+ * Состояние бюджета категории: лимит, фактические расходы и остаток
+ */
+public class BudgetStatus {
+    private final String category;
+    private final double limit;
+    private final double spent;
+
+    public BudgetStatus(String category, double limit, double spent) {
+        this.category = category;
+        this.limit = limit;
+        this.spent = spent;
+    }
+
+    // Getters
+    public String getCategory() { return category; }
+    public double getLimit() { return limit; }
+    public double getSpent() { return spent; }
+
+    public double getRemaining() {
+        return limit - spent;
+    }
+
+    public double getUsagePercent() {
+        return limit > 0 ? (spent / limit) * 100 : 0;
+    }
+
+    public boolean isExceeded() {
+        return spent > limit;
+    }
+}
@@ -0,0 +1,42 @@
+package nes.finance.report;
+
+import nes.finance.stats.KllSketch;
+
+/**
+ * Распределение сумм операций категории: медиана и верхние процентили.
+ * Значения процентилей приближенные, минимум и максимум точные
+ */
+public class CategoryDistribution {
+    private final String category;
+    private final long count;
+    private final double min;
+    private final double median;
+    private final double p90;
+    private final double p99;
+    private final double max;
+
+    public CategoryDistribution(String category, long count, double min, double median,
+                                double p90, double p99, double max) {
+        this.category = category;
+        this.count = count;
+        this.min = min;
+        this.median = median;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public static CategoryDistribution of(String category, KllSketch sketch) {
+        return new CategoryDistribution(category, sketch.getCount(), sketch.getMin(), sketch.median(),
+                sketch.quantile(0.9), sketch.quantile(0.99), sketch.getMax());
+    }
+
+    // Getters
+    public String getCategory() { return category; }
+    public long getCount() { return count; }
+    public double getMin() { return min; }
+    public double getMedian() { return median; }
+    public double getP90() { return p90; }
+    public double getP99() { return p99; }
+    public double getMax() { return max; }
+}
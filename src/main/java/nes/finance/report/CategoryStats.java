@@ -0,0 +1,32 @@
+package nes.finance.report;
+
+/**
+ * Итоги по одной категории: доходы, расходы и бюджет (если установлен)
+ */
+public class CategoryStats {
+    private final String category;
+    private final double income;
+    private final double expense;
+    private final Double budget;
+
+    public CategoryStats(String category, double income, double expense, Double budget) {
+        this.category = category;
+        this.income = income;
+        this.expense = expense;
+        this.budget = budget;
+    }
+
+    // Getters
+    public String getCategory() { return category; }
+    public double getIncome() { return income; }
+    public double getExpense() { return expense; }
+    public Double getBudget() { return budget; }
+
+    public boolean hasOperations() {
+        return income > 0 || expense > 0;
+    }
+
+    public double getRemainingBudget() {
+        return budget != null ? budget - expense : 0;
+    }
+}
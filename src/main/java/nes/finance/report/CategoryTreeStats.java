@@ -0,0 +1,48 @@
+package nes.finance.report;
+
+import nes.finance.model.CategoryTree;
+
+/**
+ * Итоги узла дерева категорий вместе со всеми вложенными категориями
+ */
+public class CategoryTreeStats {
+    private final String path;
+    private final String name;
+    private final int depth;
+    private final int count;
+    private final double income;
+    private final double expense;
+    private final Double budget;
+    private final double budgetTotal;
+
+    public CategoryTreeStats(String path, String name, int depth, int count, double income, double expense,
+                             Double budget, double budgetTotal) {
+        this.path = path;
+        this.name = name;
+        this.depth = depth;
+        this.count = count;
+        this.income = income;
+        this.expense = expense;
+        this.budget = budget;
+        this.budgetTotal = budgetTotal;
+    }
+
+    public static CategoryTreeStats of(CategoryTree.Node node) {
+        return new CategoryTreeStats(node.getPath(), node.getName(), node.getDepth(), node.getCount(),
+                node.getIncome(), node.getExpense(), node.getBudget(), node.getBudgetTotal());
+    }
+
+    // Getters
+    public String getPath() { return path; }
+    public String getName() { return name; }
+    public int getDepth() { return depth; }
+    public int getCount() { return count; }
+    public double getIncome() { return income; }
+    public double getExpense() { return expense; }
+    public Double getBudget() { return budget; }
+    public double getBudgetTotal() { return budgetTotal; }
+
+    public double getRemainingBudget() {
+        return budget != null ? budget - expense : 0;
+    }
+}
@@ -0,0 +1,104 @@
+package nes.finance.report;
+
+import nes.finance.model.TransactionTotals;
+import nes.finance.model.User;
+import nes.finance.model.Wallet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Полная финансовая статистика пользователя.
+ * Категории упорядочены по убыванию суммы, бюджеты - по возрастанию остатка.
+ *
+ * Один и тот же отчет выводится в консоль и во все форматы экспорта: итоги и суммы
+ * по категориям собираются за один проход по операциям, расходы бюджетов берутся
+ * из поддерживаемого кошельком дерева категорий.
+ */
+public class FinancialReport {
+    private final String login;
+    private final double balance;
+    private final double totalIncome;
+    private final double totalExpense;
+    private final int transactionCount;
+    private final Map<String, Double> incomeByCategory;
+    private final Map<String, Double> expenseByCategory;
+    private final List<BudgetStatus> budgets;
+    private final int unreadAlertCount;
+
+    public FinancialReport(String login, double balance, double totalIncome, double totalExpense,
+                           int transactionCount, Map<String, Double> incomeByCategory,
+                           Map<String, Double> expenseByCategory, List<BudgetStatus> budgets,
+                           int unreadAlertCount) {
+        this.login = login;
+        this.balance = balance;
+        this.totalIncome = totalIncome;
+        this.totalExpense = totalExpense;
+        this.transactionCount = transactionCount;
+        this.incomeByCategory = incomeByCategory;
+        this.expenseByCategory = expenseByCategory;
+        this.budgets = budgets;
+        this.unreadAlertCount = unreadAlertCount;
+    }
+
+    /**
+     * Отчет по кошельку пользователя
+     */
+    public static FinancialReport of(User user) {
+        Wallet wallet = user.getWallet();
+        TransactionTotals totals = wallet.getTotals();
+        return new FinancialReport(user.getLogin(), wallet.getBalance(),
+                totals.getTotalIncome(), totals.getTotalExpense(), totals.getCount(),
+                sortByValueDescending(totals.getIncomeByCategory()),
+                sortByValueDescending(totals.getExpenseByCategory()),
+                Collections.unmodifiableList(budgetStatuses(wallet)), wallet.getUnreadAlertCount());
+    }
+
+    /**
+     * Состояние бюджетов кошелька по возрастанию остатка. Бюджет категории учитывает
+     * расходы самой категории и всех вложенных
+     */
+    public static List<BudgetStatus> budgetStatuses(Wallet wallet) {
+        List<BudgetStatus> statuses = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : wallet.getBudgets().entrySet()) {
+            statuses.add(new BudgetStatus(entry.getKey(), entry.getValue(),
+                    wallet.getSubtreeExpense(entry.getKey())));
+        }
+        statuses.sort(Comparator.comparingDouble(BudgetStatus::getRemaining));
+        return statuses;
+    }
+
+    private static Map<String, Double> sortByValueDescending(Map<String, Double> values) {
+        Map<String, Double> sorted = new LinkedHashMap<>();
+        values.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return Collections.unmodifiableMap(sorted);
+    }
+
+    /**
+     * Оценка занимаемой памяти для кэша отчетов
+     */
+    public long estimateBytes() {
+        return ReportCache.estimate(incomeByCategory.size() + expenseByCategory.size() + budgets.size());
+    }
+
+    // Getters
+    public String getLogin() { return login; }
+    public double getBalance() { return balance; }
+    public double getTotalIncome() { return totalIncome; }
+    public double getTotalExpense() { return totalExpense; }
+    public int getTransactionCount() { return transactionCount; }
+    public Map<String, Double> getIncomeByCategory() { return incomeByCategory; }
+    public Map<String, Double> getExpenseByCategory() { return expenseByCategory; }
+    public List<BudgetStatus> getBudgets() { return budgets; }
+    public int getUnreadAlertCount() { return unreadAlertCount; }
+
+    public double getNet() {
+        return totalIncome - totalExpense;
+    }
+}
@@ -0,0 +1,53 @@
+package nes.finance.report;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Отчет о доходах и расходах за период
+ */
+public class PeriodReport {
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final int transactionCount;
+    private final double totalIncome;
+    private final double totalExpense;
+    private final Map<String, Double> incomeByCategory;
+    private final Map<String, Double> expenseByCategory;
+
+    public PeriodReport(LocalDate startDate, LocalDate endDate, int transactionCount,
+                        double totalIncome, double totalExpense,
+                        Map<String, Double> incomeByCategory, Map<String, Double> expenseByCategory) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.transactionCount = transactionCount;
+        this.totalIncome = totalIncome;
+        this.totalExpense = totalExpense;
+        this.incomeByCategory = incomeByCategory;
+        this.expenseByCategory = expenseByCategory;
+    }
+
+    /**
+     * Оценка занимаемой памяти для кэша отчетов
+     */
+    public long estimateBytes() {
+        return ReportCache.estimate(incomeByCategory.size() + expenseByCategory.size());
+    }
+
+    // Getters
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public int getTransactionCount() { return transactionCount; }
+    public double getTotalIncome() { return totalIncome; }
+    public double getTotalExpense() { return totalExpense; }
+    public Map<String, Double> getIncomeByCategory() { return incomeByCategory; }
+    public Map<String, Double> getExpenseByCategory() { return expenseByCategory; }
+
+    public double getNet() {
+        return totalIncome - totalExpense;
+    }
+
+    public boolean isEmpty() {
+        return transactionCount == 0;
+    }
+}
@@ -0,0 +1,117 @@
+package nes.finance.report;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Кэш готовых отчетов одного пользователя.
+ *
+ * Запись хранится по виду отчета и параметрам вместе с версией данных кошелька,
+ * по которой отчет построен. Отчет другой версии пересчитывается и заменяет запись,
+ * поэтому устаревшие отчеты не накапливаются. Вытесняются давно не запрошенные
+ * записи, когда оценка занимаемой памяти превышает лимит. Отчеты в кэше общие
+ * для всех запросов и не должны изменяться.
+ */
+public class ReportCache {
+    public static final long DEFAULT_MAX_BYTES = 256 * 1024;
+    // Грубая оценка размера отчета: объект и по записи на категорию или бюджет
+    private static final long BASE_BYTES = 128;
+    private static final long ITEM_BYTES = 96;
+
+    private final long maxBytes;
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    public ReportCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public ReportCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Отчет kind с параметрами parameters для версии данных version: из кэша или
+     * построенный loader. Результат null не кэшируется
+     */
+    public synchronized <T> T get(String kind, List<?> parameters, long version,
+                                  Supplier<T> loader, ToLongFunction<T> weigher) {
+        List<Object> key = key(kind, parameters);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == version) {
+            hits++;
+            @SuppressWarnings("unchecked")
+            T value = (T) entry.value;
+            return value;
+        }
+
+        misses++;
+        if (entry != null) {
+            entries.remove(key);
+            bytes -= entry.bytes;
+        }
+        T value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        long size = weigher.applyAsLong(value);
+        if (size <= maxBytes) {
+            entries.put(key, new Entry(version, value, size));
+            bytes += size;
+            evict();
+        }
+        return value;
+    }
+
+    // Вытеснение давно не запрошенных записей до лимита памяти
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().bytes;
+            iterator.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Оценка размера отчета по количеству строк в нем (категорий, бюджетов)
+     */
+    public static long estimate(int items) {
+        return BASE_BYTES + ITEM_BYTES * items;
+    }
+
+    private static List<Object> key(String kind, List<?> parameters) {
+        List<Object> key = new ArrayList<>(parameters.size() + 1);
+        key.add(kind);
+        key.addAll(parameters);
+        return key;
+    }
+
+    // Getters
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getBytes() { return bytes; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+
+    private static final class Entry {
+        final long version;
+        final Object value;
+        final long bytes;
+
+        Entry(long version, Object value, long bytes) {
+            this.version = version;
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package nes.finance.report;
+
+import nes.finance.stats.SpaceSaving;
+
+import java.util.List;
+
+/**
+ * Лидеры расходов по всем пользователям: категории и пользователи с наибольшими
+ * расходами. Суммы в копейках; оценки завышены не более чем на error каждой записи
+ */
+public class TopSpendingReport {
+    private final List<SpaceSaving.Entry> categories;
+    private final List<SpaceSaving.Entry> spenders;
+    private final long totalCents;
+    private final long maxErrorCents;
+    private final int capacity;
+
+    public TopSpendingReport(List<SpaceSaving.Entry> categories, List<SpaceSaving.Entry> spenders,
+                             long totalCents, long maxErrorCents, int capacity) {
+        this.categories = categories;
+        this.spenders = spenders;
+        this.totalCents = totalCents;
+        this.maxErrorCents = maxErrorCents;
+        this.capacity = capacity;
+    }
+
+    // Getters
+    public List<SpaceSaving.Entry> getCategories() { return categories; }
+    public List<SpaceSaving.Entry> getSpenders() { return spenders; }
+    public long getTotalCents() { return totalCents; }
+    /** Наибольшее завышение оценки среди категорий и пользователей */
+    public long getMaxErrorCents() { return maxErrorCents; }
+    public int getCapacity() { return capacity; }
+}
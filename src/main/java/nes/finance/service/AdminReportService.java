@@ -0,0 +1,223 @@
+package nes.finance.service;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.TransactionTotals;
+import nes.finance.model.User;
+import nes.finance.model.Wallet;
+import nes.finance.monitoring.ReportEvent;
+import nes.finance.report.AggregateReport;
+import nes.finance.report.CategoryDistribution;
+import nes.finance.stats.KllSketch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Сводная отчетность по всем сохраненным пользователям.
+ *
+ * Кошельки загружаются параллельно в ForkJoinPool и сворачиваются в частичные итоги,
+ * которые затем объединяются. В памяти одновременно находится не больше
+ * maxResidentWallets кошельков: загрузка каждого требует разрешения семафора,
+ * которое возвращается сразу после учета кошелька.
+ */
+public class AdminReportService {
+    private static final Logger log = LoggerFactory.getLogger(AdminReportService.class);
+    private static final String BACKUP_SUFFIX = "_backup";
+    // Столько пользователей обрабатывает одна задача без дальнейшего деления
+    private static final int USERS_PER_TASK = 32;
+
+    private final DataService dataService;
+    private final int parallelism;
+    private final int maxResidentWallets;
+
+    public AdminReportService(DataService dataService) {
+        this(dataService, Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public AdminReportService(DataService dataService, int parallelism, int maxResidentWallets) {
+        if (parallelism <= 0 || maxResidentWallets <= 0) {
+            throw new IllegalArgumentException("Число потоков и лимит кошельков должны быть положительными");
+        }
+        this.dataService = dataService;
+        this.parallelism = parallelism;
+        this.maxResidentWallets = maxResidentWallets;
+    }
+
+    public int getParallelism() { return parallelism; }
+    public int getMaxResidentWallets() { return maxResidentWallets; }
+
+    /**
+     * Отчет по всем сохраненным пользователям (резервные копии не учитываются)
+     */
+    public AggregateReport generateReport() {
+        List<String> logins = new ArrayList<>();
+        for (String login : dataService.getAllSavedUsers()) {
+            if (!login.endsWith(BACKUP_SUFFIX)) {
+                logins.add(login);
+            }
+        }
+        return generateReport(logins);
+    }
+
+    /**
+     * Отчет по указанной группе пользователей (семья, организация)
+     */
+    public AggregateReport generateReport(Collection<String> logins) {
+        ReportEvent event = new ReportEvent("admin_aggregate");
+        event.begin();
+        long started = System.nanoTime();
+
+        List<String> users = new ArrayList<>(logins);
+        Semaphore residentWallets = new Semaphore(maxResidentWallets);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Partial total;
+        try {
+            total = pool.invoke(new AggregateTask(users, 0, users.size(), residentWallets));
+        } finally {
+            pool.shutdown();
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Сводный отчет: пользователей %d, ошибок загрузки %d, %d мс",
+                total.userCount, total.failedCount, elapsedMillis);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setTransactionCount((int) Math.min(Integer.MAX_VALUE, total.transactionCount));
+            event.commit();
+        }
+        return total.toReport(elapsedMillis);
+    }
+
+    /**
+     * Учет одного пользователя. Кошелек доступен сборщику мусора сразу после возврата
+     */
+    private void accumulate(String login, Partial partial, Semaphore residentWallets) {
+        residentWallets.acquireUninterruptibly();
+        try {
+            User user = dataService.loadUserDataForRead(login);
+            if (user == null) {
+                partial.failedCount++;
+                return;
+            }
+            partial.add(user.getWallet());
+        } finally {
+            residentWallets.release();
+        }
+    }
+
+    private class AggregateTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> logins;
+        private final int from;
+        private final int to;
+        private final Semaphore residentWallets;
+
+        AggregateTask(List<String> logins, int from, int to, Semaphore residentWallets) {
+            this.logins = logins;
+            this.from = from;
+            this.to = to;
+            this.residentWallets = residentWallets;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= USERS_PER_TASK) {
+                Partial partial = new Partial();
+                for (int i = from; i < to; i++) {
+                    accumulate(logins.get(i), partial, residentWallets);
+                }
+                return partial;
+            }
+
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(logins, from, middle, residentWallets);
+            AggregateTask right = new AggregateTask(logins, middle, to, residentWallets);
+            left.fork();
+            Partial result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * Частичные итоги по части пользователей. Объем не зависит от числа транзакций:
+     * суммы по категориям и скетчи распределений
+     */
+    private static class Partial {
+        int userCount;
+        int failedCount;
+        long transactionCount;
+        double totalBalance;
+        double totalIncome;
+        double totalExpense;
+        final Map<String, Double> incomeByCategory = new HashMap<>();
+        final Map<String, Double> expenseByCategory = new HashMap<>();
+        final Map<String, KllSketch> sketches = new HashMap<>();
+        final KllSketch balances = new KllSketch();
+
+        void add(Wallet wallet) {
+            userCount++;
+            totalBalance += wallet.getBalance();
+            balances.update(wallet.getBalance());
+
+            TransactionTotals totals = wallet.getTotals();
+            transactionCount += totals.getCount();
+            totalIncome += totals.getTotalIncome();
+            totalExpense += totals.getTotalExpense();
+            totals.getIncomeByCategory().forEach((category, amount) -> incomeByCategory.merge(category, amount, Double::sum));
+            totals.getExpenseByCategory().forEach((category, amount) -> expenseByCategory.merge(category, amount, Double::sum));
+
+            // Скетчи кошелька восстановлены из файла, пересчет по транзакциям не нужен
+            for (Map.Entry<String, KllSketch> entry : wallet.getCategorySketches().entrySet()) {
+                sketches.computeIfAbsent(entry.getKey(), c -> new KllSketch()).merge(entry.getValue());
+            }
+        }
+
+        void merge(Partial other) {
+            userCount += other.userCount;
+            failedCount += other.failedCount;
+            transactionCount += other.transactionCount;
+            totalBalance += other.totalBalance;
+            totalIncome += other.totalIncome;
+            totalExpense += other.totalExpense;
+            other.incomeByCategory.forEach((category, amount) -> incomeByCategory.merge(category, amount, Double::sum));
+            other.expenseByCategory.forEach((category, amount) -> expenseByCategory.merge(category, amount, Double::sum));
+            other.sketches.forEach((category, sketch) ->
+                    sketches.computeIfAbsent(category, c -> new KllSketch()).merge(sketch));
+            balances.merge(other.balances);
+        }
+
+        AggregateReport toReport(long elapsedMillis) {
+            List<CategoryDistribution> distributions = new ArrayList<>();
+            new TreeMap<>(sketches).forEach((category, sketch) ->
+                    distributions.add(CategoryDistribution.of(category, sketch)));
+            CategoryDistribution balanceDistribution = balances.isEmpty()
+                    ? null : CategoryDistribution.of("Баланс", balances);
+
+            return new AggregateReport(userCount, failedCount, transactionCount,
+                    totalBalance, totalIncome, totalExpense,
+                    sortByValueDescending(incomeByCategory), sortByValueDescending(expenseByCategory),
+                    distributions, balanceDistribution, elapsedMillis);
+        }
+
+        private static Map<String, Double> sortByValueDescending(Map<String, Double> values) {
+            Map<String, Double> sorted = new LinkedHashMap<>();
+            values.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                    .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+            return sorted;
+        }
+    }
+}
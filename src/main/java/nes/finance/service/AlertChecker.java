@@ -0,0 +1,397 @@
+package nes.finance.service;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.Alert;
+import nes.finance.model.AlertReason;
+import nes.finance.model.CategoryTree;
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.Wallet;
+import nes.finance.report.BudgetForecast;
+import nes.finance.stats.BurnRateTracker;
+import nes.finance.stats.KllSketch;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Правила оповещений по кошельку.
+ *
+ * Не зависит от текущего пользователя: используется и для вошедшего пользователя
+ * (FinancialService), и для фоновой проверки всех кошельков (AlertSweepScheduler).
+ * Полная проверка прерывается между правилами, если поток был прерван.
+ */
+public class AlertChecker {
+    private static final Logger log = LoggerFactory.getLogger(AlertChecker.class);
+
+    private static final double BUDGET_WARNING_THRESHOLD = 0.8; // 80% использования бюджета
+    private static final double LOW_BALANCE_THRESHOLD = 1000.0; // Порог низкого баланса
+    private static final double BUDGET_WARNING_PERCENT = 80.0;
+    private static final double BUDGET_CRITICAL_PERCENT = 95.0;
+    private static final double LOW_BALANCE_WARNING = 2000.0;
+    private static final double LOW_BALANCE_CRITICAL = 500.0;
+    private static final double OVERSPENDING_THRESHOLD = 0.9;
+    private static final double LARGE_TRANSACTION_THRESHOLD = 10000.0;
+    private static final long MIN_DISTRIBUTION_SAMPLES = 20;
+    private static final double UNUSUAL_QUANTILE = 0.99;
+    private static final double UNUSUAL_MEDIAN_FACTOR = 3.0;
+    private static final long MIN_FORECAST_DAYS = 7;
+
+    /**
+     * Проверка всех условий для оповещений. Возвращает количество новых оповещений
+     */
+    public int checkAll(Wallet wallet) {
+        int alertsBefore = wallet.getAlerts().size();
+
+        List<Runnable> rules = new ArrayList<>();
+        rules.add(() -> checkBudgetAlerts(wallet));
+        rules.add(() -> checkBalanceAlerts(wallet));
+        rules.add(() -> checkOverspendingAlert(wallet));
+        rules.add(() -> checkIncomeAlert(wallet));
+        rules.add(() -> checkZeroBalanceAlert(wallet));
+        rules.add(() -> checkLargeTransactionAlert(wallet));
+        rules.add(() -> checkForecastAlerts(wallet));
+
+        for (Runnable rule : rules) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            rule.run();
+        }
+        return wallet.getAlerts().size() - alertsBefore;
+    }
+
+    /**
+     * Проверки после добавления расхода
+     */
+    public void afterExpense(Wallet wallet, String category) {
+        // Расход учитывается бюджетами категории и всех ее родителей
+        for (String budgeted : budgetsCovering(wallet, category)) {
+            checkBudgetExceeded(wallet, budgeted);
+        }
+        checkBudgetForecast(wallet, category);
+        checkHealth(wallet);
+    }
+
+    /**
+     * Проверка общего финансового состояния и остатка на счете
+     */
+    public void checkHealth(Wallet wallet) {
+        checkOverallFinancialHealth(wallet);
+        checkLowBalance(wallet);
+    }
+
+    /**
+     * Проверки после добавления дохода
+     */
+    public void afterIncome(Wallet wallet) {
+        checkOverallFinancialHealth(wallet);
+    }
+
+    /**
+     * Проверка, выбивается ли сумма из обычного распределения операций категории.
+     * Пока истории мало, используется фиксированный порог крупной операции
+     */
+    public boolean isUnusual(Wallet wallet, String category, double amount) {
+        KllSketch sketch = wallet.getCategorySketch(category);
+        if (sketch == null || sketch.getCount() < MIN_DISTRIBUTION_SAMPLES) {
+            return amount > LARGE_TRANSACTION_THRESHOLD;
+        }
+
+        // Сумма должна попасть в верхний процентиль и заметно превышать медиану
+        return amount >= sketch.quantile(UNUSUAL_QUANTILE)
+                && amount > sketch.median() * UNUSUAL_MEDIAN_FACTOR;
+    }
+
+    /**
+     * Прогноз расходов категории на конец месяца, в котором находится today
+     */
+    public BudgetForecast forecast(Wallet wallet, String category, LocalDate today) {
+        BurnRateTracker burnRates = wallet.getBurnRates();
+        int daysRemaining = today.lengthOfMonth() - today.getDayOfMonth();
+        return new BudgetForecast(category, wallet.getBudgets().get(category), burnRates.totalSpent(category),
+                burnRates.dailyRate(category, today), daysRemaining);
+    }
+
+    /**
+     * Удаление оповещений начиная с индекса from, повторяющих непрочитанное оповещение.
+     * Нужна при повторной проверке неизмененного кошелька. Возвращает число оставшихся новых
+     */
+    int dropRepeated(Wallet wallet, int from) {
+        List<Alert> alerts = wallet.getAlerts();
+        // Сравнение по содержанию без сборки текста: непрочитанные группируются по причине
+        Map<AlertReason, List<Alert>> unread = new EnumMap<>(AlertReason.class);
+        for (int i = 0; i < from; i++) {
+            Alert alert = alerts.get(i);
+            if (!alert.isRead()) {
+                unread.computeIfAbsent(alert.getReason(), reason -> new ArrayList<>()).add(alert);
+            }
+        }
+        alerts.subList(from, alerts.size()).removeIf(alert -> {
+            for (Alert earlier : unread.getOrDefault(alert.getReason(), List.of())) {
+                if (alert.repeats(earlier)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        return alerts.size() - from;
+    }
+
+    // Создание оповещения: текст не собирается, пока оповещение не показано
+    void raise(Wallet wallet, AlertReason reason, String category, double... values) {
+        wallet.addAlert(new Alert(reason, category, values));
+        if (log.isDebugEnabled()) {
+            log.debug("Оповещение %s, категория: %s", reason, category);
+        }
+    }
+
+    /**
+     * Проверка оповещений по бюджетам
+     */
+    private void checkBudgetAlerts(Wallet wallet) {
+        for (Map.Entry<String, Double> entry : wallet.getBudgets().entrySet()) {
+            String category = entry.getKey();
+            double limit = entry.getValue();
+            double expenses = expenseByCategory(wallet, category);
+
+            if (limit > 0) {
+                double usagePercent = (expenses / limit) * 100;
+
+                // Предупреждение при 80% использования
+                if (usagePercent >= BUDGET_WARNING_PERCENT && usagePercent < 100) {
+                    double remaining = limit - expenses;
+                    if (!hasRecentAlert(wallet, AlertReason.BUDGET_WARNING, category)) {
+                        raise(wallet, AlertReason.BUDGET_WARNING, category, usagePercent, remaining);
+                    }
+                }
+
+                // Критическое предупреждение при 95% использования
+                if (usagePercent >= BUDGET_CRITICAL_PERCENT && usagePercent < 100) {
+                    double remaining = limit - expenses;
+                    if (!hasRecentAlert(wallet, AlertReason.BUDGET_CRITICAL, category)) {
+                        raise(wallet, AlertReason.BUDGET_CRITICAL, category, usagePercent, remaining);
+                    }
+                }
+
+                // Превышение бюджета
+                if (expenses > limit) {
+                    double exceededBy = expenses - limit;
+                    if (!hasRecentAlert(wallet, AlertReason.BUDGET_OVER_LIMIT, category)) {
+                        raise(wallet, AlertReason.BUDGET_OVER_LIMIT, category, exceededBy, limit, expenses);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверка оповещений по балансу
+     */
+    private void checkBalanceAlerts(Wallet wallet) {
+        double balance = wallet.getBalance();
+
+        // Низкий баланс - предупреждение
+        if (balance > 0 && balance <= LOW_BALANCE_WARNING && balance > LOW_BALANCE_CRITICAL) {
+            if (!hasRecentAlert(wallet, AlertReason.LOW_BALANCE, null)) {
+                raise(wallet, AlertReason.LOW_BALANCE, null, balance);
+            }
+        }
+
+        // Критически низкий баланс
+        if (balance > 0 && balance <= LOW_BALANCE_CRITICAL) {
+            if (!hasRecentAlert(wallet, AlertReason.CRITICAL_BALANCE, null)) {
+                raise(wallet, AlertReason.CRITICAL_BALANCE, null, balance);
+            }
+        }
+    }
+
+    /**
+     * Проверка на перерасход (расходы близки к доходам)
+     */
+    private void checkOverspendingAlert(Wallet wallet) {
+        double totalIncome = totalIncome(wallet);
+        double totalExpense = totalExpense(wallet);
+
+        if (totalIncome > 0) {
+            double expenseRatio = totalExpense / totalIncome;
+
+            if (expenseRatio >= OVERSPENDING_THRESHOLD && expenseRatio < 1.0) {
+                if (!hasRecentAlert(wallet, AlertReason.EXPENSE_RATIO, null)) {
+                    raise(wallet, AlertReason.EXPENSE_RATIO, null, expenseRatio * 100, totalExpense, totalIncome);
+                }
+            }
+
+            if (totalExpense > totalIncome) {
+                double deficit = totalExpense - totalIncome;
+                if (!hasRecentAlert(wallet, AlertReason.OVERSPENDING_CRITICAL, null)) {
+                    raise(wallet, AlertReason.OVERSPENDING_CRITICAL, null, deficit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверка на отсутствие доходов
+     */
+    private void checkIncomeAlert(Wallet wallet) {
+        if (totalIncome(wallet) == 0 && wallet.getTransactions().size() > 0) {
+            if (!hasRecentAlert(wallet, AlertReason.NO_INCOME, null)) {
+                raise(wallet, AlertReason.NO_INCOME, null);
+            }
+        }
+    }
+
+    /**
+     * Проверка нулевого баланса
+     */
+    private void checkZeroBalanceAlert(Wallet wallet) {
+        if (wallet.getBalance() == 0 && wallet.getTransactions().size() > 0) {
+            if (!hasRecentAlert(wallet, AlertReason.ZERO_BALANCE, null)) {
+                raise(wallet, AlertReason.ZERO_BALANCE, null);
+            }
+        }
+    }
+
+    /**
+     * Проверка на необычно крупные транзакции относительно истории категории
+     */
+    private void checkLargeTransactionAlert(Wallet wallet) {
+        List<Transaction> transactions = wallet.getTransactions();
+        if (transactions.isEmpty()) return;
+
+        // Получаем последнюю транзакцию
+        Transaction lastTransaction = transactions.get(transactions.size() - 1);
+
+        if (isUnusual(wallet, lastTransaction.getCategory(), lastTransaction.getAmount())) {
+            String category = lastTransaction.getCategory();
+            if (!hasRecentAlert(wallet, AlertReason.LARGE_TRANSACTION, category)) {
+                raise(wallet, AlertReason.LARGE_TRANSACTION, category, lastTransaction.getAmount());
+            }
+        }
+    }
+
+    /**
+     * Раннее предупреждение: бюджет еще не превышен, но будет превышен до конца месяца
+     */
+    private void checkBudgetForecast(Wallet wallet, String category) {
+        if (wallet.getBudgets().get(category) == null) return;
+
+        LocalDate today = LocalDate.now();
+        // Прогноз по нескольким дням истории слишком неустойчив
+        if (wallet.getBurnRates().observedDays(category, today) < MIN_FORECAST_DAYS) {
+            return;
+        }
+
+        BudgetForecast forecast = forecast(wallet, category, today);
+        if (forecast.getSpent() <= forecast.getLimit() && forecast.isProjectedToExceed()
+                && !hasUnreadAlert(wallet, AlertReason.BUDGET_FORECAST, category)) {
+            raise(wallet, AlertReason.BUDGET_FORECAST, category,
+                    forecast.getLimit(), forecast.getProjected(), forecast.getDailyRate());
+        }
+    }
+
+    private void checkForecastAlerts(Wallet wallet) {
+        for (String category : new ArrayList<>(wallet.getBudgets().keySet())) {
+            checkBudgetForecast(wallet, category);
+        }
+    }
+
+    // Проверка превышения бюджета после новой операции
+    private void checkBudgetExceeded(Wallet wallet, String category) {
+        Double budgetLimit = wallet.getBudgets().get(category);
+        if (budgetLimit == null) return;
+
+        double currentExpenses = expenseByCategory(wallet, category);
+        double budgetUsage = currentExpenses / budgetLimit;
+
+        // Предупреждение при достижении 80% бюджета
+        if (budgetUsage >= BUDGET_WARNING_THRESHOLD && budgetUsage < 1.0) {
+            double remaining = budgetLimit - currentExpenses;
+            raise(wallet, AlertReason.BUDGET_USAGE, category, budgetUsage * 100, remaining);
+        }
+
+        // Оповещение о превышении бюджета
+        if (currentExpenses > budgetLimit) {
+            double exceededBy = currentExpenses - budgetLimit;
+            raise(wallet, AlertReason.BUDGET_EXCEEDED, category, budgetLimit, currentExpenses, exceededBy);
+        }
+    }
+
+    // Проверка общего финансового здоровья
+    private void checkOverallFinancialHealth(Wallet wallet) {
+        double totalIncome = totalIncome(wallet);
+        double totalExpense = totalExpense(wallet);
+
+        if (totalExpense > totalIncome) {
+            double deficit = totalExpense - totalIncome;
+            raise(wallet, AlertReason.DEFICIT, null, deficit, totalIncome, totalExpense);
+        }
+    }
+
+    // Проверка низкого баланса
+    private void checkLowBalance(Wallet wallet) {
+        double balance = wallet.getBalance();
+        if (balance < LOW_BALANCE_THRESHOLD) {
+            raise(wallet, AlertReason.LOW_BALANCE, null, balance);
+        }
+    }
+
+    /**
+     * Проверка наличия непрочитанного оповещения по причине и категории
+     */
+    private boolean hasUnreadAlert(Wallet wallet, AlertReason reason, String category) {
+        for (Alert alert : wallet.getAlerts()) {
+            if (!alert.isRead() && alert.hasKey(reason, category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверка, было ли недавнее оповещение с такой причиной и категорией
+     */
+    private boolean hasRecentAlert(Wallet wallet, AlertReason reason, String category) {
+        List<Alert> alerts = wallet.getAlerts();
+        if (alerts.isEmpty()) return false;
+
+        // Проверяем последние 10 оповещений
+        int start = Math.max(0, alerts.size() - 10);
+        for (int i = start; i < alerts.size(); i++) {
+            if (alerts.get(i).hasKey(reason, category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double totalIncome(Wallet wallet) {
+        return wallet.sumAmounts(TransactionType.INCOME, null);
+    }
+
+    private static double totalExpense(Wallet wallet) {
+        return wallet.sumAmounts(TransactionType.EXPENSE, null);
+    }
+
+    private static List<String> budgetsCovering(Wallet wallet, String category) {
+        String path = CategoryTree.normalize(category);
+        List<String> result = new ArrayList<>();
+        for (String budgeted : wallet.getBudgets().keySet()) {
+            String prefix = CategoryTree.normalize(budgeted);
+            if (path.equals(prefix) || path.startsWith(prefix + CategoryTree.SEPARATOR)) {
+                result.add(budgeted);
+            }
+        }
+        return result;
+    }
+
+    // Бюджет категории учитывает и расходы вложенных категорий
+    private static double expenseByCategory(Wallet wallet, String category) {
+        return wallet.getSubtreeExpense(category);
+    }
+}
@@ -0,0 +1,37 @@
+package nes.finance.service;
+
+/**
+ * Результат фоновой проверки оповещений по всем пользователям
+ */
+public class AlertSweepResult {
+    private final boolean fullSweep;
+    private final int checkedCount;
+    private final int unchangedCount;
+    private final int timedOutCount;
+    private final int failedCount;
+    private final int alertsRaised;
+    private final int savedCount;
+    private final long elapsedMillis;
+
+    public AlertSweepResult(boolean fullSweep, int checkedCount, int unchangedCount, int timedOutCount,
+                            int failedCount, int alertsRaised, int savedCount, long elapsedMillis) {
+        this.fullSweep = fullSweep;
+        this.checkedCount = checkedCount;
+        this.unchangedCount = unchangedCount;
+        this.timedOutCount = timedOutCount;
+        this.failedCount = failedCount;
+        this.alertsRaised = alertsRaised;
+        this.savedCount = savedCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // Getters
+    public boolean isFullSweep() { return fullSweep; }
+    public int getCheckedCount() { return checkedCount; }
+    public int getUnchangedCount() { return unchangedCount; }
+    public int getTimedOutCount() { return timedOutCount; }
+    public int getFailedCount() { return failedCount; }
+    public int getAlertsRaised() { return alertsRaised; }
+    public int getSavedCount() { return savedCount; }
+    public long getElapsedMillis() { return elapsedMillis; }
+}
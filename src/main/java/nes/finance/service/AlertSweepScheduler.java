@@ -0,0 +1,371 @@
+package nes.finance.service;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.User;
+import nes.finance.model.Wallet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Периодическая проверка оповещений по кошелькам всех пользователей: сохраненных в
+ * каталоге данных и загруженных в памяти.
+ *
+ * Кошельки, изменившиеся с прошлой проверки (по счетчику изменений, бюджетам и балансу,
+ * для не загруженных в памяти - по времени изменения и размеру файла), проверяются
+ * в каждом проходе и первыми; неизмененные - только в полном проходе,
+ * раз в fullSweepEvery проходов. Проверки выполняет пул из workers потоков, на каждого
+ * пользователя отводится userBudgetMillis: по истечении времени проверка прерывается,
+ * кошелек не сохраняется и остается в очереди измененных. Новые оповещения сохраняются
+ * в файл пользователя. Кошелек вошедшего пользователя не проверяется: его оповещения
+ * создает FinancialService.
+ *
+ * Кошелек, которого нет в памяти, загружается на время проверки и регистрируется в
+ * AuthService, чтобы вход в систему дождался ее окончания; в памяти одновременно не
+ * больше maxResidentWallets таких кошельков, как в сводном отчете.
+ */
+public class AlertSweepScheduler {
+    private static final Logger log = LoggerFactory.getLogger(AlertSweepScheduler.class);
+
+    public static final long DEFAULT_USER_BUDGET_MILLIS = 2000;
+    public static final int DEFAULT_FULL_SWEEP_EVERY = 12;
+
+    private final AuthService authService;
+    private final DataService dataService;
+    private final AlertChecker alertChecker;
+    private final int workers;
+    private final long userBudgetMillis;
+    private final int fullSweepEvery;
+    private final int maxResidentWallets;
+    private final Semaphore residentWallets;
+
+    // Отпечаток кошелька на момент последней завершенной проверки
+    private final Map<String, Long> fingerprints = new ConcurrentHashMap<>();
+    // Отметка файла пользователя, не загруженного в памяти, после последней завершенной проверки
+    private final Map<String, Long> fileStamps = new ConcurrentHashMap<>();
+    private final Object sweepLock = new Object();
+    private long sweepCount;
+    private ScheduledExecutorService timer;
+
+    public AlertSweepScheduler(AuthService authService) {
+        this(authService, Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                DEFAULT_USER_BUDGET_MILLIS, DEFAULT_FULL_SWEEP_EVERY);
+    }
+
+    public AlertSweepScheduler(AuthService authService, int workers, long userBudgetMillis, int fullSweepEvery) {
+        this(authService, workers, userBudgetMillis, fullSweepEvery, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public AlertSweepScheduler(AuthService authService, int workers, long userBudgetMillis, int fullSweepEvery,
+                               int maxResidentWallets) {
+        if (workers <= 0 || userBudgetMillis <= 0 || fullSweepEvery <= 0 || maxResidentWallets <= 0) {
+            throw new IllegalArgumentException("Число потоков, лимит времени, период полной проверки и лимит кошельков " +
+                    "должны быть положительными");
+        }
+        this.authService = authService;
+        this.dataService = authService.getDataService();
+        this.alertChecker = new AlertChecker();
+        this.workers = workers;
+        this.userBudgetMillis = userBudgetMillis;
+        this.fullSweepEvery = fullSweepEvery;
+        this.maxResidentWallets = maxResidentWallets;
+        this.residentWallets = new Semaphore(maxResidentWallets);
+    }
+
+    public int getWorkers() { return workers; }
+    public long getUserBudgetMillis() { return userBudgetMillis; }
+    public int getFullSweepEvery() { return fullSweepEvery; }
+    public int getMaxResidentWallets() { return maxResidentWallets; }
+
+    /**
+     * Запуск периодической проверки. Возвращает false, если она уже запущена
+     */
+    public synchronized boolean start(long period, TimeUnit unit) {
+        if (timer != null) {
+            return false;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("finance-alert-sweep"));
+        timer.scheduleWithFixedDelay(this::scheduledSweep, period, period, unit);
+        log.debug("Фоновая проверка оповещений запущена, период %d %s", period, unit);
+        return true;
+    }
+
+    /**
+     * Остановка периодической проверки; текущий проход прерывается
+     */
+    public synchronized void stop() {
+        if (timer == null) {
+            return;
+        }
+        timer.shutdownNow();
+        try {
+            timer.awaitTermination(userBudgetMillis * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        timer = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return timer != null;
+    }
+
+    /**
+     * Немедленный проход проверки. Параллельные вызовы выполняются по очереди
+     */
+    public AlertSweepResult sweepNow() {
+        synchronized (sweepLock) {
+            long started = System.nanoTime();
+            boolean fullSweep = sweepCount++ % fullSweepEvery == 0;
+
+            Map<String, User> users = authService.getUsers();
+            Set<String> logins = new LinkedHashSet<>();
+            for (String name : dataService.getAllSavedUsers()) {
+                String login = DataService.loginFromFileName(name + DataService.FILE_EXTENSION);
+                if (login != null) {
+                    logins.add(login);
+                }
+            }
+            logins.addAll(users.keySet());
+            fingerprints.keySet().retainAll(users.keySet());
+            fileStamps.keySet().retainAll(logins);
+
+            List<String> changed = new ArrayList<>();
+            List<String> unchanged = new ArrayList<>();
+            for (String login : logins) {
+                User user = users.get(login);
+                if (user == null) {
+                    // Кошелек вошедшего пользователя загружается входом в систему
+                    if (login.equals(authService.getCurrentLogin())) {
+                        continue;
+                    }
+                    Long previous = fileStamps.get(login);
+                    if (previous == null || previous != dataService.getFileStamp(login)) {
+                        changed.add(login);
+                    } else {
+                        unchanged.add(login);
+                    }
+                    continue;
+                }
+                // Кошелек вошедшего пользователя изменяется без блокировки: не читаем его
+                synchronized (user) {
+                    if (authService.isCurrentUser(user)) {
+                        continue;
+                    }
+                    Long previous = fingerprints.get(login);
+                    if (previous == null || previous != fingerprint(user)) {
+                        changed.add(login);
+                    } else {
+                        unchanged.add(login);
+                    }
+                }
+            }
+
+            // Пул выполняет задачи в порядке очереди: измененные кошельки проверяются первыми
+            List<String> queue = new ArrayList<>(changed);
+            if (fullSweep) {
+                queue.addAll(unchanged);
+            }
+
+            Tally tally = new Tally();
+            if (!queue.isEmpty()) {
+                runChecks(queue, tally);
+            }
+
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            AlertSweepResult result = new AlertSweepResult(fullSweep, tally.checked.get(),
+                    fullSweep ? 0 : unchanged.size(), tally.timedOut.get(), tally.failed.get(),
+                    tally.alerts.get(), tally.saved.get(), elapsedMillis);
+            log.info("Фоновая проверка оповещений: проверено %d, без изменений %d, прервано %d, " +
+                            "новых оповещений %d, %d мс", result.getCheckedCount(), result.getUnchangedCount(),
+                    result.getTimedOutCount(), result.getAlertsRaised(), elapsedMillis);
+            return result;
+        }
+    }
+
+    private void scheduledSweep() {
+        try {
+            sweepNow();
+        } catch (RuntimeException e) {
+            // Исключение отменило бы все следующие запуски
+            log.error("Ошибка фоновой проверки оповещений: %s", e.getMessage());
+        }
+    }
+
+    private void runChecks(List<String> queue, Tally tally) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, queue.size()),
+                daemonThreads("finance-alert-worker"));
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+                daemonThreads("finance-alert-watchdog"));
+        try {
+            List<FutureTask<Void>> tasks = new ArrayList<>();
+            for (String login : queue) {
+                FutureTask<Void> task = new FutureTask<>(() -> checkLogin(login, tally), null);
+                tasks.add(task);
+                // Время отсчитывается с начала проверки, а не с постановки в очередь
+                pool.execute(() -> {
+                    ScheduledFuture<?> deadline = watchdog.schedule(() -> task.cancel(true),
+                            userBudgetMillis, TimeUnit.MILLISECONDS);
+                    try {
+                        task.run();
+                    } finally {
+                        deadline.cancel(false);
+                    }
+                });
+            }
+
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    tasks.get(i).get();
+                } catch (CancellationException e) {
+                    tally.timedOut.incrementAndGet();
+                    log.warn("Проверка оповещений пользователя %s прервана по времени", queue.get(i));
+                } catch (ExecutionException e) {
+                    tally.failed.incrementAndGet();
+                    log.error("Ошибка проверки оповещений пользователя %s: %s",
+                            queue.get(i), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+            watchdog.shutdownNow();
+        }
+    }
+
+    private void checkLogin(String login, Tally tally) {
+        User user = authService.getUsers().get(login);
+        if (user != null) {
+            checkResident(user, tally);
+        } else {
+            checkSaved(login, tally);
+        }
+    }
+
+    /**
+     * Проверка пользователя, загруженного в памяти. Блокировка пользователя не дает ему
+     * войти в систему посреди проверки; вошедший или удаленный пользователь пропускается
+     */
+    private void checkResident(User user, Tally tally) {
+        synchronized (user) {
+            if (isSkipped(user)) {
+                return;
+            }
+            if (checkUser(user, tally)) {
+                fingerprints.put(user.getLogin(), fingerprint(user));
+            }
+        }
+    }
+
+    /**
+     * Проверка пользователя, которого нет в памяти. Кошелек регистрируется в AuthService
+     * на время проверки и выгружается после нее, если пользователь не вошел в систему
+     */
+    private void checkSaved(String login, Tally tally) {
+        residentWallets.acquireUninterruptibly();
+        try {
+            User loaded = dataService.loadUserDataForRead(login);
+            if (loaded == null) {
+                // Прерванная загрузка учитывается как превышение времени
+                if (!Thread.currentThread().isInterrupted()) {
+                    tally.failed.incrementAndGet();
+                }
+                return;
+            }
+            User existing = authService.getUsers().putIfAbsent(login, loaded);
+            if (existing != null) {
+                // Пользователь вошел в систему, пока кошелек загружался
+                checkResident(existing, tally);
+                return;
+            }
+            synchronized (loaded) {
+                try {
+                    if (!isSkipped(loaded) && checkUser(loaded, tally)) {
+                        fileStamps.put(login, dataService.getFileStamp(login));
+                    }
+                } finally {
+                    if (!authService.isCurrentUser(loaded)) {
+                        authService.getUsers().remove(login, loaded);
+                    }
+                }
+            }
+        } finally {
+            residentWallets.release();
+        }
+    }
+
+    // Вошедший или удаленный пользователь не проверяется; вызывается под блокировкой пользователя
+    private boolean isSkipped(User user) {
+        return authService.isCurrentUser(user) || authService.getUsers().get(user.getLogin()) != user;
+    }
+
+    /**
+     * Проверка кошелька под блокировкой пользователя. Возвращает true, если проверка
+     * завершена и новые оповещения сохранены
+     */
+    private boolean checkUser(User user, Tally tally) {
+        Wallet wallet = user.getWallet();
+        int alertsBefore = wallet.getAlerts().size();
+        alertChecker.checkAll(wallet);
+        // Неизмененный кошелек дает те же сообщения: повторы непрочитанных не добавляем
+        int raised = alertChecker.dropRepeated(wallet, alertsBefore);
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+
+        tally.checked.incrementAndGet();
+        if (raised > 0) {
+            tally.alerts.addAndGet(raised);
+            if (dataService.saveUserData(user)) {
+                tally.saved.incrementAndGet();
+            } else {
+                tally.failed.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Отпечаток меняется при изменении транзакций, бюджетов или баланса
+    private static long fingerprint(User user) {
+        Wallet wallet = user.getWallet();
+        long hash = wallet.getChangeCount();
+        hash = 31 * hash + wallet.getBudgets().hashCode();
+        hash = 31 * hash + Double.hashCode(wallet.getBalance());
+        return hash;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger number = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Tally {
+        final AtomicInteger checked = new AtomicInteger();
+        final AtomicInteger timedOut = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger alerts = new AtomicInteger();
+        final AtomicInteger saved = new AtomicInteger();
+    }
+}
@@ -1,21 +1,52 @@
 package nes.finance.service;
 
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
 import nes.finance.model.User;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class AuthService {
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+    /** Логины администраторов через запятую (по умолчанию admin) */
+    public static final String ADMINS_PROPERTY = "finance.admins";
+    private static final String DEFAULT_ADMINS = "admin";
+    // Общие потоки подготовки кошельков для всех сеансов
+    private static final ExecutorService HYDRATION = Executors.newCachedThreadPool(hydrationThreads());
+
+    // Загруженные в память пользователи: кошелек читается с диска при входе.
+    // Их же проверяет фоновая проверка оповещений (AlertSweepScheduler)
     private Map<String, User> users;
-    private User currentUser;
+    // Вошедший пользователь: завершается, когда его кошелек загружен и подготовлен
+    private volatile CompletableFuture<User> hydration;
+    private volatile String currentLogin;
     private DataService dataService;
 
     public AuthService() {
-        this.users = new HashMap<>();
-        this.currentUser = null;
-        this.dataService = new DataService();
+        this(new DataService());
+    }
 
-        // Загружаем список сохраненных пользователей
-        loadAllUsers();
+    public AuthService(DataService dataService) {
+        this.users = new ConcurrentHashMap<>();
+        this.hydration = null;
+        this.dataService = dataService;
+    }
+
+    /**
+     * Сеанс с общим набором пользователей (например, несколько сеансов одного узла кластера).
+     * users содержит уже загруженных пользователей и пополняется при входе
+     */
+    public AuthService(DataService dataService, Map<String, User> users) {
+        this.users = users;
+        this.hydration = null;
+        this.dataService = dataService;
     }
 
     /**
@@ -23,17 +54,14 @@ public class AuthService {
      */
     public boolean register(String login, String password) {
         if (users.containsKey(login)) {
-            System.out.println("Ошибка: пользователь с таким логином уже существует");
+            log.debug("Регистрация отклонена: логин '%s' уже занят", login);
             return false;
         }
 
-        // Проверяем, есть ли сохраненные данные для этого пользователя
-        User existingUser = dataService.loadUserData(login);
-        if (existingUser != null) {
-            // Пользователь уже существует в файловой системе
-            users.put(login, existingUser);
-            System.out.println("Восстановлены сохраненные данные для пользователя: " + login);
-            return true;
+        // Сохраненный пользователь загружается только при входе
+        if (dataService.userDataExists(login)) {
+            log.debug("Регистрация отклонена: логин '%s' уже сохранен", login);
+            return false;
         }
 
         // Создаем нового пользователя
@@ -42,7 +70,7 @@ public class AuthService {
 
         // Сохраняем нового пользователя
         dataService.saveUserData(newUser);
-        System.out.println("Пользователь " + login + " успешно зарегистрирован");
+        log.info("Пользователь %s успешно зарегистрирован", login);
         return true;
     }
 
@@ -50,94 +78,184 @@ public class AuthService {
      * Авторизация пользователя
      */
     public boolean login(String login, String password) {
-        // Сначала проверяем в памяти
+        return login(login, password, null);
+    }
+
+    /**
+     * Авторизация с подготовкой кошелька в фоне. Возвращается сразу после проверки
+     * пароля (для пользователя не в памяти читается только заголовок файла): загрузка
+     * кошелька и warmUp выполняются фоновым потоком под блокировкой пользователя.
+     * getCurrentUser дожидается готовности кошелька
+     */
+    public boolean login(String login, String password, Consumer<User> warmUp) {
         User user = users.get(login);
+        String expected = user != null ? user.getPassword() : dataService.readPassword(login);
+        if (expected == null || !expected.equals(password)) {
+            log.debug("Неудачная попытка входа: %s", login);
+            return false;
+        }
 
-        // Если пользователя нет в памяти, пробуем загрузить из файла
-        if (user == null) {
-            user = dataService.loadUserData(login);
-            if (user != null) {
-                users.put(login, user);
+        if (user != null && warmUp == null) {
+            // Дожидаемся фоновой проверки кошелька, если она идет прямо сейчас
+            synchronized (user) {
+                // Кошелек, временно загруженный фоновой проверкой, остается в памяти
+                users.putIfAbsent(login, user);
+                currentLogin = login;
+                hydration = CompletableFuture.completedFuture(user);
             }
+        } else {
+            User known = user;
+            currentLogin = login;
+            hydration = CompletableFuture.supplyAsync(() -> hydrate(login, known, warmUp), HYDRATION);
         }
+        log.info("Вход пользователя %s", login);
+        return true;
+    }
 
-        if (user != null && user.getPassword().equals(password)) {
-            currentUser = user;
-            System.out.println("Успешный вход! Добро пожаловать, " + login);
-            return true;
+    // Загрузка кошелька, если его нет в памяти, и подготовка. null - загрузка не удалась
+    private User hydrate(String login, User known, Consumer<User> warmUp) {
+        User user = known;
+        if (user != null) {
+            // Кошелек фоновой проверки мог быть выгружен после чтения users
+            users.putIfAbsent(login, user);
+        } else {
+            User loaded = dataService.loadUserData(login);
+            if (loaded == null) {
+                log.error("Не удалось загрузить данные пользователя %s", login);
+                return null;
+            }
+            User existing = users.putIfAbsent(login, loaded);
+            user = existing != null ? existing : loaded;
         }
-
-        System.out.println("Ошибка: неверный логин или пароль");
-        return false;
+        if (warmUp != null) {
+            synchronized (user) {
+                try {
+                    warmUp.accept(user);
+                } catch (RuntimeException e) {
+                    // Кошелек загружен: ошибка подготовки не мешает работе
+                    log.error("Ошибка подготовки кошелька %s: %s", login, e.getMessage());
+                }
+            }
+        }
+        return user;
     }
 
     /**
      * Выход пользователя с сохранением данных
      */
     public boolean logout() {
-        if (currentUser != null) {
-            // Сохраняем данные перед выходом
-            dataService.saveUserData(currentUser);
-            System.out.println("Данные пользователя сохранены");
-            currentUser = null;
+        User user = getCurrentUser();
+        if (user != null) {
+            synchronized (user) {
+                // Сохраняем данные перед выходом
+                dataService.saveUserData(user);
+                log.debug("Данные пользователя %s сохранены при выходе", user.getLogin());
+                clearCurrent();
+            }
             return true;
         }
         return false;
     }
 
+    private void clearCurrent() {
+        hydration = null;
+        currentLogin = null;
+    }
+
     /**
      * Удаление пользователя
      */
     public boolean deleteUser(String login, String password) {
-        if (!users.containsKey(login)) {
-            System.out.println("Ошибка: пользователь не найден");
+        User user = users.get(login);
+        String expected = user != null ? user.getPassword() : dataService.readPassword(login);
+        if (expected == null) {
+            log.warn("Ошибка: пользователь %s не найден", login);
             return false;
         }
-
-        User user = users.get(login);
-        if (!user.getPassword().equals(password)) {
-            System.out.println("Ошибка: неверный пароль");
+        if (!expected.equals(password)) {
+            log.warn("Ошибка: неверный пароль для пользователя %s", login);
             return false;
         }
 
         // Удаляем из памяти
-        users.remove(login);
+        if (user != null) {
+            synchronized (user) {
+                users.remove(login);
+            }
+        }
 
         // Удаляем текущего пользователя, если это он
-        if (currentUser != null && currentUser.getLogin().equals(login)) {
-            currentUser = null;
+        if (login.equals(currentLogin)) {
+            clearCurrent();
         }
 
         // Удаляем файл с данными
         boolean deleted = dataService.deleteUserData(login);
         if (deleted) {
-            System.out.println("Пользователь " + login + " удален");
+            log.info("Пользователь %s удален", login);
         } else {
-            System.out.println("Пользователь удален из памяти, но файл данных не найден");
+            log.warn("Пользователь %s удален из памяти, но файл данных не найден", login);
         }
 
         return deleted;
     }
 
     /**
-     * Загрузка всех пользователей из файловой системы
+     * Пароль проверен; кошелек может еще загружаться
      */
-    private void loadAllUsers() {
-        for (String login : dataService.getAllSavedUsers()) {
-            User user = dataService.loadUserData(login);
-            if (user != null) {
-                users.put(login, user);
-            }
+    public boolean isAuthenticated() {
+        CompletableFuture<User> current = hydration;
+        return current != null && !(current.isDone() && current.join() == null);
+    }
+
+    /**
+     * Кошелек вошедшего пользователя загружен и подготовлен (или вход не выполнен)
+     */
+    public boolean isWalletReady() {
+        CompletableFuture<User> current = hydration;
+        return current == null || current.isDone();
+    }
+
+    /**
+     * Вошел ли администратор (логин из свойства finance.admins)
+     */
+    public boolean isAdmin() {
+        String login = currentLogin;
+        if (login == null || !isAuthenticated()) {
+            return false;
         }
-        System.out.println("Загружено пользователей из файлов: " + users.size());
+        String admins = System.getProperty(ADMINS_PROPERTY, DEFAULT_ADMINS);
+        return Arrays.stream(admins.split(",")).map(String::trim).anyMatch(login::equals);
     }
 
-    public boolean isAuthenticated() {
-        return currentUser != null;
+    /**
+     * Логин вошедшего пользователя без ожидания загрузки кошелька
+     */
+    public String getCurrentLogin() {
+        return currentLogin;
+    }
+
+    /**
+     * Проверка без ожидания загрузки: вошел ли пользователь user в этом сеансе
+     */
+    public boolean isCurrentUser(User user) {
+        return user.getLogin().equals(currentLogin);
     }
 
+    /**
+     * Вошедший пользователь; при фоновой загрузке кошелька - после ее завершения
+     */
     public User getCurrentUser() {
-        return currentUser;
+        CompletableFuture<User> current = hydration;
+        if (current == null) {
+            return null;
+        }
+        User user = current.join();
+        if (user == null && hydration == current) {
+            // Загрузка не удалась: вход отменяется
+            clearCurrent();
+        }
+        return user;
     }
 
     public Map<String, User> getUsers() {
@@ -147,4 +265,13 @@ public class AuthService {
     public DataService getDataService() {
         return dataService;
     }
+
+    private static ThreadFactory hydrationThreads() {
+        AtomicInteger number = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "finance-wallet-hydration-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
\ No newline at end of file
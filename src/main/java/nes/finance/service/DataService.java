@@ -5,25 +5,58 @@ import nes.finance.model.Wallet;
 import nes.finance.model.Transaction;
 import nes.finance.model.Alert;
 import nes.finance.model.TransactionType;
+import nes.finance.model.AlertReason;
 import nes.finance.model.AlertType;
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.monitoring.PersistenceEvent;
+import nes.finance.stats.BurnRateTracker;
+import nes.finance.stats.KllSketch;
+import nes.finance.stats.RoaringBitmap;
 
 import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataService {
-    private static final String DATA_DIR = "data";
-    private static final String FILE_EXTENSION = ".dat";
+    private static final Logger log = LoggerFactory.getLogger(DataService.class);
+    public static final String DEFAULT_DATA_DIR = "data";
+    public static final String FILE_EXTENSION = ".dat";
+    // Файл пишется под временным именем и затем атомарно заменяет прежний,
+    // чтобы читатели каталога (режим отчетов) никогда не видели файл наполовину
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String BACKUP_SUFFIX = "_backup";
+    private static final String SECTION_CATEGORY_SKETCHES = "category_sketches";
+    private static final String SECTION_BURN_RATES = "burn_rates";
+    private static final String SECTION_TAGS = "tags";
+    private static final String SECTION_ALERTS = "alerts";
+    // Байт причины, номер категории, число параметров, время и признак прочтения
+    private static final int MIN_ALERT_BYTES = 1 + 4 + 1 + 8 + 1;
+
+    private final String dataDir;
+    // Блокировки файлов пользователей: замена файла и оповещение получателя идут вместе
+    private final Map<String, Object> fileLocks = new ConcurrentHashMap<>();
+    private volatile PersistenceListener listener;
+    private final TopSpendingService topSpending;
 
     public DataService() {
+        this(DEFAULT_DATA_DIR);
+    }
+
+    public DataService(String dataDir) {
+        this.dataDir = dataDir;
+        this.topSpending = new TopSpendingService(dataDir);
         // Создаем директорию для данных, если она не существует
         try {
-            Files.createDirectories(Paths.get(DATA_DIR));
+            Files.createDirectories(Paths.get(dataDir));
         } catch (IOException e) {
-            System.err.println("Не удалось создать директорию для данных: " + e.getMessage());
+            log.error("Не удалось создать директорию для данных: %s", e.getMessage());
         }
     }
 
@@ -32,14 +65,48 @@ public class DataService {
      */
     public boolean saveUserData(User user) {
         if (user == null || user.getLogin() == null) {
-            System.out.println("Ошибка: неверные данные пользователя для сохранения");
+            log.warn("Ошибка: неверные данные пользователя для сохранения");
             return false;
         }
 
         String fileName = getFileName(user.getLogin());
+        Path tempFile = Paths.get(fileName + TEMP_EXTENSION);
+        PersistenceEvent event = new PersistenceEvent("save");
+        event.begin();
+        boolean saved = false;
+
+        try {
+            writeUserFile(user, tempFile);
+            replaceFile(user.getLogin(), tempFile);
+            if (log.isDebugEnabled()) {
+                log.debug("Данные пользователя '%s' успешно сохранены", user.getLogin());
+            }
+            saved = true;
+            // Расходы попадают в лидеров после того, как записаны в файл
+            topSpending.record(user.getLogin(), user.getWallet().takeUncommittedTransactions());
+        } catch (IOException e) {
+            log.error("Ошибка при сохранении данных пользователя %s: %s", user.getLogin(), e.getMessage());
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // Временный файл будет перезаписан при следующем сохранении
+            }
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setUser(user.getLogin());
+                event.setTransactionCount(user.getWallet().getTransactions().size());
+                event.setBytes(new File(fileName).length());
+                event.setSuccess(saved);
+                event.commit();
+            }
+        }
+        return saved;
+    }
 
+    private void writeUserFile(User user, Path file) throws IOException {
         try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(fileName))) {
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
 
             // Сохраняем данные пользователя
             oos.writeObject(user.getLogin());
@@ -67,29 +134,136 @@ public class DataService {
                 oos.writeDouble(entry.getValue());
             }
 
-            // Сохраняем оповещения
-            List<Alert> alerts = wallet.getAlerts();
-            oos.writeInt(alerts.size());
-            for (Alert alert : alerts) {
-                oos.writeObject(alert.getType());
-                oos.writeObject(alert.getMessage());
-                oos.writeObject(alert.getTimestamp());
-                oos.writeBoolean(alert.isRead());
+            // Оповещения записываются в раздел alerts в компактном виде;
+            // список старого формата остается пустым
+            oos.writeInt(0);
+
+            // Дополнительные разделы (статистика и т.п.) записываются после основных данных
+            writeSections(oos, wallet);
+        }
+    }
+
+    // Замена файла пользователя и оповещение получателя изменений под блокировкой логина,
+    // чтобы получатель видел изменения в порядке замены файлов
+    private void replaceFile(String login, Path tempFile) throws IOException {
+        Path target = Paths.get(getFileName(login));
+        synchronized (fileLock(login)) {
+            moveIntoPlace(tempFile, target);
+            PersistenceListener current = listener;
+            if (current != null) {
+                current.userSaved(login, Files.readAllBytes(target));
             }
+        }
+    }
 
-            System.out.printf("Данные пользователя '%s' успешно сохранены%n", user.getLogin());
-            return true;
+    private Object fileLock(String login) {
+        return fileLocks.computeIfAbsent(login, key -> new Object());
+    }
 
+    /**
+     * Получатель изменений каталога данных (null - без оповещений)
+     */
+    public void setPersistenceListener(PersistenceListener listener) {
+        this.listener = listener;
+    }
+
+    // Замена файла одним переименованием; без атомарного переноса - обычная замена
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Содержимое файла пользователя без разбора (для переноса между каталогами)
+     * или null, если файла нет или его не удалось прочитать
+     */
+    public byte[] readRawUserData(String login) {
+        Path file = Paths.get(getFileName(login));
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file);
         } catch (IOException e) {
-            System.err.println("Ошибка при сохранении данных пользователя: " + e.getMessage());
+            log.error("Ошибка при чтении файла пользователя %s: %s", login, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Запись файла пользователя, полученного readRawUserData, с атомарной заменой
+     */
+    public boolean writeRawUserData(String login, byte[] data) {
+        Path tempFile = Paths.get(getFileName(login) + TEMP_EXTENSION);
+        try {
+            Files.write(tempFile, data);
+            replaceFile(login, tempFile);
+            return true;
+        } catch (IOException e) {
+            log.error("Ошибка при записи файла пользователя %s: %s", login, e.getMessage());
             return false;
         }
     }
 
+    /**
+     * Каталог файлов пользователей
+     */
+    public String getDataDir() { return dataDir; }
+
+    /**
+     * Лидеры расходов по пользователям каталога
+     */
+    public TopSpendingService getTopSpending() { return topSpending; }
+
+    /**
+     * Логин по имени файла данных или null, если это не файл пользователя
+     * (временный файл сохранения, резервная копия)
+     */
+    public static String loginFromFileName(String fileName) {
+        if (!fileName.endsWith(FILE_EXTENSION) || fileName.endsWith(BACKUP_SUFFIX + FILE_EXTENSION)) {
+            return null;
+        }
+        String login = fileName.substring(0, fileName.length() - FILE_EXTENSION.length());
+        return login.isEmpty() ? null : login;
+    }
+
+    /**
+     * Пароль из заголовка файла пользователя без загрузки кошелька
+     * или null, если файла нет или его не удалось прочитать
+     */
+    public String readPassword(String login) {
+        if (login == null || login.trim().isEmpty() || !userDataExists(login)) {
+            return null;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(getFileName(login))))) {
+            ois.readObject();
+            return (String) ois.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.error("Ошибка при чтении заголовка файла пользователя %s: %s", login, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Загружает данные пользователя из файла
      */
     public User loadUserData(String login) {
+        return loadUserData(login, true);
+    }
+
+    /**
+     * Загрузка кошелька для однократного чтения (сводный отчет, сверка): старая
+     * история не запечатывается в сегменты вне кучи
+     */
+    public User loadUserDataForRead(String login) {
+        return loadUserData(login, false);
+    }
+
+    private User loadUserData(String login, boolean sealHistory) {
         if (login == null || login.trim().isEmpty()) {
             return null;
         }
@@ -98,10 +272,14 @@ public class DataService {
         File file = new File(fileName);
 
         if (!file.exists()) {
-            System.out.println("Файл с данными пользователя не найден. Будет создан новый кошелек.");
+            log.debug("Файл с данными пользователя '%s' не найден", login);
             return null;
         }
 
+        PersistenceEvent event = new PersistenceEvent("load");
+        event.begin();
+        User loaded = null;
+
         try (ObjectInputStream ois = new ObjectInputStream(
                 new FileInputStream(fileName))) {
 
@@ -111,10 +289,16 @@ public class DataService {
 
             User user = new User(loadedLogin, password);
             Wallet wallet = user.getWallet();
+            if (!sealHistory) {
+                wallet.deferSealing();
+            }
 
             // Загружаем баланс
             wallet.setBalance(ois.readDouble());
 
+            // Производные структуры не обновляются по каждой транзакции: они восстанавливаются из файла
+            wallet.beginBulkLoad();
+
             // Загружаем транзакции
             int transactionCount = ois.readInt();
             for (int i = 0; i < transactionCount; i++) {
@@ -123,11 +307,7 @@ public class DataService {
                 String category = (String) ois.readObject();
                 LocalDateTime date = (LocalDateTime) ois.readObject();
 
-                // Создаем транзакцию
-                Transaction transaction = new Transaction(type, amount, category);
-                // Устанавливаем дату (требует изменения в классе Transaction)
-                setTransactionDate(transaction, date);
-                wallet.getTransactions().add(transaction);
+                wallet.getTransactions().add(new Transaction(type, amount, category, date));
             }
 
             // Загружаем бюджеты
@@ -146,21 +326,30 @@ public class DataService {
                 LocalDateTime timestamp = (LocalDateTime) ois.readObject();
                 boolean isRead = ois.readBoolean();
 
-                Alert alert = new Alert(type, message);
-                setAlertTimestamp(alert, timestamp);
-                if (isRead) {
-                    alert.markAsRead();
-                }
-                wallet.getAlerts().add(alert);
+                wallet.getAlerts().add(new Alert(type, message, timestamp, isRead));
             }
 
-            System.out.printf("Данные пользователя '%s' успешно загружены%n", login);
-            return user;
+            readSections(ois, wallet);
+            wallet.endBulkLoad();
+
+            if (log.isDebugEnabled()) {
+                log.debug("Данные пользователя '%s' успешно загружены", login);
+            }
+            loaded = user;
 
         } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Ошибка при загрузке данных пользователя: " + e.getMessage());
-            return null;
+            log.error("Ошибка при загрузке данных пользователя %s: %s", login, e.getMessage());
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setUser(login);
+                event.setTransactionCount(loaded != null ? loaded.getWallet().getTransactions().size() : 0);
+                event.setBytes(file.length());
+                event.setSuccess(loaded != null);
+                event.commit();
+            }
         }
+        return loaded;
     }
 
     /**
@@ -170,10 +359,16 @@ public class DataService {
         String fileName = getFileName(login);
         File file = new File(fileName);
 
-        if (file.exists()) {
-            return file.delete();
+        synchronized (fileLock(login)) {
+            if (!file.exists() || !file.delete()) {
+                return false;
+            }
+            PersistenceListener current = listener;
+            if (current != null) {
+                current.userDeleted(login);
+            }
+            return true;
         }
-        return false;
     }
 
     /**
@@ -185,12 +380,20 @@ public class DataService {
         return file.exists();
     }
 
+    /**
+     * Отметка версии файла пользователя (время изменения и размер); 0, если файла нет
+     */
+    public long getFileStamp(String login) {
+        File file = new File(getFileName(login));
+        return file.exists() ? 31 * file.lastModified() + file.length() : 0;
+    }
+
     /**
      * Получает список всех сохраненных пользователей
      */
     public List<String> getAllSavedUsers() {
         List<String> users = new java.util.ArrayList<>();
-        File dir = new File(DATA_DIR);
+        File dir = new File(dataDir);
 
         if (dir.exists() && dir.isDirectory()) {
             File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_EXTENSION));
@@ -211,48 +414,235 @@ public class DataService {
      */
     public boolean createBackup(String login) {
         String originalFile = getFileName(login);
-        String backupFile = getFileName(login + "_backup");
+        String backupFile = getFileName(login + BACKUP_SUFFIX);
 
         try {
             Files.copy(Paths.get(originalFile), Paths.get(backupFile),
                     StandardCopyOption.REPLACE_EXISTING);
-            System.out.printf("Резервная копия данных пользователя '%s' создана%n", login);
+            log.info("Резервная копия данных пользователя '%s' создана", login);
             return true;
         } catch (IOException e) {
-            System.err.println("Ошибка при создании резервной копии: " + e.getMessage());
+            log.error("Ошибка при создании резервной копии: %s", e.getMessage());
             return false;
         }
     }
 
-    private String getFileName(String login) {
-        return DATA_DIR + File.separator + login + FILE_EXTENSION;
+    /**
+     * Запись дополнительных разделов: количество, затем для каждого имя, длина и содержимое.
+     * Неизвестные разделы при чтении пропускаются по длине
+     */
+    private void writeSections(ObjectOutputStream oos, Wallet wallet) throws IOException {
+        Map<String, byte[]> sections = new LinkedHashMap<>();
+        sections.put(SECTION_CATEGORY_SKETCHES, encodeCategorySketches(wallet));
+        sections.put(SECTION_BURN_RATES, encodeBurnRates(wallet));
+        sections.put(SECTION_TAGS, encodeTags(wallet));
+        sections.put(SECTION_ALERTS, encodeAlerts(wallet));
+
+        oos.writeInt(sections.size());
+        for (Map.Entry<String, byte[]> section : sections.entrySet()) {
+            oos.writeUTF(section.getKey());
+            oos.writeInt(section.getValue().length);
+            oos.write(section.getValue());
+        }
     }
 
-    // Вспомогательные методы для установки дат (из-за неизменяемости полей в моделях)
-    private void setTransactionDate(Transaction transaction, LocalDateTime date) {
+    /**
+     * Чтение дополнительных разделов. В файлах старого формата разделов нет:
+     * невосстановленные структуры кошелек пересчитывает сам
+     */
+    private void readSections(ObjectInputStream ois, Wallet wallet) throws IOException {
+        int sectionCount;
         try {
-            // Используем рефлексию для установки даты транзакции
-            java.lang.reflect.Field dateField = Transaction.class.getDeclaredField("date");
-            dateField.setAccessible(true);
-            dateField.set(transaction, date);
-        } catch (Exception e) {
-            System.err.println("Ошибка при установке даты транзакции: " + e.getMessage());
+            sectionCount = ois.readInt();
+        } catch (EOFException e) {
+            log.debug("Файл старого формата: дополнительные разделы отсутствуют");
+            return;
+        }
+
+        for (int i = 0; i < sectionCount; i++) {
+            String name = ois.readUTF();
+            int length = ois.readInt();
+            if (length < 0) {
+                throw new IOException("Некорректный размер раздела " + name + ": " + length);
+            }
+            byte[] payload = new byte[length];
+            ois.readFully(payload);
+
+            try {
+                if (SECTION_CATEGORY_SKETCHES.equals(name)) {
+                    decodeCategorySketches(payload, wallet);
+                } else if (SECTION_BURN_RATES.equals(name)) {
+                    decodeBurnRates(payload, wallet);
+                } else if (SECTION_TAGS.equals(name)) {
+                    decodeTags(payload, wallet);
+                } else if (SECTION_ALERTS.equals(name)) {
+                    decodeAlerts(payload, wallet);
+                } else {
+                    log.debug("Пропущен неизвестный раздел файла: %s", name);
+                }
+            } catch (IOException e) {
+                // Поврежденный раздел не мешает загрузке: статистика будет пересчитана
+                // по операциям, оповещения раздела alerts теряются
+                log.warn("Раздел %s поврежден и пропущен: %s", name, e.getMessage());
+            }
         }
     }
 
-    private void setAlertTimestamp(Alert alert, LocalDateTime timestamp) {
-        try {
-            // Используем рефлексию для установки timestamp оповещения
-            java.lang.reflect.Field timestampField = Alert.class.getDeclaredField("timestamp");
-            timestampField.setAccessible(true);
-            timestampField.set(alert, timestamp);
-
-            // Также устанавливаем флаг isRead через отдельный метод
-            java.lang.reflect.Field isReadField = Alert.class.getDeclaredField("isRead");
-            isReadField.setAccessible(true);
-            // Флаг isRead устанавливается через markAsRead() после создания
-        } catch (Exception e) {
-            System.err.println("Ошибка при установке timestamp оповещения: " + e.getMessage());
+    private byte[] encodeCategorySketches(Wallet wallet) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Map<String, KllSketch> sketches = wallet.getCategorySketches();
+            out.writeInt(sketches.size());
+            for (Map.Entry<String, KllSketch> entry : sketches.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void decodeCategorySketches(byte[] payload, Wallet wallet) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            Map<String, KllSketch> sketches = new HashMap<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String category = in.readUTF();
+                sketches.put(category, KllSketch.readFrom(in));
+            }
+            wallet.restoreCategorySketches(sketches);
+        }
+    }
+
+    private byte[] encodeBurnRates(Wallet wallet) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            wallet.getBurnRates().writeTo(out);
         }
+        return bytes.toByteArray();
+    }
+
+    private void decodeBurnRates(byte[] payload, Wallet wallet) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            wallet.restoreBurnRates(BurnRateTracker.readFrom(in));
+        }
+    }
+
+    // Метки хранятся только в виде множеств позиций операций, без повторения в каждой операции
+    private byte[] encodeTags(Wallet wallet) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Map<String, RoaringBitmap> positions = wallet.getTagPositions();
+            out.writeInt(positions.size());
+            for (Map.Entry<String, RoaringBitmap> entry : positions.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void decodeTags(byte[] payload, Wallet wallet) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            Map<String, RoaringBitmap> positions = new HashMap<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String tag = in.readUTF();
+                positions.put(tag, RoaringBitmap.readFrom(in));
+            }
+            wallet.restoreTagPositions(positions);
+        }
+    }
+
+    /**
+     * Оповещения без текста: номер причины, категория из словаря раздела, параметры,
+     * время в микросекундах. Тип и текст записываются только у произвольных оповещений
+     */
+    private byte[] encodeAlerts(Wallet wallet) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            List<Alert> alerts = wallet.getAlerts();
+            Map<String, Integer> categories = new HashMap<>();
+            out.writeInt(alerts.size());
+            for (Alert alert : alerts) {
+                out.writeByte(alert.getReason().ordinal());
+                if (alert.getReason() == AlertReason.CUSTOM) {
+                    out.writeByte(alert.getType().ordinal());
+                    out.writeUTF(alert.getCustomMessage());
+                }
+                // Номер категории; новая категория записывается сразу после своего номера
+                String category = alert.getCategory();
+                if (category == null) {
+                    out.writeInt(-1);
+                } else {
+                    Integer id = categories.get(category);
+                    if (id != null) {
+                        out.writeInt(id);
+                    } else {
+                        out.writeInt(categories.size());
+                        out.writeUTF(category);
+                        categories.put(category, categories.size());
+                    }
+                }
+                double[] values = alert.getValues();
+                out.writeByte(values.length);
+                for (double value : values) {
+                    out.writeDouble(value);
+                }
+                out.writeLong(alert.getTimestampMicros());
+                out.writeBoolean(alert.isRead());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void decodeAlerts(byte[] payload, Wallet wallet) throws IOException {
+        AlertReason[] reasons = AlertReason.values();
+        AlertType[] types = AlertType.values();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            if (count < 0 || count > payload.length / MIN_ALERT_BYTES) {
+                throw new IOException("Некорректное число оповещений: " + count);
+            }
+            List<String> categories = new ArrayList<>();
+            List<Alert> alerts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int reasonId = in.readUnsignedByte();
+                if (reasonId >= reasons.length) {
+                    throw new IOException("Неизвестная причина оповещения: " + reasonId);
+                }
+                AlertReason reason = reasons[reasonId];
+                AlertType type = reason.getType();
+                String message = null;
+                if (reason == AlertReason.CUSTOM) {
+                    int typeId = in.readUnsignedByte();
+                    if (typeId >= types.length) {
+                        throw new IOException("Неизвестный тип оповещения: " + typeId);
+                    }
+                    type = types[typeId];
+                    message = in.readUTF();
+                }
+                int categoryId = in.readInt();
+                String category = null;
+                if (categoryId == categories.size()) {
+                    category = in.readUTF();
+                    categories.add(category);
+                } else if (categoryId >= 0 && categoryId < categories.size()) {
+                    category = categories.get(categoryId);
+                } else if (categoryId != -1) {
+                    throw new IOException("Некорректный номер категории оповещения: " + categoryId);
+                }
+                double[] values = new double[in.readUnsignedByte()];
+                for (int v = 0; v < values.length; v++) {
+                    values[v] = in.readDouble();
+                }
+                alerts.add(new Alert(type, reason, category, values, message, in.readLong(), in.readBoolean()));
+            }
+            // Поврежденный раздел не добавляет оповещений частично
+            wallet.getAlerts().addAll(alerts);
+        }
+    }
+
+    private String getFileName(String login) {
+        return dataDir + File.separator + login + FILE_EXTENSION;
     }
 }
\ No newline at end of file
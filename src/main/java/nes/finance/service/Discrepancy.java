@@ -0,0 +1,38 @@
+package nes.finance.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Расхождение в кошельке пользователя: ожидаемое по операциям значение, фактическое
+ * значение и позиции операций, которые его вероятно вызвали
+ */
+public class Discrepancy {
+    private final DiscrepancyType type;
+    private final String category;
+    private final double expected;
+    private final double actual;
+    private final List<Integer> rows;
+
+    public Discrepancy(DiscrepancyType type, String category, double expected, double actual, List<Integer> rows) {
+        this.type = type;
+        this.category = category;
+        this.expected = expected;
+        this.actual = actual;
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    // Getters
+    public DiscrepancyType getType() { return type; }
+    public String getCategory() { return category; }
+    public double getExpected() { return expected; }
+    public double getActual() { return actual; }
+    public List<Integer> getRows() { return rows; }
+
+    @Override
+    public String toString() {
+        return String.format("%s%s: ожидается %.2f, фактически %.2f%s", type.getDisplayName(),
+                category != null ? " '" + category + "'" : "", expected, actual,
+                rows.isEmpty() ? "" : ", операции " + rows);
+    }
+}
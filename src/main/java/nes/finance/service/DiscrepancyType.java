@@ -0,0 +1,26 @@
+package nes.finance.service;
+
+/**
+ * Виды расхождений между сохраненными данными кошелька и его операциями
+ */
+public enum DiscrepancyType {
+    // Баланс не равен сумме доходов за вычетом расходов
+    BALANCE("баланс", true),
+    // Итоги категории по сегментам и индексам не совпадают с суммой строк
+    CATEGORY_TOTALS("итоги категории", true),
+    // Сохраненная статистика категории учитывает другое число операций
+    CATEGORY_STATS("статистика категории", true),
+    // Операция с недопустимой суммой или без категории; исправляется только вручную
+    INVALID_ROW("некорректная операция", false);
+
+    private final String displayName;
+    private final boolean repairable;
+
+    DiscrepancyType(String displayName, boolean repairable) {
+        this.displayName = displayName;
+        this.repairable = repairable;
+    }
+
+    public String getDisplayName() { return displayName; }
+    public boolean isRepairable() { return repairable; }
+}
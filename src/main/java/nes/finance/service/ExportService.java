@@ -6,39 +6,71 @@ import nes.finance.model.TransactionType;
 import nes.finance.model.Wallet;
 import nes.finance.model.Alert;
 import nes.finance.model.AlertType;
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.monitoring.ExportEvent;
+import nes.finance.report.BudgetStatus;
+import nes.finance.report.FinancialReport;
 
 import java.io.*;
 import java.nio.file.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class ExportService {
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
      * Экспорт транзакций в CSV файл
      */
     public boolean exportTransactionsToCSV(User user, String filePath) {
+        return exportTransactionsToCSV(user, filePath, null, null);
+    }
+
+    /**
+     * Экспорт транзакций за дни from..to (null - без ограничения) в CSV файл.
+     * Строки идут по дате; баланс начинается с остатка на конец дня перед from
+     */
+    public boolean exportTransactionsToCSV(User user, String filePath, LocalDate from, LocalDate to) {
+        return traceExport("transactions_csv", user, filePath, () -> writeTransactionsCSV(user, filePath, from, to));
+    }
+
+    private boolean writeTransactionsCSV(User user, String filePath, LocalDate from, LocalDate to) {
         if (user == null) {
-            System.out.println("Ошибка: пользователь не указан");
+            log.warn("Ошибка: пользователь не указан");
             return false;
         }
 
         Wallet wallet = user.getWallet();
-        List<Transaction> transactions = wallet.getTransactions();
+        List<Transaction> transactions = new ArrayList<>();
+        for (Transaction t : wallet.getTransactions()) {
+            LocalDate day = t.getDate().toLocalDate();
+            if ((from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to))) {
+                transactions.add(t);
+            }
+        }
 
         if (transactions.isEmpty()) {
-            System.out.println("Нет транзакций для экспорта");
+            log.warn("Нет транзакций для экспорта");
             return false;
         }
+        // Операции задним числом стоят в конце списка: баланс после операции
+        // считается в порядке дат (сортировка устойчива для операций одного времени)
+        transactions.sort(Comparator.comparing(Transaction::getDate));
 
         try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
             // Заголовок CSV
             writer.println("Дата,Тип,Категория,Сумма,Баланс после операции");
 
-            double runningBalance = 0;
+            double runningBalance = from == null ? 0 : wallet.getBalanceAt(from.minusDays(1));
 
             for (Transaction t : transactions) {
                 String date = t.getDate().format(DATE_FORMATTER);
@@ -57,12 +89,11 @@ public class ExportService {
                         date, type, category, amount, runningBalance);
             }
 
-            System.out.printf("Транзакции экспортированы в файл: %s%n", filePath);
-            System.out.printf("Количество записей: %d%n", transactions.size());
+            log.debug("Транзакции экспортированы в файл: %s (%d записей)", filePath, transactions.size());
             return true;
 
         } catch (IOException e) {
-            System.err.println("Ошибка при экспорте в CSV: " + e.getMessage());
+            log.error("Ошибка при экспорте в CSV: %s", e.getMessage());
             return false;
         }
     }
@@ -71,16 +102,19 @@ public class ExportService {
      * Экспорт бюджетов в CSV файл
      */
     public boolean exportBudgetsToCSV(User user, String filePath) {
+        return traceExport("budgets_csv", user, filePath, () -> writeBudgetsCSV(user, filePath));
+    }
+
+    private boolean writeBudgetsCSV(User user, String filePath) {
         if (user == null) {
-            System.out.println("Ошибка: пользователь не указан");
+            log.warn("Ошибка: пользователь не указан");
             return false;
         }
 
-        Wallet wallet = user.getWallet();
-        Map<String, Double> budgets = wallet.getBudgets();
+        List<BudgetStatus> budgets = FinancialReport.budgetStatuses(user.getWallet());
 
         if (budgets.isEmpty()) {
-            System.out.println("Нет бюджетов для экспорта");
+            log.warn("Нет бюджетов для экспорта");
             return false;
         }
 
@@ -88,28 +122,16 @@ public class ExportService {
             // Заголовок CSV
             writer.println("Категория,Лимит,Текущие расходы,Остаток,Процент использования");
 
-            for (Map.Entry<String, Double> entry : budgets.entrySet()) {
-                String category = entry.getKey();
-                double limit = entry.getValue();
-
-                // Подсчитываем расходы по категории
-                double expenses = wallet.getTransactions().stream()
-                        .filter(t -> t.getType() == TransactionType.EXPENSE && t.getCategory().equals(category))
-                        .mapToDouble(Transaction::getAmount)
-                        .sum();
-
-                double remaining = limit - expenses;
-                double usagePercent = limit > 0 ? (expenses / limit) * 100 : 0;
-
-                writer.printf("%s,%.2f,%.2f,%.2f,%.1f%%%n",
-                        category, limit, expenses, remaining, usagePercent);
+            for (BudgetStatus status : budgets) {
+                writer.printf("%s,%.2f,%.2f,%.2f,%.1f%%%n", status.getCategory(), status.getLimit(),
+                        status.getSpent(), status.getRemaining(), status.getUsagePercent());
             }
 
-            System.out.printf("Бюджеты экспортированы в файл: %s%n", filePath);
+            log.debug("Бюджеты экспортированы в файл: %s", filePath);
             return true;
 
         } catch (IOException e) {
-            System.err.println("Ошибка при экспорте бюджетов в CSV: " + e.getMessage());
+            log.error("Ошибка при экспорте бюджетов в CSV: %s", e.getMessage());
             return false;
         }
     }
@@ -118,8 +140,12 @@ public class ExportService {
      * Экспорт всей финансовой информации в JSON файл
      */
     public boolean exportToJSON(User user, String filePath) {
+        return traceExport("json", user, filePath, () -> writeJSON(user, filePath));
+    }
+
+    private boolean writeJSON(User user, String filePath) {
         if (user == null) {
-            System.out.println("Ошибка: пользователь не указан");
+            log.warn("Ошибка: пользователь не указан");
             return false;
         }
 
@@ -160,28 +186,20 @@ public class ExportService {
 
             // Общая статистика
             writer.println("  \"statistics\": {");
-            double totalIncome = transactions.stream()
-                    .filter(t -> t.getType() == TransactionType.INCOME)
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
-            double totalExpense = transactions.stream()
-                    .filter(t -> t.getType() == TransactionType.EXPENSE)
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
-
-            writer.printf("    \"total_income\": %.2f,%n", totalIncome);
-            writer.printf("    \"total_expense\": %.2f,%n", totalExpense);
-            writer.printf("    \"net_balance\": %.2f,%n", totalIncome - totalExpense);
-            writer.printf("    \"transaction_count\": %d%n", transactions.size());
+            FinancialReport report = FinancialReport.of(user);
+            writer.printf("    \"total_income\": %.2f,%n", report.getTotalIncome());
+            writer.printf("    \"total_expense\": %.2f,%n", report.getTotalExpense());
+            writer.printf("    \"net_balance\": %.2f,%n", report.getNet());
+            writer.printf("    \"transaction_count\": %d%n", report.getTransactionCount());
             writer.println("  }");
 
             writer.println("}");
 
-            System.out.printf("Данные экспортированы в JSON файл: %s%n", filePath);
+            log.debug("Данные экспортированы в JSON файл: %s", filePath);
             return true;
 
         } catch (IOException e) {
-            System.err.println("Ошибка при экспорте в JSON: " + e.getMessage());
+            log.error("Ошибка при экспорте в JSON: %s", e.getMessage());
             return false;
         }
     }
@@ -189,18 +207,23 @@ public class ExportService {
     /**
      * Импорт транзакций из CSV файла
      */
-    public boolean importTransactionsFromCSV(User user, String filePath) {
+    public ImportResult importTransactionsFromCSV(User user, String filePath) {
+        return traceExport("import_csv", user, filePath, () -> readTransactionsCSV(user, filePath),
+                ImportResult::isSuccess);
+    }
+
+    private ImportResult readTransactionsCSV(User user, String filePath) {
         if (user == null) {
-            System.out.println("Ошибка: пользователь не указан");
-            return false;
+            log.warn("Ошибка: пользователь не указан");
+            return new ImportResult(0, 0);
         }
 
         Wallet wallet = user.getWallet();
         File file = new File(filePath);
 
         if (!file.exists()) {
-            System.out.println("Ошибка: файл не найден");
-            return false;
+            log.warn("Ошибка: файл %s не найден", filePath);
+            return new ImportResult(0, 0);
         }
 
         int importedCount = 0;
@@ -225,7 +248,8 @@ public class ExportService {
                 try {
                     String typeStr = parts[0].trim();
                     String category = parts[1].trim();
-                    double amount = Double.parseDouble(parts[2].trim());
+                    // Баланс меняется на ту же сумму, что записывается в историю
+                    double amount = Transaction.roundToCents(Double.parseDouble(parts[2].trim()));
                     String dateStr = parts.length > 3 ? parts[3].trim() : "";
 
                     TransactionType type;
@@ -237,6 +261,10 @@ public class ExportService {
                         skippedCount++;
                         continue;
                     }
+                    if (!(amount > 0) || Double.isInfinite(amount)) {
+                        skippedCount++;
+                        continue;
+                    }
 
                     // Создаем транзакцию
                     Transaction transaction;
@@ -251,22 +279,21 @@ public class ExportService {
                         transaction = new Transaction(type, amount, category);
                     }
 
-                    wallet.getTransactions().add(transaction);
-
-                    // Обновляем баланс
-                    if (type == TransactionType.INCOME) {
-                        wallet.setBalance(wallet.getBalance() + amount);
-                    } else {
-                        // Проверяем, достаточно ли средств
-                        if (wallet.getBalance() >= amount) {
-                            wallet.setBalance(wallet.getBalance() - amount);
-                        } else {
-                            System.out.printf("Предупреждение: недостаточно средств для импорта расхода %.2f%n", amount);
-                            skippedCount++;
-                            continue;
+                    // Расход без достаточных средств пропускается до добавления в историю,
+                    // иначе операция осталась бы в списке без списания с баланса
+                    if (type == TransactionType.EXPENSE && wallet.getBalance() < amount) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Пропущен расход %.2f: недостаточно средств", amount);
                         }
+                        skippedCount++;
+                        continue;
                     }
 
+                    wallet.getTransactions().add(transaction);
+                    wallet.setBalance(type == TransactionType.INCOME
+                            ? wallet.getBalance() + amount
+                            : wallet.getBalance() - amount);
+
                     importedCount++;
 
                 } catch (NumberFormatException e) {
@@ -274,12 +301,12 @@ public class ExportService {
                 }
             }
 
-            System.out.printf("Импорт завершен. Успешно: %d, Пропущено: %d%n", importedCount, skippedCount);
-            return importedCount > 0;
+            log.debug("Импорт из %s завершен. Успешно: %d, Пропущено: %d", filePath, importedCount, skippedCount);
+            return new ImportResult(importedCount, skippedCount);
 
         } catch (IOException e) {
-            System.err.println("Ошибка при импорте из CSV: " + e.getMessage());
-            return false;
+            log.error("Ошибка при импорте из CSV: %s", e.getMessage());
+            return new ImportResult(importedCount, skippedCount);
         }
     }
 
@@ -287,94 +314,50 @@ public class ExportService {
      * Экспорт отчета в текстовый файл
      */
     public boolean exportReportToText(User user, String filePath) {
+        return traceExport("report_text", user, filePath, () -> writeReportText(user, filePath));
+    }
+
+    private boolean writeReportText(User user, String filePath) {
         if (user == null) {
-            System.out.println("Ошибка: пользователь не указан");
+            log.warn("Ошибка: пользователь не указан");
             return false;
         }
 
-        Wallet wallet = user.getWallet();
+        FinancialReport report = FinancialReport.of(user);
 
         try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
             writer.println("=".repeat(60));
             writer.println("ФИНАНСОВЫЙ ОТЧЕТ");
             writer.println("=".repeat(60));
             writer.println();
-            writer.printf("Пользователь: %s%n", user.getLogin());
+            writer.printf("Пользователь: %s%n", report.getLogin());
             writer.printf("Дата отчета: %s%n", LocalDateTime.now().format(DATE_FORMATTER));
-            writer.printf("Текущий баланс: %.2f%n", wallet.getBalance());
+            writer.printf("Текущий баланс: %.2f%n", report.getBalance());
             writer.println();
 
             // Общая статистика
-            double totalIncome = wallet.getTransactions().stream()
-                    .filter(t -> t.getType() == TransactionType.INCOME)
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
-            double totalExpense = wallet.getTransactions().stream()
-                    .filter(t -> t.getType() == TransactionType.EXPENSE)
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
-
             writer.println("ОБЩАЯ СТАТИСТИКА");
             writer.println("-".repeat(40));
-            writer.printf("Всего доходов: %.2f%n", totalIncome);
-            writer.printf("Всего расходов: %.2f%n", totalExpense);
-            writer.printf("Чистый баланс: %.2f%n", totalIncome - totalExpense);
-            writer.printf("Количество транзакций: %d%n", wallet.getTransactions().size());
+            writer.printf("Всего доходов: %.2f%n", report.getTotalIncome());
+            writer.printf("Всего расходов: %.2f%n", report.getTotalExpense());
+            writer.printf("Чистый баланс: %.2f%n", report.getNet());
+            writer.printf("Количество транзакций: %d%n", report.getTransactionCount());
             writer.println();
 
-            // Доходы по категориям
-            writer.println("ДОХОДЫ ПО КАТЕГОРИЯМ");
-            writer.println("-".repeat(40));
-            Map<String, Double> incomeByCategory = wallet.getTransactions().stream()
-                    .filter(t -> t.getType() == TransactionType.INCOME)
-                    .collect(java.util.stream.Collectors.groupingBy(
-                            Transaction::getCategory,
-                            java.util.stream.Collectors.summingDouble(Transaction::getAmount)
-                    ));
-
-            if (incomeByCategory.isEmpty()) {
-                writer.println("Нет данных");
-            } else {
-                incomeByCategory.forEach((category, amount) ->
-                        writer.printf("  %-20s %10.2f%n", category + ":", amount));
-            }
-            writer.println();
-
-            // Расходы по категориям
-            writer.println("РАСХОДЫ ПО КАТЕГОРИЯМ");
-            writer.println("-".repeat(40));
-            Map<String, Double> expenseByCategory = wallet.getTransactions().stream()
-                    .filter(t -> t.getType() == TransactionType.EXPENSE)
-                    .collect(java.util.stream.Collectors.groupingBy(
-                            Transaction::getCategory,
-                            java.util.stream.Collectors.summingDouble(Transaction::getAmount)
-                    ));
-
-            if (expenseByCategory.isEmpty()) {
-                writer.println("Нет данных");
-            } else {
-                expenseByCategory.forEach((category, amount) ->
-                        writer.printf("  %-20s %10.2f%n", category + ":", amount));
-            }
-            writer.println();
+            writeCategoryTotals(writer, "ДОХОДЫ ПО КАТЕГОРИЯМ", report.getIncomeByCategory());
+            writeCategoryTotals(writer, "РАСХОДЫ ПО КАТЕГОРИЯМ", report.getExpenseByCategory());
 
             // Бюджеты
             writer.println("БЮДЖЕТЫ");
             writer.println("-".repeat(40));
-            if (wallet.getBudgets().isEmpty()) {
+            if (report.getBudgets().isEmpty()) {
                 writer.println("Бюджеты не установлены");
             } else {
-                for (Map.Entry<String, Double> entry : wallet.getBudgets().entrySet()) {
-                    String category = entry.getKey();
-                    double limit = entry.getValue();
-                    double expenses = expenseByCategory.getOrDefault(category, 0.0);
-                    double remaining = limit - expenses;
-                    double percent = limit > 0 ? (expenses / limit) * 100 : 0;
-
-                    writer.printf("  %s:%n", category);
-                    writer.printf("    Лимит: %.2f%n", limit);
-                    writer.printf("    Расходы: %.2f (%.1f%%)%n", expenses, percent);
-                    writer.printf("    Остаток: %.2f%n", remaining);
+                for (BudgetStatus status : report.getBudgets()) {
+                    writer.printf("  %s:%n", status.getCategory());
+                    writer.printf("    Лимит: %.2f%n", status.getLimit());
+                    writer.printf("    Расходы: %.2f (%.1f%%)%n", status.getSpent(), status.getUsagePercent());
+                    writer.printf("    Остаток: %.2f%n", status.getRemaining());
                     writer.println();
                 }
             }
@@ -382,12 +365,53 @@ public class ExportService {
             writer.println("=".repeat(60));
             writer.println("КОНЕЦ ОТЧЕТА");
 
-            System.out.printf("Отчет экспортирован в файл: %s%n", filePath);
+            log.debug("Отчет экспортирован в файл: %s", filePath);
             return true;
 
         } catch (IOException e) {
-            System.err.println("Ошибка при экспорте отчета: " + e.getMessage());
+            log.error("Ошибка при экспорте отчета: %s", e.getMessage());
             return false;
         }
     }
+
+    private static void writeCategoryTotals(PrintWriter writer, String title, Map<String, Double> totals) {
+        writer.println(title);
+        writer.println("-".repeat(40));
+        if (totals.isEmpty()) {
+            writer.println("Нет данных");
+        } else {
+            totals.forEach((category, amount) ->
+                    writer.printf("  %-20s %10.2f%n", category + ":", amount));
+        }
+        writer.println();
+    }
+
+    /**
+     * Выполнение операции экспорта с записью события JFR
+     */
+    private boolean traceExport(String operation, User user, String filePath, Supplier<Boolean> body) {
+        return traceExport(operation, user, filePath, body, Boolean.TRUE::equals);
+    }
+
+    private <T> T traceExport(String operation, User user, String filePath, Supplier<T> body,
+                              Predicate<T> succeeded) {
+        ExportEvent event = new ExportEvent(operation);
+        event.begin();
+        boolean success = false;
+        try {
+            T result = body.get();
+            success = succeeded.test(result);
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setUser(user != null ? user.getLogin() : null);
+                event.setFile(filePath);
+                event.setTransactionCount(user != null ? user.getWallet().getTransactions().size() : 0);
+                event.setBytes(success ? new File(filePath).length() : 0);
+                event.setSuccess(success);
+                event.commit();
+            }
+        }
+    }
 }
\ No newline at end of file
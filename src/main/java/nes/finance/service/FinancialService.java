@@ -1,27 +1,53 @@
 package nes.finance.service;
 
+import nes.finance.feed.AlertRaised;
+import nes.finance.feed.BudgetChanged;
+import nes.finance.feed.CategoryRenamed;
+import nes.finance.feed.ChangeFeed;
+import nes.finance.feed.TransactionAdded;
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.CategoryTree;
 import nes.finance.model.User;
+import nes.finance.model.TagFilter;
 import nes.finance.model.Transaction;
+import nes.finance.model.TransactionPage;
+import nes.finance.model.TransactionQuery;
+import nes.finance.model.TransactionTotals;
 import nes.finance.model.TransactionType;
 import nes.finance.model.Wallet;
 import nes.finance.model.Alert;
-import nes.finance.model.AlertType;
+import nes.finance.model.AlertReason;
+import nes.finance.monitoring.AlertScanEvent;
+import nes.finance.monitoring.ReportEvent;
+import nes.finance.report.BudgetForecast;
+import nes.finance.report.BudgetStatus;
+import nes.finance.report.CategoryDistribution;
+import nes.finance.report.CategoryStats;
+import nes.finance.report.CategoryTreeStats;
+import nes.finance.report.FinancialReport;
+import nes.finance.report.PeriodReport;
+import nes.finance.report.ReportCache;
+import nes.finance.stats.KllSketch;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.temporal.TemporalAdjusters;
 
 public class FinancialService {
+    private static final Logger log = LoggerFactory.getLogger(FinancialService.class);
+
     private AuthService authService;
     private DataService dataService;
-    private static final double BUDGET_WARNING_THRESHOLD = 0.8; // 80% использования бюджета
-    private static final double LOW_BALANCE_THRESHOLD = 1000.0; // Порог низкого баланса
-    private static final double BUDGET_WARNING_PERCENT = 80.0;
-    private static final double BUDGET_CRITICAL_PERCENT = 95.0;
-    private static final double LOW_BALANCE_WARNING = 2000.0;
-    private static final double LOW_BALANCE_CRITICAL = 500.0;
-    private static final double OVERSPENDING_THRESHOLD = 0.9;
+    private boolean autoSaveEnabled = true;
+    private final AlertChecker alertChecker = new AlertChecker();
+    // Кэши отчетов по логину; записи привязаны к версии данных кошелька
+    private final Map<String, ReportCache> reportCaches = new ConcurrentHashMap<>();
+    // Лента изменений для внешних получателей (панели, уведомления)
+    private final ChangeFeed changeFeed = new ChangeFeed();
 
     public FinancialService(AuthService authService) {
         this.authService = authService;
@@ -36,83 +62,124 @@ public class FinancialService {
         return authService.isAuthenticated();
     }
 
+    /**
+     * Лента изменений: операции, бюджеты, переименования категорий и оповещения
+     */
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Кошелек вошедшего пользователя готов: команды не будут ждать его загрузки
+     */
+    public boolean isWalletReady() {
+        return authService.isWalletReady();
+    }
+
     /**
      * Автоматическое сохранение данных пользователя
      */
     private void autoSave() {
-        if (isAuthenticated()) {
+        if (autoSaveEnabled && isAuthenticated()) {
             dataService.saveUserData(getCurrentUser());
         }
     }
 
+    /**
+     * Включение и отключение автосохранения (пакетный режим сохраняет данные сам)
+     */
+    public void setAutoSaveEnabled(boolean autoSaveEnabled) {
+        this.autoSaveEnabled = autoSaveEnabled;
+    }
+
+    public boolean isAutoSaveEnabled() {
+        return autoSaveEnabled;
+    }
+
     // Методы для работы с транзакциями с оповещениями
     public boolean addIncome(double amount, String category) {
+        return addIncome(amount, category, Collections.emptySet());
+    }
+
+    public boolean addIncome(double amount, String category, Set<String> tags) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
+            log.warn("Ошибка: пользователь не авторизован");
             autoSave();
             return true;
         }
 
         if (!isValidAmount(amount)) {
-            System.out.println("Ошибка: сумма должна быть положительным числом");
+            log.warn("Ошибка: сумма должна быть положительным числом");
             return false;
         }
 
         if (!isValidCategory(category)) {
-            System.out.println("Ошибка: категория не может быть пустой");
+            log.warn("Ошибка: категория не может быть пустой");
             return false;
         }
 
+        // Баланс меняется на ту же сумму, что записывается в историю
+        amount = Transaction.roundToCents(amount);
         User user = getCurrentUser();
         Wallet wallet = user.getWallet();
 
-        Transaction transaction = new Transaction(TransactionType.INCOME, amount, category);
+        Transaction transaction = new Transaction(TransactionType.INCOME, amount, category, LocalDateTime.now(), tags);
         wallet.getTransactions().add(transaction);
         wallet.setBalance(wallet.getBalance() + amount);
+        changeFeed.publish(new TransactionAdded(user.getLogin(), transaction, wallet.getBalance()));
 
         // Проверяем общее финансовое состояние после добавления дохода
-        checkOverallFinancialHealth();
+        int alertsBefore = wallet.getAlerts().size();
+        alertChecker.afterIncome(wallet);
+        publishAlerts(user, alertsBefore);
 
         return true;
     }
 
     public boolean addExpense(double amount, String category) {
+        return addExpense(amount, category, Collections.emptySet());
+    }
+
+    public boolean addExpense(double amount, String category, Set<String> tags) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
+            log.warn("Ошибка: пользователь не авторизован");
             autoSave();
             return true;
         }
 
         if (!isValidAmount(amount)) {
-            System.out.println("Ошибка: сумма должна быть положительным числом");
+            log.warn("Ошибка: сумма должна быть положительным числом");
             return false;
         }
 
         if (!isValidCategory(category)) {
-            System.out.println("Ошибка: категория не может быть пустой");
+            log.warn("Ошибка: категория не может быть пустой");
             return false;
         }
 
+        // Баланс меняется на ту же сумму, что записывается в историю
+        amount = Transaction.roundToCents(amount);
         User user = getCurrentUser();
         Wallet wallet = user.getWallet();
 
         if (wallet.getBalance() < amount) {
             // Создаем оповещение о недостатке средств
-            createAlert(AlertType.LOW_BALANCE,
-                    String.format("Недостаточно средств для операции. Баланс: %.2f, Требуется: %.2f",
-                            wallet.getBalance(), amount));
-            System.out.println("Ошибка: недостаточно средств на счете");
+            int alertsBefore = wallet.getAlerts().size();
+            createAlert(AlertReason.INSUFFICIENT_FUNDS, wallet.getBalance(), amount);
+            publishAlerts(user, alertsBefore);
+            log.warn("Ошибка: недостаточно средств на счете");
             return false;
         }
 
-        Transaction transaction = new Transaction(TransactionType.EXPENSE, amount, category);
+        Transaction transaction = new Transaction(TransactionType.EXPENSE, amount, category, LocalDateTime.now(), tags);
         wallet.getTransactions().add(transaction);
         wallet.setBalance(wallet.getBalance() - amount);
+        changeFeed.publish(new TransactionAdded(user.getLogin(), transaction, wallet.getBalance()));
 
         // Проверяем бюджеты и общее финансовое состояние
-        checkBudgetExceeded(category, amount);
-        checkOverallFinancialHealth();
-        checkLowBalance();
+        int alertsBefore = wallet.getAlerts().size();
+        alertChecker.afterExpense(wallet, category);
+        publishAlerts(user, alertsBefore);
 
         return true;
     }
@@ -120,148 +187,133 @@ public class FinancialService {
     /**
      * Подсчет доходов и расходов за указанный период
      */
-    public void calculateByPeriod(LocalDate startDate, LocalDate endDate) {
+    public PeriodReport calculateByPeriod(LocalDate startDate, LocalDate endDate) {
+        return traceReport("period", () -> {
+            if (!isAuthenticated()) {
+                log.warn("Ошибка: пользователь не авторизован");
+                return null;
+            }
+            // Итоги за период зависят только от операций
+            return reportCache().get("period", Arrays.asList(startDate, endDate),
+                    getCurrentUser().getWallet().getTransactionVersion(),
+                    () -> buildPeriodReport(startDate, endDate), PeriodReport::estimateBytes);
+        });
+    }
+
+    private PeriodReport buildPeriodReport(LocalDate startDate, LocalDate endDate) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
-            return;
+            log.warn("Ошибка: пользователь не авторизован");
+            return null;
         }
 
-        User user = getCurrentUser();
-        List<Transaction> transactions = user.getWallet().getTransactions();
-
-        // Фильтруем транзакции по периоду
-        List<Transaction> filteredTransactions = transactions.stream()
-                .filter(t -> {
-                    LocalDate transactionDate = t.getDate().toLocalDate();
-                    return !transactionDate.isBefore(startDate) && !transactionDate.isAfter(endDate);
-                })
-                .collect(Collectors.toList());
-
-        if (filteredTransactions.isEmpty()) {
-            System.out.printf("За период с %s по %s нет операций%n",
-                    startDate, endDate);
-            return;
-        }
+        // Один последовательный проход по операциям кошелька
+        TransactionTotals totals = getCurrentUser().getWallet().getTotals(startDate, endDate);
+        return new PeriodReport(startDate, endDate, totals.getCount(),
+                totals.getTotalIncome(), totals.getTotalExpense(),
+                totals.getIncomeByCategory(), totals.getExpenseByCategory());
+    }
 
-        double totalIncome = filteredTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
-
-        double totalExpense = filteredTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
-
-        System.out.printf("Отчет за период: %s - %s%n", startDate, endDate);
-        System.out.printf("Количество операций: %d%n", filteredTransactions.size());
-        System.out.printf("Общий доход: %,.2f%n", totalIncome);
-        System.out.printf("Общий расход: %,.2f%n", totalExpense);
-        System.out.printf("Баланс за период: %,.2f%n", totalIncome - totalExpense);
-
-        // Детали по категориям
-        System.out.println("\nДетализация по категориям:");
-
-        // Доходы по категориям
-        Map<String, Double> incomeByCategory = filteredTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.summingDouble(Transaction::getAmount)
-                ));
-
-        if (!incomeByCategory.isEmpty()) {
-            System.out.println("Доходы:");
-            incomeByCategory.forEach((category, amount) ->
-                    System.out.printf("  %s: %,.2f%n", category, amount));
-        }
+    /**
+     * Итоги за период только по операциям, удовлетворяющим условию по меткам
+     * (например, "trip & !reimbursable"). Возвращает null при некорректном условии
+     */
+    public PeriodReport calculateByPeriod(LocalDate startDate, LocalDate endDate, String tagFilter) {
+        return traceReport("period_tags", () -> {
+            if (!isAuthenticated()) {
+                log.warn("Ошибка: пользователь не авторизован");
+                return null;
+            }
 
-        // Расходы по категориям
-        Map<String, Double> expenseByCategory = filteredTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.summingDouble(Transaction::getAmount)
-                ));
-
-        if (!expenseByCategory.isEmpty()) {
-            System.out.println("\nРасходы:");
-            expenseByCategory.forEach((category, amount) ->
-                    System.out.printf("  %s: %,.2f%n", category, amount));
-        }
+            TagFilter filter;
+            try {
+                filter = TagFilter.parse(tagFilter);
+            } catch (IllegalArgumentException e) {
+                log.warn("Ошибка: %s", e.getMessage());
+                return null;
+            }
+            Wallet wallet = getCurrentUser().getWallet();
+            return reportCache().get("period_tags", Arrays.asList(startDate, endDate, filter.getExpression()),
+                    wallet.getTransactionVersion(), () -> {
+                        TransactionTotals totals = wallet.getTotals(startDate, endDate, filter);
+                        return new PeriodReport(startDate, endDate, totals.getCount(),
+                                totals.getTotalIncome(), totals.getTotalExpense(),
+                                totals.getIncomeByCategory(), totals.getExpenseByCategory());
+                    }, PeriodReport::estimateBytes);
+        });
     }
 
     /**
-     * Подсчет по нескольким категориям с возможностью выбора типа операций
+     * Добавление метки операции по ее номеру в списке (с 0)
      */
-    public void calculateByMultipleCategories(String[] categories, boolean incomesOnly, boolean expensesOnly) {
+    public boolean tagTransaction(int index, String tag) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
-            return;
+            log.warn("Ошибка: пользователь не авторизован");
+            return false;
         }
-
-        if (categories == null || categories.length == 0) {
-            System.out.println("Ошибка: не указаны категории для подсчета");
-            return;
+        Wallet wallet = getCurrentUser().getWallet();
+        if (index < 0 || index >= wallet.getTransactions().size()) {
+            log.warn("Ошибка: операции с номером %d нет", index + 1);
+            return false;
         }
-
-        System.out.println("Подсчет по выбранным категориям:");
-        System.out.println("--------------------------------");
-
-        double totalIncome = 0;
-        double totalExpense = 0;
-        List<String> foundCategories = new ArrayList<>();
-        List<String> notFoundCategories = new ArrayList<>();
-
-        for (String category : categories) {
-            double income = getIncomeByCategory(category);
-            double expense = getExpenseByCategory(category);
-
-            if (income > 0 || expense > 0) {
-                foundCategories.add(category);
-
-                if ((!incomesOnly && !expensesOnly) || incomesOnly) {
-                    System.out.printf("  %s: доходы %,.2f%n", category, income);
-                    totalIncome += income;
-                }
-
-                if ((!incomesOnly && !expensesOnly) || expensesOnly) {
-                    System.out.printf("  %s: расходы %,.2f%n", category, expense);
-                    totalExpense += expense;
-                }
-            } else {
-                notFoundCategories.add(category);
-            }
+        if (tag == null || TagFilter.normalizeTag(tag).isEmpty()) {
+            log.warn("Ошибка: метка не может быть пустой");
+            return false;
+        }
+        if (!wallet.addTag(index, tag)) {
+            log.warn("Операция уже отмечена меткой '%s'", TagFilter.normalizeTag(tag));
+            return false;
         }
+        autoSave();
+        return true;
+    }
 
-        // Уведомления о ненайденных категориях
-        if (!notFoundCategories.isEmpty()) {
-            System.out.println("\nКатегории без операций:");
-            for (String category : notFoundCategories) {
-                System.out.println("  - " + category);
-            }
+    /**
+     * Снятие метки с операции по ее номеру в списке (с 0)
+     */
+    public boolean untagTransaction(int index, String tag) {
+        if (!isAuthenticated()) {
+            log.warn("Ошибка: пользователь не авторизован");
+            return false;
+        }
+        Wallet wallet = getCurrentUser().getWallet();
+        if (index < 0 || index >= wallet.getTransactions().size() || tag == null
+                || !wallet.removeTag(index, tag)) {
+            log.warn("Ошибка: у операции с номером %d нет метки '%s'", index + 1, tag);
+            return false;
         }
+        autoSave();
+        return true;
+    }
 
-        if (!foundCategories.isEmpty()) {
-            System.out.println("\nИтоги по найденным категориям:");
-            if ((!incomesOnly && !expensesOnly) || incomesOnly) {
-                System.out.printf("  Общий доход: %,.2f%n", totalIncome);
-            }
-            if ((!incomesOnly && !expensesOnly) || expensesOnly) {
-                System.out.printf("  Общий расход: %,.2f%n", totalExpense);
-            }
-            if (!incomesOnly && !expensesOnly) {
-                System.out.printf("  Чистый результат: %,.2f%n", totalIncome - totalExpense);
+    public Map<String, Integer> getTagCounts() {
+        if (!isAuthenticated()) return Map.of();
+        return getCurrentUser().getWallet().getTagCounts();
+    }
+
+    /**
+     * Подсчет по нескольким категориям с возможностью выбора типа операций.
+     * Суммы неучитываемого типа операций обнуляются.
+     */
+    public List<CategoryStats> calculateByMultipleCategories(String[] categories, boolean incomesOnly, boolean expensesOnly) {
+        return traceReport("categories_multiple", () -> {
+            boolean includeIncome = (!incomesOnly && !expensesOnly) || incomesOnly;
+            boolean includeExpense = (!incomesOnly && !expensesOnly) || expensesOnly;
+
+            List<CategoryStats> result = new ArrayList<>();
+            for (CategoryStats stats : buildSelectedCategories(categories)) {
+                result.add(new CategoryStats(stats.getCategory(),
+                        includeIncome ? stats.getIncome() : 0,
+                        includeExpense ? stats.getExpense() : 0,
+                        stats.getBudget()));
             }
-        } else {
-            System.out.println("По указанным категориям не найдено операций");
-        }
+            return result;
+        });
     }
 
     /**
-     * Быстрые отчеты за стандартные периоды
+     * Быстрые отчеты за стандартные периоды. Для неизвестного периода возвращает null
      */
-    public void quickReport(String periodType) {
+    public PeriodReport quickReport(String periodType) {
         LocalDate today = LocalDate.now();
         LocalDate startDate;
         LocalDate endDate = today;
@@ -287,11 +339,11 @@ public class FinancialService {
                 endDate = today.minusMonths(1).with(TemporalAdjusters.lastDayOfMonth());
                 break;
             default:
-                System.out.println("Неизвестный период. Используйте: day, week, month, year, last_month");
-                return;
+                log.warn("Неизвестный период. Используйте: day, week, month, year, last_month");
+                return null;
         }
 
-        calculateByPeriod(startDate, endDate);
+        return calculateByPeriod(startDate, endDate);
     }
 
     // МЕТОДЫ ДЛЯ РЕДАКТИРОВАНИЯ БЮДЖЕТОВ И КАТЕГОРИЙ
@@ -301,17 +353,17 @@ public class FinancialService {
      */
     public boolean editBudget(String category, double newLimit) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
+            log.warn("Ошибка: пользователь не авторизован");
             return false;
         }
 
         if (!isValidCategory(category)) {
-            System.out.println("Ошибка: категория не может быть пустой");
+            log.warn("Ошибка: категория не может быть пустой");
             return false;
         }
 
         if (!isValidAmount(newLimit)) {
-            System.out.println("Ошибка: новый лимит должен быть положительным числом");
+            log.warn("Ошибка: новый лимит должен быть положительным числом");
             return false;
         }
 
@@ -319,35 +371,16 @@ public class FinancialService {
         Wallet wallet = user.getWallet();
 
         if (!wallet.getBudgets().containsKey(category)) {
-            System.out.println("Ошибка: бюджет для категории '" + category + "' не найден");
+            log.warn("Ошибка: бюджет для категории '%s' не найден", category);
             return false;
         }
 
         double oldLimit = wallet.getBudgets().get(category);
-        double currentExpenses = getExpenseByCategory(category);
-
-        // Проверяем, что новый лимит не меньше уже потраченной суммы
-        if (newLimit < currentExpenses) {
-            System.out.printf("Предупреждение: новый лимит (%.2f) меньше уже потраченной суммы (%.2f)%n",
-                    newLimit, currentExpenses);
-            System.out.print("Вы уверены, что хотите установить такой лимит? (yes/no): ");
-
-            try {
-                Scanner scanner = new Scanner(System.in);
-                String confirmation = scanner.nextLine().trim().toLowerCase();
-                if (!confirmation.equals("yes") && !confirmation.equals("y")) {
-                    System.out.println("Редактирование отменено");
-                    return false;
-                }
-            } catch (Exception e) {
-                System.out.println("Ошибка при чтении подтверждения");
-                return false;
-            }
-        }
 
+        // Подтверждение лимита ниже уже потраченной суммы запрашивает интерфейс до вызова
         wallet.getBudgets().put(category, newLimit);
-        System.out.printf("Бюджет для категории '%s' изменен: %.2f -> %.2f%n",
-                category, oldLimit, newLimit);
+        log.info("Бюджет для категории '%s' изменен: %.2f -> %.2f", category, oldLimit, newLimit);
+        changeFeed.publish(new BudgetChanged(user.getLogin(), category, oldLimit, newLimit));
 
         autoSave();
         return true;
@@ -358,7 +391,7 @@ public class FinancialService {
      */
     public boolean removeBudget(String category) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
+            log.warn("Ошибка: пользователь не авторизован");
             return false;
         }
 
@@ -366,13 +399,13 @@ public class FinancialService {
         Wallet wallet = user.getWallet();
 
         if (!wallet.getBudgets().containsKey(category)) {
-            System.out.println("Ошибка: бюджет для категории '" + category + "' не найден");
+            log.warn("Ошибка: бюджет для категории '%s' не найден", category);
             return false;
         }
 
         Double removedLimit = wallet.getBudgets().remove(category);
-        System.out.printf("Бюджет для категории '%s' удален (лимит: %.2f)%n",
-                category, removedLimit);
+        log.info("Бюджет для категории '%s' удален (лимит: %.2f)", category, removedLimit);
+        changeFeed.publish(new BudgetChanged(user.getLogin(), category, removedLimit, null));
 
         autoSave();
         return true;
@@ -383,17 +416,17 @@ public class FinancialService {
      */
     public boolean renameCategory(String oldCategory, String newCategory) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
+            log.warn("Ошибка: пользователь не авторизован");
             return false;
         }
 
         if (!isValidCategory(oldCategory) || !isValidCategory(newCategory)) {
-            System.out.println("Ошибка: категории не могут быть пустыми");
+            log.warn("Ошибка: категории не могут быть пустыми");
             return false;
         }
 
         if (oldCategory.equals(newCategory)) {
-            System.out.println("Ошибка: новая категория совпадает со старой");
+            log.warn("Ошибка: новая категория совпадает со старой");
             return false;
         }
 
@@ -401,30 +434,16 @@ public class FinancialService {
         Wallet wallet = user.getWallet();
 
         // Проверяем, существует ли старая категория в транзакциях или бюджетах
-        boolean hasTransactions = wallet.getTransactions().stream()
-                .anyMatch(t -> t.getCategory().equals(oldCategory));
+        boolean hasTransactions = wallet.countTransactions(oldCategory) > 0;
         boolean hasBudget = wallet.getBudgets().containsKey(oldCategory);
 
         if (!hasTransactions && !hasBudget) {
-            System.out.println("Ошибка: категория '" + oldCategory + "' не найдена");
+            log.warn("Ошибка: категория '%s' не найдена", oldCategory);
             return false;
         }
 
-        // Переименовываем в транзакциях
-        int renamedTransactions = 0;
-        for (Transaction t : wallet.getTransactions()) {
-            if (t.getCategory().equals(oldCategory)) {
-                // Используем рефлексию для изменения категории (т.к. поле final)
-                try {
-                    java.lang.reflect.Field categoryField = Transaction.class.getDeclaredField("category");
-                    categoryField.setAccessible(true);
-                    categoryField.set(t, newCategory);
-                    renamedTransactions++;
-                } catch (Exception e) {
-                    System.err.println("Ошибка при переименовании транзакции: " + e.getMessage());
-                }
-            }
-        }
+        // Переименовываем в транзакциях (статистика категории переносится вместе с ними)
+        int renamedTransactions = wallet.renameCategory(oldCategory, newCategory);
 
         // Переименовываем в бюджетах
         Double budgetLimit = wallet.getBudgets().remove(oldCategory);
@@ -432,10 +451,9 @@ public class FinancialService {
             wallet.getBudgets().put(newCategory, budgetLimit);
         }
 
-        System.out.printf("Категория переименована: '%s' -> '%s'%n", oldCategory, newCategory);
-        System.out.printf("  Переименовано транзакций: %d%n", renamedTransactions);
-        System.out.printf("  Перенесен бюджет: %s%n",
-                budgetLimit != null ? String.format("%.2f", budgetLimit) : "нет");
+        log.info("Категория переименована: '%s' -> '%s'. Транзакций: %d, перенесен бюджет: %s",
+                oldCategory, newCategory, renamedTransactions, budgetLimit != null ? budgetLimit : "нет");
+        changeFeed.publish(new CategoryRenamed(user.getLogin(), oldCategory, newCategory, renamedTransactions));
 
         autoSave();
         return true;
@@ -446,17 +464,17 @@ public class FinancialService {
      */
     public boolean mergeCategories(String[] categoriesToMerge, String newCategory) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
+            log.warn("Ошибка: пользователь не авторизован");
             return false;
         }
 
         if (!isValidCategory(newCategory)) {
-            System.out.println("Ошибка: новая категория не может быть пустой");
+            log.warn("Ошибка: новая категория не может быть пустой");
             return false;
         }
 
         if (categoriesToMerge == null || categoriesToMerge.length < 2) {
-            System.out.println("Ошибка: необходимо указать минимум 2 категории для объединения");
+            log.warn("Ошибка: необходимо указать минимум 2 категории для объединения");
             return false;
         }
 
@@ -468,8 +486,7 @@ public class FinancialService {
         List<String> nonExistingCategories = new ArrayList<>();
 
         for (String category : categoriesToMerge) {
-            boolean exists = wallet.getTransactions().stream()
-                    .anyMatch(t -> t.getCategory().equals(category)) ||
+            boolean exists = wallet.countTransactions(category) > 0 ||
                     wallet.getBudgets().containsKey(category);
 
             if (exists) {
@@ -480,15 +497,13 @@ public class FinancialService {
         }
 
         if (existingCategories.isEmpty()) {
-            System.out.println("Ошибка: ни одна из указанных категорий не найдена");
+            log.warn("Ошибка: ни одна из указанных категорий не найдена");
             return false;
         }
 
         if (!nonExistingCategories.isEmpty()) {
-            System.out.println("Предупреждение: следующие категории не найдены и будут проигнорированы:");
-            for (String category : nonExistingCategories) {
-                System.out.println("  - " + category);
-            }
+            log.warn("Предупреждение: категории не найдены и будут проигнорированы: %s",
+                    String.join(", ", nonExistingCategories));
         }
 
         // Подсчитываем итоги по объединяемым категориям
@@ -496,13 +511,12 @@ public class FinancialService {
         double totalExpense = 0;
         double totalBudget = 0;
         int totalTransactions = 0;
+        Double previousBudget = wallet.getBudgets().get(newCategory);
 
         for (String category : existingCategories) {
             totalIncome += getIncomeByCategory(category);
             totalExpense += getExpenseByCategory(category);
-            totalTransactions += (int) wallet.getTransactions().stream()
-                    .filter(t -> t.getCategory().equals(category))
-                    .count();
+            totalTransactions += wallet.countTransactions(category);
 
             Double budget = wallet.getBudgets().remove(category);
             if (budget != null) {
@@ -510,16 +524,11 @@ public class FinancialService {
             }
         }
 
-        // Объединяем транзакции
-        for (Transaction t : wallet.getTransactions()) {
-            if (existingCategories.contains(t.getCategory())) {
-                try {
-                    java.lang.reflect.Field categoryField = Transaction.class.getDeclaredField("category");
-                    categoryField.setAccessible(true);
-                    categoryField.set(t, newCategory);
-                } catch (Exception e) {
-                    System.err.println("Ошибка при объединении транзакции: " + e.getMessage());
-                }
+        // Объединяем транзакции вместе со статистикой категорий
+        for (String category : existingCategories) {
+            int renamed = wallet.renameCategory(category, newCategory);
+            if (!category.equals(newCategory)) {
+                changeFeed.publish(new CategoryRenamed(user.getLogin(), category, newCategory, renamed));
             }
         }
 
@@ -527,83 +536,69 @@ public class FinancialService {
         if (totalBudget > 0) {
             wallet.getBudgets().put(newCategory, totalBudget);
         }
-
-        System.out.println("Категории успешно объединены:");
-        System.out.printf("  Новая категория: '%s'%n", newCategory);
-        System.out.printf("  Объединено категорий: %d%n", existingCategories.size());
-        System.out.printf("  Объединено транзакций: %d%n", totalTransactions);
-        System.out.printf("  Общий доход: %.2f%n", totalIncome);
-        System.out.printf("  Общий расход: %.2f%n", totalExpense);
-        if (totalBudget > 0) {
-            System.out.printf("  Объединенный бюджет: %.2f%n", totalBudget);
+        Double mergedBudget = wallet.getBudgets().get(newCategory);
+        if (!Objects.equals(previousBudget, mergedBudget)) {
+            changeFeed.publish(new BudgetChanged(user.getLogin(), newCategory, previousBudget, mergedBudget));
         }
 
+        log.info("Категории объединены в '%s': категорий %d, транзакций %d, доход %.2f, расход %.2f, бюджет %.2f",
+                newCategory, existingCategories.size(), totalTransactions, totalIncome, totalExpense, totalBudget);
+
         autoSave();
         return true;
     }
 
     /**
-     * Просмотр всех категорий со статистикой
+     * Все категории со статистикой, упорядоченные по названию
      */
-    public void listAllCategories() {
+    public List<CategoryStats> listAllCategories() {
+        return traceReport("categories", this::buildAllCategories);
+    }
+
+    private List<CategoryStats> buildAllCategories() {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
-            return;
+            log.warn("Ошибка: пользователь не авторизован");
+            return Collections.emptyList();
         }
 
-        User user = getCurrentUser();
-        Wallet wallet = user.getWallet();
-
-        // Получаем все уникальные категории из транзакций
-        Set<String> categories = wallet.getTransactions().stream()
-                .map(Transaction::getCategory)
-                .collect(Collectors.toSet());
-
-        // Добавляем категории из бюджетов
-        categories.addAll(wallet.getBudgets().keySet());
-
-        if (categories.isEmpty()) {
-            System.out.println("Категории не найдены");
-            return;
+        // Узлы дерева уже содержат итоги поддеревьев: операции не просматриваются
+        List<CategoryStats> result = new ArrayList<>();
+        for (CategoryTree.Node node : getCurrentUser().getWallet().getCategoryTree().walk("", -1)) {
+            result.add(new CategoryStats(node.getPath(), node.getIncome(), node.getExpense(), node.getBudget()));
         }
+        return result;
+    }
 
-        System.out.println("Список всех категорий:");
-        System.out.println("----------------------");
-
-        List<String> sortedCategories = new ArrayList<>(categories);
-        Collections.sort(sortedCategories);
-
-        for (String category : sortedCategories) {
-            double income = getIncomeByCategory(category);
-            double expense = getExpenseByCategory(category);
-            Double budget = wallet.getBudgets().get(category);
-
-            System.out.printf("%s:%n", category);
-            if (income > 0) {
-                System.out.printf("  Доходы: %,.2f%n", income);
-            }
-            if (expense > 0) {
-                System.out.printf("  Расходы: %,.2f%n", expense);
+    /**
+     * Поддерево категории category (пустая строка - все категории) не глубже depth
+     * уровней от нее; depth < 0 - без ограничения. Итоги узлов включают вложенные категории
+     */
+    public List<CategoryTreeStats> listCategoryTree(String category, int depth) {
+        return traceReport("category_tree", () -> {
+            if (!isAuthenticated()) {
+                log.warn("Ошибка: пользователь не авторизован");
+                return Collections.<CategoryTreeStats>emptyList();
             }
-            if (budget != null) {
-                double remaining = budget - expense;
-                System.out.printf("  Бюджет: %,.2f (осталось: %,.2f)%n", budget, remaining);
+
+            List<CategoryTreeStats> result = new ArrayList<>();
+            for (CategoryTree.Node node : getCurrentUser().getWallet().getCategoryTree().walk(category, depth)) {
+                result.add(CategoryTreeStats.of(node));
             }
-            System.out.println();
-        }
+            return result;
+        });
     }
 
     // Создание оповещения
-    private void createAlert(AlertType type, String message) {
+    private void createAlert(AlertReason reason, double... values) {
         if (!isAuthenticated()) return;
+        alertChecker.raise(getCurrentUser().getWallet(), reason, null, values);
+    }
 
-        User user = getCurrentUser();
-        Alert alert = new Alert(type, message);
-        user.getWallet().addAlert(alert);
-
-        // Немедленный вывод критических оповещений
-        if (type == AlertType.BUDGET_EXCEEDED || type == AlertType.OVERSPENDING) {
-            System.out.printf("🚨 ОПОВЕЩЕНИЕ: %s%n", message);
+    // Публикация оповещений, добавленных в кошелек после позиции alertsBefore
+    private void publishAlerts(User user, int alertsBefore) {
+        List<Alert> alerts = user.getWallet().getAlerts();
+        for (int i = alertsBefore; i < alerts.size(); i++) {
+            changeFeed.publish(new AlertRaised(user.getLogin(), alerts.get(i)));
         }
     }
 
@@ -612,185 +607,100 @@ public class FinancialService {
      */
     public void checkAllAlerts() {
         if (!isAuthenticated()) return;
-
-        checkBudgetAlerts();
-        checkBalanceAlerts();
-        checkOverspendingAlert();
-        checkIncomeAlert();
-        checkZeroBalanceAlert();
-        checkLargeTransactionAlert();
+        checkAlerts(getCurrentUser());
     }
 
     /**
-     * Проверка оповещений по бюджетам
+     * Подготовка кошелька после входа (выполняется в фоне, см. AuthService.login):
+     * построение дерева категорий, статистики и итогов, затем проверка оповещений
      */
-    private void checkBudgetAlerts() {
-        User user = getCurrentUser();
+    public void prepareWallet(User user) {
         Wallet wallet = user.getWallet();
-
-        for (Map.Entry<String, Double> entry : wallet.getBudgets().entrySet()) {
-            String category = entry.getKey();
-            double limit = entry.getValue();
-            double expenses = getExpenseByCategory(category);
-
-            if (limit > 0) {
-                double usagePercent = (expenses / limit) * 100;
-
-                // Предупреждение при 80% использования
-                if (usagePercent >= BUDGET_WARNING_PERCENT && usagePercent < 100) {
-                    double remaining = limit - expenses;
-                    if (!hasRecentAlert(category + "_warning")) {
-                        createAlert(AlertType.BUDGET_WARNING,
-                                String.format("Категория '%s': использовано %.1f%% бюджета. Осталось: %.2f",
-                                        category, usagePercent, remaining));
-                    }
-                }
-
-                // Критическое предупреждение при 95% использования
-                if (usagePercent >= BUDGET_CRITICAL_PERCENT && usagePercent < 100) {
-                    double remaining = limit - expenses;
-                    if (!hasRecentAlert(category + "_critical")) {
-                        createAlert(AlertType.BUDGET_EXCEEDED,
-                                String.format("КРИТИЧЕСКИЙ УРОВЕНЬ! Категория '%s': использовано %.1f%% бюджета. Осталось всего: %.2f",
-                                        category, usagePercent, remaining));
-                    }
-                }
-
-                // Превышение бюджета
-                if (expenses > limit) {
-                    double exceededBy = expenses - limit;
-                    if (!hasRecentAlert(category + "_exceeded")) {
-                        createAlert(AlertType.BUDGET_EXCEEDED,
-                                String.format("ПРЕВЫШЕН БЮДЖЕТ! Категория '%s': превышение на %.2f. Лимит: %.2f, Факт: %.2f",
-                                        category, exceededBy, limit, expenses));
-                    }
-                }
-            }
-        }
+        wallet.getCategoryTree();
+        wallet.getCategorySketches();
+        wallet.getTotals();
+        checkAlerts(user);
     }
 
-    /**
-     * Проверка оповещений по балансу
-     */
-    private void checkBalanceAlerts() {
-        double balance = getCurrentUser().getWallet().getBalance();
-
-        // Низкий баланс - предупреждение
-        if (balance > 0 && balance <= LOW_BALANCE_WARNING && balance > LOW_BALANCE_CRITICAL) {
-            if (!hasRecentAlert("low_balance_warning")) {
-                createAlert(AlertType.LOW_BALANCE,
-                        String.format("Низкий баланс: %.2f. Рекомендуется пополнить счет.", balance));
-            }
-        }
+    private void checkAlerts(User user) {
+        AlertScanEvent event = new AlertScanEvent();
+        event.begin();
+        Wallet wallet = user.getWallet();
+        int alertsBefore = wallet.getAlerts().size();
+        int raised = alertChecker.checkAll(wallet);
+        publishAlerts(user, alertsBefore);
 
-        // Критически низкий баланс
-        if (balance > 0 && balance <= LOW_BALANCE_CRITICAL) {
-            if (!hasRecentAlert("low_balance_critical")) {
-                createAlert(AlertType.LOW_BALANCE,
-                        String.format("КРИТИЧЕСКИ НИЗКИЙ БАЛАНС: %.2f. Срочно пополните счет!", balance));
-            }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setUser(user.getLogin());
+            event.setTransactionCount(wallet.getTransactions().size());
+            event.setAlertsRaised(raised);
+            event.commit();
         }
     }
 
     /**
-     * Проверка на перерасход (расходы близки к доходам)
+     * Проверка, выбивается ли сумма из обычного распределения операций категории.
+     * Пока истории мало, используется фиксированный порог крупной операции
      */
-    private void checkOverspendingAlert() {
-        double totalIncome = getTotalIncome();
-        double totalExpense = getTotalExpense();
-
-        if (totalIncome > 0) {
-            double expenseRatio = totalExpense / totalIncome;
-
-            if (expenseRatio >= OVERSPENDING_THRESHOLD && expenseRatio < 1.0) {
-                if (!hasRecentAlert("overspending_warning")) {
-                    createAlert(AlertType.OVERSPENDING,
-                            String.format("ВНИМАНИЕ: расходы составляют %.1f%% от доходов (%.2f из %.2f).",
-                                    expenseRatio * 100, totalExpense, totalIncome));
-                }
-            }
-
-            if (totalExpense > totalIncome) {
-                double deficit = totalExpense - totalIncome;
-                if (!hasRecentAlert("overspending_critical")) {
-                    createAlert(AlertType.OVERSPENDING,
-                            String.format("КРИТИЧЕСКИЙ ПЕРЕРАСХОД! Расходы превысили доходы на %.2f.", deficit));
-                }
-            }
-        }
+    public boolean isUnusualTransaction(String category, double amount) {
+        if (!isAuthenticated()) return false;
+        return alertChecker.isUnusual(getCurrentUser().getWallet(), category, amount);
     }
 
     /**
-     * Проверка на отсутствие доходов
+     * Распределение сумм операций категории или null, если операций нет
      */
-    private void checkIncomeAlert() {
-        double totalIncome = getTotalIncome();
-
-        if (totalIncome == 0 && getCurrentUser().getWallet().getTransactions().size() > 0) {
-            if (!hasRecentAlert("no_income")) {
-                createAlert(AlertType.BUDGET_WARNING,
-                        "У вас еще нет зарегистрированных доходов. Добавьте доходы для полноценного учета.");
-            }
+    public CategoryDistribution getCategoryDistribution(String category) {
+        if (!isAuthenticated()) {
+            log.warn("Ошибка: пользователь не авторизован");
+            return null;
         }
-    }
-
-    /**
-     * Проверка нулевого баланса
-     */
-    private void checkZeroBalanceAlert() {
-        double balance = getCurrentUser().getWallet().getBalance();
 
-        if (balance == 0 && getCurrentUser().getWallet().getTransactions().size() > 0) {
-            if (!hasRecentAlert("zero_balance")) {
-                createAlert(AlertType.LOW_BALANCE,
-                        "Баланс равен нулю. Рассмотрите возможность пополнения счета.");
-            }
+        KllSketch sketch = getCurrentUser().getWallet().getCategorySketch(category);
+        if (sketch == null || sketch.isEmpty()) {
+            log.warn("Ошибка: по категории '%s' нет операций", category);
+            return null;
         }
+        return CategoryDistribution.of(category, sketch);
     }
 
     /**
-     * Проверка на крупные транзакции
+     * Распределения сумм по всем категориям, упорядоченные по названию
      */
-    private void checkLargeTransactionAlert() {
-        User user = getCurrentUser();
-        List<Transaction> transactions = user.getWallet().getTransactions();
-
-        if (transactions.isEmpty()) return;
-
-        // Получаем последнюю транзакцию
-        Transaction lastTransaction = transactions.get(transactions.size() - 1);
-
-        // Проверяем, является ли транзакция крупной (более 10000)
-        if (lastTransaction.getAmount() > 10000) {
-            String alertKey = "large_transaction_" + lastTransaction.getCategory();
-            if (!hasRecentAlert(alertKey)) {
-                createAlert(AlertType.BUDGET_WARNING,
-                        String.format("Крупная операция: %.2f в категории '%s'. Проверьте корректность.",
-                                lastTransaction.getAmount(), lastTransaction.getCategory()));
+    public List<CategoryDistribution> getCategoryDistributions() {
+        return traceReport("distribution", () -> {
+            if (!isAuthenticated()) {
+                log.warn("Ошибка: пользователь не авторизован");
+                return Collections.<CategoryDistribution>emptyList();
             }
-        }
+
+            List<CategoryDistribution> result = new ArrayList<>();
+            new TreeMap<>(getCurrentUser().getWallet().getCategorySketches())
+                    .forEach((category, sketch) -> result.add(CategoryDistribution.of(category, sketch)));
+            return result;
+        });
     }
 
     /**
-     * Проверка, было ли недавнее оповещение с таким ключом
+     * Прогноз расходов по всем бюджетам на конец текущего месяца.
+     * Использует только накопленное состояние категорий: O(число бюджетов)
      */
-    private boolean hasRecentAlert(String alertKey) {
-        User user = getCurrentUser();
-        List<Alert> alerts = user.getWallet().getAlerts();
-
-        if (alerts.isEmpty()) return false;
-
-        // Проверяем последние 10 оповещений
-        int start = Math.max(0, alerts.size() - 10);
-        for (int i = start; i < alerts.size(); i++) {
-            Alert alert = alerts.get(i);
-            // Используем часть сообщения как ключ для проверки
-            if (alert.getMessage().contains(alertKey)) {
-                return true;
+    public List<BudgetForecast> getBudgetForecasts() {
+        return traceReport("forecast", () -> {
+            if (!isAuthenticated()) {
+                log.warn("Ошибка: пользователь не авторизован");
+                return Collections.<BudgetForecast>emptyList();
             }
-        }
 
-        return false;
+            LocalDate today = LocalDate.now();
+            Wallet wallet = getCurrentUser().getWallet();
+            List<BudgetForecast> forecasts = new ArrayList<>();
+            for (String category : new TreeSet<>(getAllBudgets().keySet())) {
+                forecasts.add(alertChecker.forecast(wallet, category, today));
+            }
+            return forecasts;
+        });
     }
 
     /**
@@ -799,205 +709,110 @@ public class FinancialService {
     public void configureAlerts(double warningPercent, double criticalPercent,
                                 double lowBalanceWarning, double lowBalanceCritical) {
         // Эти параметры можно сделать настраиваемыми
-        System.out.println("Настройки оповещений обновлены:");
-        System.out.printf("  Предупреждение о бюджете: %.0f%%%n", warningPercent);
-        System.out.printf("  Критический уровень бюджета: %.0f%%%n", criticalPercent);
-        System.out.printf("  Низкий баланс (предупреждение): %.2f%n", lowBalanceWarning);
-        System.out.printf("  Низкий баланс (критический): %.2f%n", lowBalanceCritical);
-    }
-
-    // Проверка превышения бюджета с улучшенной логикой
-    private void checkBudgetExceeded(String category, double newExpense) {
-        Double budgetLimit = getBudget(category);
-        if (budgetLimit == null) return;
-
-        double currentExpenses = getExpenseByCategory(category);
-        double budgetUsage = currentExpenses / budgetLimit;
-
-        // Предупреждение при достижении 80% бюджета
-        if (budgetUsage >= BUDGET_WARNING_THRESHOLD && budgetUsage < 1.0) {
-            double remaining = budgetLimit - currentExpenses;
-            createAlert(AlertType.BUDGET_WARNING,
-                    String.format("Категория '%s': использовано %.0f%% бюджета. Осталось: %.2f",
-                            category, budgetUsage * 100, remaining));
-        }
-
-        // Оповещение о превышении бюджета
-        if (currentExpenses > budgetLimit) {
-            double exceededBy = currentExpenses - budgetLimit;
-            createAlert(AlertType.BUDGET_EXCEEDED,
-                    String.format("Превышен бюджет для категории '%s'! Лимит: %.2f, Факт: %.2f (превышение: %.2f)",
-                            category, budgetLimit, currentExpenses, exceededBy));
-        }
+        log.info("Настройки оповещений обновлены: бюджет %.0f%%/%.0f%%, низкий баланс %.2f/%.2f",
+                warningPercent, criticalPercent, lowBalanceWarning, lowBalanceCritical);
     }
 
-    // Проверка общего финансового здоровья
-    private void checkOverallFinancialHealth() {
-        double totalIncome = getTotalIncome();
-        double totalExpense = getTotalExpense();
+    // Методы для работы с оповещениями
+    public List<Alert> getAlerts() {
+        if (!isAuthenticated()) return Collections.emptyList();
+        return getCurrentUser().getWallet().getAlerts();
+    }
 
-        if (totalExpense > totalIncome) {
-            double deficit = totalExpense - totalIncome;
-            createAlert(AlertType.OVERSPENDING,
-                    String.format("Расходы превысили доходы! Дефицит: %.2f. Доходы: %.2f, Расходы: %.2f",
-                            deficit, totalIncome, totalExpense));
-        }
+    public void markAllAlertsAsRead() {
+        if (!isAuthenticated()) return;
+        getCurrentUser().getWallet().markAllAlertsAsRead();
     }
 
-    // Проверка низкого баланса
-    private void checkLowBalance() {
-        double balance = getCurrentUser().getWallet().getBalance();
-        if (balance < LOW_BALANCE_THRESHOLD) {
-            createAlert(AlertType.LOW_BALANCE,
-                    String.format("Низкий баланс: %.2f. Рекомендуется пополнить счет.", balance));
-        }
+    public int getUnreadAlertCount() {
+        if (!isAuthenticated()) return 0;
+        return getCurrentUser().getWallet().getUnreadAlertCount();
     }
 
-    // Методы для работы с оповещениями
-    public void showAlerts() {
+    public boolean clearAlerts() {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
-            return;
+            log.warn("Ошибка: пользователь не авторизован");
+            return false;
         }
 
         User user = getCurrentUser();
-        List<Alert> unreadAlerts = user.getWallet().getUnreadAlerts();
-        List<Alert> allAlerts = user.getWallet().getAlerts();
-
-        if (allAlerts.isEmpty()) {
-            System.out.println("Оповещений нет");
-            return;
-        }
-
-        System.out.println("=== ОПОВЕЩЕНИЯ ===");
-
-        // Показываем непрочитанные оповещения
-        if (!unreadAlerts.isEmpty()) {
-            System.out.println("Новые оповещения:");
-            for (int i = 0; i < unreadAlerts.size(); i++) {
-                Alert alert = unreadAlerts.get(i);
-                System.out.printf("%d. %s%n", i + 1, alert.getMessage());
-            }
-        }
-
-        // Показываем все оповещения
-        System.out.println("\nВсе оповещения:");
-        for (int i = 0; i < allAlerts.size(); i++) {
-            Alert alert = allAlerts.get(i);
-            String status = alert.isRead() ? "📭" : "📬";
-            System.out.printf("%d. %s %s - %s%n", i + 1, status, alert.getMessage(), alert.getTimestamp());
-        }
-
-        // Помечаем все как прочитанные после показа
-        user.getWallet().markAllAlertsAsRead();
+        user.getWallet().clearAlerts();
+        log.info("Все оповещения пользователя %s очищены", user.getLogin());
+        return true;
     }
 
-    public void showUnreadAlertCount() {
-        if (!isAuthenticated()) return;
-
-        int unreadCount = getCurrentUser().getWallet().getUnreadAlertCount();
-        if (unreadCount > 0) {
-            System.out.printf("📬 У вас %d непрочитанных оповещений. Введите 'alerts' для просмотра.%n", unreadCount);
-        }
+    /**
+     * Сводная финансовая статистика текущего пользователя
+     */
+    public FinancialReport getFinancialReport() {
+        return traceReport("summary", this::buildFinancialReport);
     }
 
-    public void clearAlerts() {
+    /**
+     * Полная статистика с предварительной проверкой финансового здоровья
+     */
+    public FinancialReport getFullStatistics() {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
-            return;
+            log.warn("Ошибка: пользователь не авторизован");
+            return null;
         }
 
+        // Проверяем финансовое здоровье перед показом статистики
         User user = getCurrentUser();
-        user.getWallet().getAlerts().clear();
-        System.out.println("Все оповещения очищены");
-    }
-
-    // Обновленный метод showUserInfo с отображением оповещений
-    public void showUserInfo() {
-        if (isAuthenticated()) {
-            User user = getCurrentUser();
-            Wallet wallet = user.getWallet();
-
-            System.out.printf("Пользователь: %s%n", user.getLogin());
-            System.out.printf("Баланс: %,.2f%n", wallet.getBalance());
-            System.out.printf("Общий доход: %,.2f%n", getTotalIncome());
-            System.out.printf("Общий расход: %,.2f%n", getTotalExpense());
-            System.out.printf("Кол-во транзакций: %d%n", wallet.getTransactions().size());
-            System.out.printf("Кол-во бюджетов: %d%n", wallet.getBudgets().size());
-            System.out.printf("Непрочитанных оповещений: %d%n", wallet.getUnreadAlertCount());
-
-            // Показываем счетчик непрочитанных оповещений
-            showUnreadAlertCount();
-
-            showRecentTransactions(3);
-        } else {
-            System.out.println("Пользователь не авторизован");
-        }
+        int alertsBefore = user.getWallet().getAlerts().size();
+        alertChecker.checkHealth(user.getWallet());
+        publishAlerts(user, alertsBefore);
+
+        return traceReport("full", this::buildFinancialReport);
     }
 
-    // Обновленный метод showFullStatistics с проверкой оповещений
-    public void showFullStatistics() {
+    private FinancialReport buildFinancialReport() {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
-            return;
+            log.warn("Ошибка: пользователь не авторизован");
+            return null;
         }
 
-        // Проверяем финансовое здоровье перед показом статистики
-        checkOverallFinancialHealth();
-        checkLowBalance();
-
-        System.out.println("=== ФИНАНСОВАЯ СТАТИСТИКА ===");
-
-        double totalIncome = getTotalIncome();
-        double totalExpense = getTotalExpense();
-
-        System.out.printf("Общий доход: %,.1f%n", totalIncome);
-        System.out.printf("Общие расходы: %,.1f%n", totalExpense);
-        System.out.printf("Текущий баланс: %,.1f%n", getCurrentUser().getWallet().getBalance());
-        System.out.println();
-
-        showIncomeByCategories();
-        System.out.println();
-
-        showExpensesByCategories();
-        System.out.println();
-
-        showDetailedBudgetStatus();
-
-        // Показываем непрочитанные оповещения
-        showUnreadAlertCount();
+        User user = getCurrentUser();
+        return reportCache().get("report", Collections.emptyList(), user.getWallet().getVersion(),
+                () -> FinancialReport.of(user), FinancialReport::estimateBytes);
     }
 
     // Остальные методы остаются без изменений (из Этапа 4)
     public boolean setBudget(String category, double limit) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
+            log.warn("Ошибка: пользователь не авторизован");
             autoSave();
             return true;
         }
 
         if (!isValidCategory(category)) {
-            System.out.println("Ошибка: категория не может быть пустой");
+            log.warn("Ошибка: категория не может быть пустой");
             return false;
         }
 
         if (!isValidAmount(limit)) {
-            System.out.println("Ошибка: лимит бюджета должен быть положительным числом");
+            log.warn("Ошибка: лимит бюджета должен быть положительным числом");
             return false;
         }
 
         User user = getCurrentUser();
         Wallet wallet = user.getWallet();
 
-        wallet.getBudgets().put(category, limit);
-        System.out.printf("Бюджет для категории '%s' установлен: %.2f%n", category, limit);
+        Double oldLimit = wallet.getBudgets().put(category, limit);
+        if (log.isDebugEnabled()) {
+            log.debug("Бюджет для категории '%s' установлен: %.2f", category, limit);
+        }
+        if (oldLimit == null || oldLimit != limit) {
+            changeFeed.publish(new BudgetChanged(user.getLogin(), category, oldLimit, limit));
+        }
 
         return true;
     }
 
-    // Методы валидации
+    // Методы валидации: сумма, которая округляется до нуля копеек, недопустима
     private boolean isValidAmount(double amount) {
-        return amount > 0 && !Double.isNaN(amount) && !Double.isInfinite(amount);
+        return amount > 0 && !Double.isNaN(amount) && !Double.isInfinite(amount)
+                && Transaction.roundToCents(amount) > 0;
     }
 
     private boolean isValidCategory(String category) {
@@ -1017,225 +832,190 @@ public class FinancialService {
 
     public double getTotalIncome() {
         if (!isAuthenticated()) return 0;
-        return getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        return getCurrentUser().getWallet().sumAmounts(TransactionType.INCOME, null);
     }
 
     public double getTotalExpense() {
         if (!isAuthenticated()) return 0;
-        return getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        return getCurrentUser().getWallet().sumAmounts(TransactionType.EXPENSE, null);
     }
 
     public double getIncomeByCategory(String category) {
         if (!isAuthenticated()) return 0;
-        return getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.INCOME && t.getCategory().equals(category))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        return getCurrentUser().getWallet().sumAmounts(TransactionType.INCOME, category);
     }
 
     public double getExpenseByCategory(String category) {
         if (!isAuthenticated()) return 0;
-        return getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE && t.getCategory().equals(category))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        return getCurrentUser().getWallet().sumAmounts(TransactionType.EXPENSE, category);
     }
 
-    // Остальные методы статистики (без изменений из Этапа 4)
-    private void showIncomeByCategories() {
-        Map<String, Double> incomeByCategory = getIncomeByCategories();
-
-        if (incomeByCategory.isEmpty()) {
-            System.out.println("Доходы по категориям: нет данных");
-            return;
-        }
-
-        System.out.println("Доходы по категориям:");
-        incomeByCategory.entrySet().stream()
-                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                .forEach(entry ->
-                        System.out.printf("  - %s: %,.1f%n", entry.getKey(), entry.getValue()));
+    /**
+     * Остаток по операциям на конец дня date
+     */
+    public double getBalanceAt(LocalDate date) {
+        if (!isAuthenticated()) return 0;
+        return getCurrentUser().getWallet().getBalanceAt(date);
     }
 
-    private void showExpensesByCategories() {
-        Map<String, Double> expenseByCategory = getExpenseByCategories();
+    /**
+     * Доходы минус расходы за дни from..to включительно
+     */
+    public double getNetFlow(LocalDate from, LocalDate to) {
+        if (!isAuthenticated()) return 0;
+        return getCurrentUser().getWallet().getNetFlow(from, to);
+    }
 
-        if (expenseByCategory.isEmpty()) {
-            System.out.println("Расходы по категориям: нет данных");
-            return;
-        }
+    /**
+     * Расходы, учитываемые бюджетом категории: сама категория и все вложенные
+     */
+    public double getBudgetSpending(String category) {
+        if (!isAuthenticated()) return 0;
+        return getCurrentUser().getWallet().getSubtreeExpense(category);
+    }
 
-        System.out.println("Расходы по категориям:");
-        expenseByCategory.entrySet().stream()
-                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                .forEach(entry ->
-                        System.out.printf("  - %s: %,.1f%n", entry.getKey(), entry.getValue()));
+    /**
+     * Состояние всех бюджетов, упорядоченное по возрастанию остатка
+     */
+    public List<BudgetStatus> getBudgetStatuses() {
+        return traceReport("budgets", this::buildBudgetStatuses);
     }
 
-    public void showDetailedBudgetStatus() {
-        Map<String, Double> budgets = getAllBudgets();
-        if (budgets.isEmpty()) {
-            System.out.println("Бюджеты по категориям: не установлены");
-            return;
-        }
+    private List<BudgetStatus> buildBudgetStatuses() {
+        if (!isAuthenticated()) return Collections.emptyList();
+        Wallet wallet = getCurrentUser().getWallet();
+        return reportCache().get("budgets", Collections.emptyList(), wallet.getVersion(),
+                () -> Collections.unmodifiableList(FinancialReport.budgetStatuses(wallet)),
+                statuses -> ReportCache.estimate(statuses.size()));
+    }
 
-        System.out.println("Бюджет по категориям:");
-        budgets.entrySet().stream()
-                .sorted((a, b) -> {
-                    double remainingA = a.getValue() - getExpenseByCategory(a.getKey());
-                    double remainingB = b.getValue() - getExpenseByCategory(b.getKey());
-                    return Double.compare(remainingA, remainingB);
-                })
-                .forEach(entry -> {
-                    String category = entry.getKey();
-                    double limit = entry.getValue();
-                    double expenses = getExpenseByCategory(category);
-                    double remaining = limit - expenses;
+    // Кэш отчетов текущего пользователя
+    private ReportCache reportCache() {
+        return reportCaches.computeIfAbsent(getCurrentUser().getLogin(), login -> new ReportCache());
+    }
 
-                    System.out.printf("  - %s: %,.1f, Оставшийся бюджет: %,.1f%n",
-                            category, limit, remaining);
-                });
+    /**
+     * Кэш отчетов текущего пользователя или null, если пользователь не авторизован
+     */
+    public ReportCache getReportCache() {
+        return isAuthenticated() ? reportCache() : null;
     }
 
     public Map<String, Double> getIncomeByCategories() {
         if (!isAuthenticated()) return Map.of();
 
-        return getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.summingDouble(Transaction::getAmount)
-                ));
+        return getCurrentUser().getWallet().getTotals().getIncomeByCategory();
     }
 
     public Map<String, Double> getExpenseByCategories() {
         if (!isAuthenticated()) return Map.of();
 
-        return getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.summingDouble(Transaction::getAmount)
-                ));
+        return getCurrentUser().getWallet().getTotals().getExpenseByCategory();
+    }
+
+    /**
+     * Подсчет по выбранным категориям в порядке их перечисления
+     */
+    public List<CategoryStats> calculateSelectedCategories(String[] categories) {
+        return traceReport("categories_selected", () -> buildSelectedCategories(categories));
     }
 
-    public void calculateSelectedCategories(String[] categories) {
+    private List<CategoryStats> buildSelectedCategories(String[] categories) {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
-            return;
+            log.warn("Ошибка: пользователь не авторизован");
+            return Collections.emptyList();
         }
 
         if (categories == null || categories.length == 0) {
-            System.out.println("Ошибка: не указаны категории для подсчета");
-            return;
+            log.warn("Ошибка: не указаны категории для подсчета");
+            return Collections.emptyList();
         }
 
-        System.out.println("Подсчет по выбранным категориям:");
-
-        double totalIncome = 0;
-        double totalExpense = 0;
-        boolean hasValidCategories = false;
-
+        List<CategoryStats> result = new ArrayList<>();
         for (String category : categories) {
-            double income = getIncomeByCategory(category);
-            double expense = getExpenseByCategory(category);
-
-            if (income > 0 || expense > 0) {
-                hasValidCategories = true;
-                totalIncome += income;
-                totalExpense += expense;
+            result.add(new CategoryStats(category, getIncomeByCategory(category),
+                    getExpenseByCategory(category), getBudget(category)));
+        }
+        return result;
+    }
 
-                System.out.printf("  %s: доходы %,.1f, расходы %,.1f%n",
-                        category, income, expense);
-            } else {
-                System.out.printf("  Категория '%s' не найдена или нет операций%n", category);
+    /**
+     * Поиск операций текущего пользователя, не более limit на страницу.
+     * cursor - курсор предыдущей страницы или null. Возвращает null при ошибке
+     */
+    public TransactionPage searchTransactions(TransactionQuery query, String cursor, int limit) {
+        return traceReport("search", () -> {
+            if (!isAuthenticated()) {
+                log.warn("Ошибка: пользователь не авторизован");
+                return null;
+            }
+            if (query == null || !query.isValid() || limit <= 0) {
+                log.warn("Ошибка: некорректные условия поиска");
+                return null;
             }
-        }
 
-        if (hasValidCategories) {
-            System.out.printf("Итого по выбранным категориям: доходы %,.1f, расходы %,.1f%n",
-                    totalIncome, totalExpense);
-        }
+            try {
+                TransactionPage page = getCurrentUser().getWallet().search(query, cursor, limit);
+                if (log.isDebugEnabled()) {
+                    log.debug("Поиск %s: найдено %d (%s)", query, page.getTransactions().size(), page.getPlan());
+                }
+                return page;
+            } catch (IllegalArgumentException e) {
+                log.warn("Ошибка поиска: %s", e.getMessage());
+                return null;
+            }
+        });
     }
 
-    private void showRecentTransactions(int count) {
-        User user = getCurrentUser();
-        List<Transaction> transactions = user.getWallet().getTransactions();
-
-        if (transactions.isEmpty()) {
-            System.out.println("Транзакций нет");
-            return;
-        }
+    /**
+     * Последние транзакции текущего пользователя (не более count)
+     */
+    public List<Transaction> getRecentTransactions(int count) {
+        if (!isAuthenticated()) return Collections.emptyList();
 
-        System.out.println("Последние транзакции:");
+        List<Transaction> transactions = getCurrentUser().getWallet().getTransactions();
         int start = Math.max(0, transactions.size() - count);
-        for (int i = start; i < transactions.size(); i++) {
-            Transaction t = transactions.get(i);
-            String typeSymbol = t.getType() == TransactionType.INCOME ? "+" : "-";
-            System.out.printf("  %s %,.2f (%s) - %s%n",
-                    typeSymbol, t.getAmount(), t.getCategory(), t.getDate().toLocalDate());
-        }
+        return new ArrayList<>(transactions.subList(start, transactions.size()));
     }
 
-    public void showBudgetStatus() {
+    /**
+     * Принудительное сохранение данных
+     */
+    public boolean saveData() {
         if (!isAuthenticated()) {
-            System.out.println("Ошибка: пользователь не авторизован");
-            return;
-        }
-
-        Map<String, Double> budgets = getAllBudgets();
-        if (budgets.isEmpty()) {
-            System.out.println("Бюджеты не установлены");
-            return;
-        }
-
-        System.out.println("Статус бюджетов:");
-        for (Map.Entry<String, Double> entry : budgets.entrySet()) {
-            String category = entry.getKey();
-            double limit = entry.getValue();
-            double expenses = getExpenseByCategory(category);
-            double remaining = limit - expenses;
-
-            String status = remaining >= 0 ? "✅" : "⚠️";
-            System.out.printf("  %s %s: Лимит %,.2f, Расходы %,.2f, Осталось %,.2f%n",
-                    status, category, limit, expenses, remaining);
+            log.warn("Ошибка: пользователь не авторизован");
+            return false;
         }
+        return dataService.saveUserData(getCurrentUser());
     }
 
     /**
-     * Принудительное сохранение данных
+     * Создание резервной копии данных
      */
-    public void saveData() {
-        if (isAuthenticated()) {
-            if (dataService.saveUserData(getCurrentUser())) {
-                System.out.println("Данные успешно сохранены");
-            } else {
-                System.out.println("Ошибка при сохранении данных");
-            }
-        } else {
-            System.out.println("Ошибка: пользователь не авторизован");
+    public boolean createBackup() {
+        if (!isAuthenticated()) {
+            log.warn("Ошибка: пользователь не авторизован");
+            return false;
         }
+        return dataService.createBackup(getCurrentUser().getLogin());
     }
 
     /**
-     * Создание резервной копии данных
+     * Построение отчета с записью события JFR
      */
-    public void createBackup() {
-        if (isAuthenticated()) {
-            String login = getCurrentUser().getLogin();
-            if (dataService.createBackup(login)) {
-                System.out.println("Резервная копия создана");
-            } else {
-                System.out.println("Ошибка при создании резервной копии");
+    private <T> T traceReport(String report, Supplier<T> body) {
+        ReportEvent event = new ReportEvent(report);
+        event.begin();
+        try {
+            return body.get();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                User user = getCurrentUser();
+                event.setUser(user != null ? user.getLogin() : null);
+                event.setTransactionCount(user != null ? user.getWallet().getTransactions().size() : 0);
+                event.commit();
             }
-        } else {
-            System.out.println("Ошибка: пользователь не авторизован");
         }
     }
-}
\ No newline at end of file
+}
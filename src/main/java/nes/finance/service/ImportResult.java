@@ -0,0 +1,22 @@
+package nes.finance.service;
+
+/**
+ * Результат импорта транзакций: количество импортированных и пропущенных строк
+ */
+public class ImportResult {
+    private final int importedCount;
+    private final int skippedCount;
+
+    public ImportResult(int importedCount, int skippedCount) {
+        this.importedCount = importedCount;
+        this.skippedCount = skippedCount;
+    }
+
+    // Getters
+    public int getImportedCount() { return importedCount; }
+    public int getSkippedCount() { return skippedCount; }
+
+    public boolean isSuccess() {
+        return importedCount > 0;
+    }
+}
@@ -0,0 +1,14 @@
+package nes.finance.service;
+
+/**
+ * Получатель изменений каталога данных: вызывается после каждой успешной записи
+ * или удаления файла пользователя.
+ *
+ * Для одного логина вызовы идут в том же порядке, что и замены файлов, а данные
+ * совпадают с содержимым файла на момент вызова
+ */
+public interface PersistenceListener {
+    void userSaved(String login, byte[] data);
+
+    void userDeleted(String login);
+}
@@ -0,0 +1,53 @@
+package nes.finance.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Результат сверки кошельков: расхождения по пользователям и итоги исправления
+ */
+public class ReconciliationReport {
+    private final int checkedCount;
+    private final int failedCount;
+    private final int repairedCount;
+    private final int skippedCount;
+    private final long rowCount;
+    private final Map<String, List<Discrepancy>> discrepancies;
+    private final long elapsedMillis;
+
+    public ReconciliationReport(int checkedCount, int failedCount, int repairedCount, int skippedCount, long rowCount,
+                                Map<String, List<Discrepancy>> discrepancies, long elapsedMillis) {
+        this.checkedCount = checkedCount;
+        this.failedCount = failedCount;
+        this.repairedCount = repairedCount;
+        this.skippedCount = skippedCount;
+        this.rowCount = rowCount;
+        this.discrepancies = Collections.unmodifiableMap(new TreeMap<>(discrepancies));
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getDiscrepancyCount() {
+        int count = 0;
+        for (List<Discrepancy> list : discrepancies.values()) {
+            count += list.size();
+        }
+        return count;
+    }
+
+    public boolean isClean() {
+        return discrepancies.isEmpty() && failedCount == 0;
+    }
+
+    // Getters
+    public int getCheckedCount() { return checkedCount; }
+    public int getFailedCount() { return failedCount; }
+    public int getRepairedCount() { return repairedCount; }
+    /** Пропущено пользователей, вошедших в сеансе сверки */
+    public int getSkippedCount() { return skippedCount; }
+    public long getRowCount() { return rowCount; }
+    /** Логин -> расхождения; пользователи без расхождений не включаются */
+    public Map<String, List<Discrepancy>> getDiscrepancies() { return discrepancies; }
+    public long getElapsedMillis() { return elapsedMillis; }
+}
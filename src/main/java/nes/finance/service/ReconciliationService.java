@@ -0,0 +1,365 @@
+package nes.finance.service;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionTotals;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import nes.finance.model.Wallet;
+import nes.finance.stats.KllSketch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Сверка кошельков всех пользователей с их операциями.
+ *
+ * Баланс хранится отдельно от истории и меняется вручную при каждой операции, итоги
+ * категорий берутся из сводок запечатанных сегментов, а статистика категорий
+ * сохраняется в файле. Сверка пересчитывает все это по самим строкам и сообщает
+ * расхождения вместе с операциями, которые их вероятно вызвали.
+ *
+ * Пользователи проверяются параллельно в ForkJoinPool, как в сводном отчете; в памяти
+ * одновременно не больше maxResidentWallets загруженных кошельков. Пользователи,
+ * уже загруженные в этом процессе, проверяются в памяти под своей блокировкой (ее
+ * берут вход, выход и фоновая проверка оповещений). Вошедший в сеансе пользователь
+ * пропускается: FinancialService изменяет его кошелек без блокировки.
+ * Исправление записывается одной атомарной заменой файла. При ошибке записи
+ * возвращается только баланс: перестроенные хранилище операций и статистика
+ * вычислены по тем же строкам и будут записаны при следующем сохранении
+ */
+public class ReconciliationService {
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
+    private static final int USERS_PER_TASK = 32;
+    // Не больше стольких позиций операций в одном расхождении
+    private static final int MAX_LISTED_ROWS = 20;
+
+    private final DataService dataService;
+    private final Map<String, User> residentUsers;
+    // Сеанс, вошедший пользователь которого не проверяется (null - отдельный запуск)
+    private final AuthService session;
+    private final int parallelism;
+    private final int maxResidentWallets;
+
+    /**
+     * Сверка каталога данных без загруженных пользователей (отдельный запуск)
+     */
+    public ReconciliationService(DataService dataService) {
+        this(dataService, Collections.emptyMap(), Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Сверка с учетом пользователей, загруженных в сеансе authService
+     */
+    public ReconciliationService(AuthService authService) {
+        this(authService.getDataService(), authService.getUsers(), authService,
+                Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public ReconciliationService(DataService dataService, Map<String, User> residentUsers,
+                                 int parallelism, int maxResidentWallets) {
+        this(dataService, residentUsers, null, parallelism, maxResidentWallets);
+    }
+
+    private ReconciliationService(DataService dataService, Map<String, User> residentUsers, AuthService session,
+                                  int parallelism, int maxResidentWallets) {
+        if (parallelism <= 0 || maxResidentWallets <= 0) {
+            throw new IllegalArgumentException("Число потоков и лимит кошельков должны быть положительными");
+        }
+        this.dataService = dataService;
+        this.residentUsers = residentUsers;
+        this.session = session;
+        this.parallelism = parallelism;
+        this.maxResidentWallets = maxResidentWallets;
+    }
+
+    /**
+     * Сверка всех пользователей каталога и загруженных в памяти; repair - исправить
+     * расхождения, которые можно вычислить по операциям
+     */
+    public ReconciliationReport reconcileAll(boolean repair) {
+        Set<String> logins = new LinkedHashSet<>();
+        for (String name : dataService.getAllSavedUsers()) {
+            String login = DataService.loginFromFileName(name + DataService.FILE_EXTENSION);
+            if (login != null) {
+                logins.add(login);
+            }
+        }
+        logins.addAll(residentUsers.keySet());
+
+        long started = System.nanoTime();
+        List<String> users = new ArrayList<>(logins);
+        Semaphore residentWallets = new Semaphore(maxResidentWallets);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Partial total;
+        try {
+            total = pool.invoke(new ReconcileTask(users, 0, users.size(), residentWallets, repair));
+        } finally {
+            pool.shutdown();
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        ReconciliationReport report = new ReconciliationReport(total.checkedCount, total.failedCount,
+                total.repairedCount, total.skippedCount, total.rowCount, total.discrepancies, elapsedMillis);
+        log.info("Сверка кошельков: пользователей %d, с расхождениями %d, исправлено %d, ошибок %d, %d мс",
+                report.getCheckedCount(), report.getDiscrepancies().size(), report.getRepairedCount(),
+                report.getFailedCount(), elapsedMillis);
+        return report;
+    }
+
+    private void reconcileUser(String login, Partial partial, Semaphore residentWallets, boolean repair) {
+        User resident = residentUsers.get(login);
+        if (resident != null && session != null && session.isCurrentUser(resident)) {
+            partial.skippedCount++;
+            return;
+        }
+        if (resident != null) {
+            synchronized (resident) {
+                reconcileLoaded(resident, partial, repair);
+            }
+            return;
+        }
+
+        residentWallets.acquireUninterruptibly();
+        try {
+            User user = dataService.loadUserDataForRead(login);
+            if (user == null) {
+                partial.failedCount++;
+                return;
+            }
+            reconcileLoaded(user, partial, repair);
+        } finally {
+            residentWallets.release();
+        }
+    }
+
+    private void reconcileLoaded(User user, Partial partial, boolean repair) {
+        List<Discrepancy> found = check(user.getWallet());
+        partial.checkedCount++;
+        partial.rowCount += user.getWallet().getTransactions().size();
+        if (found.isEmpty()) {
+            return;
+        }
+        partial.discrepancies.put(user.getLogin(), found);
+        if (repair && repair(user, found)) {
+            partial.repairedCount++;
+        }
+    }
+
+    /**
+     * Сверка одного кошелька с его операциями. Кошелек не изменяется, кроме
+     * пересчета устаревшей статистики категорий
+     */
+    public static List<Discrepancy> check(Wallet wallet) {
+        List<Transaction> transactions = wallet.getTransactions();
+        // Категория -> {доходы в копейках, расходы в копейках, количество операций}
+        Map<String, long[]> byCategory = new HashMap<>();
+        List<Integer> invalidRows = new ArrayList<>();
+        long incomeCents = 0;
+        long expenseCents = 0;
+        int row = 0;
+        for (Transaction t : transactions) {
+            double amount = t.getAmount();
+            if (!(amount > 0) || Double.isInfinite(amount)
+                    || t.getCategory() == null || t.getCategory().trim().isEmpty()) {
+                if (invalidRows.size() < MAX_LISTED_ROWS) {
+                    invalidRows.add(row);
+                }
+            }
+            long cents = toCents(amount);
+            long[] category = byCategory.computeIfAbsent(t.getCategory(), c -> new long[3]);
+            if (t.getType() == TransactionType.INCOME) {
+                incomeCents += cents;
+                category[0] += cents;
+            } else {
+                expenseCents += cents;
+                category[1] += cents;
+            }
+            category[2]++;
+            row++;
+        }
+
+        List<Discrepancy> found = new ArrayList<>();
+        if (!invalidRows.isEmpty()) {
+            found.add(new Discrepancy(DiscrepancyType.INVALID_ROW, null, 0, 0, invalidRows));
+        }
+
+        long balanceCents = toCents(wallet.getBalance());
+        long expectedCents = incomeCents - expenseCents;
+        if (balanceCents != expectedCents) {
+            found.add(new Discrepancy(DiscrepancyType.BALANCE, null, fromCents(expectedCents),
+                    wallet.getBalance(), suspectRows(transactions, balanceCents - expectedCents)));
+        }
+
+        TransactionTotals totals = wallet.getTotals();
+        Set<String> categories = new TreeSet<>(byCategory.keySet());
+        categories.addAll(totals.getIncomeByCategory().keySet());
+        categories.addAll(totals.getExpenseByCategory().keySet());
+        for (String category : categories) {
+            long[] expected = byCategory.getOrDefault(category, new long[3]);
+            long income = toCents(totals.getIncome(category));
+            long expense = toCents(totals.getExpense(category));
+            if (income != expected[0] || expense != expected[1]) {
+                found.add(new Discrepancy(DiscrepancyType.CATEGORY_TOTALS, category,
+                        fromCents(expected[0] + expected[1]), fromCents(income + expense), Collections.emptyList()));
+            }
+        }
+
+        Map<String, KllSketch> sketches = wallet.getCategorySketches();
+        Set<String> statCategories = new TreeSet<>(byCategory.keySet());
+        statCategories.addAll(sketches.keySet());
+        for (String category : statCategories) {
+            long expectedRows = byCategory.getOrDefault(category, new long[3])[2];
+            KllSketch sketch = sketches.get(category);
+            long recorded = sketch != null ? sketch.getCount() : 0;
+            if (recorded != expectedRows) {
+                found.add(new Discrepancy(DiscrepancyType.CATEGORY_STATS, category, expectedRows, recorded,
+                        Collections.emptyList()));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Операции, каждая из которых одна объясняет расхождение баланса: при избытке
+     * баланса - расходы на эту сумму (не списаны), при недостаче - доходы (не зачислены)
+     */
+    private static List<Integer> suspectRows(List<Transaction> transactions, long surplusCents) {
+        TransactionType type = surplusCents > 0 ? TransactionType.EXPENSE : TransactionType.INCOME;
+        long cents = Math.abs(surplusCents);
+        List<Integer> rows = new ArrayList<>();
+        int row = 0;
+        for (Transaction t : transactions) {
+            if (t.getType() == type && toCents(t.getAmount()) == cents) {
+                rows.add(row);
+                if (rows.size() == MAX_LISTED_ROWS) {
+                    break;
+                }
+            }
+            row++;
+        }
+        return rows;
+    }
+
+    /**
+     * Исправление расхождений пользователя одной атомарной записью файла.
+     * Баланс пересчитывается по операциям, хранилище операций и статистика
+     * перестраиваются; некорректные операции остаются для ручного разбора.
+     * Возвращает false, если исправлять нечего или запись не удалась
+     */
+    public boolean repair(User user, List<Discrepancy> found) {
+        Wallet wallet = user.getWallet();
+        double previousBalance = wallet.getBalance();
+        boolean changed = false;
+        boolean rebuildTransactions = false;
+        boolean rebuildStatistics = false;
+        for (Discrepancy discrepancy : found) {
+            switch (discrepancy.getType()) {
+                case BALANCE:
+                    wallet.setBalance(discrepancy.getExpected());
+                    changed = true;
+                    break;
+                case CATEGORY_TOTALS:
+                    rebuildTransactions = true;
+                    break;
+                case CATEGORY_STATS:
+                    rebuildStatistics = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (rebuildTransactions) {
+            wallet.rebuildTransactions();
+            changed = true;
+        } else if (rebuildStatistics) {
+            wallet.rebuildStatistics();
+            changed = true;
+        }
+        if (!changed) {
+            return false;
+        }
+
+        if (!dataService.saveUserData(user)) {
+            wallet.setBalance(previousBalance);
+            log.error("Исправление пользователя %s не записано, файл не изменен", user.getLogin());
+            return false;
+        }
+        log.info("Исправлены расхождения пользователя %s: %d", user.getLogin(), found.size());
+        return true;
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    private class ReconcileTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> logins;
+        private final int from;
+        private final int to;
+        private final Semaphore residentWallets;
+        private final boolean repair;
+
+        ReconcileTask(List<String> logins, int from, int to, Semaphore residentWallets, boolean repair) {
+            this.logins = logins;
+            this.from = from;
+            this.to = to;
+            this.residentWallets = residentWallets;
+            this.repair = repair;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= USERS_PER_TASK) {
+                Partial partial = new Partial();
+                for (int i = from; i < to; i++) {
+                    reconcileUser(logins.get(i), partial, residentWallets, repair);
+                }
+                return partial;
+            }
+
+            int middle = (from + to) >>> 1;
+            ReconcileTask left = new ReconcileTask(logins, from, middle, residentWallets, repair);
+            ReconcileTask right = new ReconcileTask(logins, middle, to, residentWallets, repair);
+            left.fork();
+            Partial result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    private static class Partial {
+        int checkedCount;
+        int failedCount;
+        int repairedCount;
+        int skippedCount;
+        long rowCount;
+        final Map<String, List<Discrepancy>> discrepancies = new HashMap<>();
+
+        void merge(Partial other) {
+            checkedCount += other.checkedCount;
+            failedCount += other.failedCount;
+            repairedCount += other.repairedCount;
+            skippedCount += other.skippedCount;
+            rowCount += other.rowCount;
+            discrepancies.putAll(other.discrepancies);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package nes.finance.service;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.TransactionTotals;
+import nes.finance.model.User;
+import nes.finance.report.FinancialReport;
+import nes.finance.report.PeriodReport;
+import nes.finance.report.ReportCache;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Режим отчетов только для чтения: копия каталога данных, которая следит за файлами
+ * пользователей через WatchService и перечитывает только измененные.
+ *
+ * Работает рядом с интерактивным экземпляром, в том числе в другом процессе: файлы
+ * только читаются (сохранение в DataService атомарно, поэтому файл всегда целый),
+ * AuthService не используется, сводный отчет строится один раз при загрузке файла.
+ * Загруженный кошелек не изменяется, при изменении файла он заменяется целиком.
+ */
+public class ReportingService implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReportingService.class);
+
+    private final DataService dataService;
+    private final ExportService exportService = new ExportService();
+    private final Path directory;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong reloadCount = new AtomicLong();
+
+    private WatchService watchService;
+    private Thread watcher;
+    private volatile boolean running;
+
+    public ReportingService() {
+        this(DataService.DEFAULT_DATA_DIR);
+    }
+
+    public ReportingService(String dataDir) {
+        this.dataService = new DataService(dataDir);
+        this.directory = Paths.get(dataDir);
+    }
+
+    /**
+     * Загрузка всех файлов и запуск слежения за каталогом. Возвращает false,
+     * если слежение уже запущено или каталог недоступен
+     */
+    public synchronized boolean start() {
+        if (running) {
+            return false;
+        }
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            // Подписка до первой загрузки: изменения во время загрузки не теряются
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            log.error("Не удалось следить за каталогом %s: %s", directory, e.getMessage());
+            return false;
+        }
+        running = true;
+        refreshAll();
+
+        watcher = new Thread(this::watch, "reporting-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Режим отчетов: каталог %s, пользователей: %d", directory, snapshots.size());
+        return true;
+    }
+
+    private void watch() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // События потеряны: сверяются все файлы
+                    refreshAll();
+                    continue;
+                }
+                String login = DataService.loginFromFileName(event.context().toString());
+                if (login != null) {
+                    refresh(login);
+                }
+            }
+            if (!key.reset()) {
+                log.warn("Каталог %s больше недоступен, слежение остановлено", directory);
+                running = false;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Сверка всех файлов каталога с загруженными данными
+     */
+    public void refreshAll() {
+        Set<String> logins = new TreeSet<>();
+        for (String name : dataService.getAllSavedUsers()) {
+            String login = DataService.loginFromFileName(name + DataService.FILE_EXTENSION);
+            if (login != null) {
+                logins.add(login);
+            }
+        }
+        for (String login : logins) {
+            refresh(login);
+        }
+        snapshots.keySet().removeIf(login -> !logins.contains(login));
+    }
+
+    /**
+     * Перечитывание файла пользователя, если он изменился с последней загрузки.
+     * Удаленный файл убирает пользователя. Возвращает true, если данные изменились
+     */
+    public boolean refresh(String login) {
+        Path file = directory.resolve(login + DataService.FILE_EXTENSION);
+        FileStamp stamp;
+        try {
+            stamp = new FileStamp(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (NoSuchFileException e) {
+            return snapshots.remove(login) != null;
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать атрибуты %s: %s", file, e.getMessage());
+            return false;
+        }
+
+        Snapshot current = snapshots.get(login);
+        if (current != null && current.stamp.equals(stamp)) {
+            return false;
+        }
+        User user = dataService.loadUserData(login);
+        if (user == null) {
+            return false;
+        }
+        snapshots.put(login, new Snapshot(user, stamp, FinancialReport.of(user)));
+        reloadCount.incrementAndGet();
+        log.debug("Режим отчетов: данные пользователя '%s' перечитаны", login);
+        return true;
+    }
+
+    /**
+     * Логины загруженных пользователей по алфавиту
+     */
+    public Set<String> getUsers() {
+        return new TreeSet<>(snapshots.keySet());
+    }
+
+    /**
+     * Сводный отчет пользователя или null, если пользователь не загружен
+     */
+    public FinancialReport getReport(String login) {
+        Snapshot snapshot = snapshots.get(login);
+        return snapshot != null ? snapshot.report : null;
+    }
+
+    /**
+     * Отчет за период [startDate, endDate] или null, если пользователь не загружен
+     */
+    public PeriodReport getPeriodReport(String login, LocalDate startDate, LocalDate endDate) {
+        Snapshot snapshot = snapshots.get(login);
+        if (snapshot == null) {
+            return null;
+        }
+        return snapshot.cache.get("period", Arrays.asList(startDate, endDate),
+                snapshot.user.getWallet().getTransactionVersion(), () -> {
+                    TransactionTotals totals;
+                    synchronized (snapshot) {
+                        totals = snapshot.user.getWallet().getTotals(startDate, endDate);
+                    }
+                    return new PeriodReport(startDate, endDate, totals.getCount(),
+                            totals.getTotalIncome(), totals.getTotalExpense(),
+                            totals.getIncomeByCategory(), totals.getExpenseByCategory());
+                }, PeriodReport::estimateBytes);
+    }
+
+    /**
+     * Экспорт данных пользователя: type - csv, budgets, json или report
+     */
+    public boolean export(String login, String type, String filePath) {
+        Snapshot snapshot = snapshots.get(login);
+        if (snapshot == null) {
+            log.warn("Ошибка: пользователь '%s' не найден в каталоге данных", login);
+            return false;
+        }
+        // Ленивые структуры кошелька (дерево категорий, индексы) строятся по одному запросу за раз
+        synchronized (snapshot) {
+            switch (type) {
+                case "csv":
+                    return exportService.exportTransactionsToCSV(snapshot.user, filePath);
+                case "budgets":
+                    return exportService.exportBudgetsToCSV(snapshot.user, filePath);
+                case "json":
+                    return exportService.exportToJSON(snapshot.user, filePath);
+                case "report":
+                    return exportService.exportReportToText(snapshot.user, filePath);
+                default:
+                    log.warn("Неизвестный тип экспорта: %s", type);
+                    return false;
+            }
+        }
+    }
+
+    public long getReloadCount() { return reloadCount.get(); }
+    public boolean isRunning() { return running; }
+    public Path getDirectory() { return directory; }
+
+    /**
+     * Остановка слежения; загруженные данные остаются доступны
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Ошибка при остановке слежения: %s", e.getMessage());
+            }
+            watchService = null;
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    // Признаки версии файла: атомарная замена меняет ключ файла даже при том же времени изменения
+    private static final class FileStamp {
+        final FileTime modified;
+        final long size;
+        final Object fileKey;
+
+        FileStamp(BasicFileAttributes attributes) {
+            this.modified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.fileKey = attributes.fileKey();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) o;
+            return size == other.size && modified.equals(other.modified) && Objects.equals(fileKey, other.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modified, size, fileKey);
+        }
+    }
+
+    private static final class Snapshot {
+        final User user;
+        final FileStamp stamp;
+        final FinancialReport report;
+        final ReportCache cache = new ReportCache();
+
+        Snapshot(User user, FileStamp stamp, FinancialReport report) {
+            this.user = user;
+            this.stamp = stamp;
+            this.report = report;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package nes.finance.service;
+
+import nes.finance.logging.Logger;
+import nes.finance.logging.LoggerFactory;
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.report.TopSpendingReport;
+import nes.finance.stats.SpaceSaving;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Лидеры расходов по всем пользователям каталога данных без просмотра кошельков.
+ *
+ * DataService передает сюда расходы, добавленные с прошлого сохранения пользователя,
+ * и они учитываются в двух структурах Space-Saving: по категориям и по логинам.
+ * Память ограничена числом счетчиков, ошибка оценки - долей total / capacity.
+ * Состояние записывается в файл каталога не чаще SAVE_INTERVAL_MILLIS и при flush.
+ *
+ * Файл может быть общим для нескольких процессов (CLI, режим отчетов, узлы на одном
+ * каталоге): при записи под блокировкой файла перечитывается его содержимое и к нему
+ * добавляются только расходы, учтенные этим процессом с прошлой записи. Блокировка
+ * файла действует между процессами; экземпляры одного процесса на том же каталоге
+ * дополнительно ждут друг друга на общем мониторе.
+ */
+public class TopSpendingService {
+    private static final Logger log = LoggerFactory.getLogger(TopSpendingService.class);
+    public static final String FILE_NAME = "top_spending.bin";
+    static final long SAVE_INTERVAL_MILLIS = 60_000;
+    private static final int FORMAT_VERSION = 1;
+    // Мониторы записи по файлу блокировки: FileLock не действует между потоками процесса
+    private static final Map<Path, Object> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final Path lockFile;
+    private final int capacity;
+    // Состояние для отчетов: файл на момент чтения и расходы этого процесса
+    private SpaceSaving categories;
+    private SpaceSaving spenders;
+    // Расходы, учтенные с прошлой записи файла
+    private SpaceSaving pendingCategories;
+    private SpaceSaving pendingSpenders;
+    private boolean dirty;
+    private long lastSaveMillis = System.currentTimeMillis();
+
+    public TopSpendingService(String dataDir) {
+        this(dataDir, SpaceSaving.DEFAULT_CAPACITY);
+    }
+
+    public TopSpendingService(String dataDir, int capacity) {
+        this.file = Paths.get(dataDir, FILE_NAME);
+        this.lockFile = Paths.get(dataDir, FILE_NAME + ".lock");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Учет расходов пользователя из списка сохраненных операций
+     */
+    public synchronized void record(String login, List<Transaction> committed) {
+        boolean recorded = false;
+        for (Transaction transaction : committed) {
+            long cents = Math.round(transaction.getAmount() * 100);
+            if (transaction.getType() != TransactionType.EXPENSE || cents <= 0) {
+                continue;
+            }
+            ensureLoaded();
+            categories.offer(transaction.getCategory(), cents);
+            spenders.offer(login, cents);
+            pendingCategories.offer(transaction.getCategory(), cents);
+            pendingSpenders.offer(login, cents);
+            recorded = true;
+        }
+        if (!recorded) {
+            return;
+        }
+        dirty = true;
+        if (System.currentTimeMillis() - lastSaveMillis >= SAVE_INTERVAL_MILLIS) {
+            save();
+        }
+    }
+
+    /**
+     * До limit категорий и пользователей с наибольшими расходами
+     */
+    public synchronized TopSpendingReport getReport(int limit) {
+        ensureLoaded();
+        long maxError = Math.max(categories.getMaxError(), spenders.getMaxError());
+        return new TopSpendingReport(categories.top(limit), spenders.top(limit),
+                categories.getTotal(), maxError, categories.getCapacity());
+    }
+
+    /**
+     * Запись несохраненного состояния в файл
+     */
+    public synchronized boolean flush() {
+        return !dirty || save();
+    }
+
+    // Под блокировкой: чтение файла, добавление своих расходов, запись во временный
+    // файл и замена одним переименованием, как у файлов пользователей
+    private boolean save() {
+        Object processLock = PROCESS_LOCKS.computeIfAbsent(lockFile.toAbsolutePath().normalize(), key -> new Object());
+        synchronized (processLock) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    writeMerged();
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException | OverlappingFileLockException e) {
+                log.error("Ошибка при сохранении лидеров расходов: %s", e.getMessage());
+                return false;
+            }
+        }
+        pendingCategories = new SpaceSaving(capacity);
+        pendingSpenders = new SpaceSaving(capacity);
+        dirty = false;
+        lastSaveMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    // Вызывается под блокировкой файла
+    private void writeMerged() throws IOException {
+        SpaceSaving[] merged = readFile();
+        merged[0].merge(pendingCategories);
+        merged[1].merge(pendingSpenders);
+
+        Path temp = Paths.get(file + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            merged[0].writeTo(out);
+            merged[1].writeTo(out);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        categories = merged[0];
+        spenders = merged[1];
+    }
+
+    private void ensureLoaded() {
+        if (categories != null) {
+            return;
+        }
+        SpaceSaving[] loaded = readFile();
+        categories = loaded[0];
+        spenders = loaded[1];
+        pendingCategories = new SpaceSaving(capacity);
+        pendingSpenders = new SpaceSaving(capacity);
+    }
+
+    // Категории и пользователи из файла; пустые структуры, если файла нет или он поврежден
+    private SpaceSaving[] readFile() {
+        SpaceSaving[] empty = {new SpaceSaving(capacity), new SpaceSaving(capacity)};
+        if (!Files.exists(file)) {
+            return empty;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                log.warn("Неизвестная версия файла лидеров расходов: %d, учет начат заново", version);
+                return empty;
+            }
+            SpaceSaving loadedCategories = SpaceSaving.readFrom(in);
+            SpaceSaving loadedSpenders = SpaceSaving.readFrom(in);
+            // Сводки объединяются только при одинаковом числе счетчиков
+            if (loadedCategories.getCapacity() != capacity || loadedSpenders.getCapacity() != capacity) {
+                log.warn("Число счетчиков в файле лидеров расходов (%d) отличается от %d, учет начат заново",
+                        loadedCategories.getCapacity(), capacity);
+                return empty;
+            }
+            return new SpaceSaving[] {loadedCategories, loadedSpenders};
+        } catch (IOException e) {
+            log.warn("Файл лидеров расходов поврежден, учет начат заново: %s", e.getMessage());
+            return empty;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package nes.finance.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Экспоненциально взвешенная дневная скорость расходов по категориям.
+ *
+ * Каждая операция обновляет состояние своей категории за O(1): расходы текущего дня
+ * накапливаются, а при переходе на следующий день закрытый день входит в среднее
+ * с весом alpha, пропущенные дни без расходов - с нулевой суммой. Запрос скорости
+ * на произвольную дату также выполняется за O(1), без просмотра транзакций.
+ */
+public class BurnRateTracker implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Период полураспада около 10 дней: alpha = 2 / (N + 1) при N = 14
+    public static final double DEFAULT_ALPHA = 2.0 / 15.0;
+
+    private final double alpha;
+    private final Map<String, CategoryRate> rates = new HashMap<>();
+
+    public BurnRateTracker() {
+        this(DEFAULT_ALPHA);
+    }
+
+    public BurnRateTracker(double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Коэффициент сглаживания должен быть в диапазоне (0, 1]: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    public double getAlpha() { return alpha; }
+
+    /**
+     * Учет расхода категории за указанный день
+     */
+    public void record(String category, LocalDate day, double amount) {
+        rates.computeIfAbsent(category, c -> new CategoryRate()).record(day.toEpochDay(), amount, alpha);
+    }
+
+    /**
+     * Сглаженная дневная скорость расходов категории на дату today
+     */
+    public double dailyRate(String category, LocalDate today) {
+        CategoryRate rate = rates.get(category);
+        return rate == null ? 0 : rate.rateAt(today.toEpochDay(), alpha);
+    }
+
+    /**
+     * Сумма всех учтенных расходов категории
+     */
+    public double totalSpent(String category) {
+        CategoryRate rate = rates.get(category);
+        return rate == null ? 0 : rate.total;
+    }
+
+    /**
+     * Количество дней с начала учета категории (для оценки надежности прогноза)
+     */
+    public long observedDays(String category, LocalDate today) {
+        CategoryRate rate = rates.get(category);
+        return rate == null ? 0 : Math.max(0, today.toEpochDay() - rate.firstDay) + 1;
+    }
+
+    public Set<String> getCategories() {
+        return Collections.unmodifiableSet(rates.keySet());
+    }
+
+    /**
+     * Перенос состояния категории при переименовании; состояния объединяются
+     */
+    public void rename(String oldCategory, String newCategory) {
+        CategoryRate moved = rates.remove(oldCategory);
+        if (moved == null) {
+            return;
+        }
+        CategoryRate target = rates.get(newCategory);
+        if (target == null) {
+            rates.put(newCategory, moved);
+        } else {
+            target.merge(moved, alpha);
+        }
+    }
+
+    public void clear() {
+        rates.clear();
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeDouble(alpha);
+        out.writeInt(rates.size());
+        for (Map.Entry<String, CategoryRate> entry : rates.entrySet()) {
+            CategoryRate rate = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeLong(rate.firstDay);
+            out.writeLong(rate.day);
+            out.writeDouble(rate.daySpend);
+            out.writeDouble(rate.smoothed);
+            out.writeDouble(rate.weight);
+            out.writeDouble(rate.total);
+        }
+    }
+
+    public static BurnRateTracker readFrom(DataInput in) throws IOException {
+        BurnRateTracker tracker = new BurnRateTracker(in.readDouble());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String category = in.readUTF();
+            CategoryRate rate = new CategoryRate();
+            rate.firstDay = in.readLong();
+            rate.day = in.readLong();
+            rate.daySpend = in.readDouble();
+            rate.smoothed = in.readDouble();
+            rate.weight = in.readDouble();
+            rate.total = in.readDouble();
+            tracker.rates.put(category, rate);
+        }
+        return tracker;
+    }
+
+    /**
+     * Состояние категории. smoothed - взвешенная сумма закрытых дней, weight - сумма весов;
+     * их отношение дает среднее без занижения в первые дни учета
+     */
+    private static class CategoryRate implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        long firstDay = Long.MIN_VALUE;
+        long day;
+        double daySpend;
+        double smoothed;
+        double weight;
+        double total;
+
+        void record(long epochDay, double amount, double alpha) {
+            total += amount;
+            if (firstDay == Long.MIN_VALUE) {
+                firstDay = epochDay;
+                day = epochDay;
+            } else if (epochDay > day) {
+                closeDays(epochDay, alpha);
+            }
+            // Операция задним числом учитывается в текущем дне: пересчет истории не нужен
+            daySpend += amount;
+        }
+
+        // Закрытие дней от day до epochDay (не включая его); дни без операций входят с нулем
+        private void closeDays(long epochDay, double alpha) {
+            smoothed = alpha * daySpend + (1 - alpha) * smoothed;
+            weight = alpha + (1 - alpha) * weight;
+
+            long emptyDays = epochDay - day - 1;
+            if (emptyDays > 0) {
+                double decay = Math.pow(1 - alpha, emptyDays);
+                smoothed *= decay;
+                weight = 1 - (1 - weight) * decay;
+            }
+            day = epochDay;
+            daySpend = 0;
+        }
+
+        double rateAt(long epochDay, double alpha) {
+            if (firstDay == Long.MIN_VALUE) {
+                return 0;
+            }
+            if (epochDay <= day) {
+                // Текущий день еще не закрыт: его расходы учитываются как очередное наблюдение
+                double s = alpha * daySpend + (1 - alpha) * smoothed;
+                double w = alpha + (1 - alpha) * weight;
+                return s / w;
+            }
+
+            double s = alpha * daySpend + (1 - alpha) * smoothed;
+            double w = alpha + (1 - alpha) * weight;
+            double decay = Math.pow(1 - alpha, epochDay - day);
+            s *= decay;
+            w = 1 - (1 - w) * decay;
+            return w > 0 ? s / w : 0;
+        }
+
+        // Объединение двух категорий: состояние приводится к более позднему дню и складывается
+        void merge(CategoryRate other, double alpha) {
+            long latest = Math.max(day, other.day);
+            if (day < latest) {
+                closeDays(latest, alpha);
+            }
+            if (other.day < latest) {
+                other.closeDays(latest, alpha);
+            }
+            smoothed += other.smoothed;
+            weight = Math.max(weight, other.weight);
+            daySpend += other.daySpend;
+            total += other.total;
+            firstDay = Math.min(firstDay, other.firstDay);
+        }
+    }
+}
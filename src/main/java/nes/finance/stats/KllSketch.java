@@ -0,0 +1,313 @@
+package nes.finance.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Потоковый скетч квантилей KLL (Karnin, Lang, Liberty).
+ *
+ * Хранит не все значения, а иерархию компакторов: элемент уровня h представляет 2^h
+ * исходных значений. Переполненный уровень сортируется, и каждый второй элемент
+ * переходит на уровень выше. Размер скетча O(k log(n/k)), ошибка ранга порядка 1.7/k.
+ * Скетчи с одинаковым k можно объединять.
+ */
+public class KllSketch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_K = 200;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private final int k;
+    private final List<double[]> levels = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    // Чередование смещения при уплотнении вместо случайного выбора: результат воспроизводим
+    private long compactions;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("Параметр k должен быть не меньше " + MIN_LEVEL_CAPACITY);
+        }
+        this.k = k;
+        addLevel();
+    }
+
+    public int getK() { return k; }
+    public long getCount() { return count; }
+    public boolean isEmpty() { return count == 0; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+
+    /**
+     * Добавление значения
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+
+        append(0, value);
+        if (sizes.get(0) >= capacity(0)) {
+            compress();
+        }
+    }
+
+    /**
+     * Объединение с другим скетчем. Другой скетч не изменяется
+     */
+    public void merge(KllSketch other) {
+        if (other == null || other.isEmpty()) {
+            return;
+        }
+        if (other.k != k) {
+            throw new IllegalArgumentException("Нельзя объединить скетчи с разными k: " + k + " и " + other.k);
+        }
+
+        while (levels.size() < other.levels.size()) {
+            addLevel();
+        }
+        for (int h = 0; h < other.levels.size(); h++) {
+            double[] items = other.levels.get(h);
+            for (int i = 0; i < other.sizes.get(h); i++) {
+                append(h, items[i]);
+            }
+        }
+
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        compress();
+    }
+
+    /**
+     * Значение квантиля q (0..1). Для пустого скетча возвращает NaN
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Квантиль должен быть в диапазоне [0, 1]: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+
+        WeightedItems sorted = sortedItems();
+        long target = (long) Math.ceil(q * sorted.totalWeight);
+        long cumulative = 0;
+        for (int i = 0; i < sorted.size; i++) {
+            cumulative += sorted.weights[i];
+            if (cumulative >= target) {
+                return sorted.values[i];
+            }
+        }
+        return max;
+    }
+
+    public double median() {
+        return quantile(0.5);
+    }
+
+    /**
+     * Доля значений, не превышающих value (0..1)
+     */
+    public double rank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long below = 0;
+        long total = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            long weight = 1L << h;
+            double[] items = levels.get(h);
+            for (int i = 0; i < sizes.get(h); i++) {
+                total += weight;
+                if (items[i] <= value) {
+                    below += weight;
+                }
+            }
+        }
+        return total == 0 ? 0 : (double) below / total;
+    }
+
+    /**
+     * Количество хранимых элементов (определяет занимаемую память)
+     */
+    public int getRetainedItems() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(k);
+        out.writeLong(count);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeLong(compactions);
+        out.writeInt(levels.size());
+        for (int h = 0; h < levels.size(); h++) {
+            int size = sizes.get(h);
+            double[] items = levels.get(h);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(items[i]);
+            }
+        }
+    }
+
+    public static KllSketch readFrom(DataInput in) throws IOException {
+        KllSketch sketch = new KllSketch(in.readInt());
+        sketch.count = in.readLong();
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        sketch.compactions = in.readLong();
+        int levelCount = in.readInt();
+        for (int h = 0; h < levelCount; h++) {
+            if (h >= sketch.levels.size()) {
+                sketch.addLevel();
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                sketch.append(h, in.readDouble());
+            }
+        }
+        return sketch;
+    }
+
+    // Емкость уровня: верхний уровень вмещает k элементов, нижние - геометрически меньше
+    private int capacity(int level) {
+        int depth = levels.size() - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private int totalCapacity() {
+        int total = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            total += capacity(h);
+        }
+        return total;
+    }
+
+    private void addLevel() {
+        levels.add(new double[MIN_LEVEL_CAPACITY]);
+        sizes.add(0);
+    }
+
+    private void append(int level, double value) {
+        double[] items = levels.get(level);
+        int size = sizes.get(level);
+        if (size == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+            levels.set(level, items);
+        }
+        items[size] = value;
+        sizes.set(level, size + 1);
+    }
+
+    private void compress() {
+        while (getRetainedItems() >= totalCapacity()) {
+            int level = 0;
+            while (level < levels.size() && sizes.get(level) < capacity(level)) {
+                level++;
+            }
+            if (level == levels.size()) {
+                return;
+            }
+            compact(level);
+        }
+    }
+
+    // Половина отсортированных элементов уровня переходит на уровень выше с удвоенным весом
+    private void compact(int level) {
+        if (level + 1 == levels.size()) {
+            addLevel();
+        }
+
+        double[] items = levels.get(level);
+        int size = sizes.get(level);
+        Arrays.sort(items, 0, size);
+
+        // При нечетном размере один элемент остается на текущем уровне
+        int leftover = size % 2;
+        int offset = (int) (compactions++ & 1);
+        for (int i = leftover + offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+
+        sizes.set(level, leftover);
+    }
+
+    private WeightedItems sortedItems() {
+        int retained = getRetainedItems();
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        int n = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            double[] items = levels.get(h);
+            for (int i = 0; i < sizes.get(h); i++) {
+                values[n] = items[i];
+                weights[n] = 1L << h;
+                n++;
+            }
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        WeightedItems sorted = new WeightedItems(n);
+        for (int i = 0; i < n; i++) {
+            sorted.values[i] = values[order[i]];
+            sorted.weights[i] = weights[order[i]];
+            sorted.totalWeight += weights[order[i]];
+        }
+        sorted.size = n;
+        return sorted;
+    }
+
+    private static class WeightedItems {
+        final double[] values;
+        final long[] weights;
+        int size;
+        long totalWeight;
+
+        WeightedItems(int capacity) {
+            this.values = new double[capacity];
+            this.weights = new long[capacity];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KllSketch{k=%d, count=%d, retained=%d}", k, count, getRetainedItems());
+    }
+}
@@ -0,0 +1,557 @@
+package nes.finance.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Сжатое множество неотрицательных целых чисел в стиле Roaring.
+ *
+ * Числа делятся на блоки по старшим 16 битам. Блок хранит младшие 16 бит либо
+ * отсортированным массивом (до 4096 значений, 2 байта на значение), либо битовой
+ * картой из 1024 слов (8 КБ), если значений больше. Пересечение, объединение и
+ * разность выполняются поблочно и не изменяют аргументы.
+ */
+public class RoaringBitmap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = 1024;
+    private static final byte ARRAY_BLOCK = 0;
+    private static final byte BITMAP_BLOCK = 1;
+
+    // Старшие 16 бит блоков по возрастанию и сами блоки
+    private char[] keys = new char[0];
+    private Block[] blocks = new Block[0];
+    private int size;
+
+    public void add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        int i = find(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertBlock(i, key, new ArrayBlock());
+        }
+        blocks[i] = blocks[i].add((char) value);
+    }
+
+    public void remove(int value) {
+        if (value < 0) {
+            return;
+        }
+        int i = find((char) (value >>> 16));
+        if (i >= 0) {
+            Block block = blocks[i].remove((char) value);
+            if (block.cardinality() == 0) {
+                removeBlock(i);
+            } else {
+                blocks[i] = block;
+            }
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = find((char) (value >>> 16));
+        return i >= 0 && blocks[i].contains((char) value);
+    }
+
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += blocks[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Обход значений по возрастанию
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            blocks[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[getCardinality()];
+        int[] position = {0};
+        forEach(value -> values[position[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Копия, в которой значения не меньше from сдвинуты на delta (значения меньше from
+     * не меняются). Нужна при вставке и удалении элементов списка, на позиции которого
+     * указывает множество
+     */
+    public RoaringBitmap shift(int from, int delta) {
+        RoaringBitmap result = new RoaringBitmap();
+        forEach(value -> result.add(value >= from ? value + delta : value));
+        return result;
+    }
+
+    public RoaringBitmap copy() {
+        return or(this, new RoaringBitmap());
+    }
+
+    /**
+     * Все числа из [from, to)
+     */
+    public static RoaringBitmap range(int from, int to) {
+        RoaringBitmap result = new RoaringBitmap();
+        if (from >= to) {
+            return result;
+        }
+        checkValue(from);
+        for (int key = from >>> 16; key <= (to - 1) >>> 16; key++) {
+            int low = key == from >>> 16 ? from & 0xFFFF : 0;
+            int high = key == (to - 1) >>> 16 ? (to - 1) & 0xFFFF : 0xFFFF;
+            long[] words = new long[WORDS];
+            for (int bit = low; bit <= high; bit++) {
+                words[bit >>> 6] |= 1L << bit;
+            }
+            result.insertBlock(result.size, (char) key, normalize(words));
+        }
+        return result;
+    }
+
+    public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.appendNonEmpty(a.keys[i], a.blocks[i].and(b.blocks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static RoaringBitmap or(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j >= b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.appendNonEmpty(a.keys[i], a.blocks[i].or(new ArrayBlock()));
+                i++;
+            } else if (i >= a.size || a.keys[i] > b.keys[j]) {
+                result.appendNonEmpty(b.keys[j], b.blocks[j].or(new ArrayBlock()));
+                j++;
+            } else {
+                result.appendNonEmpty(a.keys[i], a.blocks[i].or(b.blocks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Разность a \ b
+     */
+    public static RoaringBitmap andNot(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            Block block = j < b.size && b.keys[j] == a.keys[i]
+                    ? a.blocks[i].andNot(b.blocks[j])
+                    : a.blocks[i].or(new ArrayBlock());
+            result.appendNonEmpty(a.keys[i], block);
+        }
+        return result;
+    }
+
+    /**
+     * Размер в памяти без заголовков объектов, в байтах
+     */
+    public long getSizeInBytes() {
+        long bytes = size * 2L;
+        for (int i = 0; i < size; i++) {
+            bytes += blocks[i] instanceof BitmapBlock ? WORDS * 8L : blocks[i].cardinality() * 2L;
+        }
+        return bytes;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeChar(keys[i]);
+            blocks[i].writeTo(out);
+        }
+    }
+
+    public static RoaringBitmap readFrom(DataInput in) throws IOException {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int count = in.readInt();
+        int previous = -1;
+        for (int i = 0; i < count; i++) {
+            char key = in.readChar();
+            if (key <= previous) {
+                throw new IOException("Блоки множества не упорядочены");
+            }
+            previous = key;
+            byte kind = in.readByte();
+            Block block;
+            if (kind == ARRAY_BLOCK) {
+                block = ArrayBlock.readFrom(in);
+            } else if (kind == BITMAP_BLOCK) {
+                block = BitmapBlock.readFrom(in);
+            } else {
+                throw new IOException("Неизвестный тип блока: " + kind);
+            }
+            bitmap.appendNonEmpty(key, block);
+        }
+        return bitmap;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RoaringBitmap)) return false;
+        return Arrays.equals(toArray(), ((RoaringBitmap) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RoaringBitmap{cardinality=%d, blocks=%d}", getCardinality(), size);
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Значение должно быть неотрицательным: " + value);
+        }
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertBlock(int i, char key, Block block) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            blocks = Arrays.copyOf(blocks, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(blocks, i, blocks, i + 1, size - i);
+        keys[i] = key;
+        blocks[i] = block;
+        size++;
+    }
+
+    private void removeBlock(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(blocks, i + 1, blocks, i, size - i - 1);
+        size--;
+        blocks[size] = null;
+    }
+
+    private void appendNonEmpty(char key, Block block) {
+        if (block.cardinality() > 0) {
+            insertBlock(size, key, block);
+        }
+    }
+
+    // Блок подходящего вида для битовой карты: массив, если значений немного
+    private static Block normalize(long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality > ARRAY_LIMIT) {
+            return new BitmapBlock(words, cardinality);
+        }
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return new ArrayBlock(values, cardinality);
+    }
+
+    /**
+     * Блок младших 16 бит. Операции возвращают новый блок (или этот же, если он изменен
+     * на месте), вид блока выбирается по количеству значений
+     */
+    private abstract static class Block implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        abstract int cardinality();
+        abstract boolean contains(char value);
+        abstract Block add(char value);
+        abstract Block remove(char value);
+        abstract long[] toWords();
+        abstract void forEach(int base, IntConsumer consumer);
+        abstract void writeTo(DataOutput out) throws IOException;
+
+        Block and(Block other) {
+            if (this instanceof ArrayBlock) {
+                return ((ArrayBlock) this).filter(other, true);
+            }
+            if (other instanceof ArrayBlock) {
+                return ((ArrayBlock) other).filter(this, true);
+            }
+            long[] words = toWords();
+            long[] otherWords = ((BitmapBlock) other).words;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] &= otherWords[w];
+            }
+            return normalize(words);
+        }
+
+        Block or(Block other) {
+            if (this instanceof ArrayBlock && other instanceof ArrayBlock
+                    && cardinality() + other.cardinality() <= ARRAY_LIMIT) {
+                return ((ArrayBlock) this).merge((ArrayBlock) other);
+            }
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int w = 0; w < WORDS; w++) {
+                words[w] |= otherWords[w];
+            }
+            return normalize(words);
+        }
+
+        Block andNot(Block other) {
+            if (this instanceof ArrayBlock) {
+                return ((ArrayBlock) this).filter(other, false);
+            }
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int w = 0; w < WORDS; w++) {
+                words[w] &= ~otherWords[w];
+            }
+            return normalize(words);
+        }
+    }
+
+    private static final class ArrayBlock extends Block {
+        private static final long serialVersionUID = 1L;
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayBlock() {
+            this(new char[4], 0);
+        }
+
+        ArrayBlock(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() { return cardinality; }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Block add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return new BitmapBlock(toWords(), cardinality).add(value);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Block remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        long[] toWords() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return words;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(base | values[i]);
+            }
+        }
+
+        // Значения, которые есть (keep = true) или которых нет в other
+        Block filter(Block other, boolean keep) {
+            char[] kept = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == keep) {
+                    kept[n++] = values[i];
+                }
+            }
+            return new ArrayBlock(kept, n);
+        }
+
+        Block merge(ArrayBlock other) {
+            char[] merged = new char[cardinality + other.cardinality];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < cardinality || j < other.cardinality) {
+                if (j >= other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                    merged[n++] = values[i++];
+                } else if (i >= cardinality || values[i] > other.values[j]) {
+                    merged[n++] = other.values[j++];
+                } else {
+                    merged[n++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayBlock(merged, n);
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(ARRAY_BLOCK);
+            out.writeInt(cardinality);
+            for (int i = 0; i < cardinality; i++) {
+                out.writeChar(values[i]);
+            }
+        }
+
+        static ArrayBlock readFrom(DataInput in) throws IOException {
+            int cardinality = in.readInt();
+            if (cardinality < 0 || cardinality > ARRAY_LIMIT) {
+                throw new IOException("Некорректный размер блока: " + cardinality);
+            }
+            char[] values = new char[Math.max(4, cardinality)];
+            for (int i = 0; i < cardinality; i++) {
+                values[i] = in.readChar();
+                if (i > 0 && values[i] <= values[i - 1]) {
+                    throw new IOException("Значения блока не упорядочены");
+                }
+            }
+            return new ArrayBlock(values, cardinality);
+        }
+    }
+
+    private static final class BitmapBlock extends Block {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapBlock(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() { return cardinality; }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Block add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Block remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+                if (cardinality <= ARRAY_LIMIT) {
+                    return normalize(words);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        long[] toWords() {
+            return words.clone();
+        }
+
+        @Override
+        void forEach(int base, IntConsumer consumer) {
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    consumer.accept(base | (w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(BITMAP_BLOCK);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+
+        static BitmapBlock readFrom(DataInput in) throws IOException {
+            long[] words = new long[WORDS];
+            int cardinality = 0;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] = in.readLong();
+                cardinality += Long.bitCount(words[w]);
+            }
+            return new BitmapBlock(words, cardinality);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package nes.finance.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Самые весомые ключи потока (алгоритм Space-Saving с весами).
+ *
+ * Хранится не более capacity счетчиков в min-куче. Ключ без счетчика вытесняет
+ * минимальный счетчик и наследует его значение как ошибку. Оценка ключа завышена
+ * не более чем на его ошибку, а ошибка не превышает минимального счетчика и
+ * total / capacity. Любой ключ с весом больше total / capacity гарантированно
+ * остается в структуре. Обновление - O(log capacity), память - O(capacity).
+ */
+public class SpaceSaving {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private long total;
+    // Min-куча счетчиков по значению; slots - позиция ключа в куче
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private int size;
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    public SpaceSaving() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Число счетчиков должно быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+    }
+
+    public int getCapacity() { return capacity; }
+    public long getTotal() { return total; }
+    public int size() { return size; }
+
+    /**
+     * Учет веса weight для ключа key
+     */
+    public void offer(String key, long weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Вес должен быть положительным: " + weight);
+        }
+        total += weight;
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            counts[slot] += weight;
+            siftDown(slot);
+            return;
+        }
+        if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0;
+            slots.put(key, size);
+            siftUp(size++);
+            return;
+        }
+        // Вытеснение минимального счетчика: новый ключ мог встречаться до вытеснения
+        slots.remove(keys[0]);
+        keys[0] = key;
+        errors[0] = counts[0];
+        counts[0] += weight;
+        slots.put(key, 0);
+        siftDown(0);
+    }
+
+    /**
+     * Добавление счетчиков другой структуры (объединение сводок). Ключу, которого нет в
+     * одной из структур, добавляется ее минимальный счетчик: столько он мог весить до
+     * вытеснения. Остаются capacity ключей с наибольшей оценкой, оценка остается
+     * завышенной. other должна иметь не меньше счетчиков, иначе граница для ключей без
+     * счетчика теряется
+     */
+    public void merge(SpaceSaving other) {
+        if (other.capacity < capacity) {
+            throw new IllegalArgumentException("Объединяемая структура меньше: " + other.capacity + " < " + capacity);
+        }
+        long thisMin = getMaxError();
+        long otherMin = other.getMaxError();
+        // Ключ -> {оценка, ошибка}
+        Map<String, long[]> union = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            union.put(keys[i], new long[] {counts[i] + otherMin, errors[i] + otherMin});
+        }
+        for (int i = 0; i < other.size; i++) {
+            long[] entry = union.get(other.keys[i]);
+            if (entry == null) {
+                union.put(other.keys[i], new long[] {thisMin + other.counts[i], thisMin + other.errors[i]});
+            } else {
+                entry[0] += other.counts[i] - otherMin;
+                entry[1] += other.errors[i] - otherMin;
+            }
+        }
+
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(union.entrySet());
+        sorted.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed()
+                .thenComparing(Map.Entry::getKey));
+        slots.clear();
+        size = 0;
+        for (int i = 0; i < sorted.size() && i < capacity; i++) {
+            Map.Entry<String, long[]> entry = sorted.get(i);
+            keys[size] = entry.getKey();
+            counts[size] = entry.getValue()[0];
+            errors[size] = entry.getValue()[1];
+            slots.put(keys[size], size);
+            siftUp(size++);
+        }
+        total += other.total;
+    }
+
+    /**
+     * Верхняя граница веса любого ключа без счетчика (0, пока счетчики не заполнены)
+     */
+    public long getMaxError() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    /**
+     * Оценка веса ключа сверху
+     */
+    public long estimate(String key) {
+        Integer slot = slots.get(key);
+        return slot != null ? counts[slot] : getMaxError();
+    }
+
+    /**
+     * До limit ключей в порядке убывания оценки
+     */
+    public List<Entry> top(int limit) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> counts[i]).reversed()
+                .thenComparing(i -> keys[i]));
+        List<Entry> result = new ArrayList<>(Math.min(limit, size));
+        for (int i = 0; i < size && i < limit; i++) {
+            result.add(new Entry(keys[order[i]], counts[order[i]], errors[order[i]]));
+        }
+        return result;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        out.writeLong(total);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeUTF(keys[i]);
+            out.writeLong(counts[i]);
+            out.writeLong(errors[i]);
+        }
+    }
+
+    public static SpaceSaving readFrom(DataInput in) throws IOException {
+        SpaceSaving sketch = new SpaceSaving(in.readInt());
+        sketch.total = in.readLong();
+        int size = in.readInt();
+        if (size < 0 || size > sketch.capacity) {
+            throw new IOException("Некорректное число счетчиков: " + size);
+        }
+        // Куча записана в порядке массива и остается корректной
+        for (int i = 0; i < size; i++) {
+            sketch.keys[i] = in.readUTF();
+            sketch.counts[i] = in.readLong();
+            sketch.errors[i] = in.readLong();
+            sketch.slots.put(sketch.keys[i], i);
+        }
+        sketch.size = size;
+        return sketch;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (counts[parent] <= counts[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        slots.put(keys[a], a);
+        slots.put(keys[b], b);
+    }
+
+    /**
+     * Счетчик ключа: оценка сверху и максимальное завышение
+     */
+    public static class Entry {
+        private final String key;
+        private final long count;
+        private final long error;
+
+        Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        // Getters
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+        public long getError() { return error; }
+        /** Гарантированный вес ключа (оценка снизу) */
+        public long getGuaranteed() { return count - error; }
+    }
+}
@@ -0,0 +1,100 @@
+package nes.finance.cli;
+
+import nes.finance.model.User;
+import nes.finance.service.DataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+public class BatchRunnerTest {
+    @TempDir
+    Path dataDir;
+
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @BeforeEach
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    private int runScript(BatchRunner runner, String script) throws Exception {
+        return runner.run(new BufferedReader(new StringReader(script)),
+                new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSuccessfulScriptIsQuietAndSavesAtEnd() throws Exception {
+        BatchRunner runner = new BatchRunner("-", false, false, 0, dataDir.toString());
+        int status = runScript(runner, String.join("\n",
+                "# комментарий",
+                "register batchuser secret",
+                "login batchuser secret",
+                "",
+                "income 5000 Salary",
+                "expense 1200 Food",
+                "budget set Food 3000"));
+
+        assertEquals(BatchRunner.EXIT_OK, status);
+        assertEquals(5, runner.getCommandCount());
+        assertEquals(0, out.size());
+        assertEquals(0, err.size());
+
+        User saved = new DataService(dataDir.toString()).loadUserData("batchuser");
+        assertNotNull(saved);
+        assertEquals(2, saved.getWallet().getTransactions().size());
+        assertEquals(3800.0, saved.getWallet().getBalance(), 0.001);
+        assertEquals(3000.0, saved.getWallet().getBudgets().get("Food"), 0.001);
+    }
+
+    @Test
+    public void testErrorsReportedWithLineNumbers() throws Exception {
+        BatchRunner runner = new BatchRunner("-", false, false, 0, dataDir.toString());
+        int status = runScript(runner, String.join("\n",
+                "register batchuser secret",
+                "login batchuser secret",
+                "unknowncommand",
+                "income abc Salary",
+                "income 100 Salary"));
+
+        assertEquals(BatchRunner.EXIT_COMMAND_ERRORS, status);
+        assertEquals(2, runner.getErrorCount());
+
+        String errors = err.toString(StandardCharsets.UTF_8);
+        assertTrue(errors.contains("строка 3: unknowncommand"));
+        assertTrue(errors.contains("строка 4: income abc Salary"));
+    }
+
+    @Test
+    public void testStopOnError() throws Exception {
+        BatchRunner runner = new BatchRunner("-", false, true, 0, dataDir.toString());
+        int status = runScript(runner, String.join("\n",
+                "register batchuser secret",
+                "login batchuser secret",
+                "expense 100 Food",
+                "income 100 Salary"));
+
+        assertEquals(BatchRunner.EXIT_COMMAND_ERRORS, status);
+        assertEquals(3, runner.getCommandCount());
+    }
+
+    @Test
+    public void testFromArguments() {
+        BatchRunner runner = BatchRunner.fromArguments(new String[]{"--batch", "-", "--checkpoint", "100"});
+        assertNotNull(runner);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchRunner.fromArguments(new String[]{"--verbose"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchRunner.fromArguments(new String[]{"--batch", "-", "--checkpoint", "x"}));
+    }
+}
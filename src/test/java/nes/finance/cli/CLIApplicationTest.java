@@ -0,0 +1,52 @@
+package nes.finance.cli;
+
+import nes.finance.model.User;
+import nes.finance.service.AuthService;
+import nes.finance.service.DataService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+public class CLIApplicationTest {
+    @TempDir
+    Path dataDir;
+
+    @Test
+    public void testHelpDoesNotWaitForWalletLoad() {
+        DataService dataService = new DataService(dataDir.toString());
+        assertTrue(dataService.saveUserData(new User("slow", "secret")));
+
+        // Подготовка кошелька задерживается до release
+        AuthService session = new AuthService(dataService);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(session.login("slow", "secret", user -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CLIApplication app = new CLIApplication(session, new ByteArrayInputStream(new byte[0]),
+                new PrintStream(out, true, StandardCharsets.UTF_8), false);
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertTrue(app.executeCommand("help")));
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertFalse(app.executeCommand("unknown")));
+            assertFalse(session.isWalletReady());
+        } finally {
+            release.countDown();
+        }
+
+        // Команда, которой нужен кошелек, дожидается загрузки
+        assertTrue(app.executeCommand("summary"));
+        assertTrue(session.isWalletReady());
+    }
+}
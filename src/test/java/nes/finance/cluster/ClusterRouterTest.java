@@ -0,0 +1,157 @@
+package nes.finance.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterRouterTest {
+    private static final int USERS = 12;
+
+    @TempDir
+    Path root;
+
+    private final List<ClusterNode> nodes = new ArrayList<>();
+    private final Map<String, Path> dirs = new HashMap<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        startNode("node1");
+        startNode("node2");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (ClusterNode node : nodes) {
+            node.close();
+        }
+    }
+
+    private ClusterNode startNode(String name) throws IOException {
+        Path dir = root.resolve(name);
+        ClusterNode node = new ClusterNode(dir.toString(), 0);
+        node.start();
+        nodes.add(node);
+        dirs.put(node.getAddress(), dir);
+        return node;
+    }
+
+    private ClusterRouter router() {
+        List<String> addresses = new ArrayList<>();
+        for (ClusterNode node : nodes) {
+            addresses.add(node.getAddress());
+        }
+        return new ClusterRouter(addresses);
+    }
+
+    private boolean stored(String node, String login) {
+        return new File(dirs.get(node).toFile(), login + ".dat").exists();
+    }
+
+    private void registerUsers(ClusterRouter router) throws IOException {
+        for (int i = 0; i < USERS; i++) {
+            try (ClusterRouter.Session session = router.openSession()) {
+                String login = "user" + i;
+                assertTrue(session.execute("register " + login + " secret").isSuccess());
+                assertTrue(session.execute("login " + login + " secret").isSuccess());
+                assertTrue(session.execute("income " + (100 + i) + " Salary").isSuccess());
+                assertTrue(session.execute("logout").isSuccess());
+            }
+        }
+    }
+
+    @Test
+    public void testSessionRoutedToOwnerNode() throws IOException {
+        ClusterRouter router = router();
+        registerUsers(router);
+
+        for (int i = 0; i < USERS; i++) {
+            String login = "user" + i;
+            String owner = router.ownerOf(login);
+            assertTrue(stored(owner, login));
+            for (String node : router.getNodes()) {
+                if (!node.equals(owner)) {
+                    assertFalse(stored(node, login));
+                }
+            }
+        }
+
+        try (ClusterRouter.Session session = router.openSession()) {
+            CommandResult result = session.execute("login user3 secret");
+            assertTrue(result.isSuccess());
+            assertEquals(router.ownerOf("user3"), result.getNode());
+            assertTrue(session.execute("summary").getOutput().contains("103"));
+            assertFalse(session.execute("login user3 wrong").isSuccess());
+        }
+    }
+
+    @Test
+    public void testAddNodeMovesUsersToNewOwner() throws IOException {
+        ClusterRouter router = router();
+        registerUsers(router);
+
+        ClusterNode added = startNode("node3");
+        int moved = router.addNode(added.getAddress());
+
+        int owned = 0;
+        for (int i = 0; i < USERS; i++) {
+            String login = "user" + i;
+            String owner = router.ownerOf(login);
+            assertTrue(stored(owner, login));
+            if (owner.equals(added.getAddress())) {
+                owned++;
+            }
+            for (String node : router.getNodes()) {
+                if (!node.equals(owner)) {
+                    assertFalse(stored(node, login));
+                }
+            }
+        }
+        assertEquals(owned, moved);
+        assertTrue(moved > 0);
+
+        for (int i = 0; i < USERS; i++) {
+            try (ClusterRouter.Session session = router.openSession()) {
+                assertTrue(session.execute("login user" + i + " secret").isSuccess());
+                assertTrue(session.execute("summary").getOutput().contains(String.valueOf(100 + i)));
+            }
+        }
+    }
+
+    @Test
+    public void testLoggedInUserIsNotMoved() throws IOException {
+        ClusterRouter router = new ClusterRouter(Arrays.asList(nodes.get(0).getAddress()));
+        try (ClusterRouter.Session setup = router.openSession()) {
+            for (int i = 0; i < USERS; i++) {
+                assertTrue(setup.execute("register user" + i + " secret").isSuccess());
+            }
+        }
+
+        ClusterRouter wider = router();
+        String moving = null;
+        for (int i = 0; i < USERS && moving == null; i++) {
+            if (!wider.ownerOf("user" + i).equals(nodes.get(0).getAddress())) {
+                moving = "user" + i;
+            }
+        }
+        assertNotNull(moving);
+
+        try (NodeClient active = new NodeClient(nodes.get(0).getAddress())) {
+            assertTrue(active.execute("login " + moving + " secret").isSuccess());
+            wider.rebalance();
+            assertTrue(stored(nodes.get(0).getAddress(), moving));
+            assertFalse(stored(nodes.get(1).getAddress(), moving));
+        }
+    }
+}
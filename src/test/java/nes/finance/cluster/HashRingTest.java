@@ -0,0 +1,77 @@
+package nes.finance.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashRingTest {
+    private static final int LOGINS = 3000;
+
+    @Test
+    public void testEmptyRingHasNoOwner() {
+        assertNull(new HashRing().ownerOf("alice"));
+    }
+
+    @Test
+    public void testOwnershipIsStableAcrossInstances() {
+        HashRing first = new HashRing();
+        HashRing second = new HashRing();
+        first.addNode("127.0.0.1:7001");
+        first.addNode("127.0.0.1:7002");
+        second.addNode("127.0.0.1:7002");
+        second.addNode("127.0.0.1:7001");
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.ownerOf("user" + i), second.ownerOf("user" + i));
+        }
+        assertFalse(first.addNode("127.0.0.1:7001"));
+    }
+
+    @Test
+    public void testLoginsSpreadAcrossNodes() {
+        HashRing ring = new HashRing();
+        ring.addNode("a");
+        ring.addNode("b");
+        ring.addNode("c");
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < LOGINS; i++) {
+            counts.merge(ring.ownerOf("user" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > LOGINS / 6, "Неравномерное распределение: " + counts);
+        }
+    }
+
+    @Test
+    public void testAddingNodeMovesLoginsOnlyToIt() {
+        HashRing ring = new HashRing();
+        ring.addNode("a");
+        ring.addNode("b");
+        Map<String, String> before = new HashMap<>();
+        for (int i = 0; i < LOGINS; i++) {
+            before.put("user" + i, ring.ownerOf("user" + i));
+        }
+
+        ring.addNode("c");
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String owner = ring.ownerOf(entry.getKey());
+            if (!owner.equals(entry.getValue())) {
+                assertEquals("c", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved > LOGINS / 6 && moved < LOGINS / 2, "Перенесено: " + moved);
+
+        ring.removeNode("c");
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            assertEquals(entry.getValue(), ring.ownerOf(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package nes.finance.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationJournalTest {
+
+    @Test
+    public void testReadAfterReturnsEntriesInOrder() throws InterruptedException {
+        ReplicationJournal journal = new ReplicationJournal();
+        assertEquals(1, journal.append("alice", new byte[]{1}));
+        assertEquals(2, journal.append("bob", new byte[]{2}));
+        assertEquals(3, journal.append("alice", null));
+
+        List<JournalEntry> entries = journal.readAfter(1, 10, 0);
+        assertEquals(2, entries.size());
+        assertEquals(2, entries.get(0).getOffset());
+        assertEquals("bob", entries.get(0).getLogin());
+        assertTrue(entries.get(1).isDelete());
+
+        assertEquals(1, journal.readAfter(0, 1, 0).size());
+        assertTrue(journal.readAfter(3, 10, 10).isEmpty());
+    }
+
+    @Test
+    public void testTrimmedJournalRequiresSnapshot() throws InterruptedException {
+        ReplicationJournal journal = new ReplicationJournal(1000);
+        for (int i = 0; i < 10; i++) {
+            journal.append("user" + i, new byte[400]);
+        }
+
+        assertTrue(journal.getBytes() <= 1000);
+        assertEquals(10, journal.getHeadOffset());
+        assertTrue(journal.getFirstOffset() > 1);
+        assertNull(journal.readAfter(0, 10, 0));
+        assertEquals(1, journal.readAfter(9, 10, 0).size());
+    }
+
+    @Test
+    public void testAwaitAckWaitsForFollower() throws InterruptedException {
+        ReplicationJournal journal = new ReplicationJournal();
+        long offset = journal.append("alice", new byte[]{1});
+        assertFalse(journal.awaitAck(offset, 20));
+
+        Thread follower = new Thread(() -> journal.acknowledge(offset));
+        follower.start();
+        assertTrue(journal.awaitAck(offset, 5000));
+        follower.join();
+        assertEquals(offset, journal.getAckedOffset());
+    }
+}
@@ -0,0 +1,154 @@
+package nes.finance.cluster;
+
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import nes.finance.service.DataService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationTest {
+    private static final long WAIT_MILLIS = 10_000;
+
+    @TempDir
+    Path root;
+
+    private DataService primaryData;
+    private ReplicationPrimary primary;
+    private ReplicationFollower follower;
+    private String followerDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        primaryData = new DataService(root.resolve("primary").toString());
+        followerDir = root.resolve("follower").toString();
+        primary = new ReplicationPrimary(primaryData, 0);
+        primary.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (follower != null) {
+            follower.close();
+        }
+        primary.close();
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return condition.getAsBoolean();
+    }
+
+    private static User user(String login, double income) {
+        User user = new User(login, "secret");
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, income, "Salary"));
+        return user;
+    }
+
+    private ReplicationFollower startFollower() {
+        ReplicationFollower started = new ReplicationFollower(followerDir, primary.getAddress());
+        started.start();
+        return started;
+    }
+
+    private double replicatedIncome(String login) {
+        User user = new DataService(followerDir).loadUserData(login);
+        return user != null ? user.getWallet().getTotals().getTotalIncome() : -1;
+    }
+
+    @Test
+    public void testFollowerAppliesSavesAndDeletes() throws InterruptedException {
+        assertTrue(primaryData.saveUserData(user("alice", 100)));
+        follower = startFollower();
+        assertTrue(await(() -> replicatedIncome("alice") == 100));
+        assertEquals(1, follower.getSnapshotCount());
+
+        assertTrue(primaryData.saveUserData(user("alice", 250)));
+        assertTrue(primaryData.saveUserData(user("bob", 40)));
+        assertTrue(await(() -> replicatedIncome("alice") == 250 && replicatedIncome("bob") == 40));
+
+        assertTrue(primaryData.deleteUserData("bob"));
+        assertTrue(await(() -> !new DataService(followerDir).userDataExists("bob")));
+        assertTrue(await(() -> primary.getLag() == 0 && follower.getLag() == 0));
+        assertEquals(primary.getJournal().getHeadOffset(), follower.getAppliedOffset());
+    }
+
+    @Test
+    public void testFollowerCatchesUpFromOffsetAfterDisconnect() throws InterruptedException {
+        follower = startFollower();
+        assertTrue(primaryData.saveUserData(user("alice", 100)));
+        assertTrue(await(() -> replicatedIncome("alice") == 100));
+        follower.close();
+
+        assertTrue(primaryData.saveUserData(user("alice", 300)));
+        assertTrue(primaryData.saveUserData(user("carol", 70)));
+        assertEquals(100, replicatedIncome("alice"));
+
+        // Новая реплика читает сохраненную позицию и получает только пропущенные записи
+        follower = startFollower();
+        assertTrue(await(() -> replicatedIncome("alice") == 300 && replicatedIncome("carol") == 70));
+        assertEquals(0, follower.getSnapshotCount());
+        assertEquals(2, follower.getAppliedCount());
+    }
+
+    @Test
+    public void testSnapshotWhenJournalFromAnotherRun() throws InterruptedException, IOException {
+        follower = startFollower();
+        assertTrue(primaryData.saveUserData(user("alice", 100)));
+        assertTrue(primaryData.saveUserData(user("bob", 20)));
+        assertTrue(await(() -> replicatedIncome("bob") == 20));
+        follower.close();
+        primary.close();
+
+        // Ведущий перезапущен: журнал новый, реплика получает снимок, удаленный пользователь исчезает
+        primaryData = new DataService(primaryData.getDataDir());
+        assertTrue(primaryData.deleteUserData("bob"));
+        primary = new ReplicationPrimary(primaryData, 0);
+        primary.start();
+        follower = startFollower();
+
+        assertTrue(await(() -> follower.getSnapshotCount() == 1 && follower.getJournalId().equals(primary.getJournal().getId())));
+        assertEquals(100, replicatedIncome("alice"));
+        assertFalse(new DataService(followerDir).userDataExists("bob"));
+    }
+
+    @Test
+    public void testSemiSyncSaveWaitsForFollower() throws InterruptedException {
+        primary.setSyncTimeoutMillis(5000);
+        follower = startFollower();
+        assertTrue(await(() -> primary.isFollowerConnected() && follower.isConnected()));
+
+        assertTrue(primaryData.saveUserData(user("alice", 100)));
+        // Сохранение вернулось после подтверждения реплики
+        assertEquals(primary.getJournal().getHeadOffset(), primary.getJournal().getAckedOffset());
+        assertEquals(100, replicatedIncome("alice"));
+    }
+
+    @Test
+    public void testPromotedFollowerStopsReplicating() throws InterruptedException {
+        follower = startFollower();
+        assertTrue(primaryData.saveUserData(user("alice", 100)));
+        assertTrue(await(() -> replicatedIncome("alice") == 100));
+
+        assertEquals(follower.getAppliedOffset(), follower.promote());
+        assertFalse(follower.isRunning());
+
+        assertTrue(primaryData.saveUserData(user("alice", 999)));
+        Thread.sleep(200);
+        assertEquals(100, replicatedIncome("alice"));
+    }
+}
@@ -0,0 +1,153 @@
+package nes.finance.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeedTest {
+
+    @Test
+    public void testDeliversOnlyRequestedEventsInOrder() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed();
+        Recorder recorder = new Recorder(2);
+        feed.subscribe(recorder);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(feed.publish(budget(i)));
+        }
+        recorder.awaitCount(2);
+        Thread.sleep(50);
+        assertEquals(2, recorder.events.size());
+
+        recorder.subscription.request(10);
+        feed.close();
+        assertTrue(recorder.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(5, recorder.events.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, recorder.events.get(i).getSequence());
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberDropsOldestWithoutBlockingPublisher() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed();
+        Recorder recorder = new Recorder(0);
+        feed.subscribe(recorder, 4, ChangeFeed.OverflowPolicy.DROP_OLDEST);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            feed.publish(budget(i));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000);
+
+        // Раскладка идет в фоне: ждем, пока последнее событие попадет в буфер
+        Thread.sleep(200);
+        recorder.subscription.request(Long.MAX_VALUE);
+        feed.close();
+        assertTrue(recorder.completed.await(5, TimeUnit.SECONDS));
+
+        assertTrue(recorder.events.size() <= 4);
+        assertEquals(100, recorder.events.get(recorder.events.size() - 1).getSequence());
+    }
+
+    @Test
+    public void testBlockPolicyDeliversEveryEvent() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed();
+        Recorder recorder = new Recorder(1) {
+            @Override
+            public void onNext(ChangeEvent item) {
+                super.onNext(item);
+                subscription.request(1);
+            }
+        };
+        feed.subscribe(recorder, 2, ChangeFeed.OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(feed.publish(budget(i)));
+        }
+        feed.close();
+        assertTrue(recorder.completed.await(5, TimeUnit.SECONDS));
+
+        assertEquals(200, recorder.events.size());
+        assertEquals(0, feed.getDroppedCount());
+        assertEquals(200, recorder.events.get(199).getSequence());
+    }
+
+    @Test
+    public void testInvalidRequestAndCancel() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed();
+        Recorder invalid = new Recorder(0);
+        Recorder cancelled = new Recorder(Long.MAX_VALUE);
+        feed.subscribe(invalid);
+        feed.subscribe(cancelled);
+
+        invalid.subscription.request(0);
+        assertTrue(invalid.failed.await(5, TimeUnit.SECONDS));
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+
+        cancelled.subscription.cancel();
+        assertEquals(0, feed.getSubscriberCount());
+        assertFalse(feed.publish(budget(1)));
+        feed.close();
+
+        // Подписка на закрытую ленту сразу завершается
+        Recorder late = new Recorder(1);
+        feed.subscribe(late);
+        assertTrue(late.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    private static ChangeEvent budget(int i) {
+        return new BudgetChanged("user", "Food", null, (double) i);
+    }
+
+    private static class Recorder implements Flow.Subscriber<ChangeEvent> {
+        final List<ChangeEvent> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch completed = new CountDownLatch(1);
+        final CountDownLatch failed = new CountDownLatch(1);
+        final long initialRequest;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(ChangeEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        void awaitCount(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
+}
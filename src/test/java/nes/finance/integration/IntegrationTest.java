@@ -5,10 +5,14 @@ import nes.finance.service.FinancialService;
 import nes.finance.service.DataService;
 import nes.finance.model.User;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.File;
+import java.nio.file.Path;
 
 public class IntegrationTest {
+    @TempDir
+    Path dataDir;
 
     @Test
     public void testCompleteUserFlow() {
@@ -16,9 +20,9 @@ public class IntegrationTest {
         cleanupTestData();
 
         // 1. Создаем сервисы
-        AuthService authService = new AuthService();
+        AuthService authService = new AuthService(new DataService(dataDir.toString()));
         FinancialService financialService = new FinancialService(authService);
-        DataService dataService = new DataService();
+        DataService dataService = new DataService(dataDir.toString());
 
         // 2. Регистрируем пользователя
         assertTrue(authService.register("integrationuser", "password123"));
@@ -80,7 +84,7 @@ public class IntegrationTest {
     public void testBudgetExceedAlertFlow() {
         cleanupTestData();
 
-        AuthService authService = new AuthService();
+        AuthService authService = new AuthService(new DataService(dataDir.toString()));
         FinancialService financialService = new FinancialService(authService);
 
         authService.register("alertuser", "password123");
@@ -103,17 +107,6 @@ public class IntegrationTest {
     }
 
     private void cleanupTestData() {
-        // Очищаем файлы данных
-        File dataDir = new File("data");
-        if (dataDir.exists() && dataDir.isDirectory()) {
-            File[] files = dataDir.listFiles((dir, name) -> name.endsWith(".dat"));
-            if (files != null) {
-                for (File file : files) {
-                    file.delete();
-                }
-            }
-        }
-
         // Очищаем тестовые файлы экспорта
         String[] testFiles = {
                 "test_transactions.csv",
@@ -0,0 +1,43 @@
+package nes.finance.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadConfigTest {
+
+    @Test
+    public void testArgumentsParsed() {
+        LoadConfig config = LoadConfig.fromArguments(new String[]{
+                "--load", "--users", "500", "--duration", "3600", "--think", "250",
+                "--mix", "income=1,expense=2,report=0", "--report", "out.json"});
+
+        assertEquals(500, config.getUsers());
+        assertEquals(3600, config.getDurationSeconds());
+        assertEquals(250, config.getThinkMillis());
+        assertEquals("out.json", config.getReportPath());
+        assertEquals(Integer.valueOf(2), config.getMix().get(Operation.EXPENSE));
+        assertFalse(config.getMix().containsKey(Operation.EXPORT));
+    }
+
+    @Test
+    public void testClusterTargetDropsDefaultExport() {
+        LoadConfig config = LoadConfig.fromArguments(new String[]{"--load", "--nodes", "127.0.0.1:7001,127.0.0.1:7002"});
+
+        assertEquals(Arrays.asList("127.0.0.1:7001", "127.0.0.1:7002"), config.getNodes());
+        assertFalse(config.getMix().containsKey(Operation.EXPORT));
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.fromArguments(
+                new String[]{"--load", "--nodes", "127.0.0.1:7001", "--mix", "export=1"}));
+    }
+
+    @Test
+    public void testInvalidArgumentsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.fromArguments(new String[]{"--load", "--users", "0"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.fromArguments(new String[]{"--load", "--users"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.fromArguments(new String[]{"--load", "--mix", "transfer=5"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.fromArguments(new String[]{"--load", "--mix", "income=0"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.fromArguments(new String[]{"--load", "--speed", "1"}));
+    }
+}
@@ -0,0 +1,87 @@
+package nes.finance.load;
+
+import nes.finance.cluster.ClusterNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+    @TempDir
+    Path dir;
+
+    private LoadConfig shortRun() {
+        LoadConfig config = new LoadConfig();
+        config.setUsers(4);
+        config.setDurationSeconds(1);
+        config.setWarmupSeconds(0);
+        config.setThinkMillis(5);
+        config.setSampleSeconds(1);
+        config.setDataDir(dir.resolve("data").toString());
+        return config;
+    }
+
+    @Test
+    public void testLocalRunRecordsEveryOperation() throws Exception {
+        LoadConfig config = shortRun();
+        config.setMix("income=1,expense=1,report=1,period=1,export=1");
+
+        LoadReport report = new LoadGenerator(config).run();
+
+        assertEquals(0, report.getFailedUsers());
+        assertEquals(0, report.getTotalErrors());
+        assertTrue(report.getMeasuredSeconds() > 0);
+        assertTrue(report.getThroughput() > 0);
+        for (Operation operation : Operation.values()) {
+            OperationStats stats = report.getOperation(operation);
+            assertTrue(stats.getCount() > 0, operation.getKey());
+            assertTrue(stats.percentile(0.5) <= stats.percentile(0.99));
+            assertTrue(stats.percentile(0.99) <= stats.getMaxMillis());
+        }
+        assertTrue(report.getHeapPeakBytes() > 0);
+        // Данные виртуальных пользователей сохранены при закрытии сеансов
+        assertTrue(new File(config.getDataDir(), "load_0.dat").exists());
+    }
+
+    @Test
+    public void testJsonReportIsLocaleIndependent() throws Exception {
+        LoadConfig config = shortRun();
+        config.setMix("income=1,report=1");
+        LoadReport report = new LoadGenerator(config).run();
+
+        Path file = dir.resolve("report.json");
+        report.writeJson(file.toString());
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+        assertTrue(json.contains("\"throughput_ops_per_second\": "));
+        assertTrue(json.contains("\"income\": {\"count\": " + report.getOperation(Operation.INCOME).getCount()));
+        assertTrue(json.contains("\"p99_ms\": "));
+        assertTrue(json.contains("\"gc\": {"));
+        assertFalse(json.matches("(?s).*\\d,\\d.*"));
+        assertNull(report.getOperation(Operation.EXPORT));
+    }
+
+    @Test
+    public void testClusterRunThroughNodes() throws Exception {
+        try (ClusterNode node = new ClusterNode(dir.resolve("node").toString(), 0)) {
+            node.start();
+            LoadConfig config = shortRun();
+            config.setUsers(2);
+            config.setNodes(Collections.singletonList(node.getAddress()));
+            config.setMix("income=1,expense=1,report=1");
+
+            LoadReport report = new LoadGenerator(config).run();
+
+            assertEquals(0, report.getFailedUsers());
+            assertEquals(0, report.getTotalErrors());
+            assertTrue(report.getOperation(Operation.REPORT).getCount() > 0);
+            assertTrue(report.getTarget().startsWith("cluster"));
+        }
+    }
+}
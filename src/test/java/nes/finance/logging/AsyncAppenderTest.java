@@ -0,0 +1,82 @@
+package nes.finance.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncAppenderTest {
+
+    @AfterEach
+    public void tearDown() {
+        LoggerFactory.shutdown();
+        LoggerFactory.setLevel(LogLevel.WARN);
+    }
+
+    @Test
+    public void testFlushWritesAllRecordsInOrder() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        AsyncAppender appender = new AsyncAppender(
+                new StreamAppender(new PrintStream(buffer, true, StandardCharsets.UTF_8), true),
+                16, AsyncAppender.OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 100; i++) {
+            appender.append(new LogRecord(LogLevel.INFO, "test", "Запись %d", new Object[]{i}, null));
+        }
+        appender.flush();
+        appender.close();
+
+        String[] lines = buffer.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(100, lines.length);
+        assertEquals("Запись 0", lines[0]);
+        assertEquals("Запись 99", lines[99]);
+    }
+
+    @Test
+    public void testDropPolicyNeverBlocksCaller() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        Appender slow = record -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(record.getMessage());
+        };
+
+        AsyncAppender appender = new AsyncAppender(slow, 4, AsyncAppender.OverflowPolicy.DROP);
+        for (int i = 0; i < 50; i++) {
+            appender.append(new LogRecord(LogLevel.WARN, "test", "Запись", null, null));
+        }
+        assertTrue(appender.getDroppedCount() > 0);
+
+        release.countDown();
+        appender.close();
+        assertEquals(50, received.size() + appender.getDroppedCount());
+    }
+
+    @Test
+    public void testDisabledLevelIsNotDispatched() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        LoggerFactory.setAppender(new StreamAppender(new PrintStream(buffer, true, StandardCharsets.UTF_8), true));
+        LoggerFactory.setLevel(LogLevel.WARN);
+
+        Logger log = LoggerFactory.getLogger("test");
+        log.info("Скрытое сообщение %s", "info");
+        log.warn("Видимое сообщение %s", "warn");
+        LoggerFactory.flush();
+
+        String output = buffer.toString(StandardCharsets.UTF_8);
+        assertFalse(output.contains("Скрытое"));
+        assertTrue(output.contains("Видимое сообщение warn"));
+    }
+}
@@ -53,4 +53,31 @@ public class AlertTest {
         alertStr = alert.toString();
         assertTrue(alertStr.contains("[ПРОЧИТАНО]"));
     }
+
+    @Test
+    public void testStructuredAlertRendersOnDemand() {
+        Alert budget = new Alert(AlertReason.BUDGET_EXCEEDED, "Food", 1000.0, 1250.0, 250.0);
+
+        assertEquals(AlertType.BUDGET_EXCEEDED, budget.getType());
+        assertNull(budget.getCustomMessage());
+        assertTrue(budget.getMessage().contains("'Food'"));
+        assertTrue(budget.getMessage().contains(String.format("%.2f", 250.0)));
+        assertTrue(budget.hasKey(AlertReason.BUDGET_EXCEEDED, "Food"));
+        assertFalse(budget.hasKey(AlertReason.BUDGET_EXCEEDED, "Rent"));
+
+        Alert large = new Alert(AlertReason.LARGE_TRANSACTION, "Travel", 15000.0);
+        assertTrue(large.getMessage().contains(String.format("%.2f", 15000.0) + " "));
+        assertTrue(large.getMessage().contains("'Travel'"));
+    }
+
+    @Test
+    public void testRepeatsComparesContentOnly() {
+        Alert first = new Alert(AlertReason.LOW_BALANCE, null, 300.0);
+        Alert same = new Alert(AlertReason.LOW_BALANCE, null, 300.0);
+        same.markAsRead();
+
+        assertTrue(same.repeats(first));
+        assertFalse(new Alert(AlertReason.LOW_BALANCE, null, 200.0).repeats(first));
+        assertFalse(new Alert(AlertType.LOW_BALANCE, "Low balance").repeats(first));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package nes.finance.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.LocalDate;
+import java.util.Random;
+
+public class BalanceIndexTest {
+
+    @Test
+    public void testEmptyIndex() {
+        BalanceIndex index = new BalanceIndex();
+        assertEquals(0.0, index.getBalanceAt(LocalDate.of(2024, 1, 1)), 0.001);
+        assertEquals(0.0, index.getNetFlow(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)), 0.001);
+    }
+
+    @Test
+    public void testBalanceAtEndOfDay() {
+        BalanceIndex index = new BalanceIndex();
+        index.add(LocalDate.of(2024, 3, 1), TransactionType.INCOME, 1000.0);
+        index.add(LocalDate.of(2024, 3, 5), TransactionType.EXPENSE, 250.5);
+        index.add(LocalDate.of(2024, 3, 5), TransactionType.INCOME, 10.0);
+
+        assertEquals(0.0, index.getBalanceAt(LocalDate.of(2024, 2, 29)), 0.001);
+        assertEquals(1000.0, index.getBalanceAt(LocalDate.of(2024, 3, 4)), 0.001);
+        assertEquals(759.5, index.getBalanceAt(LocalDate.of(2024, 3, 5)), 0.001);
+        // Даты после диапазона индекса видят весь остаток
+        assertEquals(759.5, index.getBalanceAt(LocalDate.of(2030, 1, 1)), 0.001);
+        assertEquals(-240.5, index.getNetFlow(LocalDate.of(2024, 3, 2), LocalDate.of(2024, 3, 5)), 0.001);
+        assertEquals(0.0, index.getNetFlow(LocalDate.of(2024, 3, 5), LocalDate.of(2024, 3, 1)), 0.001);
+    }
+
+    @Test
+    public void testGrowsBackwardAndForward() {
+        BalanceIndex index = new BalanceIndex();
+        LocalDate start = LocalDate.of(2024, 6, 1);
+        index.add(start, TransactionType.INCOME, 100.0);
+        // Операция задним числом и операция далеко в будущем расширяют диапазон
+        index.add(start.minusYears(3), TransactionType.INCOME, 50.0);
+        index.add(start.plusYears(2), TransactionType.EXPENSE, 30.0);
+
+        assertEquals(50.0, index.getBalanceAt(start.minusDays(1)), 0.001);
+        assertEquals(150.0, index.getBalanceAt(start), 0.001);
+        assertEquals(120.0, index.getBalanceAt(start.plusYears(2)), 0.001);
+        assertEquals(100.0, index.getNetFlow(start, start.plusYears(1)), 0.001);
+    }
+
+    @Test
+    public void testMatchesDirectSumsForRandomUpdates() {
+        Random random = new Random(42);
+        BalanceIndex index = new BalanceIndex();
+        LocalDate base = LocalDate.of(2020, 1, 1);
+        long[] daily = new long[2000];
+        for (int i = 0; i < 5000; i++) {
+            int day = random.nextInt(daily.length);
+            long cents = random.nextInt(100_000);
+            boolean income = random.nextBoolean();
+            index.add(base.plusDays(day), income ? TransactionType.INCOME : TransactionType.EXPENSE, cents / 100.0);
+            daily[day] += income ? cents : -cents;
+        }
+
+        long expected = 0;
+        for (int day = 0; day < daily.length; day++) {
+            expected += daily[day];
+            assertEquals(expected, index.balanceCentsAt(base.plusDays(day).toEpochDay()));
+        }
+    }
+}
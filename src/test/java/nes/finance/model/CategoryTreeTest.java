@@ -0,0 +1,66 @@
+package nes.finance.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class CategoryTreeTest {
+    private CategoryTree tree;
+
+    @BeforeEach
+    public void setUp() {
+        tree = new CategoryTree();
+        tree.add("Food/Restaurants", TransactionType.EXPENSE, 300.0);
+        tree.add("Food/Groceries", TransactionType.EXPENSE, 120.5);
+        tree.add("Food/Groceries/Fruit", TransactionType.EXPENSE, 30.0);
+        tree.add("Salary", TransactionType.INCOME, 5000.0);
+    }
+
+    @Test
+    public void testSubtreeTotals() {
+        CategoryTree.Node food = tree.find("Food");
+        assertEquals(450.5, food.getExpense(), 0.0);
+        assertEquals(3, food.getCount());
+        assertEquals(0, food.getOwnCount());
+        assertEquals(150.5, tree.getExpense("Food/Groceries"), 0.0);
+        assertEquals(5000.0, tree.getRoot().getIncome(), 0.0);
+        assertEquals(4, tree.getRoot().getCount());
+        assertNull(tree.find("Transport"));
+    }
+
+    @Test
+    public void testPathsAreNormalized() {
+        tree.add(" Food / Restaurants ", TransactionType.EXPENSE, 50.0);
+        assertEquals(350.0, tree.getExpense("Food/Restaurants/"), 0.0);
+        assertEquals("Food/Restaurants", CategoryTree.normalize("/Food//Restaurants "));
+    }
+
+    @Test
+    public void testWalkWithDepth() {
+        List<String> all = tree.walk("", -1).stream().map(CategoryTree.Node::getPath).collect(Collectors.toList());
+        assertEquals(List.of("Food", "Food/Groceries", "Food/Groceries/Fruit", "Food/Restaurants", "Salary"), all);
+
+        List<String> food = tree.walk("Food", 1).stream().map(CategoryTree.Node::getPath).collect(Collectors.toList());
+        assertEquals(List.of("Food", "Food/Groceries", "Food/Restaurants"), food);
+
+        assertTrue(tree.walk("Unknown", -1).isEmpty());
+    }
+
+    @Test
+    public void testBudgetsAtAnyLevel() {
+        tree.syncBudgets(Map.of("Food", 1000.0, "Food/Restaurants", 200.0, "Travel/Hotels", 700.0));
+        assertEquals(1000.0, tree.find("Food").getBudget(), 0.0);
+        assertEquals(1200.0, tree.find("Food").getBudgetTotal(), 0.0);
+        assertEquals(1900.0, tree.getRoot().getBudgetTotal(), 0.0);
+        assertEquals(0, tree.find("Travel").getCount());
+
+        // Удаленный бюджет убирает пустые узлы
+        tree.syncBudgets(Map.of("Food", 800.0));
+        assertNull(tree.find("Travel"));
+        assertNull(tree.find("Food/Restaurants").getBudget());
+        assertEquals(800.0, tree.getRoot().getBudgetTotal(), 0.0);
+    }
+}
@@ -3,7 +3,10 @@ package nes.finance.model;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import static org.junit.jupiter.api.Assertions.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 public class WalletTest {
     private Wallet wallet;
@@ -81,4 +84,384 @@ public class WalletTest {
         assertTrue(walletStr.contains("budgets="));
         assertTrue(walletStr.contains("alerts="));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCategorySketchUpdatedOnInsert() {
+        for (int i = 1; i <= 10; i++) {
+            wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, i * 100.0, "Food"));
+        }
+
+        assertEquals(10, wallet.getCategorySketch("Food").getCount());
+        assertEquals(500.0, wallet.getCategorySketch("Food").median(), 0.001);
+        assertNull(wallet.getCategorySketch("Transport"));
+
+        wallet.getTransactions().clear();
+        assertNull(wallet.getCategorySketch("Food"));
+    }
+
+    @Test
+    public void testRenameCategoryMergesSketches() {
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 100.0, "Cafe"));
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 300.0, "Restaurant"));
+
+        assertEquals(1, wallet.renameCategory("Cafe", "Restaurant"));
+        assertNull(wallet.getCategorySketch("Cafe"));
+        assertEquals(2, wallet.getCategorySketch("Restaurant").getCount());
+        assertEquals("Restaurant", wallet.getTransactions().get(0).getCategory());
+    }
+
+    @Test
+    public void testTransactionViewsRoundTrip() {
+        LocalDateTime date = LocalDateTime.of(2024, 3, 15, 10, 30, 45, 123_456_000);
+        wallet.getTransactions().add(new Transaction(TransactionType.INCOME, 1234.56, "Salary", date));
+
+        Transaction view = wallet.getTransactions().get(0);
+        assertEquals(TransactionType.INCOME, view.getType());
+        assertEquals(1234.56, view.getAmount(), 0.0);
+        assertEquals("Salary", view.getCategory());
+        assertEquals(date, view.getDate());
+    }
+
+    @Test
+    public void testInsertRemoveAndGrowth() {
+        List<Transaction> transactions = wallet.getTransactions();
+        for (int i = 0; i < 100; i++) {
+            transactions.add(new Transaction(TransactionType.EXPENSE, i + 1, "C" + (i % 3)));
+        }
+        transactions.add(0, new Transaction(TransactionType.INCOME, 500.0, "Salary"));
+        assertEquals(101, transactions.size());
+        assertEquals("Salary", transactions.get(0).getCategory());
+        assertEquals(1.0, transactions.get(1).getAmount(), 0.0);
+
+        transactions.remove(0);
+        assertEquals(100, transactions.size());
+        assertEquals(100.0, transactions.get(99).getAmount(), 0.0);
+        assertEquals(0.0, wallet.sumAmounts(TransactionType.INCOME, null), 0.0);
+        assertEquals(5050.0, wallet.sumAmounts(TransactionType.EXPENSE, null), 0.0);
+        assertEquals(34, wallet.countTransactions("C0"));
+    }
+
+    @Test
+    public void testTotalsByPeriod() {
+        wallet.getTransactions().add(new Transaction(TransactionType.INCOME, 1000.0, "Salary",
+                LocalDateTime.of(2024, 1, 31, 23, 59)));
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 200.0, "Food",
+                LocalDateTime.of(2024, 2, 1, 0, 0)));
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 50.5, "Food",
+                LocalDateTime.of(2024, 2, 29, 18, 0)));
+
+        TransactionTotals february = wallet.getTotals(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29));
+        assertEquals(2, february.getCount());
+        assertEquals(0.0, february.getTotalIncome(), 0.0);
+        assertEquals(250.5, february.getExpense("Food"), 0.0);
+        assertTrue(february.getIncomeByCategory().isEmpty());
+
+        TransactionTotals all = wallet.getTotals();
+        assertEquals(3, all.getCount());
+        assertEquals(1000.0, all.getIncome("Salary"), 0.0);
+    }
+
+    @Test
+    public void testRenameIntoNewCategoryKeepsTotals() {
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 100.0, "Cafe"));
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 40.0, "Taxi"));
+
+        assertEquals(1, wallet.renameCategory("Cafe", "Restaurant"));
+        assertEquals(100.0, wallet.sumAmounts(TransactionType.EXPENSE, "Restaurant"), 0.0);
+        assertEquals(0.0, wallet.sumAmounts(TransactionType.EXPENSE, "Cafe"), 0.0);
+        assertEquals(Set.of("Restaurant", "Taxi"), wallet.getTransactionCategories());
+    }
+
+    private void addHistory(int months, int perMonth) {
+        for (int m = 0; m < months; m++) {
+            for (int i = 0; i < perMonth; i++) {
+                LocalDateTime date = LocalDateTime.of(2023, 1 + m, 1 + i % 28, 12, i % 60);
+                TransactionType type = i % 5 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+                wallet.getTransactions().add(new Transaction(type, 10.25 + i, "C" + (i % 4), date));
+            }
+        }
+    }
+
+    @Test
+    public void testSealedHistoryKeepsViewsAndTotals() {
+        addHistory(6, 50);
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 99.0, "Food"));
+        Transaction first = wallet.getTransactions().get(0);
+        Transaction middle = wallet.getTransactions().get(170);
+        TransactionTotals before = wallet.getTotals(LocalDate.of(2023, 2, 10), LocalDate.of(2023, 4, 20));
+
+        assertEquals(300, wallet.sealHistory(LocalDate.of(2024, 1, 1)));
+        assertEquals(300, wallet.getSealedTransactionCount());
+        assertEquals(6, wallet.getSealedSegmentCount());
+        assertTrue(wallet.getOffHeapBytes() > 0);
+        assertEquals(301, wallet.getTransactions().size());
+
+        assertEquals(first.getDate(), wallet.getTransactions().get(0).getDate());
+        assertEquals(middle.getAmount(), wallet.getTransactions().get(170).getAmount(), 0.0);
+        assertEquals(middle.getCategory(), wallet.getTransactions().get(170).getCategory());
+
+        TransactionTotals after = wallet.getTotals(LocalDate.of(2023, 2, 10), LocalDate.of(2023, 4, 20));
+        assertEquals(before.getCount(), after.getCount());
+        assertEquals(before.getTotalIncome(), after.getTotalIncome(), 0.0);
+        assertEquals(before.getExpenseByCategory(), after.getExpenseByCategory());
+        assertEquals(99.0, wallet.sumAmounts(TransactionType.EXPENSE, "Food"), 0.0);
+    }
+
+    @Test
+    public void testRenameAndModifySealedHistory() {
+        addHistory(2, 40);
+        double expenses = wallet.sumAmounts(TransactionType.EXPENSE, null);
+        double c1 = wallet.sumAmounts(TransactionType.EXPENSE, "C1");
+        double c2 = wallet.sumAmounts(TransactionType.EXPENSE, "C2");
+        wallet.sealHistory(LocalDate.of(2024, 1, 1));
+
+        assertEquals(20, wallet.renameCategory("C1", "C2"));
+        assertEquals(c1 + c2, wallet.sumAmounts(TransactionType.EXPENSE, "C2"), 0.001);
+        assertEquals(0, wallet.countTransactions("C1"));
+        assertEquals("C2", wallet.getTransactions().get(1).getCategory());
+
+        // Изменение запечатанной операции возвращает историю в кучу
+        Transaction removed = wallet.getTransactions().remove(1);
+        assertEquals(0, wallet.getSealedTransactionCount());
+        assertEquals(expenses - removed.getAmount(), wallet.sumAmounts(TransactionType.EXPENSE, null), 0.001);
+        assertEquals(79, wallet.getTransactions().size());
+
+        wallet.sealHistory(LocalDate.of(2024, 1, 1));
+        wallet.getTransactions().clear();
+        assertEquals(0, wallet.getSealedSegmentCount());
+        assertTrue(wallet.getTransactions().isEmpty());
+    }
+
+    @Test
+    public void testCategoryTreeFollowsTransactionsAndBudgets() {
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 100.0, "Food/Cafe"));
+        assertEquals(100.0, wallet.getSubtreeExpense("Food"), 0.0);
+
+        // Дерево обновляется при добавлении и перестраивается после переименования
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 40.0, "Food/Groceries"));
+        wallet.getBudgets().put("Food", 500.0);
+        assertEquals(140.0, wallet.getSubtreeExpense("Food"), 0.0);
+        assertEquals(500.0, wallet.getCategoryTree().find("Food").getBudget(), 0.0);
+
+        wallet.renameCategory("Food/Cafe", "Leisure/Cafe");
+        assertEquals(40.0, wallet.getSubtreeExpense("Food"), 0.0);
+        assertEquals(100.0, wallet.getSubtreeExpense("Leisure"), 0.0);
+
+        wallet.getTransactions().remove(0);
+        assertNull(wallet.getCategoryTree().find("Leisure"));
+    }
+
+    private List<Integer> bruteForce(TransactionQuery query) {
+        List<Integer> expected = new java.util.ArrayList<>();
+        for (int i = 0; i < wallet.getTransactions().size(); i++) {
+            Transaction t = wallet.getTransactions().get(i);
+            LocalDate day = t.getDate().toLocalDate();
+            if ((query.getType() == null || t.getType() == query.getType())
+                    && (query.getCategory() == null || t.getCategory().equals(query.getCategory())
+                        || t.getCategory().startsWith(query.getCategory() + "/"))
+                    && (query.getMinAmount() == null || t.getAmount() >= query.getMinAmount())
+                    && (query.getMaxAmount() == null || t.getAmount() <= query.getMaxAmount())
+                    && (query.getFrom() == null || !day.isBefore(query.getFrom()))
+                    && (query.getTo() == null || !day.isAfter(query.getTo()))) {
+                expected.add(i);
+            }
+        }
+        return expected;
+    }
+
+    private List<Integer> searchAll(TransactionQuery query, int pageSize) {
+        List<Integer> found = new java.util.ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionPage page = wallet.search(query, cursor, pageSize);
+            assertTrue(page.getTransactions().size() <= pageSize);
+            found.addAll(page.getPositions());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return found;
+    }
+
+    @Test
+    public void testSearchMatchesFullScan() {
+        java.util.Random random = new java.util.Random(42);
+        String[] categories = {"Food/Cafe", "Food/Groceries", "Transport", "Salary"};
+        for (int i = 0; i < 3000; i++) {
+            String category = categories[random.nextInt(categories.length)];
+            TransactionType type = category.equals("Salary") ? TransactionType.INCOME : TransactionType.EXPENSE;
+            LocalDateTime date = LocalDateTime.of(2023, 1, 1, 0, 0).plusHours(i * 3L);
+            wallet.getTransactions().add(new Transaction(type, 1 + random.nextInt(30000), category, date));
+        }
+        wallet.sealHistory(LocalDate.of(2023, 10, 1));
+
+        List<TransactionQuery> queries = List.of(
+                new TransactionQuery(TransactionType.EXPENSE, "Food", 5000.0, 20000.0,
+                        LocalDate.of(2023, 4, 1), LocalDate.of(2023, 6, 30)),
+                new TransactionQuery(null, "Transport", null, null, null, null),
+                new TransactionQuery(null, null, 29000.0, null, null, null),
+                new TransactionQuery(null, null, null, null, LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 1)),
+                new TransactionQuery(TransactionType.INCOME, null, null, null, null, null),
+                new TransactionQuery(null, "Unknown", null, null, null, null));
+        for (TransactionQuery query : queries) {
+            assertEquals(bruteForce(query), searchAll(query, 37), query.toString());
+        }
+
+        // Строки, добавленные после построения индекса, тоже находятся
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 15000.0, "Food/Cafe",
+                LocalDateTime.of(2023, 5, 5, 12, 0)));
+        assertEquals(bruteForce(queries.get(0)), searchAll(queries.get(0), 37));
+    }
+
+    @Test
+    public void testSearchPlanAndStaleCursor() {
+        for (int i = 0; i < 200; i++) {
+            wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, i < 5 ? 9000.0 : 10.0,
+                    i % 2 == 0 ? "Food" : "Taxi", LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i)));
+        }
+
+        TransactionPage page = wallet.search(new TransactionQuery(null, "Food", 5000.0, null, null, null), null, 2);
+        assertEquals("индекс сумм", page.getPlan());
+        assertEquals(List.of(0, 2), page.getPositions());
+        assertTrue(page.hasMore());
+
+        String cursor = page.getNextCursor();
+        wallet.getTransactions().remove(0);
+        TransactionQuery query = new TransactionQuery(null, "Food", 5000.0, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> wallet.search(query, cursor, 2));
+        assertEquals(List.of(1, 3), wallet.search(query, null, 5).getPositions());
+    }
+
+    @Test
+    public void testTagsFollowPositionsAndFilterTotals() {
+        LocalDateTime date = LocalDateTime.of(2024, 5, 10, 12, 0);
+        List<Transaction> transactions = wallet.getTransactions();
+        transactions.add(new Transaction(TransactionType.EXPENSE, 300.0, "Hotel", date, Set.of("trip", "reimbursable")));
+        transactions.add(new Transaction(TransactionType.EXPENSE, 80.0, "Food", date, Set.of("#Trip")));
+        transactions.add(new Transaction(TransactionType.EXPENSE, 50.0, "Pharmacy", date, Set.of("tax")));
+
+        assertEquals(Set.of("reimbursable", "trip"), transactions.get(0).getTags());
+        assertEquals(Set.of("trip"), transactions.get(1).getTags());
+
+        TransactionTotals trip = wallet.getTotals(null, null, TagFilter.parse("trip AND NOT reimbursable"));
+        assertEquals(1, trip.getCount());
+        assertEquals(80.0, trip.getExpense("Food"), 0.0);
+        TransactionTotals either = wallet.getTotals(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31),
+                TagFilter.parse("(reimbursable | tax)"));
+        assertEquals(350.0, either.getTotalExpense(), 0.0);
+
+        // Вставка в начало и удаление сдвигают позиции меток
+        transactions.add(0, new Transaction(TransactionType.INCOME, 1000.0, "Salary", date));
+        assertEquals(Set.of("tax"), transactions.get(3).getTags());
+        transactions.remove(1);
+        assertEquals(Set.of("trip"), transactions.get(1).getTags());
+        assertArrayEquals(new int[]{1}, wallet.selectByTags(TagFilter.parse("trip")).toArray());
+
+        assertTrue(wallet.addTag(0, "bonus"));
+        assertFalse(wallet.addTag(0, "#bonus"));
+        assertEquals(1, wallet.getTagCounts().get("bonus").intValue());
+        assertTrue(wallet.removeTag(0, "bonus"));
+        assertNull(wallet.getTagCounts().get("bonus"));
+
+        assertThrows(IllegalArgumentException.class, () -> TagFilter.parse("trip &"));
+        assertThrows(IllegalArgumentException.class, () -> TagFilter.parse("(trip"));
+    }
+
+    @Test
+    public void testVersionTracksReportedChanges() {
+        long initial = wallet.getVersion();
+        wallet.getBudgets().put("Food", 100.0);
+        long afterBudget = wallet.getVersion();
+        assertTrue(afterBudget > initial);
+        wallet.getBudgets().put("Food", 100.0);
+        assertEquals(afterBudget, wallet.getVersion());
+
+        for (java.util.Map.Entry<String, Double> entry : wallet.getBudgets().entrySet()) {
+            entry.setValue(150.0);
+        }
+        assertEquals(150.0, wallet.getBudgets().get("Food"), 0.0);
+        assertTrue(wallet.getVersion() > afterBudget);
+
+        long transactionVersion = wallet.getTransactionVersion();
+        wallet.getBudgets().remove("Food");
+        assertEquals(transactionVersion, wallet.getTransactionVersion());
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 10.0, "Food"));
+        assertTrue(wallet.getTransactionVersion() > transactionVersion);
+        assertEquals(wallet.getTransactionVersion(), wallet.getVersion());
+
+        // Версии разных кошельков не совпадают
+        assertNotEquals(wallet.getVersion(), new Wallet().getVersion());
+    }
+
+    @Test
+    public void testParallelTotalsMatchSequential() {
+        List<Transaction> transactions = wallet.getTransactions();
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 9, 0);
+        for (int i = 0; i < 40_000; i++) {
+            TransactionType type = i % 5 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+            transactions.add(new Transaction(type, 0.1 + (i % 997) * 0.37, "Category" + (i % 23),
+                    start.plusHours(i)));
+        }
+        wallet.sealHistory(LocalDate.of(2026, 1, 1));
+        LocalDate from = LocalDate.of(2023, 6, 15);
+        LocalDate to = LocalDate.of(2025, 2, 3);
+
+        int threshold = TransactionList.getParallelThreshold();
+        try {
+            TransactionList.setParallelThreshold(Integer.MAX_VALUE);
+            TransactionTotals sequential = wallet.getTotals(from, to);
+            TransactionTotals sequentialAll = wallet.getTotals();
+            double sequentialFood = wallet.sumAmounts(TransactionType.EXPENSE, "Category7");
+
+            TransactionList.setParallelThreshold(1);
+            TransactionTotals parallel = wallet.getTotals(from, to);
+            assertEquals(sequential.getCount(), parallel.getCount());
+            assertEquals(sequential.getTotalIncome(), parallel.getTotalIncome(), 0.0);
+            assertEquals(sequential.getTotalExpense(), parallel.getTotalExpense(), 0.0);
+            assertEquals(sequential.getIncomeByCategory(), parallel.getIncomeByCategory());
+            assertEquals(sequential.getExpenseByCategory(), parallel.getExpenseByCategory());
+            assertEquals(sequentialAll.getExpenseByCategory(), wallet.getTotals().getExpenseByCategory());
+            assertEquals(sequentialFood, wallet.sumAmounts(TransactionType.EXPENSE, "Category7"), 0.0);
+            assertEquals(40_000, wallet.getTotals().getCount());
+        } finally {
+            TransactionList.setParallelThreshold(threshold);
+        }
+    }
+
+    @Test
+    public void testRebuildTransactionsKeepsRowsTagsAndTotals() {
+        wallet.getTransactions().add(new Transaction(TransactionType.INCOME, 500.0, "Salary",
+                LocalDateTime.now().minusMonths(6), Set.of("work")));
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 40.0, "Food"));
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 60.0, "Food",
+                LocalDateTime.now(), Set.of("trip")));
+        TransactionTotals before = wallet.getTotals();
+        long version = wallet.getTransactionVersion();
+
+        wallet.rebuildTransactions();
+
+        assertEquals(3, wallet.getTransactions().size());
+        assertEquals("Salary", wallet.getTransactions().get(0).getCategory());
+        assertEquals(before.getTotalIncome(), wallet.getTotals().getTotalIncome(), 0.001);
+        assertEquals(before.getExpense("Food"), wallet.getTotals().getExpense("Food"), 0.001);
+        assertEquals(Integer.valueOf(1), wallet.getTagCounts().get("trip"));
+        assertTrue(wallet.getTransactions().get(2).getTags().contains("trip"));
+        assertEquals(2, wallet.getCategorySketch("Food").getCount());
+        assertNotEquals(version, wallet.getTransactionVersion());
+    }
+
+    @Test
+    public void testBalanceAtFollowsBackdatedAndRemovedTransactions() {
+        LocalDateTime march = LocalDateTime.of(2024, 3, 10, 12, 0);
+        wallet.getTransactions().add(new Transaction(TransactionType.INCOME, 1000.0, "Salary", march));
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 200.0, "Food", march.plusDays(5)));
+        assertEquals(800.0, wallet.getBalanceAt(LocalDate.of(2024, 3, 31)), 0.001);
+
+        // Операция задним числом учитывается в уже построенном индексе
+        wallet.getTransactions().add(new Transaction(TransactionType.INCOME, 50.0, "Gift", march.minusMonths(1)));
+        assertEquals(50.0, wallet.getBalanceAt(LocalDate.of(2024, 3, 9)), 0.001);
+        assertEquals(850.0, wallet.getBalanceAt(LocalDate.of(2024, 3, 31)), 0.001);
+        assertEquals(-200.0, wallet.getNetFlow(LocalDate.of(2024, 3, 11), LocalDate.of(2024, 3, 31)), 0.001);
+
+        wallet.getTransactions().remove(1);
+        assertEquals(1050.0, wallet.getBalanceAt(LocalDate.of(2024, 3, 31)), 0.001);
+    }
+}
@@ -0,0 +1,78 @@
+package nes.finance.monitoring;
+
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import nes.finance.service.DataService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class FlightRecorderServiceTest {
+    @TempDir
+    Path dataDir;
+
+    private FlightRecorderService flightRecorder;
+    private Path recordingFile;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        flightRecorder = new FlightRecorderService();
+        recordingFile = Files.createTempFile("finance-test", ".jfr");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        flightRecorder.stop();
+        Files.deleteIfExists(recordingFile);
+    }
+
+    @Test
+    public void testStartAndStop() throws Exception {
+        assertFalse(flightRecorder.isRecording());
+        assertTrue(flightRecorder.start(recordingFile));
+        assertTrue(flightRecorder.isRecording());
+
+        // Повторный запуск не допускается
+        assertFalse(flightRecorder.start(recordingFile));
+
+        assertEquals(recordingFile, flightRecorder.stop());
+        assertFalse(flightRecorder.isRecording());
+        assertNull(flightRecorder.stop());
+    }
+
+    @Test
+    public void testPersistenceEventsRecorded() throws Exception {
+        User user = new User("jfruser", "password");
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 1000.0, "Salary"));
+
+        flightRecorder.start(recordingFile);
+        DataService dataService = new DataService(dataDir.toString());
+        dataService.saveUserData(user);
+        dataService.loadUserData("jfruser");
+        flightRecorder.stop();
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        long persistenceEvents = events.stream()
+                .filter(e -> e.getEventType().getName().equals("nes.finance.Persistence"))
+                .filter(e -> "jfruser".equals(e.getString("user")))
+                .count();
+        assertEquals(2, persistenceEvents);
+
+        RecordedEvent save = events.stream()
+                .filter(e -> e.getEventType().getName().equals("nes.finance.Persistence"))
+                .filter(e -> "save".equals(e.getString("operation")))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, save.getInt("transactionCount"));
+        assertTrue(save.getLong("bytes") > 0);
+        assertTrue(save.getBoolean("success"));
+    }
+}
@@ -0,0 +1,59 @@
+package nes.finance.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportCacheTest {
+
+    @Test
+    public void testRepeatHitsAndNewVersionRecomputes() {
+        ReportCache cache = new ReportCache();
+        AtomicInteger builds = new AtomicInteger();
+
+        String first = cache.get("report", Collections.emptyList(), 1, () -> "v" + builds.incrementAndGet(), s -> 100);
+        String second = cache.get("report", Collections.emptyList(), 1, () -> "v" + builds.incrementAndGet(), s -> 100);
+        assertEquals("v1", first);
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+
+        String third = cache.get("report", Collections.emptyList(), 2, () -> "v" + builds.incrementAndGet(), s -> 100);
+        assertEquals("v2", third);
+        // Запись старой версии заменена, а не добавлена
+        assertEquals(1, cache.size());
+        assertEquals(100, cache.getBytes());
+    }
+
+    @Test
+    public void testParametersAreKeys() {
+        ReportCache cache = new ReportCache();
+        cache.get("period", Arrays.asList("2024-01-01", "2024-01-31"), 1, () -> "jan", s -> 100);
+        String february = cache.get("period", Arrays.asList("2024-02-01", "2024-02-29"), 1, () -> "feb", s -> 100);
+        assertEquals("feb", february);
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedOverLimit() {
+        ReportCache cache = new ReportCache(250);
+        cache.get("a", Collections.emptyList(), 1, () -> "a", s -> 100);
+        cache.get("b", Collections.emptyList(), 1, () -> "b", s -> 100);
+        cache.get("a", Collections.emptyList(), 1, () -> "a2", s -> 100);
+        cache.get("c", Collections.emptyList(), 1, () -> "c", s -> 100);
+
+        assertEquals(2, cache.size());
+        assertEquals(200, cache.getBytes());
+        assertEquals("a", cache.get("a", Collections.emptyList(), 1, () -> "a3", s -> 100));
+        assertEquals("b2", cache.get("b", Collections.emptyList(), 1, () -> "b2", s -> 100));
+
+        // Отчет больше лимита и пустой результат не кэшируются
+        cache.get("big", Collections.emptyList(), 1, () -> "big", s -> 1000);
+        cache.get("none", Collections.emptyList(), 1, () -> null, s -> 10);
+        assertEquals(2, cache.size());
+    }
+}
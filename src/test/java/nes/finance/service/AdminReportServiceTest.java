@@ -0,0 +1,97 @@
+package nes.finance.service;
+
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import nes.finance.report.AggregateReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdminReportServiceTest {
+    private static final int USER_COUNT = 100;
+
+    @TempDir
+    Path dataDir;
+
+    private final AtomicInteger resident = new AtomicInteger();
+    private final AtomicInteger maxResident = new AtomicInteger();
+    private DataService dataService;
+    private List<String> logins;
+
+    @BeforeEach
+    public void setUp() {
+        // Учитываем, сколько кошельков загружается одновременно
+        dataService = new DataService(dataDir.toString()) {
+            @Override
+            public User loadUserData(String login) {
+                int now = resident.incrementAndGet();
+                maxResident.accumulateAndGet(now, Math::max);
+                try {
+                    return super.loadUserData(login);
+                } finally {
+                    resident.decrementAndGet();
+                }
+            }
+        };
+
+        logins = new ArrayList<>();
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = new User("admin_report_" + i, "password");
+            user.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 1000.0, "Salary"));
+            user.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 10.0 * (i + 1), "Food"));
+            user.getWallet().setBalance(1000.0 - 10.0 * (i + 1));
+            dataService.saveUserData(user);
+            logins.add(user.getLogin());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (String login : logins) {
+            dataService.deleteUserData(login);
+        }
+    }
+
+    @Test
+    public void testAggregatesAllUsers() {
+        AdminReportService service = new AdminReportService(dataService, 4, 4);
+        AggregateReport report = service.generateReport(logins);
+
+        assertEquals(USER_COUNT, report.getUserCount());
+        assertEquals(0, report.getFailedCount());
+        assertEquals(2 * USER_COUNT, report.getTransactionCount());
+        assertEquals(1000.0 * USER_COUNT, report.getTotalIncome(), 0.001);
+        assertEquals(10.0 * USER_COUNT * (USER_COUNT + 1) / 2, report.getTotalExpense(), 0.001);
+        assertEquals(report.getTotalIncome() - report.getTotalExpense(), report.getTotalBalance(), 0.001);
+        assertEquals(1000.0 * USER_COUNT, report.getIncomeByCategory().get("Salary"), 0.001);
+        assertEquals(500.0, report.getDistributions().get(0).getMedian(), 10.0);
+    }
+
+    @Test
+    public void testResidentWalletsAreBounded() {
+        AdminReportService service = new AdminReportService(dataService, 8, 2);
+        AggregateReport report = service.generateReport(logins);
+
+        assertEquals(USER_COUNT, report.getUserCount());
+        assertTrue(maxResident.get() <= 2, "одновременно загружено " + maxResident.get());
+    }
+
+    @Test
+    public void testMissingUsersAreCounted() {
+        List<String> withMissing = new ArrayList<>(logins);
+        withMissing.add("admin_report_missing");
+
+        AggregateReport report = new AdminReportService(dataService, 2, 2).generateReport(withMissing);
+        assertEquals(USER_COUNT, report.getUserCount());
+        assertEquals(1, report.getFailedCount());
+    }
+}
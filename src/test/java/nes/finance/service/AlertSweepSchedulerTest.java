@@ -0,0 +1,152 @@
+package nes.finance.service;
+
+import nes.finance.model.AlertType;
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlertSweepSchedulerTest {
+    private static final int USER_COUNT = 6;
+
+    @TempDir
+    Path dataDir;
+
+    private AuthService authService;
+    private List<String> logins;
+
+    @BeforeEach
+    public void setUp() {
+        authService = new AuthService(new DataService(dataDir.toString()));
+        logins = new ArrayList<>();
+        for (int i = 0; i < USER_COUNT; i++) {
+            String login = "sweep_user_" + i;
+            authService.register(login, "password");
+            logins.add(login);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        authService.logout();
+        for (String login : logins) {
+            authService.getDataService().deleteUserData(login);
+        }
+    }
+
+    private void addLowBalance(User user) {
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 300.0, "Salary"));
+        user.getWallet().setBalance(300.0);
+    }
+
+    @Test
+    public void testSweepRaisesAndPersistsAlerts() {
+        addLowBalance(authService.getUsers().get("sweep_user_0"));
+
+        AlertSweepScheduler scheduler = new AlertSweepScheduler(authService, 2, 5000, 10);
+        AlertSweepResult result = scheduler.sweepNow();
+
+        assertTrue(result.isFullSweep());
+        assertEquals(USER_COUNT, result.getCheckedCount());
+        assertEquals(1, result.getSavedCount());
+        assertTrue(result.getAlertsRaised() > 0);
+
+        User saved = authService.getDataService().loadUserData("sweep_user_0");
+        assertTrue(saved.getWallet().getAlerts().stream()
+                .anyMatch(alert -> alert.getType() == AlertType.LOW_BALANCE));
+    }
+
+    @Test
+    public void testOnlyChangedWalletsBetweenFullSweeps() {
+        AlertSweepScheduler scheduler = new AlertSweepScheduler(authService, 2, 5000, 10);
+        scheduler.sweepNow();
+
+        addLowBalance(authService.getUsers().get("sweep_user_3"));
+        AlertSweepResult result = scheduler.sweepNow();
+
+        assertFalse(result.isFullSweep());
+        assertEquals(1, result.getCheckedCount());
+        assertEquals(USER_COUNT - 1, result.getUnchangedCount());
+        assertEquals(1, result.getSavedCount());
+
+        // Кошелек проверен, повторных оповещений нет
+        AlertSweepResult repeated = scheduler.sweepNow();
+        assertEquals(0, repeated.getCheckedCount());
+        assertEquals(0, repeated.getAlertsRaised());
+    }
+
+    @Test
+    public void testFullSweepDoesNotDuplicateUnreadAlerts() {
+        User user = authService.getUsers().get("sweep_user_1");
+        addLowBalance(user);
+
+        AlertSweepScheduler scheduler = new AlertSweepScheduler(authService, 2, 5000, 1);
+        scheduler.sweepNow();
+        int alerts = user.getWallet().getAlerts().size();
+
+        AlertSweepResult result = scheduler.sweepNow();
+        assertTrue(result.isFullSweep());
+        assertEquals(USER_COUNT, result.getCheckedCount());
+        assertEquals(0, result.getAlertsRaised());
+        assertEquals(alerts, user.getWallet().getAlerts().size());
+    }
+
+    @Test
+    public void testLoggedInUserIsSkipped() {
+        User user = authService.getUsers().get("sweep_user_2");
+        addLowBalance(user);
+        assertTrue(authService.login("sweep_user_2", "password"));
+
+        AlertSweepScheduler scheduler = new AlertSweepScheduler(authService, 2, 5000, 10);
+        AlertSweepResult result = scheduler.sweepNow();
+
+        assertEquals(USER_COUNT - 1, result.getCheckedCount());
+        assertTrue(user.getWallet().getAlerts().isEmpty());
+    }
+
+    @Test
+    public void testSavedUserWhoNeverLoggedInIsChecked() {
+        // Пользователь сохранен другим процессом и в этом процессе не входил
+        User absent = new User("sweep_absent", "password");
+        addLowBalance(absent);
+        assertTrue(new DataService(dataDir.toString()).saveUserData(absent));
+        logins.add("sweep_absent");
+        assertFalse(authService.getUsers().containsKey("sweep_absent"));
+
+        AlertSweepScheduler scheduler = new AlertSweepScheduler(authService, 2, 5000, 10, 1);
+        AlertSweepResult result = scheduler.sweepNow();
+
+        assertEquals(USER_COUNT + 1, result.getCheckedCount());
+        assertEquals(1, result.getSavedCount());
+        // Кошелек выгружен после проверки, оповещение записано в файл
+        assertFalse(authService.getUsers().containsKey("sweep_absent"));
+        User saved = authService.getDataService().loadUserData("sweep_absent");
+        assertTrue(saved.getWallet().getAlerts().stream()
+                .anyMatch(alert -> alert.getType() == AlertType.LOW_BALANCE));
+
+        // Файл не изменился: до полного прохода пользователь не загружается
+        AlertSweepResult repeated = scheduler.sweepNow();
+        assertEquals(0, repeated.getCheckedCount());
+        assertEquals(USER_COUNT + 1, repeated.getUnchangedCount());
+
+        // Вход после проверки видит сохраненное оповещение
+        assertTrue(authService.login("sweep_absent", "password"));
+        assertFalse(authService.getCurrentUser().getWallet().getAlerts().isEmpty());
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new AlertSweepScheduler(authService, 0, 5000, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AlertSweepScheduler(authService, 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AlertSweepScheduler(authService, 1, 5000, 1, 0));
+    }
+}
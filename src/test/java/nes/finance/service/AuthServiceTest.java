@@ -3,28 +3,29 @@ package nes.finance.service;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import static org.junit.jupiter.api.Assertions.*;
-import java.io.File;
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AuthServiceTest {
+    @TempDir
+    Path dataDir;
+
     private AuthService authService;
 
     @BeforeEach
     public void setUp() {
-        // Очищаем данные перед каждым тестом
-        cleanupTestData();
-        authService = new AuthService();
-    }
-
-    private void cleanupTestData() {
-        File dataDir = new File("data");
-        if (dataDir.exists() && dataDir.isDirectory()) {
-            File[] files = dataDir.listFiles((dir, name) -> name.endsWith(".dat"));
-            if (files != null) {
-                for (File file : files) {
-                    file.delete();
-                }
-            }
-        }
+        // Каждый тест работает в своем каталоге данных
+        authService = new AuthService(new DataService(dataDir.toString()));
     }
 
     @Test
@@ -111,4 +112,105 @@ public class AuthServiceTest {
 
         assertTrue(authService.isAuthenticated());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLoginReturnsBeforeWalletIsPrepared(@TempDir Path dataDir) throws InterruptedException {
+        DataService dataService = new DataService(dataDir.toString());
+        User saved = new User("slow", "secret");
+        saved.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 500.0, "Salary"));
+        assertTrue(dataService.saveUserData(saved));
+
+        // Пользователя нет в памяти: пароль проверяется по заголовку файла
+        AuthService session = new AuthService(dataService, new ConcurrentHashMap<>());
+        assertFalse(session.login("slow", "wrong", user -> fail("wallet must not be prepared")));
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<User> prepared = new AtomicReference<>();
+        assertTrue(session.login("slow", "secret", user -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            prepared.set(user);
+        }));
+
+        assertTrue(session.isAuthenticated());
+        assertFalse(session.isWalletReady());
+        assertEquals("slow", session.getCurrentLogin());
+        release.countDown();
+
+        User current = session.getCurrentUser();
+        assertTrue(session.isWalletReady());
+        assertSame(prepared.get(), current);
+        assertEquals(1, current.getWallet().getTransactions().size());
+        assertSame(current, session.getUsers().get("slow"));
+    }
+
+    @Test
+    public void testStartupOverExistingDirectoryLoadsWalletOnLogin() {
+        DataService dataService = new DataService(dataDir.toString());
+        User saved = new User("stored", "secret");
+        saved.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 250.0, "Salary"));
+        assertTrue(dataService.saveUserData(saved));
+        assertTrue(dataService.saveUserData(new User("other", "secret")));
+
+        // Сохраненные кошельки не читаются при создании сеанса
+        AuthService session = new AuthService(new DataService(dataDir.toString()));
+        assertTrue(session.getUsers().isEmpty());
+        assertFalse(session.register("stored", "another"));
+
+        assertTrue(session.login("stored", "secret", user -> { }));
+        User current = session.getCurrentUser();
+        assertEquals(1, current.getWallet().getTransactions().size());
+        assertEquals(1, session.getUsers().size());
+        assertSame(current, session.getUsers().get("stored"));
+
+        // Пользователь не в памяти удаляется после проверки пароля по заголовку
+        assertFalse(session.deleteUser("other", "wrong"));
+        assertTrue(session.deleteUser("other", "secret"));
+        assertFalse(dataService.userDataExists("other"));
+    }
+
+    @Test
+    public void testFailedBackgroundLoadEndsSession(@TempDir Path dataDir) throws IOException {
+        DataService dataService = new DataService(dataDir.toString());
+        assertTrue(dataService.saveUserData(new User("broken", "secret")));
+        // Заголовок с паролем цел, кошелек обрезан
+        Path file = dataDir.resolve("broken" + DataService.FILE_EXTENSION);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, 40));
+
+        AuthService session = new AuthService(dataService, new ConcurrentHashMap<>());
+        if (session.login("broken", "secret", user -> { })) {
+            assertNull(session.getCurrentUser());
+        }
+        assertFalse(session.isAuthenticated());
+        assertNull(session.getCurrentLogin());
+    }
+
+    @Test
+    public void testIsAdminOnlyForConfiguredLogins(@TempDir Path dataDir) {
+        AuthService session = new AuthService(new DataService(dataDir.toString()));
+        session.register("admin", "secret");
+        session.register("alice", "secret");
+        assertFalse(session.isAdmin());
+
+        session.login("alice", "secret");
+        assertFalse(session.isAdmin());
+        session.logout();
+
+        session.login("admin", "secret");
+        assertTrue(session.isAdmin());
+        session.logout();
+        assertFalse(session.isAdmin());
+
+        System.setProperty(AuthService.ADMINS_PROPERTY, "root, alice");
+        try {
+            session.login("alice", "secret");
+            assertTrue(session.isAdmin());
+        } finally {
+            System.clearProperty(AuthService.ADMINS_PROPERTY);
+        }
+    }
+}
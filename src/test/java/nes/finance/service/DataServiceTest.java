@@ -1,22 +1,37 @@
 package nes.finance.service;
 
+import nes.finance.model.Alert;
+import nes.finance.model.AlertReason;
+import nes.finance.model.AlertType;
 import nes.finance.model.User;
 import nes.finance.model.Transaction;
 import nes.finance.model.TransactionType;
+import nes.finance.stats.KllSketch;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.BeforeEach;
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 public class DataServiceTest {
+    @TempDir
+    Path dataDir;
+
     private DataService dataService;
     private User testUser;
 
     @BeforeEach
     public void setUp() {
-        // Очищаем тестовые данные
-        cleanupTestData();
-        dataService = new DataService();
+        // Каждый тест работает в своем каталоге данных
+        dataService = new DataService(dataDir.toString());
 
         // Создаем тестового пользователя
         testUser = new User("testuser", "password123");
@@ -25,25 +40,13 @@ public class DataServiceTest {
         testUser.getWallet().getBudgets().put("Food", 500.0);
     }
 
-    private void cleanupTestData() {
-        File dataDir = new File("data");
-        if (dataDir.exists() && dataDir.isDirectory()) {
-            File[] files = dataDir.listFiles((dir, name) -> name.endsWith(".dat"));
-            if (files != null) {
-                for (File file : files) {
-                    file.delete();
-                }
-            }
-        }
-    }
-
     @Test
     public void testSaveUserData() {
         boolean result = dataService.saveUserData(testUser);
         assertTrue(result);
 
         // Проверяем, что файл создан
-        File dataFile = new File("data/testuser.dat");
+        File dataFile = dataDir.resolve("testuser.dat").toFile();
         assertTrue(dataFile.exists());
     }
 
@@ -114,4 +117,105 @@ public class DataServiceTest {
         assertTrue(users.contains("testuser"));
         assertTrue(users.contains("anotheruser"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCategorySketchesPersisted() {
+        for (int i = 1; i <= 1000; i++) {
+            testUser.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, i, "Food"));
+        }
+        dataService.saveUserData(testUser);
+
+        User loadedUser = dataService.loadUserData("testuser");
+        KllSketch saved = testUser.getWallet().getCategorySketch("Food");
+        KllSketch loaded = loadedUser.getWallet().getCategorySketch("Food");
+        assertNotNull(loaded);
+        assertEquals(saved.getCount(), loaded.getCount());
+        assertEquals(saved.quantile(0.9), loaded.quantile(0.9), 0.0);
+    }
+
+    @Test
+    public void testTagPositionsPersisted() {
+        testUser.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 200.0, "Hotel",
+                java.time.LocalDateTime.now(), java.util.Set.of("trip")));
+        testUser.getWallet().addTag(0, "bonus");
+        dataService.saveUserData(testUser);
+
+        User loadedUser = dataService.loadUserData("testuser");
+        assertEquals(java.util.Set.of("bonus"), loadedUser.getWallet().getTransactions().get(0).getTags());
+        assertEquals(java.util.Set.of("trip"), loadedUser.getWallet().getTransactions().get(1).getTags());
+        assertEquals(testUser.getWallet().getTagPositions(), loadedUser.getWallet().getTagPositions());
+    }
+
+    @Test
+    public void testAlertsPersistedInCompactForm() {
+        LocalDateTime time = LocalDateTime.of(2024, 2, 3, 4, 5, 6, 7000);
+        testUser.getWallet().addAlert(new Alert(AlertReason.BUDGET_EXCEEDED, "Food", 500.0, 650.0, 150.0));
+        testUser.getWallet().addAlert(new Alert(AlertReason.BUDGET_USAGE, "Food", 85.0, 75.0));
+        testUser.getWallet().addAlert(new Alert(AlertType.LOW_BALANCE, "Custom text", time, true));
+        dataService.saveUserData(testUser);
+
+        List<Alert> loaded = dataService.loadUserData("testuser").getWallet().getAlerts();
+        assertEquals(3, loaded.size());
+        assertTrue(loaded.get(0).repeats(testUser.getWallet().getAlerts().get(0)));
+        assertEquals(testUser.getWallet().getAlerts().get(1).getMessage(), loaded.get(1).getMessage());
+        // Категория повторяющихся оповещений загружается одной строкой
+        assertSame(loaded.get(0).getCategory(), loaded.get(1).getCategory());
+        assertEquals("Custom text", loaded.get(2).getMessage());
+        assertEquals(AlertType.LOW_BALANCE, loaded.get(2).getType());
+        assertEquals(time, loaded.get(2).getTimestamp());
+        assertTrue(loaded.get(2).isRead());
+        assertFalse(loaded.get(0).isRead());
+    }
+
+    @Test
+    public void testReadOnlyLoadDoesNotSealHistory() {
+        LocalDateTime old = LocalDateTime.now().minusYears(2);
+        // Запечатывается только начало списка: старые операции идут первыми
+        testUser.getWallet().getTransactions().clear();
+        for (int i = 0; i < 10; i++) {
+            testUser.getWallet().getTransactions().add(
+                    new Transaction(TransactionType.EXPENSE, 10.0, "Food", old.plusDays(i)));
+        }
+        assertTrue(dataService.saveUserData(testUser));
+
+        User session = dataService.loadUserData("testuser");
+        assertTrue(session.getWallet().getSealedTransactionCount() > 0);
+
+        // Сводный отчет и сверка читают кошелек один раз: память вне кучи не выделяется
+        User report = dataService.loadUserDataForRead("testuser");
+        assertEquals(0, report.getWallet().getSealedTransactionCount());
+        assertEquals(0, report.getWallet().getOffHeapBytes());
+        assertEquals(10, report.getWallet().getTransactions().size());
+        assertEquals(session.getWallet().sumAmounts(TransactionType.EXPENSE, "Food"),
+                report.getWallet().sumAmounts(TransactionType.EXPENSE, "Food"), 0.001);
+    }
+
+    @Test
+    public void testCorruptAlertCategorySkipsOnlyAlerts() throws IOException {
+        testUser.getWallet().addAlert(new Alert(AlertReason.BUDGET_USAGE, "Qzcat", 85.0, 75.0));
+        assertTrue(dataService.saveUserData(testUser));
+
+        // Номер новой категории (0) записан перед ее названием: заменяем его недопустимым
+        Path file = dataDir.resolve("testuser" + DataService.FILE_EXTENSION);
+        byte[] bytes = Files.readAllBytes(file);
+        int name = indexOf(bytes, "Qzcat".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(name > 6);
+        ByteBuffer.wrap(bytes).putInt(name - 6, 1000);
+        Files.write(file, bytes);
+
+        User loaded = dataService.loadUserData("testuser");
+        assertNotNull(loaded);
+        assertTrue(loaded.getWallet().getAlerts().isEmpty());
+        assertEquals(1, loaded.getWallet().getTransactions().size());
+        assertEquals("password123", dataService.readPassword("testuser"));
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + pattern.length), pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -7,6 +7,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 public class ExportServiceTest {
     private ExportService exportService;
@@ -107,4 +113,92 @@ public class ExportServiceTest {
 
         cleanupTestFile(filename);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExportsShareReportTotals() throws IOException {
+        testUser.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 300.0, "Food/Cafe"));
+        String report = "test_report_totals.txt";
+        String budgets = "test_budgets_totals.csv";
+        cleanupTestFile(report);
+        cleanupTestFile(budgets);
+
+        assertTrue(exportService.exportReportToText(testUser, report));
+        assertTrue(exportService.exportBudgetsToCSV(testUser, budgets));
+        String text = new String(Files.readAllBytes(Paths.get(report)));
+        String csv = new String(Files.readAllBytes(Paths.get(budgets)));
+
+        // Бюджет категории учитывает вложенные категории в обоих форматах
+        assertTrue(text.contains(String.format(": %.2f (%.1f%%)", 800.0, 80.0)));
+        assertTrue(csv.contains(String.format("Food,%.2f,%.2f,%.2f", 1000.0, 800.0, 200.0)));
+
+        cleanupTestFile(report);
+        cleanupTestFile(budgets);
+    }
+
+    @Test
+    public void testImportSkipsUnaffordableExpenseBeforeAddingIt() throws IOException {
+        String filename = "test_import_balance.csv";
+        Files.write(Paths.get(filename), ("type,category,amount,date\n"
+                + "income,ImportSalary,100.00,2024-01-10 10:00:00\n"
+                + "expense,ImportRent,500.00,2024-01-11 10:00:00\n"
+                + "expense,ImportFood,30.00,2024-01-12 10:00:00\n").getBytes());
+        User user = new User("importer", "password");
+
+        try {
+            ImportResult result = exportService.importTransactionsFromCSV(user, filename);
+
+            assertEquals(2, result.getImportedCount());
+            assertEquals(1, result.getSkippedCount());
+            // Пропущенный расход не остается в истории, баланс совпадает с операциями
+            assertEquals(2, user.getWallet().getTransactions().size());
+            assertEquals(70.0, user.getWallet().getBalance(), 0.001);
+            assertTrue(ReconciliationService.check(user.getWallet()).isEmpty());
+        } finally {
+            cleanupTestFile(filename);
+        }
+    }
+
+    @Test
+    public void testImportRoundsSubCentAmountsLikeStoredRows() throws IOException {
+        String filename = "test_import_cents.csv";
+        Files.write(Paths.get(filename), ("type,category,amount,date\n"
+                + "income,ImportSalary,10.006,2024-01-10 10:00:00\n"
+                + "income,ImportTips,0.004,2024-01-11 10:00:00\n"
+                + "expense,ImportFood,0.333,2024-01-12 10:00:00\n").getBytes());
+        User user = new User("cents_importer", "password");
+
+        try {
+            ImportResult result = exportService.importTransactionsFromCSV(user, filename);
+
+            // Сумма, округляемая до нуля копеек, пропускается
+            assertEquals(2, result.getImportedCount());
+            assertEquals(1, result.getSkippedCount());
+            assertEquals(9.68, user.getWallet().getBalance(), 1e-9);
+            assertTrue(ReconciliationService.check(user.getWallet()).isEmpty());
+        } finally {
+            cleanupTestFile(filename);
+        }
+    }
+
+    @Test
+    public void testExportTransactionsForPeriodStartsFromOpeningBalance() throws IOException {
+        User user = new User("rangeuser", "password");
+        LocalDateTime day = LocalDateTime.of(2024, 5, 1, 9, 0);
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 1000.0, "Salary", day));
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 300.0, "Rent", day.plusDays(10)));
+        // Добавлена задним числом: в файле стоит раньше аренды
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 100.0, "Food", day.plusDays(5)));
+        String filename = "test_transactions_period.csv";
+        cleanupTestFile(filename);
+
+        assertTrue(exportService.exportTransactionsToCSV(user, filename,
+                LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 31)));
+        List<String> lines = Files.readAllLines(Paths.get(filename));
+
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).endsWith(String.format("Food,%.2f,%.2f", 100.0, 900.0)));
+        assertTrue(lines.get(2).endsWith(String.format("Rent,%.2f,%.2f", 300.0, 600.0)));
+
+        cleanupTestFile(filename);
+    }
+}
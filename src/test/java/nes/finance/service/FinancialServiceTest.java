@@ -1,21 +1,53 @@
 package nes.finance.service;
 
+import nes.finance.feed.AlertRaised;
+import nes.finance.feed.BudgetChanged;
+import nes.finance.feed.CategoryRenamed;
+import nes.finance.feed.ChangeEvent;
+import nes.finance.feed.TransactionAdded;
+import nes.finance.model.AlertReason;
+import nes.finance.model.AlertType;
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionPage;
+import nes.finance.model.TransactionQuery;
+import nes.finance.model.TransactionType;
 import nes.finance.model.User;
+import nes.finance.report.BudgetForecast;
+import nes.finance.report.CategoryDistribution;
+import nes.finance.report.CategoryStats;
+import nes.finance.report.CategoryTreeStats;
+import nes.finance.report.FinancialReport;
+import nes.finance.report.PeriodReport;
+import nes.finance.report.ReportCache;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class FinancialServiceTest {
+    @TempDir
+    Path dataDir;
+
     private AuthService authService;
     private FinancialService financialService;
 
     @BeforeEach
     public void setUp() {
-        authService = new AuthService();
+        // Каждый тест работает в своем каталоге данных
+        authService = new AuthService(new DataService(dataDir.toString()));
         financialService = new FinancialService(authService);
 
-        // Очищаем предыдущие данные и создаем нового пользователя
-        authService.getUsers().clear();
         authService.register("testuser", "password123");
         authService.login("testuser", "password123");
     }
@@ -149,9 +181,10 @@ public class FinancialServiceTest {
         financialService.addExpense(300.0, "Food");
         financialService.addExpense(200.0, "Transport");
 
-        // Метод должен выполняться без ошибок
-        financialService.calculateSelectedCategories(new String[]{"Salary", "Food"});
-        assertTrue(financialService.isAuthenticated());
+        List<CategoryStats> stats = financialService.calculateSelectedCategories(new String[]{"Salary", "Food"});
+        assertEquals(2, stats.size());
+        assertEquals(6000.0, stats.get(0).getIncome(), 0.001);
+        assertEquals(300.0, stats.get(1).getExpense(), 0.001);
     }
 
     @Test
@@ -164,8 +197,244 @@ public class FinancialServiceTest {
         financialService.addIncome(1000.0, "Salary");
         financialService.addExpense(300.0, "Food");
 
-        // Метод должен выполняться без ошибок
-        financialService.showUserInfo();
-        assertTrue(financialService.isAuthenticated());
+        FinancialReport report = financialService.getFinancialReport();
+        assertNotNull(report);
+        assertEquals(700.0, report.getBalance(), 0.001);
+        assertEquals(2, report.getTransactionCount());
+    }
+
+    @Test
+    public void testUnusualTransactionUsesCategoryDistribution() {
+        User user = financialService.getCurrentUser();
+        user.getWallet().getTransactions().clear();
+        user.getWallet().setBalance(0.0);
+
+        financialService.addIncome(100000.0, "Salary");
+        for (int i = 0; i < 50; i++) {
+            financialService.addExpense(100.0 + i, "Coffee");
+        }
+
+        // Для кофе 1000 - выброс, хотя ниже общего порога крупной операции
+        assertTrue(financialService.isUnusualTransaction("Coffee", 1000.0));
+        assertFalse(financialService.isUnusualTransaction("Coffee", 120.0));
+        // Без истории действует фиксированный порог
+        assertFalse(financialService.isUnusualTransaction("Travel", 5000.0));
+        assertTrue(financialService.isUnusualTransaction("Travel", 15000.0));
+
+        CategoryDistribution distribution = financialService.getCategoryDistribution("Coffee");
+        assertEquals(50, distribution.getCount());
+        assertEquals(124.0, distribution.getMedian(), 1.0);
+    }
+
+    @Test
+    public void testBudgetForecastRaisesEarlyWarning() {
+        User user = financialService.getCurrentUser();
+        user.getWallet().getTransactions().clear();
+        user.getWallet().getAlerts().clear();
+        user.getWallet().setBalance(100000.0);
+
+        // Две недели расходов по 1000 в день
+        LocalDateTime today = LocalDateTime.now();
+        for (int day = 14; day >= 1; day--) {
+            user.getWallet().getTransactions().add(
+                    new Transaction(TransactionType.EXPENSE, 1000.0, "Food", today.minusDays(day)));
+        }
+        int daysRemaining = today.toLocalDate().lengthOfMonth() - today.getDayOfMonth();
+        double limit = 14000.0 + 500.0 + 1000.0 * daysRemaining / 2;
+        financialService.setBudget("Food", limit);
+        financialService.addExpense(500.0, "Food");
+
+        List<BudgetForecast> forecasts = financialService.getBudgetForecasts();
+        assertEquals(1, forecasts.size());
+        BudgetForecast forecast = forecasts.get(0);
+        assertEquals(14500.0, forecast.getSpent(), 0.001);
+        assertTrue(forecast.getDailyRate() > 500.0);
+
+        boolean warned = user.getWallet().getAlerts().stream()
+                .anyMatch(a -> a.getType() == AlertType.BUDGET_FORECAST);
+        assertEquals(forecast.isProjectedToExceed(), warned);
+    }
+
+    @Test
+    public void testParentBudgetCoversNestedCategories() {
+        User user = financialService.getCurrentUser();
+        user.getWallet().getAlerts().clear();
+        financialService.addIncome(10000.0, "Salary");
+        financialService.setBudget("Food", 1000.0);
+        financialService.addExpense(600.0, "Food/Restaurants");
+        financialService.addExpense(500.0, "Food/Groceries");
+
+        assertEquals(1100.0, financialService.getBudgetSpending("Food"), 0.001);
+        assertTrue(financialService.getBudgetStatuses().get(0).isExceeded());
+        assertTrue(user.getWallet().getAlerts().stream()
+                .anyMatch(a -> a.getType() == AlertType.BUDGET_EXCEEDED && a.getMessage().contains("'Food'")));
+
+        List<CategoryTreeStats> food = financialService.listCategoryTree("Food", 1);
+        assertEquals(3, food.size());
+        assertEquals("Food", food.get(0).getPath());
+        assertEquals(1100.0, food.get(0).getExpense(), 0.001);
+        assertEquals("Groceries", food.get(1).getName());
+
+        List<CategoryStats> all = financialService.listAllCategories();
+        assertEquals("Food", all.get(0).getCategory());
+        assertEquals(1000.0, all.get(0).getBudget(), 0.001);
+    }
+
+    @Test
+    public void testSearchTransactions() {
+        financialService.addIncome(50000.0, "Salary");
+        financialService.addExpense(7000.0, "Food/Restaurants");
+        financialService.addExpense(300.0, "Food/Groceries");
+        financialService.addExpense(12000.0, "Travel");
+
+        TransactionQuery query = new TransactionQuery(TransactionType.EXPENSE, null, 5000.0, 20000.0, null, null);
+        TransactionPage page = financialService.searchTransactions(query, null, 1);
+        assertEquals(1, page.getTransactions().size());
+        assertEquals("Food/Restaurants", page.getTransactions().get(0).getCategory());
+
+        TransactionPage next = financialService.searchTransactions(query, page.getNextCursor(), 1);
+        assertEquals("Travel", next.getTransactions().get(0).getCategory());
+        assertFalse(next.hasMore());
+
+        assertNull(financialService.searchTransactions(
+                new TransactionQuery(null, null, 100.0, 10.0, null, null), null, 10));
+        assertNull(financialService.searchTransactions(query, "garbage", 10));
+    }
+
+    @Test
+    public void testReportsCachedUntilWalletChanges() {
+        // Сохраненные данные других тестов могут быть загружены при регистрации: сравниваем приращения
+        financialService.setAutoSaveEnabled(false);
+        financialService.addIncome(1000.0, "CacheSalary");
+        financialService.addExpense(200.0, "CacheFood");
+        ReportCache cache = financialService.getReportCache();
+
+        FinancialReport report = financialService.getFinancialReport();
+        assertSame(report, financialService.getFinancialReport());
+        LocalDate today = LocalDate.now();
+        PeriodReport period = financialService.calculateByPeriod(today.withDayOfMonth(1), today);
+        assertSame(period, financialService.calculateByPeriod(today.withDayOfMonth(1), today));
+        assertEquals(2, cache.getHits());
+
+        // Бюджет меняет сводку, но не итоги за период
+        financialService.setBudget("CacheFood", 500.0);
+        FinancialReport withBudget = financialService.getFinancialReport();
+        assertNotSame(report, withBudget);
+        assertEquals(200.0, withBudget.getBudgets().stream()
+                .filter(b -> b.getCategory().equals("CacheFood")).findFirst().get().getSpent(), 0.001);
+        assertSame(period, financialService.calculateByPeriod(today.withDayOfMonth(1), today));
+
+        financialService.addExpense(50.0, "CacheFood");
+        assertEquals(report.getTotalExpense() + 50.0, financialService.getFinancialReport().getTotalExpense(), 0.001);
+        assertEquals(period.getTotalExpense() + 50.0,
+                financialService.calculateByPeriod(today.withDayOfMonth(1), today).getTotalExpense(), 0.001);
+
+        assertTrue(financialService.renameCategory("CacheFood", "CacheGroceries"));
+        assertEquals(250.0, financialService.getFinancialReport().getExpenseByCategory().get("CacheGroceries"), 0.001);
+        assertTrue(financialService.getBudgetStatuses().stream()
+                .anyMatch(b -> b.getCategory().equals("CacheGroceries")));
+    }
+
+    @Test
+    public void testCheckAllAlertsDoesNotRepeatRecentAlerts() {
+        financialService.setAutoSaveEnabled(false);
+        User user = financialService.getCurrentUser();
+        financialService.addIncome(10000.0, "Salary");
+        financialService.setBudget("Rent", 1000.0);
+        financialService.addExpense(1200.0, "Rent");
+        user.getWallet().getAlerts().clear();
+
+        financialService.checkAllAlerts();
+        long exceeded = user.getWallet().getAlerts().stream()
+                .filter(a -> a.hasKey(AlertReason.BUDGET_OVER_LIMIT, "Rent")).count();
+        financialService.checkAllAlerts();
+
+        assertEquals(1, exceeded);
+        assertEquals(exceeded, user.getWallet().getAlerts().stream()
+                .filter(a -> a.hasKey(AlertReason.BUDGET_OVER_LIMIT, "Rent")).count());
+    }
+
+    @Test
+    public void testClearAlertsInvalidatesCachedReport() {
+        financialService.setAutoSaveEnabled(false);
+        financialService.addIncome(10000.0, "Salary");
+        financialService.setBudget("Rent", 1000.0);
+        financialService.addExpense(1200.0, "Rent");
+        assertTrue(financialService.getFinancialReport().getUnreadAlertCount() > 0);
+
+        assertTrue(financialService.clearAlerts());
+        assertEquals(0, financialService.getFinancialReport().getUnreadAlertCount());
+    }
+
+    @Test
+    public void testChangeFeedPublishesWalletChanges() throws InterruptedException {
+        financialService.setAutoSaveEnabled(false);
+        List<ChangeEvent> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch completed = new CountDownLatch(1);
+        financialService.getChangeFeed().subscribe(new Flow.Subscriber<ChangeEvent>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ChangeEvent item) {
+                events.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        financialService.addIncome(1000.0, "Salary");
+        financialService.setBudget("Food", 100.0);
+        financialService.addExpense(150.0, "Food");
+        financialService.renameCategory("Food", "Groceries");
+        financialService.getChangeFeed().close();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+
+        TransactionAdded income = (TransactionAdded) events.get(0);
+        assertEquals("testuser", income.getLogin());
+        assertEquals(1000.0, income.getBalance(), 0.001);
+
+        BudgetChanged budget = (BudgetChanged) events.get(1);
+        assertNull(budget.getOldLimit());
+        assertEquals(100.0, budget.getNewLimit(), 0.001);
+
+        TransactionAdded expense = (TransactionAdded) events.get(2);
+        assertEquals(850.0, expense.getBalance(), 0.001);
+        AlertRaised alert = (AlertRaised) events.stream()
+                .filter(e -> e instanceof AlertRaised
+                        && ((AlertRaised) e).getType() == AlertType.BUDGET_EXCEEDED)
+                .findFirst().orElseThrow();
+        // Событие - копия: изменение параметров не затрагивает ее
+        assertEquals("Food", alert.getCategory());
+        alert.getValues()[0] = -1;
+        assertNotEquals(-1.0, alert.getValues()[0]);
+
+        CategoryRenamed renamed = (CategoryRenamed) events.get(events.size() - 1);
+        assertEquals("Food", renamed.getOldCategory());
+        assertEquals("Groceries", renamed.getNewCategory());
+        assertEquals(1, renamed.getTransactionCount());
+    }
+
+    @Test
+    public void testSubCentAmountsRoundedLikeStoredRows() {
+        financialService.setAutoSaveEnabled(false);
+        assertTrue(financialService.addIncome(10.006, "Salary"));
+        assertFalse(financialService.addIncome(0.004, "Salary"));
+        assertTrue(financialService.addExpense(0.333, "Food"));
+
+        User user = financialService.getCurrentUser();
+        assertEquals(2, user.getWallet().getTransactions().size());
+        assertEquals(10.01, user.getWallet().getTransactions().get(0).getAmount(), 1e-9);
+        assertEquals(9.68, user.getWallet().getBalance(), 1e-9);
+        assertTrue(ReconciliationService.check(user.getWallet()).isEmpty());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,158 @@
+package nes.finance.service;
+
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import nes.finance.model.Wallet;
+import nes.finance.stats.KllSketch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReconciliationServiceTest {
+    @TempDir
+    Path dataDir;
+
+    private DataService dataService;
+
+    @BeforeEach
+    public void setUp() {
+        dataService = new DataService(dataDir.toString());
+    }
+
+    private static User consistentUser(String login) {
+        User user = new User(login, "password");
+        Wallet wallet = user.getWallet();
+        wallet.getTransactions().add(new Transaction(TransactionType.INCOME, 1000.0, "Salary"));
+        wallet.getTransactions().add(new Transaction(TransactionType.EXPENSE, 250.5, "Food"));
+        wallet.setBalance(749.5);
+        return user;
+    }
+
+    // Расход попал в историю без списания с баланса, как при прежнем импорте
+    private static User driftedUser(String login) {
+        User user = consistentUser(login);
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 120.0, "Rent"));
+        return user;
+    }
+
+    @Test
+    public void testConsistentWalletHasNoDiscrepancies() {
+        assertTrue(ReconciliationService.check(consistentUser("clean").getWallet()).isEmpty());
+    }
+
+    @Test
+    public void testBalanceDriftReportsOffendingRow() {
+        List<Discrepancy> found = ReconciliationService.check(driftedUser("drift").getWallet());
+
+        assertEquals(1, found.size());
+        Discrepancy balance = found.get(0);
+        assertEquals(DiscrepancyType.BALANCE, balance.getType());
+        assertEquals(629.5, balance.getExpected(), 0.001);
+        assertEquals(749.5, balance.getActual(), 0.001);
+        assertEquals(Collections.singletonList(2), balance.getRows());
+    }
+
+    @Test
+    public void testReportOnlyLeavesFilesUnchanged() {
+        assertTrue(dataService.saveUserData(consistentUser("alice")));
+        assertTrue(dataService.saveUserData(driftedUser("bob")));
+
+        ReconciliationReport report = new ReconciliationService(dataService).reconcileAll(false);
+
+        assertEquals(2, report.getCheckedCount());
+        assertEquals(Collections.singleton("bob"), report.getDiscrepancies().keySet());
+        assertEquals(0, report.getRepairedCount());
+        assertEquals(749.5, dataService.loadUserData("bob").getWallet().getBalance(), 0.001);
+    }
+
+    @Test
+    public void testRepairAcrossManyUsersInParallel() {
+        for (int i = 0; i < 100; i++) {
+            User user = i % 10 == 0 ? driftedUser("user" + i) : consistentUser("user" + i);
+            assertTrue(dataService.saveUserData(user));
+        }
+        ReconciliationService service = new ReconciliationService(dataService, Collections.emptyMap(), 4, 3);
+
+        ReconciliationReport repaired = service.reconcileAll(true);
+        assertEquals(100, repaired.getCheckedCount());
+        assertEquals(10, repaired.getDiscrepancies().size());
+        assertEquals(10, repaired.getRepairedCount());
+        assertEquals(210, repaired.getRowCount());
+
+        assertEquals(629.5, dataService.loadUserData("user0").getWallet().getBalance(), 0.001);
+        assertTrue(service.reconcileAll(false).isClean());
+    }
+
+    @Test
+    public void testResidentUserRepairedInMemoryAndSaved() {
+        User resident = driftedUser("resident");
+        assertTrue(dataService.saveUserData(resident));
+        Map<String, User> users = new HashMap<>();
+        users.put("resident", resident);
+
+        ReconciliationReport report = new ReconciliationService(dataService, users, 2, 2).reconcileAll(true);
+
+        assertEquals(1, report.getRepairedCount());
+        assertEquals(629.5, resident.getWallet().getBalance(), 0.001);
+        assertEquals(629.5, dataService.loadUserData("resident").getWallet().getBalance(), 0.001);
+    }
+
+    @Test
+    public void testStaleCategoryStatisticsRebuilt() {
+        User user = consistentUser("stats");
+        Map<String, KllSketch> sketches = new HashMap<>();
+        KllSketch food = new KllSketch();
+        food.update(1.0);
+        food.update(2.0);
+        sketches.put("Food", food);
+        user.getWallet().restoreCategorySketches(sketches);
+
+        List<Discrepancy> found = ReconciliationService.check(user.getWallet());
+        assertEquals(2, found.size());
+        for (Discrepancy discrepancy : found) {
+            assertEquals(DiscrepancyType.CATEGORY_STATS, discrepancy.getType());
+        }
+
+        assertTrue(new ReconciliationService(dataService).repair(user, found));
+        assertTrue(ReconciliationService.check(user.getWallet()).isEmpty());
+        assertTrue(ReconciliationService.check(dataService.loadUserData("stats").getWallet()).isEmpty());
+    }
+
+    @Test
+    public void testInvalidRowsReportedButNotRepaired() {
+        User user = consistentUser("invalid");
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 0.0, "Gift"));
+
+        List<Discrepancy> found = ReconciliationService.check(user.getWallet());
+
+        assertEquals(DiscrepancyType.INVALID_ROW, found.get(0).getType());
+        assertEquals(Collections.singletonList(2), found.get(0).getRows());
+        assertFalse(found.get(0).getType().isRepairable());
+        assertFalse(new ReconciliationService(dataService).repair(user, found));
+    }
+
+    @Test
+    public void testLoggedInUserSkipped() {
+        assertTrue(dataService.saveUserData(driftedUser("active")));
+        assertTrue(dataService.saveUserData(driftedUser("idle")));
+        AuthService session = new AuthService(dataService);
+        assertTrue(session.login("active", "password"));
+        User active = session.getCurrentUser();
+
+        ReconciliationReport report = new ReconciliationService(session).reconcileAll(true);
+
+        assertEquals(1, report.getSkippedCount());
+        assertEquals(Collections.singleton("idle"), report.getDiscrepancies().keySet());
+        assertEquals(749.5, active.getWallet().getBalance(), 0.001);
+        assertEquals(629.5, dataService.loadUserData("idle").getWallet().getBalance(), 0.001);
+    }
+}
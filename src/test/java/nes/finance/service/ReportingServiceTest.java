@@ -0,0 +1,94 @@
+package nes.finance.service;
+
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import nes.finance.report.FinancialReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportingServiceTest {
+    private static final long WAIT_MILLIS = 10_000;
+
+    @TempDir
+    Path dataDir;
+
+    private DataService writer;
+    private ReportingService reporting;
+    private User alice;
+
+    @BeforeEach
+    public void setUp() {
+        writer = new DataService(dataDir.toString());
+        alice = new User("alice", "password");
+        alice.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 1000.0, "Salary"));
+        alice.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 300.0, "Food"));
+        alice.getWallet().getBudgets().put("Food", 500.0);
+        assertTrue(writer.saveUserData(alice));
+        assertTrue(writer.saveUserData(new User("bob", "password")));
+
+        reporting = new ReportingService(dataDir.toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reporting.close();
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return condition.getAsBoolean();
+    }
+
+    @Test
+    public void testInitialLoadServesReports() {
+        assertTrue(reporting.start());
+        assertFalse(reporting.start());
+        assertEquals(Set.of("alice", "bob"), reporting.getUsers());
+
+        FinancialReport report = reporting.getReport("alice");
+        assertEquals(1000.0, report.getTotalIncome(), 0.001);
+        assertEquals(300.0, report.getBudgets().get(0).getSpent(), 0.001);
+        assertEquals(300.0, reporting.getPeriodReport("alice", LocalDate.now(), LocalDate.now()).getTotalExpense(), 0.001);
+        assertNull(reporting.getReport("nobody"));
+
+        String exported = dataDir.resolve("alice_report.txt").toString();
+        assertTrue(reporting.export("alice", "report", exported));
+        assertTrue(new File(exported).length() > 0);
+        assertFalse(reporting.export("alice", "xml", exported));
+    }
+
+    @Test
+    public void testReloadsOnlyChangedFiles() throws InterruptedException {
+        assertTrue(reporting.start());
+        long reloads = reporting.getReloadCount();
+
+        alice.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 200.0, "Food"));
+        assertTrue(writer.saveUserData(alice));
+        assertTrue(await(() -> reporting.getReport("alice").getTotalExpense() == 500.0));
+        // Перечитан только файл alice, данные bob не тронуты
+        assertEquals(reloads + 1, reporting.getReloadCount());
+        // Временный файл сохранения не остается в каталоге
+        assertFalse(new File(dataDir.toFile(), "alice.dat.tmp").exists());
+
+        assertTrue(writer.deleteUserData("bob"));
+        assertTrue(await(() -> !reporting.getUsers().contains("bob")));
+        assertFalse(reporting.refresh("alice"));
+    }
+}
@@ -0,0 +1,128 @@
+package nes.finance.service;
+
+import nes.finance.model.Transaction;
+import nes.finance.model.TransactionType;
+import nes.finance.model.User;
+import nes.finance.report.TopSpendingReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopSpendingServiceTest {
+    @TempDir
+    Path dataDir;
+
+    private DataService dataService;
+
+    @BeforeEach
+    public void setUp() {
+        dataService = new DataService(dataDir.toString());
+    }
+
+    private static User userWithExpenses(String login, double... amounts) {
+        User user = new User(login, "password");
+        user.getWallet().getTransactions().add(new Transaction(TransactionType.INCOME, 100000.0, "Salary"));
+        for (double amount : amounts) {
+            user.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, amount, "Rent"));
+        }
+        return user;
+    }
+
+    @Test
+    public void testSavedExpensesAreCountedOnce() {
+        User alice = userWithExpenses("alice", 300.0, 200.0);
+        User bob = userWithExpenses("bob", 100.0);
+        assertTrue(dataService.saveUserData(alice));
+        assertTrue(dataService.saveUserData(bob));
+        // Повторное сохранение без новых операций ничего не добавляет
+        assertTrue(dataService.saveUserData(alice));
+
+        TopSpendingReport report = dataService.getTopSpending().getReport(5);
+        assertEquals(60000, report.getTotalCents());
+        assertEquals("Rent", report.getCategories().get(0).getKey());
+        assertEquals("alice", report.getSpenders().get(0).getKey());
+        assertEquals(50000, report.getSpenders().get(0).getCount());
+        assertEquals(0, report.getMaxErrorCents());
+    }
+
+    @Test
+    public void testLoadedHistoryIsNotCountedAgain() {
+        assertTrue(dataService.saveUserData(userWithExpenses("carol", 400.0)));
+        User loaded = dataService.loadUserData("carol");
+        loaded.getWallet().getTransactions().add(new Transaction(TransactionType.EXPENSE, 50.0, "Food"));
+        assertTrue(dataService.saveUserData(loaded));
+
+        TopSpendingReport report = dataService.getTopSpending().getReport(5);
+        assertEquals(45000, report.getTotalCents());
+        assertEquals(5000, report.getCategories().get(1).getCount());
+    }
+
+    @Test
+    public void testFlushPersistsState() {
+        assertTrue(dataService.saveUserData(userWithExpenses("dave", 120.0)));
+        assertTrue(dataService.getTopSpending().flush());
+        assertTrue(Files.exists(dataDir.resolve(TopSpendingService.FILE_NAME)));
+
+        TopSpendingReport report = new TopSpendingService(dataDir.toString()).getReport(5);
+        assertEquals(12000, report.getTotalCents());
+        assertEquals("dave", report.getSpenders().get(0).getKey());
+        // Файл лидеров не считается файлом пользователя
+        assertEquals(1, dataService.getAllSavedUsers().size());
+    }
+
+    @Test
+    public void testProcessesSharingDirectoryMergeCounts() {
+        DataService other = new DataService(dataDir.toString());
+        assertTrue(dataService.saveUserData(userWithExpenses("erin", 100.0)));
+        assertTrue(other.saveUserData(userWithExpenses("frank", 250.0)));
+
+        assertTrue(dataService.getTopSpending().flush());
+        assertTrue(other.getTopSpending().flush());
+
+        // Вторая запись добавляет свои расходы к файлу, а не заменяет его
+        TopSpendingReport report = new TopSpendingService(dataDir.toString()).getReport(5);
+        assertEquals(35000, report.getTotalCents());
+        assertEquals("frank", report.getSpenders().get(0).getKey());
+        assertEquals("erin", report.getSpenders().get(1).getKey());
+        assertEquals(35000, other.getTopSpending().getReport(5).getTotalCents());
+    }
+
+    @Test
+    public void testConcurrentFlushesInOneProcess() throws Exception {
+        int writers = 8;
+        List<DataService> services = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            DataService service = new DataService(dataDir.toString());
+            assertTrue(service.saveUserData(userWithExpenses("user" + i, 10.0)));
+            services.add(service);
+        }
+
+        // Экземпляры одного процесса на общем каталоге записывают файл по очереди
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<Boolean>> flushes = new ArrayList<>();
+            for (DataService service : services) {
+                flushes.add(pool.submit(() -> service.getTopSpending().flush()));
+            }
+            for (Future<Boolean> flush : flushes) {
+                assertTrue(flush.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        TopSpendingReport report = new TopSpendingService(dataDir.toString()).getReport(writers);
+        assertEquals(writers * 1000, report.getTotalCents());
+    }
+}
@@ -0,0 +1,80 @@
+package nes.finance.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BurnRateTrackerTest {
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    @Test
+    public void testConstantSpendGivesConstantRate() {
+        BurnRateTracker tracker = new BurnRateTracker();
+        for (int day = 0; day < 30; day++) {
+            tracker.record("Food", START.plusDays(day), 100.0);
+        }
+
+        assertEquals(100.0, tracker.dailyRate("Food", START.plusDays(29)), 0.001);
+        assertEquals(3000.0, tracker.totalSpent("Food"), 0.001);
+        assertEquals(0.0, tracker.dailyRate("Travel", START), 0.001);
+    }
+
+    @Test
+    public void testFirstDayIsNotUnderestimated() {
+        BurnRateTracker tracker = new BurnRateTracker();
+        tracker.record("Food", START, 40.0);
+        tracker.record("Food", START, 60.0);
+
+        assertEquals(100.0, tracker.dailyRate("Food", START), 0.001);
+    }
+
+    @Test
+    public void testRateDecaysOverDaysWithoutSpending() {
+        BurnRateTracker tracker = new BurnRateTracker();
+        for (int day = 0; day < 10; day++) {
+            tracker.record("Food", START.plusDays(day), 100.0);
+        }
+
+        double recent = tracker.dailyRate("Food", START.plusDays(9));
+        double later = tracker.dailyRate("Food", START.plusDays(20));
+        assertTrue(later < recent);
+        assertTrue(later > 0);
+    }
+
+    @Test
+    public void testRenameMergesCategories() {
+        BurnRateTracker tracker = new BurnRateTracker();
+        for (int day = 0; day < 20; day++) {
+            tracker.record("Cafe", START.plusDays(day), 50.0);
+            tracker.record("Restaurant", START.plusDays(day), 150.0);
+        }
+
+        tracker.rename("Cafe", "Restaurant");
+        assertFalse(tracker.getCategories().contains("Cafe"));
+        assertEquals(4000.0, tracker.totalSpent("Restaurant"), 0.001);
+        assertEquals(200.0, tracker.dailyRate("Restaurant", START.plusDays(19)), 1.0);
+    }
+
+    @Test
+    public void testSerializationRoundTrip() throws IOException {
+        BurnRateTracker tracker = new BurnRateTracker();
+        for (int day = 0; day < 15; day++) {
+            tracker.record("Food", START.plusDays(day), 10.0 * day);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tracker.writeTo(new DataOutputStream(bytes));
+        BurnRateTracker restored = BurnRateTracker.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        LocalDate today = START.plusDays(20);
+        assertEquals(tracker.dailyRate("Food", today), restored.dailyRate("Food", today), 0.0);
+        assertEquals(tracker.totalSpent("Food"), restored.totalSpent("Food"), 0.0);
+    }
+}
@@ -0,0 +1,86 @@
+package nes.finance.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KllSketchTest {
+
+    @Test
+    public void testExactForSmallInput() {
+        KllSketch sketch = new KllSketch();
+        for (int i = 1; i <= 100; i++) {
+            sketch.update(i);
+        }
+
+        assertEquals(100, sketch.getCount());
+        assertEquals(50.0, sketch.median(), 0.001);
+        assertEquals(90.0, sketch.quantile(0.9), 0.001);
+        assertEquals(1.0, sketch.getMin(), 0.001);
+        assertEquals(100.0, sketch.getMax(), 0.001);
+    }
+
+    @Test
+    public void testBoundedMemoryAndRankError() {
+        KllSketch sketch = new KllSketch();
+        int n = 1_000_000;
+        Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            sketch.update(random.nextDouble() * 1000);
+        }
+
+        assertEquals(n, sketch.getCount());
+        assertTrue(sketch.getRetainedItems() < 2000, "хранится " + sketch.getRetainedItems());
+        // Для равномерного распределения квантиль q равен 1000 * q
+        assertEquals(500.0, sketch.median(), 20.0);
+        assertEquals(900.0, sketch.quantile(0.9), 20.0);
+        assertEquals(990.0, sketch.quantile(0.99), 20.0);
+    }
+
+    @Test
+    public void testMergeMatchesSingleSketch() {
+        KllSketch first = new KllSketch();
+        KllSketch second = new KllSketch();
+        for (int i = 0; i < 50_000; i++) {
+            first.update(i);
+            second.update(50_000 + i);
+        }
+
+        first.merge(second);
+        assertEquals(100_000, first.getCount());
+        assertEquals(0.0, first.getMin(), 0.001);
+        assertEquals(99_999.0, first.getMax(), 0.001);
+        assertEquals(50_000.0, first.median(), 2_000.0);
+        assertEquals(0.25, first.rank(25_000), 0.02);
+    }
+
+    @Test
+    public void testSerializationRoundTrip() throws IOException {
+        KllSketch sketch = new KllSketch();
+        for (int i = 0; i < 10_000; i++) {
+            sketch.update(i % 977);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        KllSketch restored = KllSketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(sketch.getCount(), restored.getCount());
+        assertEquals(sketch.median(), restored.median(), 0.0);
+        assertEquals(sketch.quantile(0.99), restored.quantile(0.99), 0.0);
+    }
+
+    @Test
+    public void testEmptySketch() {
+        KllSketch sketch = new KllSketch();
+        assertTrue(sketch.isEmpty());
+        assertTrue(Double.isNaN(sketch.median()));
+    }
+}
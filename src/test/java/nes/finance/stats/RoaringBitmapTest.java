@@ -0,0 +1,126 @@
+package nes.finance.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoaringBitmapTest {
+
+    private static RoaringBitmap fromBitSet(BitSet bits) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bits.stream().forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static BitSet toBitSet(RoaringBitmap bitmap) {
+        BitSet bits = new BitSet();
+        bitmap.forEach(bits::set);
+        return bits;
+    }
+
+    private static BitSet random(Random random, int size, double density) {
+        BitSet bits = new BitSet();
+        for (int i = 0; i < size; i++) {
+            if (random.nextDouble() < density) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    @Test
+    public void testAddRemoveContains() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(5);
+        bitmap.add(70000);
+        bitmap.add(5);
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(6));
+        assertEquals(2, bitmap.getCardinality());
+
+        bitmap.remove(5);
+        bitmap.remove(70000);
+        assertTrue(bitmap.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    @Test
+    public void testDenseBlocksSwitchToBitmap() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 60000; i++) {
+            bitmap.add(i);
+        }
+        assertEquals(60000, bitmap.getCardinality());
+        // 8 КБ битовой карты вместо 120 КБ массива
+        assertTrue(bitmap.getSizeInBytes() < 9000);
+
+        for (int i = 0; i < 60000; i += 2) {
+            bitmap.remove(i);
+        }
+        assertEquals(30000, bitmap.getCardinality());
+        assertTrue(bitmap.contains(59999));
+        assertFalse(bitmap.contains(59998));
+    }
+
+    @Test
+    public void testSetOperationsMatchBitSet() {
+        Random random = new Random(7);
+        for (double density : new double[]{0.01, 0.3, 0.9}) {
+            BitSet a = random(random, 200_000, density);
+            BitSet b = random(random, 200_000, 0.1);
+            RoaringBitmap ra = fromBitSet(a);
+            RoaringBitmap rb = fromBitSet(b);
+
+            BitSet and = (BitSet) a.clone();
+            and.and(b);
+            BitSet or = (BitSet) a.clone();
+            or.or(b);
+            BitSet andNot = (BitSet) a.clone();
+            andNot.andNot(b);
+
+            assertEquals(and, toBitSet(RoaringBitmap.and(ra, rb)));
+            assertEquals(or, toBitSet(RoaringBitmap.or(ra, rb)));
+            assertEquals(andNot, toBitSet(RoaringBitmap.andNot(ra, rb)));
+            // Аргументы не изменяются
+            assertEquals(a, toBitSet(ra));
+        }
+    }
+
+    @Test
+    public void testRangeAndShift() {
+        RoaringBitmap range = RoaringBitmap.range(65530, 65540);
+        assertEquals(10, range.getCardinality());
+        assertTrue(range.contains(65530));
+        assertFalse(range.contains(65540));
+
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(1);
+        bitmap.add(5);
+        bitmap.add(9);
+        assertArrayEquals(new int[]{1, 4, 8}, bitmap.shift(5, -1).toArray());
+        assertArrayEquals(new int[]{1, 6, 10}, bitmap.shift(2, 1).toArray());
+    }
+
+    @Test
+    public void testSerializationRoundTrip() throws IOException {
+        RoaringBitmap bitmap = fromBitSet(random(new Random(3), 150_000, 0.5));
+        bitmap.add(1_000_000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.writeTo(new DataOutputStream(bytes));
+        RoaringBitmap restored = RoaringBitmap.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(bitmap, restored);
+        assertEquals(bitmap.getCardinality(), restored.getCardinality());
+    }
+}
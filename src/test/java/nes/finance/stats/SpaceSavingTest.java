@@ -0,0 +1,148 @@
+package nes.finance.stats;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class SpaceSavingTest {
+
+    @Test
+    public void testExactWhileUnderCapacity() {
+        SpaceSaving sketch = new SpaceSaving(4);
+        sketch.offer("food", 500);
+        sketch.offer("rent", 3000);
+        sketch.offer("food", 700);
+
+        List<SpaceSaving.Entry> top = sketch.top(10);
+        assertEquals(2, top.size());
+        assertEquals("rent", top.get(0).getKey());
+        assertEquals(1200, top.get(1).getCount());
+        assertEquals(0, top.get(1).getError());
+        assertEquals(0, sketch.getMaxError());
+        assertEquals(4200, sketch.getTotal());
+    }
+
+    @Test
+    public void testMergeAddsCountsAndErrors() {
+        SpaceSaving first = new SpaceSaving(2);
+        first.offer("food", 500);
+        first.offer("rent", 3000);
+        SpaceSaving second = new SpaceSaving(2);
+        second.offer("rent", 1000);
+        second.offer("taxi", 100);
+
+        first.merge(second);
+
+        assertEquals(4600, first.getTotal());
+        assertEquals(4000, first.estimate("rent"));
+        // food и taxi получили минимальный счетчик другой структуры; остался food
+        assertEquals(600, first.estimate("food"));
+        assertEquals(100, first.top(2).get(1).getError());
+        assertEquals(600, first.estimate("taxi"));
+    }
+
+    @Test
+    public void testMergeKeepsUpperBound() {
+        SpaceSaving first = new SpaceSaving(2);
+        first.offer("x", 10);
+        first.offer("z", 1);
+        // Во второй структуре x вытеснен: его вес учтен только минимальным счетчиком
+        SpaceSaving second = new SpaceSaving(2);
+        second.offer("x", 3);
+        second.offer("w", 4);
+        second.offer("v", 1);
+
+        first.merge(second);
+
+        Map<String, Long> exact = Map.of("x", 13L, "z", 1L, "w", 4L, "v", 1L);
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            assertTrue(first.estimate(entry.getKey()) >= entry.getValue(), entry.getKey());
+        }
+        for (SpaceSaving.Entry entry : first.top(2)) {
+            assertTrue(entry.getGuaranteed() <= exact.get(entry.getKey()));
+        }
+        assertEquals(19, first.getTotal());
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new SpaceSaving(1)));
+    }
+
+    @Test
+    public void testMergeOfRandomStreamsKeepsUpperBound() {
+        Random random = new Random(11);
+        SpaceSaving first = new SpaceSaving(8);
+        SpaceSaving second = new SpaceSaving(8);
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            String key = "k" + random.nextInt(40);
+            long weight = 1 + random.nextInt(100);
+            (i % 2 == 0 ? first : second).offer(key, weight);
+            exact.merge(key, weight, Long::sum);
+        }
+
+        first.merge(second);
+
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            assertTrue(first.estimate(entry.getKey()) >= entry.getValue(), entry.getKey());
+        }
+        for (SpaceSaving.Entry entry : first.top(8)) {
+            assertTrue(entry.getGuaranteed() <= exact.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testHeavyHittersSurviveWithBoundedError() {
+        Random random = new Random(7);
+        SpaceSaving sketch = new SpaceSaving(20);
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            // Три крупные категории и длинный хвост редких
+            String key = i % 4 == 0 ? "tail" + random.nextInt(5000) : "heavy" + random.nextInt(3);
+            long weight = 1 + random.nextInt(1000);
+            sketch.offer(key, weight);
+            exact.merge(key, weight, Long::sum);
+        }
+
+        long bound = sketch.getTotal() / sketch.getCapacity();
+        assertTrue(sketch.getMaxError() <= bound);
+        List<SpaceSaving.Entry> top = sketch.top(3);
+        for (SpaceSaving.Entry entry : top) {
+            assertTrue(entry.getKey().startsWith("heavy"));
+            long actual = exact.get(entry.getKey());
+            assertTrue(entry.getCount() >= actual);
+            assertTrue(entry.getGuaranteed() <= actual);
+            assertTrue(entry.getCount() - actual <= bound);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SpaceSaving sketch = new SpaceSaving(3);
+        for (int i = 0; i < 10; i++) {
+            sketch.offer("k" + i, 10 + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        SpaceSaving restored = SpaceSaving.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(sketch.getTotal(), restored.getTotal());
+        assertEquals(sketch.getMaxError(), restored.getMaxError());
+        assertEquals(sketch.top(3).get(0).getKey(), restored.top(3).get(0).getKey());
+        // Восстановленная куча продолжает вытеснять минимальный счетчик
+        restored.offer("new", 1);
+        assertEquals(3, restored.size());
+        assertTrue(restored.estimate("new") > 1);
+    }
+
+    @Test
+    public void testRejectsNonPositiveWeight() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(2).offer("x", 0));
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(0));
+    }
+}